@@ -1,14 +1,23 @@
 package com.anton.martynenko.jswrapper;
 
 import com.anton.martynenko.jswrapper.jsexecution.JsExecution;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorkerPool;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.web.servlet.error.ErrorMvcAutoConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -18,6 +27,7 @@ import org.zalando.problem.violations.ConstraintViolationProblemModule;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -53,10 +63,27 @@ public class JsWrapperServiceApplication implements WebMvcConfigurer {
   public ObjectMapper objectMapper() {
     LOGGER.info("Jackson's object mapper insitialization...");
 
-    return new ObjectMapper().registerModules(
-      new ProblemModule(),
-      new ConstraintViolationProblemModule(),
-      new JavaTimeModule());
+    return registerModules(new ObjectMapper());
+  }
+
+  /**
+   * Prepare CBOR message converter configured like json one, replaces Spring's default.
+   * @return {@link MappingJackson2CborHttpMessageConverter} entity
+   */
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+    return new MappingJackson2CborHttpMessageConverter(registerModules(new ObjectMapper(new CBORFactory())));
+  }
+
+  /**
+   * Prepare Smile message converter configured like json one, replaces Spring's default.
+   * @return {@link MappingJackson2SmileHttpMessageConverter} entity
+   */
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+    return new MappingJackson2SmileHttpMessageConverter(registerModules(new ObjectMapper(new SmileFactory())));
   }
 
 
@@ -84,6 +111,50 @@ public class JsWrapperServiceApplication implements WebMvcConfigurer {
     return executor;
   }
 
+  /**
+   * Prepare JS worker pool used for running scripts instead of generic task executor.
+   * @param size amount of workers, number of available processors if not positive
+   * @param sandbox sandbox whose contexts with prelude idle workers prepare, absent in sliced contexts
+   * @return started {@link JsWorkerPool}
+   */
+
+  @Bean
+  public JsWorkerPool jsWorkerPool(@Value("${jswrapper.workers.size:0}") final int size,
+                                   final ObjectProvider<JsSandbox> sandbox) {
+    LOGGER.info("JsWorkerPool initialization... ");
+
+    int poolSize = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+
+    return new JsWorkerPool(poolSize, sandbox.getIfAvailable());
+  }
+
+  /**
+   * Prepare timing wheel holding delayed and repeated executions.
+   * @param tickMillis wheel tick duration in milliseconds
+   * @param buckets amount of wheel buckets
+   * @return started {@link TimingWheel}
+   */
+
+  @Bean
+  public TimingWheel timingWheel(@Value("${jswrapper.timer.tick-millis:100}") final long tickMillis,
+                                 @Value("${jswrapper.timer.buckets:1024}") final int buckets) {
+    LOGGER.info("TimingWheel initialization... ");
+
+    return new TimingWheel(tickMillis, TimeUnit.MILLISECONDS, buckets);
+  }
+
+  /**
+   * Register modules shared by mappers of all formats.
+   * @param objectMapper mapper to configure
+   * @return the same mapper
+   */
+  private static ObjectMapper registerModules(final ObjectMapper objectMapper) {
+    return objectMapper.registerModules(
+      new ProblemModule(),
+      new ConstraintViolationProblemModule(),
+      new JavaTimeModule());
+  }
+
   /**
    * Application entry point.
    * @param args arguments
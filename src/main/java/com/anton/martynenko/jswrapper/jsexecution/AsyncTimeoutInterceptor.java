@@ -0,0 +1,48 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Sets async timeout of one response, the way for streamed bodies which can't have a {@link
+ * org.springframework.web.context.request.async.WebAsyncTask} of their own. Handler puts timeout in milliseconds
+ * into {@link #TIMEOUT_ATTRIBUTE} request attribute, other async responses keep
+ * <code>spring.mvc.async.request-timeout</code>. Not positive timeout means no timeout.
+ * Interceptor registers itself for all callables.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Component
+public class AsyncTimeoutInterceptor implements CallableProcessingInterceptor, WebMvcConfigurer {
+
+  /**
+   * Name of request attribute holding async timeout of response.
+   */
+  public static final String TIMEOUT_ATTRIBUTE = AsyncTimeoutInterceptor.class.getName() + ".timeout";
+
+  @Override
+  public void configureAsyncSupport(@NotNull final AsyncSupportConfigurer configurer) {
+    configurer.registerCallableInterceptors(this);
+  }
+
+  @Override
+  public <T> void beforeConcurrentHandling(@NotNull final NativeWebRequest request,
+                                           @NotNull final Callable<T> task) {
+    Object timeout = request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+    //async request isn't started yet, so its timeout can still be changed
+    if (timeout instanceof Long && request instanceof AsyncWebRequest) {
+      ((AsyncWebRequest) request).setTimeout((Long) timeout);
+    }
+  }
+}
@@ -1,23 +1,45 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
 import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.BinaryOutput;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.CpuProfile;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.LanguageRegistry;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.PreparedContext;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.ScriptStream;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.RejectableTask;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import com.anton.martynenko.jswrapper.jsexecution.wasm.WasmModule;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorker;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
 import org.graalvm.polyglot.*;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 
 /**
  * Object representing execution of JS code fragment with details.
- * Class uses GraalJs javascript interpreter as engine
+ * Class uses GraalJs javascript interpreter as engine.
+ * Lifecycle is kept in immutable {@link JsExecutionState} swapped by CAS, so reading status never waits
+ * for the worker changing it.
  * @see <a href="https://www.graalvm.org/javascript/">GraalVM javascript interpreter</a>
  *
  * @author Martynenko Anton
@@ -26,19 +48,27 @@ import java.util.concurrent.Future;
 
 @Slf4j
 @ThreadSafe
-public final class JsExecution implements Runnable {
+public final class JsExecution implements RejectableTask {
 
 
   /**
-   * Object for checking state of thread and it's result.
+   * Current lifecycle snapshot, replaced only through validated transitions.
    */
-  @GuardedBy("this")
-  private Future<?> executionFuture;
+  private final AtomicReference<JsExecutionState> state = new AtomicReference<>(JsExecutionState.INITIAL);
+
+  /**
+   * Live context of running script, closed from other thread on cancellation.
+   */
+  private volatile Context context;
+
+  /**
+   * Actions waiting for running script to free its thread.
+   */
+  private final Queue<Runnable> releaseListeners = new ConcurrentLinkedQueue<>();
 
   /**
    * Simple numeric positive id.
    */
-  @GuardedBy("this")
   private volatile int id;
 
   /**
@@ -48,48 +78,132 @@ public final class JsExecution implements Runnable {
   private final String scriptBody;
 
   /**
-   * {@link Status} of execution.
+   * Language of code fragment.
    */
-  @GuardedBy("this")
-  private Status status = Status.CREATED;
+
+  private final String language;
 
   /**
-   * Creation time.
+   * Api key of the client owning execution.
    */
 
-  private final ZonedDateTime scheduledTime = ZonedDateTime.now();
+  private final String tenant;
 
   /**
-   * Execution's finishing time.
+   * Scheduling lane.
    */
-  @GuardedBy("this")
-  private ZonedDateTime  executionTime;
+
+  private final Priority priority;
+
+  /**
+   * Sandbox building context of the script.
+   */
+
+  private final JsSandbox sandbox;
+
+  /**
+   * Json document passed to the script, null if there is none.
+   */
+
+  private final JsonNode input;
+
+  /**
+   * Binary input passed to the script, null if there is none or once script has freed its worker.
+   */
+
+  private volatile ByteBuffer binaryInput;
+
+  /**
+   * Binary output of the script, null if execution has no binary channel.
+   */
+
+  private final BinaryOutput binaryOutput;
+
+  /**
+   * Streaming channel of the script, null if execution isn't streaming.
+   */
+
+  private final ScriptStream stream;
+
+  /**
+   * WebAssembly module bound to the script, null if there is none.
+   */
+
+  private final WasmModule wasmModule;
+
+  /**
+   * CPU profile of the script, null if execution is not profiled.
+   */
+  private final CpuProfile cpuProfile;
+
+  /**
+   * Set if js script is parsed as ES module.
+   */
+  private final boolean module;
+
+  /**
+   * Creation time.
+   */
+
+  private final ZonedDateTime scheduledTime = ZonedDateTime.now();
 
   /**
    * Empty stream to be filled with execution logs (using console.log() etc).
    */
-  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final JsExecutionLog out = new JsExecutionLog(this::fireChanged);
 
   /**
    * Empty stream to be filled with error logs (using console.err() etc).
    */
-  private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+  private final JsExecutionLog err = new JsExecutionLog(this::fireChanged);
 
   /**
-   * Exception thrown during code parsing and running.
-   *
+   * Actions waiting for the next change of execution.
+   */
+  private final Queue<Runnable> changeListeners = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Shows that output is reused from identical execution instead of running the script.
+   */
+  private volatile boolean fromCache;
+
+  /**
+   * Last built DTO with versions it was built from.
+   */
+  private volatile DtoSnapshot dtoSnapshot;
+
+  /**
+   * The only constructor, options not set on builder keep their defaults.
+   * @param builder builder holding code fragment and options
+   * @since 1.3
    */
-  @GuardedBy("this")
-  private Exception exception;
+
+  private JsExecution(@NotNull final Builder builder) {
+    this.scriptBody = builder.scriptBody;
+    this.language = builder.language;
+    this.tenant = builder.tenant;
+    this.priority = builder.priority;
+    this.sandbox = builder.sandbox;
+    this.input = builder.input;
+    this.binaryInput = builder.binaryInput;
+    this.binaryOutput = builder.binaryOutput;
+    this.stream = builder.stream;
+    this.wasmModule = builder.wasmModule;
+    this.cpuProfile = builder.cpuProfile;
+    this.module = builder.module;
+  }
 
   /**
-   * Basic constructor.
+   * Builder of execution running js code fragment of default tenant with NORMAL priority in default sandbox,
+   * without input, channels, profile and module flag until builder is told otherwise.
    * @param scriptBody code fragment
-   * @since 1.0
+   * @return new builder
+   * @since 1.3
    */
 
-  public JsExecution(@NotNull final String scriptBody) {
-    this.scriptBody = scriptBody;
+  @NotNull
+  public static Builder builder(@NotNull final String scriptBody) {
+    return new Builder(scriptBody);
   }
 
 
@@ -97,47 +211,213 @@ public final class JsExecution implements Runnable {
   public void run() {
     log.info("Execution of script id {} started", this.id);
 
-    setStatus(Status.RUNNING);
-    try (Context context = Context.newBuilder("js")
-        .allowHostAccess(HostAccess.ALL)
-        .allowPolyglotAccess(PolyglotAccess.ALL)
+    if (moveTo(Status.RUNNING, current -> current.withRunner(Thread.currentThread())) == null) {
+
+      log.debug("JsExecution id {} with status {} won't be started", this.id, getStatus());
+
+      return;
+    }
+
+    try {
+      try (Context context = newContext()) {
+
+        this.context = context;
+
+        //cancel() could miss the context while it was being built
+        if (getStatus() == Status.CANCELLED) {
+          return;
+        }
+
+        sandbox.bind(context, language, input, binaryInput, binaryOutput, stream);
+
+        if (wasmModule != null) {
+          sandbox.bindWasm(context, language, wasmModule.getSource());
+        }
+
+        Value script = context.parse(sandbox.newScriptSource(language, scriptBody, module));
+        script.execute();
+
+        if (moveTo(Status.SUCCESSFUL, current -> current.withResult(ZonedDateTime.now(), null)) != null) {
+          log.info("Execution of script id {} is completed successfully", this.id);
+        }
+
+      } catch (PolyglotException pe) {
+
+        //save exception only if execution wasn't cancelled
+        if (!pe.isCancelled() && moveTo(Status.REJECTED, current -> current.withResult(null, pe)) != null) {
+
+          log.error("Code fragment is not valid. Context will be closed. Exception information saved. Context will be closed.");
+        }
+      } catch (Exception e) {
+
+        log.error("Unknown exception during code executing. Exception type is {} Context will be closed. ", e.getClass().getName());
+
+        moveTo(Status.UNSUCCESSFUL, UnaryOperator.identity());
+      }
+    } finally {
+      if (cpuProfile != null) {
+        cpuProfile.finish();
+      }
+      release();
+    }
+  }
+
+  /**
+   * Context of the script on the engine of current worker. Js script starts with prelude loaded,
+   * worker usually has the context prepared while it was idle. Profiled script runs on the engine of its profile.
+   * @return new context writing to execution logs
+   */
+  @NotNull
+  private Context newContext() {
+    Engine engine = cpuProfile != null ? cpuProfile.start() : JsWorker.currentEngine().orElse(null);
+
+    if (sandbox.hasPrelude() && LanguageRegistry.DEFAULT_LANGUAGE.equals(language) && wasmModule == null) {
+      //context prepared by worker is on worker's engine, profiled script needs the sampling one
+      PreparedContext prepared = cpuProfile != null
+          ? sandbox.prepareContext(engine)
+          : JsWorker.takePreparedContext(sandbox).orElseGet(() -> sandbox.prepareContext(engine));
+
+      update(current -> current.withPreludeNanos(prepared.getPreludeNanos()));
+
+      return prepared.attach(out, err);
+    }
+
+    //all contexts get the same host access, so they can share worker's engine
+    //wasm is permitted along with js only for invocations of a module
+    Context.Builder contextBuilder = sandbox.newContextBuilder(wasmModule == null ? language : WasmModule.LANGUAGE)
         .out(out)
-        .err(err)
+        .err(err);
 
-        .build()) {
+    //share worker's engine if we are running on js worker thread, profiled script has engine of its own
+    if (engine != null) {
+      contextBuilder.engine(engine);
+    }
 
-      Value script = context.parse(Source.create("js", scriptBody));
-      script.execute();
-      setExecutionTime(ZonedDateTime.now());
-      setStatus(Status.SUCCESSFUL);
+    return contextBuilder.build();
+  }
 
-      log.info("Execution of script id {} is completed successfully", this.id);
+  /**
+   * Move execution to next status if transition from current one is allowed.
+   * @param next next status
+   * @param change other changes made together with status
+   * @return state before transition or null if transition is not allowed
+   */
+  private JsExecutionState moveTo(@NotNull final Status next, @NotNull final UnaryOperator<JsExecutionState> change) {
+    while (true) {
+      JsExecutionState current = state.get();
 
-    } catch (PolyglotException pe) {
+      if (!JsExecutionState.isAllowed(current.getStatus(), next)) {
+        return null;
+      }
 
-      //save exception only if execution wasn't cancelled
-      if (!pe.isCancelled()) {
+      if (state.compareAndSet(current, change.apply(current.withStatus(next)))) {
+        fireChanged();
+        return current;
+      }
+    }
+  }
 
-        log.error("Code fragment is not valid. Context will be closed. Exception information saved. Context will be closed.");
-        setStatus(Status.REJECTED);
-        setException(pe);
+  /**
+   * Change state without changing status.
+   * @param change changes
+   * @return state after change
+   */
+  @NotNull
+  private JsExecutionState update(@NotNull final UnaryOperator<JsExecutionState> change) {
+    while (true) {
+      JsExecutionState current = state.get();
+      JsExecutionState updated = change.apply(current);
+
+      if (state.compareAndSet(current, updated)) {
+        fireChanged();
+        return updated;
       }
-    } catch (Exception e) {
+    }
+  }
 
-      log.error("Unknown exception during code executing. Exception type is {} Context will be closed. ", e.getClass().getName());
+  /**
+   * Admitted execution refused by js worker pool ends the same way as one refused on submitting.
+   * @param e rejection of js worker pool
+   * @since 1.3
+   */
+
+  @Override
+  public void rejected(@NotNull final RejectedExecutionException e) {
+    if (moveTo(Status.UNSUCCESSFUL, UnaryOperator.identity()) != null) {
+      log.error("JsExecution id {} is refused by js worker pool: {}", this.id, e.getMessage());
+    }
 
-      setStatus(Status.UNSUCCESSFUL);
+    if (cpuProfile != null) {
+      cpuProfile.finish();
     }
+    release();
   }
 
+  /**
+   * Forget runner thread and context and notify listeners waiting for execution to free its worker.
+   */
+  private void release() {
+    this.context = null;
+    //script can't read input anymore, it mustn't stay in storage along with execution
+    this.binaryInput = null;
+    update(current -> current.withRunner(null));
+    runReleaseListeners();
+  }
 
   /**
-   * Setter for property 'executionTime'.
-   *
-   * @param executionTime Value to set for property 'executionTime'.
+   * Run and remove waiting release listeners, every listener is taken by exactly one thread.
    */
-  private synchronized void setExecutionTime(final @NotNull ZonedDateTime executionTime) {
-    this.executionTime = executionTime;
+  private void runReleaseListeners() {
+    Runnable listener;
+    while ((listener = releaseListeners.poll()) != null) {
+      listener.run();
+    }
+  }
+
+  /**
+   * Run and remove actions waiting for change. Called on every state change and log write, so it must stay cheap
+   * when nobody waits.
+   */
+  private void fireChanged() {
+    if (changeListeners.isEmpty()) {
+      return;
+    }
+
+    Runnable listener;
+    while ((listener = changeListeners.poll()) != null) {
+      listener.run();
+    }
+  }
+
+  /**
+   * Version growing with every change of status or logs.
+   * @return current version
+   * @since 1.3
+   */
+
+  long getVersion() {
+    //every part only grows, so the sum grows with each of them
+    return state.get().getVersion() + out.size() + err.size();
+  }
+
+  /**
+   * Run action once when execution is changed after given version, or right now if it is changed already.
+   * @param sinceVersion version known to the caller
+   * @param listener short action
+   * @return action removing listener which is not needed anymore
+   * @since 1.3
+   */
+
+  @NotNull
+  Runnable whenChanged(final long sinceVersion, @NotNull final Runnable listener) {
+    changeListeners.add(listener);
+
+    //change could happen before listener was added
+    if (getVersion() != sinceVersion) {
+      fireChanged();
+    }
+
+    return () -> changeListeners.remove(listener);
   }
 
   /**
@@ -145,7 +425,7 @@ public final class JsExecution implements Runnable {
    *
    * @param id Value to set for property 'id'.
    */
-  public synchronized void setId(final int id) {
+  public void setId(final int id) {
     this.id = id;
   }
 
@@ -154,7 +434,7 @@ public final class JsExecution implements Runnable {
    * @return current id
    */
 
-  public synchronized int getId() {
+  public int getId() {
     return id;
   }
 
@@ -169,20 +449,120 @@ public final class JsExecution implements Runnable {
   }
 
   /**
-   * Status getter.
-   * @return current execution {@link Status}
+   * Language getter.
+   * @return language of code fragment
+   * @since 1.3
    */
-  public synchronized Status getStatus() {
-    return status;
+
+  String getLanguage() {
+    return language;
   }
 
   /**
-   * Setter for property 'status'.
-   *
-   * @param status Value to set for property 'status'.
+   * Input getter.
+   * @return json document passed to the script or null
+   * @since 1.3
+   */
+
+  JsonNode getInput() {
+    return input;
+  }
+
+  /**
+   * Shows if execution has binary channel. Its input and output stay on this node.
+   * @return true if execution is created with binary input
+   * @since 1.3
+   */
+
+  boolean isBinary() {
+    return binaryOutput != null;
+  }
+
+  /**
+   * Shows if execution is bound to this node by its channels: binary buffers, streaming http exchange,
+   * modules registered on this node: WebAssembly one or ES ones it imports, or by its CPU profile.
+   * @return true if execution can't run on another node
+   * @since 1.3
+   */
+
+  boolean isLocalOnly() {
+    return binaryOutput != null || stream != null || wasmModule != null || cpuProfile != null || module;
+  }
+
+  /**
+   * Shows if js script is parsed as ES module.
+   * @return true if execution is created with module flag
+   * @since 1.3
+   */
+
+  boolean isModule() {
+    return module;
+  }
+
+  /**
+   * Shows if execution is profiled. Its profile stays on this node.
+   * @return true if execution is created with profiling
+   * @since 1.3
+   */
+
+  boolean isProfiled() {
+    return cpuProfile != null;
+  }
+
+  /**
+   * CPU profile getter.
+   * @return CPU profile of the script or null if execution is not profiled
+   * @since 1.3
+   */
+
+  CpuProfile getCpuProfile() {
+    return cpuProfile;
+  }
+
+  /**
+   * Binary input getter.
+   * @return binary input passed to the script or null if there is none or script has freed its worker
+   * @since 1.3
+   */
+
+  ByteBuffer getBinaryInput() {
+    return binaryInput;
+  }
+
+  /**
+   * Binary output getter.
+   * @return binary output of the script or null if execution has no binary channel
+   * @since 1.3
+   */
+
+  BinaryOutput getBinaryOutput() {
+    return binaryOutput;
+  }
+
+  /**
+   * Tenant getter.
+   * @return api key of the client owning execution
+   */
+
+  String getTenant() {
+    return tenant;
+  }
+
+  /**
+   * Priority getter.
+   * @return scheduling lane
+   */
+
+  Priority getPriority() {
+    return priority;
+  }
+
+  /**
+   * Status getter.
+   * @return current execution {@link Status}
    */
-  public synchronized void setStatus(@NotNull final Status status) {
-    this.status = status;
+  public Status getStatus() {
+    return state.get().getStatus();
   }
 
   /**
@@ -197,11 +577,23 @@ public final class JsExecution implements Runnable {
    * ExecutionTime Jackson's getter.
    * @return stringified value of this.executionTime property with {@link DateTimeFormatter} ISO_ZONED_DATE_TIME pattern
    */
-  synchronized String getExecutionTime() {
-    if (this.executionTime == null) {
+  String getExecutionTime() {
+    ZonedDateTime executionTime = state.get().getExecutionTime();
+
+    if (executionTime == null) {
       return null;
     }
-    return this.executionTime.format(DateTimeFormatter.ISO_ZONED_DATE_TIME);
+    return executionTime.format(DateTimeFormatter.ISO_ZONED_DATE_TIME);
+  }
+
+  /**
+   * Future of submitted execution.
+   * @return future or null if execution is not submitted yet
+   * @since 1.3
+   */
+
+  Future<?> getExecutionFuture() {
+    return state.get().getExecutionFuture();
   }
 
 
@@ -212,7 +604,7 @@ public final class JsExecution implements Runnable {
    */
 
   String collectExecutionLog() {
-    return new String(this.out.toByteArray(), StandardCharsets.UTF_8);
+    return this.out.asString();
   }
 
 
@@ -222,64 +614,351 @@ public final class JsExecution implements Runnable {
    * @since 1.1
    */
   String collectErrorLog() {
-    return new String(this.err.toByteArray(), StandardCharsets.UTF_8);
+    return this.err.asString();
   }
 
   /**
-   * Execute script with task executor.
-   * @param taskExecutor ThreadPoolTaskExecutor object
+   * Execute script with execution scheduler.
+   * @param scheduler {@link JsExecutionScheduler} object
    * @since 1.1
    */
 
-  synchronized void submitExecution(@NotNull final ThreadPoolTaskExecutor taskExecutor) {
+  void submitExecution(@NotNull final JsExecutionScheduler scheduler) {
 
-    if (this.executionFuture != null) {
+    if (moveTo(Status.SUBMITTED, current -> current.withScheduledTimeout(null)) == null) {
+
+      if (getStatus() == Status.CANCELLED) {
+
+        log.debug("JsExecution with id {} is cancelled before submitting", this.id);
+
+        return;
+      }
 
       log.debug("JsExecution with id {} is already submitted. Problem thrown.", this.id);
 
       throw new IllegalStateException("JsExecution can't be executed twice.");
     }
 
-    this.executionFuture = taskExecutor.submit(this);
+    Future<?> executionFuture;
 
-    setStatus(Status.SUBMITTED);
+    try {
+      executionFuture = scheduler.submit(this, this.tenant, this.priority);
+    } catch (RejectedExecutionException e) {
+      moveTo(Status.UNSUCCESSFUL, UnaryOperator.identity());
+      throw e;
+    }
+
+    //cancel() could come before future was attached, then it is up to us to drop the task,
+    //task could also be stolen by another node before, then its remote future stays
+    if (update(current -> current.getExecutionFuture() == null ? current.withExecutionFuture(executionFuture) : current)
+        .getStatus() == Status.CANCELLED) {
+      executionFuture.cancel(true);
+    }
 
     log.debug("JsExecution id {} successfully submitted", this.id);
   }
 
 
+  /**
+   * Put submitted execution taken from scheduler queue back, e.g. when it can't be run on another node.
+   * @param scheduler {@link JsExecutionScheduler} object
+   * @since 1.3
+   */
+
+  void resubmit(@NotNull final JsExecutionScheduler scheduler) {
+    Future<?> executionFuture = scheduler.submit(this, this.tenant, this.priority);
+
+    //future taken from the queue is cancelled already, cancel() must reach the new one
+    if (update(current -> JsExecutionState.isFinal(current.getStatus())
+        ? current
+        : current.withExecutionFuture(executionFuture)).getStatus() == Status.CANCELLED) {
+      executionFuture.cancel(true);
+    }
+  }
+
+  /**
+   * Mark submitted execution as RUNNING on another node.
+   * Cancelling the execution cancels remote future, so the other node can be told to stop it.
+   * @param remoteFuture future completed by {@link #completeRemotely}
+   * @return false if execution is not waiting for run anymore
+   * @since 1.3
+   */
+
+  boolean startRemotely(@NotNull final CompletableFuture<Void> remoteFuture) {
+    if (moveTo(Status.RUNNING, current -> current.withExecutionFuture(remoteFuture)) == null) {
+      log.debug("JsExecution id {} with status {} won't be run remotely", this.id, getStatus());
+      return false;
+    }
+
+    log.info("Execution of script id {} started on another node", this.id);
+    return true;
+  }
+
+  /**
+   * Apply result of run on another node: logs first, then final status, just like local run does.
+   * @param status final status of remote run
+   * @param executionTime time of successful finish
+   * @param executionLog execution log
+   * @param errorLog error log
+   * @param exceptionInfo exception description, empty if there is no exception
+   * @return false if execution isn't running anymore, e.g. it's cancelled
+   * @since 1.3
+   */
+
+  boolean completeRemotely(@NotNull final Status status,
+                           final ZonedDateTime executionTime,
+                           @NotNull final String executionLog,
+                           @NotNull final String errorLog,
+                           @NotNull final String exceptionInfo) {
+    if (!JsExecutionState.isFinal(status)) {
+      throw new IllegalArgumentException("Remote run can't finish with status " + status);
+    }
+
+    JsExecutionState current = state.get();
+    if (current.getStatus() != Status.RUNNING || current.getRunner() != null) {
+      return false;
+    }
+
+    byte[] outBytes = executionLog.getBytes(StandardCharsets.UTF_8);
+    byte[] errBytes = errorLog.getBytes(StandardCharsets.UTF_8);
+    out.write(outBytes, 0, outBytes.length);
+    err.write(errBytes, 0, errBytes.length);
+
+    Exception exception = exceptionInfo.isEmpty() ? null : new RemoteScriptException(exceptionInfo);
+    JsExecutionState previous = moveTo(status, next -> next.withResult(executionTime, exception));
+
+    if (previous == null) {
+      return false;
+    }
+
+    if (previous.getExecutionFuture() instanceof CompletableFuture) {
+      ((CompletableFuture<?>) previous.getExecutionFuture()).complete(null);
+    }
+
+    log.info("Execution of script id {} is completed on another node with status {}", this.id, status);
+    return true;
+  }
+
+  /**
+   * Finish execution with output of identical successful execution instead of running the script.
+   * Execution goes through the same statuses as a run, logs are written before it becomes SUCCESSFUL.
+   * @param executionLog execution log to reuse
+   * @param errorLog error log to reuse
+   * @return false if execution is not waiting for run anymore, e.g. it's cancelled
+   * @since 1.3
+   */
+
+  boolean completeFromCache(@NotNull final String executionLog, @NotNull final String errorLog) {
+    if (moveTo(Status.SUBMITTED, UnaryOperator.identity()) == null
+        || moveTo(Status.RUNNING, UnaryOperator.identity()) == null) {
+      log.debug("JsExecution id {} with status {} won't be completed from cache", this.id, getStatus());
+      return false;
+    }
+
+    this.fromCache = true;
+
+    byte[] outBytes = executionLog.getBytes(StandardCharsets.UTF_8);
+    byte[] errBytes = errorLog.getBytes(StandardCharsets.UTF_8);
+    out.write(outBytes, 0, outBytes.length);
+    err.write(errBytes, 0, errBytes.length);
+
+    if (moveTo(Status.SUCCESSFUL, current -> current.withResult(ZonedDateTime.now(), null)) == null) {
+      return false;
+    }
+
+    log.info("Execution of script id {} is completed from cache", this.id);
+    return true;
+  }
+
+  /**
+   * Mark execution as SCHEDULED and run action when delay elapses.
+   * Used both for single delayed start and for every next turn of repeated execution.
+   * @param timingWheel wheel holding timers
+   * @param delayMillis delay in milliseconds
+   * @param onDue short action handing work to some pool
+   * @since 1.3
+   */
+
+  void schedule(@NotNull final TimingWheel timingWheel, final long delayMillis, @NotNull final Runnable onDue) {
+
+    if (moveTo(Status.SCHEDULED, UnaryOperator.identity()) == null) {
+
+      if (getStatus() == Status.CANCELLED) {
+
+        log.debug("JsExecution id {} is cancelled and won't be scheduled", this.id);
+
+        return;
+      }
+
+      log.debug("JsExecution with id {} is already submitted. Problem thrown.", this.id);
+
+      throw new IllegalStateException("Submitted JsExecution can't be scheduled.");
+    }
+
+    TimingWheel.Timeout timeout = timingWheel.schedule(() -> {
+      if (getStatus() == Status.SCHEDULED) {
+        onDue.run();
+      }
+    }, delayMillis, TimeUnit.MILLISECONDS);
+
+    //same as for submitting: cancel() could miss the timer
+    if (update(current -> current.withScheduledTimeout(timeout)).getStatus() == Status.CANCELLED) {
+      timeout.cancel();
+    }
+
+    log.debug("JsExecution id {} scheduled in {} ms", this.id, delayMillis);
+  }
+
   /**
    * Begin stopping script process and mark it as CANCELLED {@link  com.anton.martynenko.jswrapper.jsexecution.enums.Status}.
    * @return false if execution has not cancellable status
    * @since 1.1
    */
 
-  synchronized boolean cancel() {
+  boolean cancel() {
+
+    JsExecutionState previous = moveTo(Status.CANCELLED, UnaryOperator.identity());
+
+    if (previous == null) {
+
+      log.debug("JsExecution id {} and status {} can't be canceled", this.id, getStatus());
+      return false;
+    }
+
+    if (previous.getScheduledTimeout() != null) {
+      previous.getScheduledTimeout().cancel();
+    }
+
+    if (previous.getExecutionFuture() != null) {
+      previous.getExecutionFuture().cancel(true);
+    }
+
+    //script which isn't running won't take input, running one drops it when it frees its worker
+    if (previous.getRunner() == null) {
+      this.binaryInput = null;
+    }
+
+    //interruption is not enough for GraalJs, running script must be stopped by its context
+    closeContext(this.context);
+
+    log.debug("JsExecution id {} cancelled successfully", this.id);
+
+    return true;
+  }
+
+  /**
+   * Stop running script once more: close its context and interrupt its thread.
+   * Used when cancelled execution doesn't free its thread in time.
+   * @since 1.3
+   */
+
+  void hardStop() {
+    Context liveContext = this.context;
+    Thread runner = state.get().getRunner();
 
-    if (this.executionFuture != null && this.executionFuture.cancel(true)) {
-      setStatus(Status.CANCELLED);
+    //worker clears interruption after every task, so late interrupt can't break the next one for long
+    if (runner != null) {
+      runner.interrupt();
+    }
 
-      log.debug("JsExecution id {} cancelled successfully", this.id);
+    closeContext(liveContext);
+  }
 
-      return true;
+  /**
+   * Close context cancelling script running in it.
+   * @param liveContext context or null if script is not running
+   */
+  private void closeContext(final Context liveContext) {
+    if (liveContext == null) {
+      return;
     }
 
-    log.debug("JsExecution id {} and status {} can't be canceled", this.id, this.status);
-    return false;
+    try {
+      liveContext.close(true);
+    } catch (RuntimeException e) {
+      log.debug("Context of JsExecution id {} is not closed: {}", this.id, e.getMessage());
+    }
   }
 
   /**
-   * Setter for property 'exception'.
-   *
-   * @param exception Value to set for property 'exception'.
+   * Shows if script is holding its thread right now.
+   * @return true if script is running
+   * @since 1.3
    */
-  private synchronized void setException(final Exception exception) {
-    this.exception = exception;
+
+  boolean isRunning() {
+    return state.get().getRunner() != null;
   }
 
+  /**
+   * Thread running the script.
+   * @return runner thread or null if script is not running
+   * @since 1.3
+   */
+
+  Thread getRunner() {
+    return state.get().getRunner();
+  }
 
+  /**
+   * Run action when script frees its thread, or right now if script is not running.
+   * @param listener short action
+   * @since 1.3
+   */
+
+  void whenReleased(@NotNull final Runnable listener) {
+    releaseListeners.add(listener);
+
+    //runner could leave before listener was added, then nobody else will take it
+    if (state.get().getRunner() == null) {
+      runReleaseListeners();
+    }
+  }
+
+  /**
+   * Run action once execution is finished and has freed its worker, so logs are complete and script
+   * doesn't touch its channels anymore. Action runs right now if it is so already, otherwise on executor,
+   * changes are fired by the js worker which must not do any real work.
+   * @param executor executor running the check and the action
+   * @param action action
+   * @since 1.3
+   */
+
+  void whenFinished(@NotNull final Executor executor, @NotNull final Runnable action) {
+    //version is read before status, any later change fires the listener
+    long version = getVersion();
+
+    if (!JsExecutionState.isFinal(getStatus()) || isRunning()) {
+      whenChanged(version, () -> executor.execute(() -> whenFinished(executor, action)));
+      return;
+    }
+
+    action.run();
+  }
+
+
+  /**
+   * Snapshot of execution. The same DTO is returned while nothing changes, finished execution builds it only once.
+   * @return immutable DTO
+   */
   @NotNull
-  synchronized JsExecutionDTO getDto() {
+  JsExecutionDTO getDto() {
+    DtoSnapshot cached = this.dtoSnapshot;
+
+    if (cached != null && cached.isFinal() && cached.id == id) {
+      return cached.getDto();
+    }
+
+    //state is read before logs: if script is finished and released, logs can't grow anymore
+    JsExecutionState current = state.get();
+    int outSize = out.size();
+    int errSize = err.size();
+
+    if (cached != null && cached.isBuiltFrom(id, current, outSize, errSize)) {
+      return cached.getDto();
+    }
+
+    Exception exception = current.getException();
     String exceptionInfo = "";
 
     if (exception != null) {
@@ -291,27 +970,338 @@ public final class JsExecution implements Runnable {
       }
     }
 
-    return new JsExecutionDTO(
-        this.id,
-        this.status,
-        this.scriptBody,
-        this.scheduledTime,
-        this.executionTime,
-        collectExecutionLog(),
-        collectErrorLog(),
-        this.executionFuture != null && !this.executionFuture.isDone(),
-        exceptionInfo
-        );
+    JsExecutionDTO dto = JsExecutionDTO.builder(this.scriptBody)
+        .id(this.id)
+        .status(current.getStatus())
+        .scheduledTime(this.scheduledTime)
+        .executionTime(current.getExecutionTime())
+        .executionLog(collectExecutionLog())
+        .errorLog(collectErrorLog())
+        .cancellable(current.isCancellable())
+        .exceptionInfo(exceptionInfo)
+        .fromCache(this.fromCache)
+        .binary(isBinary())
+        .preludeNanos(current.getPreludeNanos())
+        .profiled(isProfiled())
+        .build();
+
+    boolean finished = JsExecutionState.isFinal(current.getStatus()) && current.getRunner() == null;
+    this.dtoSnapshot = new DtoSnapshot(id, current, outSize, errSize, dto, finished);
+
+    return dto;
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
+    JsExecutionState current = state.get();
+
     return "JsExecution{" +
         "id=" + id +
         ", scriptBody='" + scriptBody + '\'' +
-        ", status=" + status +
+        ", status=" + current.getStatus() +
         ", scheduledTime=" + scheduledTime +
-        ", executionTime=" + executionTime +
+        ", executionTime=" + current.getExecutionTime() +
         '}';
   }
+
+  /**
+   * Exception of script run on another node, carries its description only.
+   */
+  private static final class RemoteScriptException extends Exception {
+
+    /**
+     * Basic constructor.
+     * @param exceptionInfo exception description made by the other node
+     */
+    private RemoteScriptException(@NotNull final String exceptionInfo) {
+      super(exceptionInfo, null, false, false);
+    }
+  }
+
+  /**
+   * DTO together with versions of everything it was built from.
+   */
+  private static final class DtoSnapshot {
+
+    /**
+     * Id at the moment of building.
+     */
+    private final int id;
+
+    /**
+     * State at the moment of building.
+     */
+    private final JsExecutionState state;
+
+    /**
+     * Execution log size at the moment of building.
+     */
+    private final int outSize;
+
+    /**
+     * Error log size at the moment of building.
+     */
+    private final int errSize;
+
+    /**
+     * Built DTO.
+     */
+    private final JsExecutionDTO dto;
+
+    /**
+     * True if execution can't change anymore.
+     */
+    private final boolean finished;
+
+    /**
+     * Basic constructor.
+     * @param id execution id
+     * @param state execution state
+     * @param outSize execution log size
+     * @param errSize error log size
+     * @param dto built DTO
+     * @param finished true if execution can't change anymore
+     */
+    private DtoSnapshot(final int id,
+                        @NotNull final JsExecutionState state,
+                        final int outSize,
+                        final int errSize,
+                        @NotNull final JsExecutionDTO dto,
+                        final boolean finished) {
+      this.id = id;
+      this.state = state;
+      this.outSize = outSize;
+      this.errSize = errSize;
+      this.dto = dto;
+      this.finished = finished;
+    }
+
+    /**
+     * Checks if snapshot is still actual.
+     * @param currentId current id
+     * @param currentState current state
+     * @param currentOutSize current execution log size
+     * @param currentErrSize current error log size
+     * @return true if nothing changed since snapshot was built
+     */
+    private boolean isBuiltFrom(final int currentId,
+                                @NotNull final JsExecutionState currentState,
+                                final int currentOutSize,
+                                final int currentErrSize) {
+      return id == currentId && state == currentState && outSize == currentOutSize && errSize == currentErrSize;
+    }
+
+    /**
+     * Getter for property 'dto'.
+     *
+     * @return Value for property 'dto'.
+     */
+    private JsExecutionDTO getDto() {
+      return dto;
+    }
+
+    /**
+     * Getter for property 'finished'.
+     *
+     * @return Value for property 'finished'.
+     */
+    private boolean isFinal() {
+      return finished;
+    }
+  }
+
+  /**
+   * Builder of {@link JsExecution}, every option but code fragment is optional.
+   */
+  public static final class Builder {
+
+    /**
+     * Code fragment.
+     */
+    private final String scriptBody;
+
+    /**
+     * Language of code fragment.
+     */
+    private String language = LanguageRegistry.DEFAULT_LANGUAGE;
+
+    /**
+     * Api key of the client owning execution.
+     */
+    private String tenant = HttpHeader.DEFAULT_TENANT;
+
+    /**
+     * Scheduling lane.
+     */
+    private Priority priority = Priority.NORMAL;
+
+    /**
+     * Sandbox building context of the script.
+     */
+    private JsSandbox sandbox = JsSandbox.DEFAULT;
+
+    /**
+     * Json document passed to the script or null.
+     */
+    private JsonNode input;
+
+    /**
+     * Binary input passed to the script or null.
+     */
+    private ByteBuffer binaryInput;
+
+    /**
+     * Binary output of the script or null.
+     */
+    private BinaryOutput binaryOutput;
+
+    /**
+     * Streaming channel of the script or null.
+     */
+    private ScriptStream stream;
+
+    /**
+     * WebAssembly module bound to the script or null.
+     */
+    private WasmModule wasmModule;
+
+    /**
+     * CPU profile of the script or null.
+     */
+    private CpuProfile cpuProfile;
+
+    /**
+     * Set if js script is parsed as ES module.
+     */
+    private boolean module;
+
+    /**
+     * Basic constructor.
+     * @param scriptBody code fragment
+     */
+    private Builder(@NotNull final String scriptBody) {
+      this.scriptBody = scriptBody;
+    }
+
+    /**
+     * Set language of code fragment.
+     * @param language language id
+     * @return this builder
+     */
+    @NotNull
+    public Builder language(@NotNull final String language) {
+      this.language = language;
+      return this;
+    }
+
+    /**
+     * Set client owning execution.
+     * @param tenant api key of the client
+     * @return this builder
+     */
+    @NotNull
+    public Builder tenant(@NotNull final String tenant) {
+      this.tenant = tenant;
+      return this;
+    }
+
+    /**
+     * Set scheduling lane.
+     * @param priority scheduling lane
+     * @return this builder
+     */
+    @NotNull
+    public Builder priority(@NotNull final Priority priority) {
+      this.priority = priority;
+      return this;
+    }
+
+    /**
+     * Set sandbox building context of the script.
+     * @param sandbox sandbox
+     * @return this builder
+     */
+    @NotNull
+    public Builder sandbox(@NotNull final JsSandbox sandbox) {
+      this.sandbox = sandbox;
+      return this;
+    }
+
+    /**
+     * Set json document passed to the script.
+     * @param input json document or null
+     * @return this builder
+     */
+    @NotNull
+    public Builder input(final JsonNode input) {
+      this.input = input;
+      return this;
+    }
+
+    /**
+     * Set binary channel of the script.
+     * @param binaryInput binary input passed to the script
+     * @param binaryOutput binary output of the script
+     * @return this builder
+     */
+    @NotNull
+    public Builder binary(@NotNull final ByteBuffer binaryInput, @NotNull final BinaryOutput binaryOutput) {
+      this.binaryInput = binaryInput;
+      this.binaryOutput = binaryOutput;
+      return this;
+    }
+
+    /**
+     * Set streaming channel of the script.
+     * @param stream streaming channel
+     * @return this builder
+     */
+    @NotNull
+    public Builder stream(@NotNull final ScriptStream stream) {
+      this.stream = stream;
+      return this;
+    }
+
+    /**
+     * Set WebAssembly module bound to the script.
+     * @param wasmModule uploaded module
+     * @return this builder
+     */
+    @NotNull
+    public Builder wasmModule(@NotNull final WasmModule wasmModule) {
+      this.wasmModule = wasmModule;
+      return this;
+    }
+
+    /**
+     * Set CPU profile the script is sampled into.
+     * @param cpuProfile profile which isn't sampling yet
+     * @return this builder
+     */
+    @NotNull
+    public Builder cpuProfile(@NotNull final CpuProfile cpuProfile) {
+      this.cpuProfile = cpuProfile;
+      return this;
+    }
+
+    /**
+     * Set if js script is parsed as ES module.
+     * @param module true for ES module
+     * @return this builder
+     */
+    @NotNull
+    public Builder module(final boolean module) {
+      this.module = module;
+      return this;
+    }
+
+    /**
+     * Build execution with options set so far.
+     * @return new execution
+     */
+    @NotNull
+    public JsExecution build() {
+      return new JsExecution(this);
+    }
+  }
 }
@@ -0,0 +1,134 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorker;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorkerPool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches cancelled executions until they free their worker.
+ * If script is still running after deadline it is stopped once more, if it is still running after the second
+ * deadline its worker is replaced in the pool and its scheduler slot is freed, so cancellation always gives
+ * capacity back.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@Component
+public class JsExecutionCancellationWatchdog {
+
+  /**
+   * {@link TimingWheel} bean used for deadlines.
+   */
+  private final TimingWheel timingWheel;
+
+  /**
+   * {@link JsWorkerPool} bean.
+   */
+  private final JsWorkerPool jsWorkerPool;
+
+  /**
+   * {@link JsExecutionScheduler} bean.
+   */
+  private final JsExecutionScheduler jsExecutionScheduler;
+
+  /**
+   * Time given to cancelled script on every escalation step.
+   */
+  private final long deadlineMillis;
+
+  /**
+   * Time between cancellation and the moment worker is freed.
+   */
+  private final Timer cancellationLatency;
+
+  /**
+   * Amount of cancelled scripts which missed the first deadline.
+   */
+  private final Counter escalations;
+
+  /**
+   * Basic constructor.
+   * @param timingWheel timing wheel bean
+   * @param jsWorkerPool worker pool bean
+   * @param jsExecutionScheduler scheduler bean
+   * @param meterRegistry registry for cancellation metrics
+   * @param deadlineMillis time given to cancelled script on every escalation step
+   */
+
+  public JsExecutionCancellationWatchdog(@NotNull final TimingWheel timingWheel,
+                                         @NotNull final JsWorkerPool jsWorkerPool,
+                                         @NotNull final JsExecutionScheduler jsExecutionScheduler,
+                                         @NotNull final MeterRegistry meterRegistry,
+                                         @Value("${jswrapper.cancellation.deadline-millis:1000}") final long deadlineMillis) {
+    this.timingWheel = timingWheel;
+    this.jsWorkerPool = jsWorkerPool;
+    this.jsExecutionScheduler = jsExecutionScheduler;
+    this.deadlineMillis = deadlineMillis;
+    this.cancellationLatency = Timer.builder("jswrapper.cancellation.latency")
+        .description("Time between cancellation and freeing of js worker")
+        .publishPercentiles(0.5, 0.99)
+        .register(meterRegistry);
+    this.escalations = Counter.builder("jswrapper.cancellation.escalations")
+        .description("Cancelled executions which didn't free js worker in time")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Start watching just cancelled execution.
+   * @param jsExecution cancelled execution
+   */
+
+  void watch(@NotNull final JsExecution jsExecution) {
+    long start = System.nanoTime();
+
+    jsExecution.whenReleased(() -> cancellationLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+
+    if (jsExecution.isRunning()) {
+      timingWheel.schedule(() -> escalate(jsExecution), deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * First escalation step: stop script once more.
+   * @param jsExecution cancelled execution
+   */
+  private void escalate(@NotNull final JsExecution jsExecution) {
+    if (!jsExecution.isRunning()) {
+      return;
+    }
+
+    escalations.increment();
+    log.warn("Cancelled JsExecution id {} is still running after {} ms, stopping it again",
+        jsExecution.getId(), deadlineMillis);
+
+    jsExecution.hardStop();
+
+    timingWheel.schedule(() -> replaceWorker(jsExecution), deadlineMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Last escalation step: give up on the thread, put new worker in its place and give its scheduler slot
+   * to the next execution.
+   * @param jsExecution cancelled execution
+   */
+  private void replaceWorker(@NotNull final JsExecution jsExecution) {
+    Thread runner = jsExecution.getRunner();
+
+    if (runner instanceof JsWorker && jsWorkerPool.replace((JsWorker) runner)) {
+      jsExecutionScheduler.release(runner);
+      log.error("Cancelled JsExecution id {} can't be stopped, its worker is replaced", jsExecution.getId());
+    }
+  }
+}
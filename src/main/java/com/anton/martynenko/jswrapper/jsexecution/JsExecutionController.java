@@ -1,11 +1,19 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
 
+import com.anton.martynenko.jswrapper.jsexecution.cluster.NodeLocal;
+import com.anton.martynenko.jswrapper.jsexecution.constants.ContentType;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
 import com.anton.martynenko.jswrapper.jsexecution.constants.JsonExamples;
 import com.anton.martynenko.jswrapper.jsexecution.constants.Property;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
 import com.anton.martynenko.jswrapper.jsexecution.enums.SortBy;
 import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.problem.BinaryInputTooLargeProblem;
 import com.anton.martynenko.jswrapper.jsexecution.problem.NoSuchPropertyProblem;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.BinaryOutput;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.ScriptStream;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.headers.Header;
@@ -16,16 +24,33 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -53,6 +78,21 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 @RequestMapping("/executions")
 public class JsExecutionController {
 
+  /**
+   * Limit of long-polling time.
+   */
+  private static final long MAX_WAIT_FOR_CHANGE_MILLIS = 60_000;
+
+  /**
+   * First buffer size of binary input coming without Content-Length.
+   */
+  private static final int INITIAL_BINARY_INPUT_BYTES = 64 * 1024;
+
+  /**
+   * The largest array JVM surely allocates.
+   */
+  private static final int MAX_ARRAY_BYTES = Integer.MAX_VALUE - 8;
+
   /**
    * {@link JsExecutionService}JsExecutionService bean.
    */
@@ -63,11 +103,27 @@ public class JsExecutionController {
    */
   private final JsExecutionDTOModelAssembler jsExecutionDTOModelAssembler;
 
+  /**
+   * {@link JsExecutionResponseCache} bean.
+   */
+  private final JsExecutionResponseCache jsExecutionResponseCache;
+
+  /**
+   * MVC's {@link ContentNegotiationManager} bean.
+   */
+  private final ContentNegotiationManager contentNegotiationManager;
+
+  /**
+   * {@link JsSandbox} bean limiting binary input and making streaming channels.
+   */
+  private final JsSandbox sandbox;
+
 
   /**
    * Runs new JS code execution.
    *
    * @param newJsExecutionDTO new JsExecution to save and run
+   * @param apiKey optional client's api key used as scheduling tenant
    * @return  {@link ResponseEntity} with containing json view of {@link JsExecution} with HATEOAS links
    *
    * @since 1.0
@@ -86,20 +142,147 @@ public class JsExecutionController {
               examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_SUBMITTED_EXAMPLE)))
   })
   @PostMapping(produces = {MediaType.APPLICATION_JSON_VALUE})
-  public ResponseEntity<EntityModel<JsExecutionDTO>> createNew(@RequestBody final JsExecutionDTO newJsExecutionDTO) {
+  public ResponseEntity<EntityModel<JsExecutionDTO>> createNew(@RequestBody final JsExecutionDTO newJsExecutionDTO,
+                                                               @RequestHeader(value = HttpHeader.API_KEY, required = false)
+                                                               final Optional<String> apiKey) {
+
+    JsExecutionDTO jsExecutionDTO = jsExecutionService.createAndRun(newJsExecutionDTO,
+        apiKey.filter(key -> !key.isEmpty()).orElse(HttpHeader.DEFAULT_TENANT));
+
+    EntityModel<JsExecutionDTO> entityModel = jsExecutionDTOModelAssembler.toModel(jsExecutionDTO);
+
+    return ResponseEntity.created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
+  }
+
+  /**
+   * Runs new JS code execution with binary input. Request body is read once into buffer which script gets
+   * as read-only ArrayBuffer <code>binaryInput</code>, output written by script to buffers of
+   * <code>binaryOutput</code> is returned by {@link #getBinaryOutput}. Input is dropped once script is finished.
+   *
+   * @param scriptBody javascript code fragment
+   * @param priority optional scheduling lane
+   * @param apiKey optional client's api key used as scheduling tenant
+   * @param request request with binary body
+   * @return  {@link ResponseEntity} with containing json view of {@link JsExecution} with HATEOAS links
+   * @throws IOException if request body can't be read
+   *
+   * @since 1.3
+   */
 
-    JsExecutionDTO jsExecutionDTO = jsExecutionService.createAndRun(newJsExecutionDTO);
+  @Operation(summary = "Create new JsExecution with binary input",
+      description = "Create new JsExecution, request body is passed to the script as ArrayBuffer")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_CREATED + "",
+          description = "Code execution request created",
+          headers = @Header(name = "Location", description = "Location of created execution"),
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+              examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_SUBMITTED_EXAMPLE))),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_ENTITY_TOO_LARGE + "", description = "Binary input is too large",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @PostMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public ResponseEntity<EntityModel<JsExecutionDTO>> createNewBinary(@RequestParam final String scriptBody,
+                                                                     @RequestParam(required = false)
+                                                                     final Optional<Priority> priority,
+                                                                     @RequestHeader(value = HttpHeader.API_KEY,
+                                                                         required = false)
+                                                                     final Optional<String> apiKey,
+                                                                     final HttpServletRequest request)
+      throws IOException {
+
+    JsExecutionDTO jsExecutionDTO = jsExecutionService.createAndRunBinary(scriptBody,
+        priority.orElse(Priority.NORMAL), readBinaryInput(request),
+        apiKey.filter(key -> !key.isEmpty()).orElse(HttpHeader.DEFAULT_TENANT));
 
     EntityModel<JsExecutionDTO> entityModel = jsExecutionDTOModelAssembler.toModel(jsExecutionDTO);
 
     return ResponseEntity.created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
   }
 
+  /**
+   * Runs new JS code execution streaming request body to the script and its output back while the script runs.
+   * Script takes text of request body from <code>stream</code> object as it comes, by iteration,
+   * <code>stream.lines()</code> or <code>stream.read()</code>, and writes response with
+   * <code>stream.write(text)</code>. Request body is read only as fast as script takes it, script waits while
+   * the client doesn't take output. Execution status is available at Location meanwhile.
+   * Chunked request body takes one of <code>jswrapper.sandbox.max-stream-readers</code> reader threads,
+   * request is refused with 503 when all of them are busy.
+   *
+   * @param scriptBody javascript code fragment
+   * @param priority optional scheduling lane
+   * @param apiKey optional client's api key used as scheduling tenant
+   * @param request request with streamed body
+   * @return  {@link ResponseEntity} streaming script output
+   * @throws IOException if request body can't be read
+   *
+   * @since 1.3
+   */
+
+  @Operation(summary = "Create new streaming JsExecution",
+      description = "Create new JsExecution, request body is streamed to the script and its output back")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "",
+          description = "Output of the script, streamed while it runs",
+          headers = @Header(name = "Location", description = "Location of created execution"),
+          content = @Content(mediaType = MediaType.TEXT_PLAIN_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_UNAVAILABLE + "",
+          description = "All threads reading chunked request bodies are busy",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @NodeLocal
+  @PostMapping(value = "/stream", produces = MediaType.TEXT_PLAIN_VALUE)
+  public ResponseEntity<StreamingResponseBody> createNewStreaming(@RequestParam final String scriptBody,
+                                                                  @RequestParam(required = false)
+                                                                  final Optional<Priority> priority,
+                                                                  @RequestHeader(value = HttpHeader.API_KEY,
+                                                                      required = false)
+                                                                  final Optional<String> apiKey,
+                                                                  final HttpServletRequest request)
+      throws IOException {
+    ScriptStream stream = sandbox.newScriptStream();
+    boolean chunked = request.getContentLengthLong() < 0;
+
+    if (chunked) {
+      //body without length is chunked, non-blocking chunked reading of Tomcat 9.0.63 fails on split CRLF,
+      //reader is taken before execution is created, so busy readers refuse the request with nothing started
+      stream.readBlockingFrom(request.getInputStream());
+    }
+
+    JsExecutionDTO jsExecutionDTO;
+
+    try {
+      jsExecutionDTO = jsExecutionService.createAndRunStreaming(scriptBody, priority.orElse(Priority.NORMAL),
+          stream, apiKey.filter(key -> !key.isEmpty()).orElse(HttpHeader.DEFAULT_TENANT));
+    } catch (RuntimeException e) {
+      stream.finish();
+      throw e;
+    }
+
+    //streamed response lasts as long as its script, stalled streams are stopped by stream idle timeout
+    request.setAttribute(AsyncTimeoutInterceptor.TIMEOUT_ATTRIBUTE, -1L);
+
+    return ResponseEntity.ok()
+        .location(linkTo(methodOn(JsExecutionController.class).getOne(jsExecutionDTO.getId(), null)).toUri())
+        .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+        .body(out -> {
+          if (!chunked) {
+            //request is in async mode only here, so its body can be read without blocking
+            stream.readFrom(request.getInputStream());
+          }
+          stream.writeTo(out);
+        });
+  }
+
   /**
    * Returns {@link  JsExecution} by id.
+   * Response carries ETag based on execution version, If-None-Match with actual version gets 304 before any
+   * DTO is built. Finished execution is written from {@link JsExecutionResponseCache} with strong ETag.
+   * Besides json, execution can be requested as CBOR or Smile.
    *
    * @param executionId {@link  JsExecution} id.
-   * @return  {@link EntityModel} containing json view of {@link JsExecution} with HATEOAS links
+   * @param ifNoneMatch optional ETags known to the client
+   * @return  {@link ResponseEntity} containing json view of {@link JsExecution} with HATEOAS links
    *
    * @since 1.0
    */
@@ -108,22 +291,127 @@ public class JsExecutionController {
       description = "Get JsExecution by id")
   @ApiResponses(value = {
       @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "JsExecution found",
+          headers = @Header(name = HttpHeaders.ETAG, description = "Version of execution"),
           content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
               examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_SUCCESS_EXAMPLE))),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_MODIFIED + "",
+          description = "JsExecution is not changed since ETag from If-None-Match",
+          content = @Content(mediaType = MediaType.ALL_VALUE)),
       @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "JsExecution not found",
           content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE,
               examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_NOT_FOUND_EXAMPLE))),
   })
-  @GetMapping(value = "/{executionId}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
-  public EntityModel<JsExecutionDTO> getOne(@PathVariable final Integer executionId) {
-    return jsExecutionDTOModelAssembler.toModel(jsExecutionService.getOne(executionId));
+  @GetMapping(value = "/{executionId}", produces = {MediaType.APPLICATION_JSON_VALUE, ContentType.APPLICATION_CBOR_VALUE,
+      ContentType.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public ResponseEntity<?> getOne(@PathVariable final Integer executionId,
+                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                  final Optional<String> ifNoneMatch) {
+    //version is read before DTO, so ETag is never newer than the body
+    String versionETag = versionETag(executionId, jsExecutionService.getVersion(executionId));
+
+    if (eTagMatches(ifNoneMatch, versionETag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(versionETag).build();
+    }
+
+    JsExecutionDTO jsExecutionDTO = jsExecutionService.getOne(executionId);
+
+    if (!JsExecutionState.isFinal(jsExecutionDTO.getStatus())) {
+      return ResponseEntity.ok()
+          .eTag(versionETag)
+          .varyBy(HttpHeaders.ACCEPT)
+          .body(jsExecutionDTOModelAssembler.toModel(jsExecutionDTO));
+    }
+
+    MediaType mediaType = negotiateMediaType();
+    JsExecutionResponseCache.CachedResponse response = jsExecutionResponseCache.get(jsExecutionDTO,
+        ServletUriComponentsBuilder.fromCurrentContextPath().toUriString(), mediaType);
+
+    //MVC answers If-None-Match itself when response entity has ETag
+    return ResponseEntity.ok()
+        .eTag(response.getETag())
+        .varyBy(HttpHeaders.ACCEPT)
+        .contentType(mediaType)
+        .body(response.getBody());
+  }
+
+  /**
+   * Long-polling version of {@link #getOne}: if execution is not changed since ETag from If-None-Match,
+   * response waits until it changes or time is out.
+   *
+   * @param executionId {@link  JsExecution} id.
+   * @param waitForChange maximum waiting time in milliseconds, limited by one minute
+   * @param ifNoneMatch optional ETags known to the client
+   * @return deferred {@link ResponseEntity}, 304 if execution is not changed in time
+   *
+   * @since 1.3
+   */
+
+  @Operation(summary = "Wait for JsExecution change",
+      description = "Get JsExecution by id as soon as it differs from If-None-Match version")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "JsExecution changed",
+          headers = @Header(name = HttpHeaders.ETAG, description = "Version of execution"),
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+              examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_SUCCESS_EXAMPLE))),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_MODIFIED + "",
+          description = "JsExecution is not changed in time",
+          content = @Content(mediaType = MediaType.ALL_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "JsExecution not found",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE,
+              examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_NOT_FOUND_EXAMPLE))),
+  })
+  @GetMapping(value = "/{executionId}", params = "waitForChange",
+      produces = {MediaType.APPLICATION_JSON_VALUE, ContentType.APPLICATION_CBOR_VALUE,
+          ContentType.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public DeferredResult<ResponseEntity<?>> waitForChange(@PathVariable final Integer executionId,
+                                                         @RequestParam final long waitForChange,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                         final Optional<String> ifNoneMatch) {
+    long timeout = Math.max(1, Math.min(waitForChange, MAX_WAIT_FOR_CHANGE_MILLIS));
+    long version = jsExecutionService.getVersion(executionId);
+    String versionETag = versionETag(executionId, version);
+
+    DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeout,
+        () -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(versionETag).build());
+
+    if (!eTagMatches(ifNoneMatch, versionETag)) {
+      result.setResult(getOne(executionId, ifNoneMatch));
+      return result;
+    }
+
+    //links are built from current request, its attributes are completed when this method returns,
+    //so listener renders the response with fresh attributes over the same async request
+    HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+        .getRequest();
+
+    Runnable removeListener = jsExecutionService.whenChanged(executionId, version, () -> {
+      if (result.isSetOrExpired()) {
+        return;
+      }
+
+      RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+      try {
+        result.setResult(getOne(executionId, Optional.empty()));
+      } catch (RuntimeException e) {
+        result.setErrorResult(e);
+      } finally {
+        RequestContextHolder.resetRequestAttributes();
+      }
+    });
+
+    result.onCompletion(removeListener);
+
+    return result;
   }
 
   /**
    * Returns {@link  JsExecution} collection.
+   * Response carries weak ETag based on versions of all executions, If-None-Match with actual one gets 304
+   * before any DTO is built.
    *
    * @param status optional {@link  com.anton.martynenko.jswrapper.jsexecution.enums.Status} filtration criteria
    * @param sortBy optional {@link  com.anton.martynenko.jswrapper.jsexecution.enums.SortBy} sorting criteria
+   * @param ifNoneMatch optional ETags known to the client
    * @return  {@link CollectionModel}  of {@link EntityModel} ({@link JsExecution} json view with HATEOAS links)
    *
    * @since 1.0
@@ -132,23 +420,39 @@ public class JsExecutionController {
   @Operation(summary = "List JsExecutions",
       description = "Retrieve JsExecutions list")
   @ApiResponses(value = {
-      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "Request is successful", content = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "Request is successful",
+          headers = @Header(name = HttpHeaders.ETAG, description = "Version of executions list"),
+          content = {
           @Content(
               mediaType = MediaType.APPLICATION_JSON_VALUE,
               examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_ARRAY_EXAMPLE))
       }),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_MODIFIED + "",
+          description = "No execution is changed since ETag from If-None-Match",
+          content = @Content(mediaType = MediaType.ALL_VALUE)),
   })
-  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-  public CollectionModel<EntityModel<JsExecutionDTO>>
+  @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, ContentType.APPLICATION_CBOR_VALUE,
+      ContentType.APPLICATION_SMILE_VALUE})
+  public ResponseEntity<CollectionModel<EntityModel<JsExecutionDTO>>>
   listAll(@RequestParam(required = false) final Optional<Status> status,
-         @RequestParam(required = false) final Optional<SortBy> sortBy) {
+         @RequestParam(required = false) final Optional<SortBy> sortBy,
+         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final Optional<String> ifNoneMatch) {
+
+    String storageETag = "W/\"" + jsExecutionService.getStorageVersion() + "\"";
+
+    if (eTagMatches(ifNoneMatch, storageETag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(storageETag).build();
+    }
 
     List<EntityModel<JsExecutionDTO>> entityModels = jsExecutionService.findAll(status, sortBy).stream() //
         .map(jsExecutionDTOModelAssembler::toModel) //
         .collect(Collectors.toList());
 
-    return CollectionModel.of(entityModels, linkTo(methodOn(JsExecutionController.class)
-        .listAll(null, null)).withSelfRel());
+    return ResponseEntity.ok()
+        .eTag(storageETag)
+        .varyBy(HttpHeaders.ACCEPT)
+        .body(CollectionModel.of(entityModels, linkTo(methodOn(JsExecutionController.class)
+            .listAll(null, null, null)).withSelfRel()));
   }
 
   /**
@@ -172,7 +476,8 @@ public class JsExecutionController {
           content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE,
               examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_CAN_NOT_BE_CANCELLED_EXAMPLE)))
   })
-  @DeleteMapping(value = "/{executionId}/cancel", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  @DeleteMapping(value = "/{executionId}/cancel", produces = {MediaType.APPLICATION_JSON_VALUE,
+      ContentType.APPLICATION_CBOR_VALUE, ContentType.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
   public ResponseEntity<EntityModel<JsExecutionDTO>> cancelJsExecution(@PathVariable final Integer executionId) {
     JsExecutionDTO jsExecutionDTO = jsExecutionService.cancelExecution(executionId);
     return ResponseEntity.ok(jsExecutionDTOModelAssembler.toModel(jsExecutionDTO));
@@ -200,6 +505,7 @@ public class JsExecutionController {
   @DeleteMapping(value = "/{executionId}", produces = MediaType.APPLICATION_PROBLEM_JSON_VALUE)
   public ResponseEntity<String> deleteJsExecution(@PathVariable final Integer executionId) {
     jsExecutionService.deleteExecution(executionId);
+    jsExecutionResponseCache.evict(executionId);
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
 
@@ -247,4 +553,178 @@ public class JsExecutionController {
     return ResponseEntity.ok(detailsText);
   }
 
+  /**
+   * Returns binary output of successfully finished {@link  JsExecution} by id.
+   * Output is streamed straight from buffers the script has filled. It is kept for
+   * <code>jswrapper.sandbox.binary-output-ttl-millis</code> after execution is finished, then it is dropped.
+   *
+   * @param executionId {@link  JsExecution} id
+   * @return streamed binary output
+   *
+   * @since 1.3
+   */
+
+  @Operation(summary = "Get binary output",
+      description = "Get binary output of successfully finished JsExecution created with binary input")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "Binary output returned",
+          content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "Execution not found",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE,
+              examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_NOT_FOUND_EXAMPLE))),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_CONFLICT + "",
+          description = "Execution has no binary channel, is not finished successfully or its output is expired",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE)),
+  })
+  @GetMapping(value = "/{executionId}/" + Property.OUTPUT,
+      produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public ResponseEntity<StreamingResponseBody> getBinaryOutput(@PathVariable final Integer executionId) {
+    BinaryOutput binaryOutput = jsExecutionService.getBinaryOutput(executionId);
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .contentLength(binaryOutput.getSize())
+        .body(binaryOutput::writeTo);
+  }
+
+  /**
+   * Returns CPU profile of finished {@link  JsExecution} created with <code>profile</code> flag.
+   * Format of the report is set by <code>sandbox.profile-output</code> property.
+   *
+   * @param executionId {@link  JsExecution} id
+   * @return report of CPU sampler
+   *
+   * @since 1.3
+   */
+
+  @Operation(summary = "Get CPU profile",
+      description = "Get CPU sampler report of finished JsExecution created with profile flag")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "Profile returned",
+          content = @Content(mediaType = MediaType.TEXT_PLAIN_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "Execution not found",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE,
+              examples = @ExampleObject(value = JsonExamples.JS_EXECUTION_NOT_FOUND_EXAMPLE))),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_CONFLICT + "",
+          description = "Execution is not profiled or is not finished",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE)),
+  })
+  @GetMapping(value = "/{executionId}/" + Property.PROFILE,
+      produces = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public ResponseEntity<String> getProfile(@PathVariable final Integer executionId) {
+    return ResponseEntity.ok(jsExecutionService.getProfile(executionId));
+  }
+
+  /**
+   * Read binary request body into buffer of its size, or of growing size if length is unknown.
+   * @param request request with binary body
+   * @return buffer with request body
+   * @throws IOException if request body can't be read
+   */
+  @NotNull
+  private ByteBuffer readBinaryInput(@NotNull final HttpServletRequest request) throws IOException {
+    long maxBytes = Math.min(sandbox.getMaxBinaryInputBytes(), MAX_ARRAY_BYTES);
+    long length = request.getContentLengthLong();
+
+    if (length > maxBytes) {
+      throw new BinaryInputTooLargeProblem(maxBytes);
+    }
+
+    byte[] bytes = new byte[(int) (length >= 0 ? length : Math.min(maxBytes, INITIAL_BINARY_INPUT_BYTES))];
+    int size = 0;
+    InputStream in = request.getInputStream();
+
+    while (true) {
+      if (size == bytes.length) {
+        int next = in.read();
+
+        if (next < 0) {
+          break;
+        }
+
+        if (size >= maxBytes) {
+          throw new BinaryInputTooLargeProblem(maxBytes);
+        }
+
+        bytes = Arrays.copyOf(bytes, (int) Math.min(maxBytes, Math.max(INITIAL_BINARY_INPUT_BYTES, 2L * bytes.length)));
+        bytes[size++] = (byte) next;
+      }
+
+      int read = in.read(bytes, size, bytes.length - size);
+
+      if (read < 0) {
+        break;
+      }
+
+      size += read;
+    }
+
+    return ByteBuffer.wrap(bytes, 0, size).slice();
+  }
+
+  /**
+   * Choose media type of response the way MVC does: the most specific and preferred accepted type
+   * which can be rendered by {@link JsExecutionResponseCache}.
+   * @return negotiated media type, json if client accepts anything
+   */
+  @NotNull
+  private MediaType negotiateMediaType() {
+    List<MediaType> accepted;
+    try {
+      accepted = new ArrayList<>(contentNegotiationManager.resolveMediaTypes(new ServletWebRequest(
+          ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest())));
+    } catch (HttpMediaTypeNotAcceptableException e) {
+      //Accept header is already checked against produces condition of the mapping
+      return MediaType.APPLICATION_JSON;
+    }
+
+    MediaType.sortBySpecificityAndQuality(accepted);
+
+    for (MediaType acceptedType : accepted) {
+      for (MediaType mediaType : jsExecutionResponseCache.getMediaTypes()) {
+        if (acceptedType.isCompatibleWith(mediaType)) {
+          return acceptedType.isWildcardType() || acceptedType.isWildcardSubtype()
+              ? MediaType.APPLICATION_JSON
+              : mediaType;
+        }
+      }
+    }
+
+    return MediaType.APPLICATION_JSON;
+  }
+
+  /**
+   * Weak ETag of execution version. Weak because links in body depend on request's host.
+   * @param executionId execution id
+   * @param version execution version
+   * @return quoted ETag
+   */
+  private static String versionETag(final int executionId, final long version) {
+    return "W/\"" + executionId + "." + version + "\"";
+  }
+
+  /**
+   * Weak comparison of If-None-Match header with ETag.
+   * @param ifNoneMatch optional header value
+   * @param eTag current ETag
+   * @return true if client already has current version
+   */
+  private static boolean eTagMatches(@NotNull final Optional<String> ifNoneMatch, @NotNull final String eTag) {
+    String opaqueTag = stripWeakPrefix(eTag);
+
+    return ifNoneMatch
+        .map(header -> Arrays.stream(header.split(","))
+            .map(String::trim)
+            .anyMatch(tag -> "*".equals(tag) || stripWeakPrefix(tag).equals(opaqueTag)))
+        .orElse(false);
+  }
+
+  /**
+   * Remove weakness indicator from ETag.
+   * @param eTag ETag
+   * @return opaque quoted tag
+   */
+  private static String stripWeakPrefix(@NotNull final String eTag) {
+    return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+  }
 }
@@ -1,7 +1,10 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
 import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.LanguageRegistry;
 import com.fasterxml.jackson.annotation.*;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
@@ -76,6 +79,86 @@ public final class JsExecutionDTO {
   @JsonIgnore
   private final String exceptionInfo;
 
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  private final Priority priority;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  private final ZonedDateTime runAt;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  private final String cron;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  private final String callbackUrl;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  private final boolean cacheable;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  @ToString.Exclude
+  private final JsonNode input;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  private final String language;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  private final boolean profile;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used only in post requests.
+   */
+  @JsonIgnore
+  private final boolean module;
+
+  /**
+   * Shows that output is reused from identical execution, written only when true.
+   */
+  @JsonProperty
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private final boolean fromCache;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used like flag during HATEOAS linking.
+   */
+  @JsonIgnore
+  private final boolean binary;
+
+  /**
+   * Time spent loading prelude into the context of {@link JsExecution}, null if it has no prelude.
+   */
+  @JsonIgnore
+  private final Long preludeNanos;
+
+  /**
+   * Has {@link JsonIgnore} annotation, because used like flag during HATEOAS linking.
+   */
+  @JsonIgnore
+  private final boolean profiled;
+
   /**
    * Base constructor.
    * @param id {@link JsExecution}'s id
@@ -98,15 +181,15 @@ public final class JsExecutionDTO {
                  final String errorLog,
                  final boolean cancellable,
                  final String exceptionInfo) {
-    this.id = id;
-    this.status = status;
-    this.scriptBody = scriptBody;
-    this.scheduledTime = scheduledTime;
-    this.executionTime = executionTime;
-    this.executionLog = executionLog;
-    this.errorLog = errorLog;
-    this.cancellable = cancellable;
-    this.exceptionInfo = exceptionInfo;
+    this(builder(scriptBody)
+        .id(id)
+        .status(status)
+        .scheduledTime(scheduledTime)
+        .executionTime(executionTime)
+        .executionLog(executionLog)
+        .errorLog(errorLog)
+        .cancellable(cancellable)
+        .exceptionInfo(exceptionInfo));
   }
 
   /**
@@ -115,15 +198,51 @@ public final class JsExecutionDTO {
   */
 
   JsExecutionDTO(@NotNull final String scriptBody) {
-    this(null,
-        null,
-        scriptBody,
-        null,
-        null,
-        null,
-        null,
-        false,
-        null);
+    this(builder(scriptBody));
+  }
+
+  /**
+   * Constructor of all properties.
+   * @param builder builder holding properties
+   * @since 1.3
+   */
+
+  private JsExecutionDTO(@NotNull final Builder builder) {
+    this.id = builder.id;
+    this.status = builder.status;
+    this.scriptBody = builder.scriptBody;
+    this.scheduledTime = builder.scheduledTime;
+    this.executionTime = builder.executionTime;
+    this.executionLog = builder.executionLog;
+    this.errorLog = builder.errorLog;
+    this.cancellable = builder.cancellable;
+    this.exceptionInfo = builder.exceptionInfo;
+    this.priority = builder.priority;
+    this.runAt = builder.runAt;
+    this.cron = builder.cron;
+    this.callbackUrl = builder.callbackUrl;
+    this.cacheable = builder.cacheable;
+    this.input = builder.input;
+    this.language = builder.language;
+    this.profile = builder.profile;
+    this.module = builder.module;
+    this.fromCache = builder.fromCache;
+    this.binary = builder.binary;
+    this.preludeNanos = builder.preludeNanos;
+    this.profiled = builder.profiled;
+  }
+
+  /**
+   * Builder of DTO of code fragment in default language with NORMAL priority, every other property is empty
+   * until builder is told otherwise. Requests set submission options, snapshots of executions set their state.
+   * @param scriptBody code fragment
+   * @return new builder
+   * @since 1.3
+   */
+
+  @NotNull
+  static Builder builder(@NotNull final String scriptBody) {
+    return new Builder(scriptBody);
   }
 
   /**
@@ -197,6 +316,21 @@ public final class JsExecutionDTO {
     return this.executionTime.format(DateTimeFormatter.ISO_ZONED_DATE_TIME);
   }
 
+  /**
+   * Prelude loading time Jackson's getter, written only for executions with prelude.
+   * @return time spent loading prelude into the context in milliseconds
+   * @since 1.3
+   */
+  @JsonGetter
+  @JsonProperty("Prelude millis")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  Double getPreludeMillis() {
+    if (this.preludeNanos == null) {
+      return null;
+    }
+    return this.preludeNanos / 1_000_000.0;
+  }
+
   /**
    * Getter for property 'executionLog'.
    *
@@ -233,4 +367,490 @@ public final class JsExecutionDTO {
   String getExceptionInfo() {
     return exceptionInfo;
   }
+
+  /**
+   * Getter for property 'priority'.
+   *
+   * @return Value for property 'priority'.
+   */
+
+  Priority getPriority() {
+    return priority;
+  }
+
+  /**
+   * Getter for property 'runAt'.
+   *
+   * @return Value for property 'runAt', null if execution should start immediately.
+   */
+
+  ZonedDateTime getRunAt() {
+    return runAt;
+  }
+
+  /**
+   * Getter for property 'cron'.
+   *
+   * @return Value for property 'cron', null if execution is not repeated.
+   */
+
+  String getCron() {
+    return cron;
+  }
+
+  /**
+   * Getter for property 'callbackUrl'.
+   *
+   * @return Value for property 'callbackUrl', null if nobody waits for completion callback.
+   */
+
+  String getCallbackUrl() {
+    return callbackUrl;
+  }
+
+  /**
+   * Getter for property 'cacheable'.
+   *
+   * @return Value for property 'cacheable'.
+   */
+
+  boolean isCacheable() {
+    return cacheable;
+  }
+
+  /**
+   * Getter for property 'input'.
+   *
+   * @return Value for property 'input', null if script gets no input document.
+   */
+
+  JsonNode getInput() {
+    return input;
+  }
+
+  /**
+   * Getter for property 'language'.
+   *
+   * @return Value for property 'language'.
+   */
+
+  String getLanguage() {
+    return language;
+  }
+
+  /**
+   * Getter for property 'fromCache'.
+   *
+   * @return Value for property 'fromCache'.
+   */
+
+  boolean isFromCache() {
+    return fromCache;
+  }
+
+  /**
+   * Getter for property 'binary'.
+   *
+   * @return Value for property 'binary'.
+   */
+
+  boolean isBinary() {
+    return binary;
+  }
+
+  /**
+   * Getter for property 'profile'.
+   *
+   * @return Value for property 'profile'.
+   */
+
+  boolean isProfile() {
+    return profile;
+  }
+
+  /**
+   * Getter for property 'module'.
+   *
+   * @return Value for property 'module'.
+   */
+
+  boolean isModule() {
+    return module;
+  }
+
+  /**
+   * Getter for property 'profiled'.
+   *
+   * @return Value for property 'profiled'.
+   */
+
+  boolean isProfiled() {
+    return profiled;
+  }
+
+  /**
+   * Builder of {@link JsExecutionDTO}.
+   * @since 1.3
+   */
+
+  static final class Builder {
+
+    /**
+     * Code fragment.
+     */
+    private final String scriptBody;
+
+    /**
+     * Scheduling lane.
+     */
+    private Priority priority = Priority.NORMAL;
+
+    /**
+     * Language of code fragment.
+     */
+    private String language = LanguageRegistry.DEFAULT_LANGUAGE;
+
+    /**
+     * Id of execution.
+     */
+    private Integer id;
+
+    /**
+     * Status of execution.
+     */
+    private Status status;
+
+    /**
+     * Time execution is created.
+     */
+    private ZonedDateTime scheduledTime;
+
+    /**
+     * Time execution is finished.
+     */
+    private ZonedDateTime executionTime;
+
+    /**
+     * Output of script.
+     */
+    private String executionLog;
+
+    /**
+     * Error output of script.
+     */
+    private String errorLog;
+
+    /**
+     * Set if execution can be cancelled.
+     */
+    private boolean cancellable;
+
+    /**
+     * Failure of script.
+     */
+    private String exceptionInfo;
+
+    /**
+     * Set if output is reused from identical execution.
+     */
+    private boolean fromCache;
+
+    /**
+     * Set if execution has binary channel.
+     */
+    private boolean binary;
+
+    /**
+     * Time spent loading prelude or null.
+     */
+    private Long preludeNanos;
+
+    /**
+     * Set if execution is profiled.
+     */
+    private boolean profiled;
+
+    /**
+     * Start time or null.
+     */
+    private ZonedDateTime runAt;
+
+    /**
+     * Cron expression or null.
+     */
+    private String cron;
+
+    /**
+     * Url the finished execution is posted to or null.
+     */
+    private String callbackUrl;
+
+    /**
+     * Set if output of identical execution can be reused.
+     */
+    private boolean cacheable;
+
+    /**
+     * Json document passed to the script or null.
+     */
+    private JsonNode input;
+
+    /**
+     * Set if CPU profile of execution is asked for.
+     */
+    private boolean profile;
+
+    /**
+     * Set if js script is parsed as ES module.
+     */
+    private boolean module;
+
+    /**
+     * Basic constructor.
+     * @param scriptBody code fragment
+     */
+    private Builder(@NotNull final String scriptBody) {
+      this.scriptBody = scriptBody;
+    }
+
+    /**
+     * Set scheduling lane.
+     * @param priority scheduling lane
+     * @return this builder
+     */
+    @NotNull
+    Builder priority(@NotNull final Priority priority) {
+      this.priority = priority;
+      return this;
+    }
+
+    /**
+     * Set language of code fragment.
+     * @param language language id
+     * @return this builder
+     */
+    @NotNull
+    Builder language(@NotNull final String language) {
+      this.language = language;
+      return this;
+    }
+
+    /**
+     * Set id of execution.
+     * @param id {@link JsExecution}'s id
+     * @return this builder
+     */
+    @NotNull
+    Builder id(final Integer id) {
+      this.id = id;
+      return this;
+    }
+
+    /**
+     * Set status of execution.
+     * @param status {@link JsExecution}'s status
+     * @return this builder
+     */
+    @NotNull
+    Builder status(final Status status) {
+      this.status = status;
+      return this;
+    }
+
+    /**
+     * Set time execution is created.
+     * @param scheduledTime {@link JsExecution}'s scheduledTime
+     * @return this builder
+     */
+    @NotNull
+    Builder scheduledTime(final ZonedDateTime scheduledTime) {
+      this.scheduledTime = scheduledTime;
+      return this;
+    }
+
+    /**
+     * Set time execution is finished.
+     * @param executionTime {@link JsExecution}'s executionTime
+     * @return this builder
+     */
+    @NotNull
+    Builder executionTime(final ZonedDateTime executionTime) {
+      this.executionTime = executionTime;
+      return this;
+    }
+
+    /**
+     * Set output of script.
+     * @param executionLog {@link JsExecution}'s executionLog
+     * @return this builder
+     */
+    @NotNull
+    Builder executionLog(final String executionLog) {
+      this.executionLog = executionLog;
+      return this;
+    }
+
+    /**
+     * Set error output of script.
+     * @param errorLog {@link JsExecution}'s errorLog
+     * @return this builder
+     */
+    @NotNull
+    Builder errorLog(final String errorLog) {
+      this.errorLog = errorLog;
+      return this;
+    }
+
+    /**
+     * Set if execution can be cancelled.
+     * @param cancellable true if {@link JsExecution} can be cancelled
+     * @return this builder
+     */
+    @NotNull
+    Builder cancellable(final boolean cancellable) {
+      this.cancellable = cancellable;
+      return this;
+    }
+
+    /**
+     * Set failure of script.
+     * @param exceptionInfo {@link JsExecution}'s exceptionInfo
+     * @return this builder
+     */
+    @NotNull
+    Builder exceptionInfo(final String exceptionInfo) {
+      this.exceptionInfo = exceptionInfo;
+      return this;
+    }
+
+    /**
+     * Set if output is reused from identical execution.
+     * @param fromCache true if output is reused from identical execution
+     * @return this builder
+     */
+    @NotNull
+    Builder fromCache(final boolean fromCache) {
+      this.fromCache = fromCache;
+      return this;
+    }
+
+    /**
+     * Set if execution has binary channel.
+     * @param binary true if {@link JsExecution} has binary channel
+     * @return this builder
+     */
+    @NotNull
+    Builder binary(final boolean binary) {
+      this.binary = binary;
+      return this;
+    }
+
+    /**
+     * Set time spent loading prelude.
+     * @param preludeNanos time spent loading prelude into the context of {@link JsExecution}
+     * @return this builder
+     */
+    @NotNull
+    Builder preludeNanos(final Long preludeNanos) {
+      this.preludeNanos = preludeNanos;
+      return this;
+    }
+
+    /**
+     * Set if execution is profiled.
+     * @param profiled true if {@link JsExecution} is profiled
+     * @return this builder
+     */
+    @NotNull
+    Builder profiled(final boolean profiled) {
+      this.profiled = profiled;
+      return this;
+    }
+
+    /**
+     * Set start time.
+     * @param runAt start time
+     * @return this builder
+     */
+    @NotNull
+    Builder runAt(final ZonedDateTime runAt) {
+      this.runAt = runAt;
+      return this;
+    }
+
+    /**
+     * Set cron expression repeating execution.
+     * @param cron cron expression
+     * @return this builder
+     */
+    @NotNull
+    Builder cron(final String cron) {
+      this.cron = cron;
+      return this;
+    }
+
+    /**
+     * Set url the finished execution is posted to.
+     * @param callbackUrl url the finished execution is posted to
+     * @return this builder
+     */
+    @NotNull
+    Builder callbackUrl(final String callbackUrl) {
+      this.callbackUrl = callbackUrl;
+      return this;
+    }
+
+    /**
+     * Set if output of identical execution can be reused.
+     * @param cacheable true to allow reusing output of identical execution
+     * @return this builder
+     */
+    @NotNull
+    Builder cacheable(final boolean cacheable) {
+      this.cacheable = cacheable;
+      return this;
+    }
+
+    /**
+     * Set json document passed to the script.
+     * @param input json document passed to the script
+     * @return this builder
+     */
+    @NotNull
+    Builder input(final JsonNode input) {
+      this.input = input;
+      return this;
+    }
+
+    /**
+     * Set if CPU profile of execution is asked for.
+     * @param profile true to ask for CPU profile of execution
+     * @return this builder
+     */
+    @NotNull
+    Builder profile(final boolean profile) {
+      this.profile = profile;
+      return this;
+    }
+
+    /**
+     * Set if js script is parsed as ES module.
+     * @param module true for ES module
+     * @return this builder
+     */
+    @NotNull
+    Builder module(final boolean module) {
+      this.module = module;
+      return this;
+    }
+
+    /**
+     * Build DTO with properties set so far.
+     * @return new DTO
+     */
+    @NotNull
+    JsExecutionDTO build() {
+      return new JsExecutionDTO(this);
+    }
+  }
 }
@@ -1,15 +1,24 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.LanguageRegistry;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.support.CronExpression;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 
 /**
- * JsExecution deserializer. Incoming serialized body can contain only script body.
+ * JsExecution deserializer. Incoming serialized body can contain only script body, submission options,
+ * completion callback url, caching option, input document of any json type, language of script body,
+ * profiling flag and module flag. Repeated executions can't be profiled.
  * @author Martynenko Anton
  * @since 1.2
  */
@@ -19,6 +28,119 @@ public class JsExecutionDTODeserializer extends JsonDeserializer<JsExecutionDTO>
   @Override
   public JsExecutionDTO deserialize(@NotNull final JsonParser jsonParser, final DeserializationContext deserializationContext) throws IOException {
     JsonNode node = jsonParser.getCodec().readTree(jsonParser);
-    return new JsExecutionDTO(node.get("scriptBody").asText());
+
+    Priority priority = Priority.NORMAL;
+    if (node.hasNonNull("priority")) {
+      try {
+        priority = Priority.valueOf(node.get("priority").asText());
+      } catch (IllegalArgumentException e) {
+        throw deserializationContext.weirdStringException(node.get("priority").asText(), Priority.class,
+            "not one of accepted priorities");
+      }
+    }
+
+    ZonedDateTime runAt = null;
+    if (node.hasNonNull("runAt")) {
+      try {
+        runAt = ZonedDateTime.parse(node.get("runAt").asText());
+      } catch (DateTimeParseException e) {
+        throw deserializationContext.weirdStringException(node.get("runAt").asText(), ZonedDateTime.class,
+            "not ISO date time");
+      }
+    }
+
+    String cron = null;
+    if (node.hasNonNull("cron")) {
+      cron = node.get("cron").asText();
+      if (!CronExpression.isValidExpression(cron)) {
+        throw deserializationContext.weirdStringException(cron, CronExpression.class, "not valid cron expression");
+      }
+    }
+
+    String callbackUrl = null;
+    if (node.hasNonNull("callbackUrl")) {
+      callbackUrl = node.get("callbackUrl").asText();
+      if (!isHttpUrl(callbackUrl)) {
+        throw deserializationContext.weirdStringException(callbackUrl, URI.class, "not absolute http url");
+      }
+    }
+
+    boolean cacheable = false;
+    if (node.hasNonNull("cacheable")) {
+      if (!node.get("cacheable").isBoolean()) {
+        throw deserializationContext.weirdStringException(node.get("cacheable").asText(), Boolean.class,
+            "not boolean");
+      }
+      cacheable = node.get("cacheable").booleanValue();
+    }
+
+    boolean profile = false;
+    if (node.hasNonNull("profile")) {
+      if (!node.get("profile").isBoolean()) {
+        throw deserializationContext.weirdStringException(node.get("profile").asText(), Boolean.class,
+            "not boolean");
+      }
+      profile = node.get("profile").booleanValue();
+      //repeated execution is a template never running itself, its turns are separate executions
+      if (profile && cron != null) {
+        throw deserializationContext.weirdStringException(cron, CronExpression.class,
+            "repeated executions can't be profiled");
+      }
+    }
+
+    //input is kept as already parsed tree, script reads it through proxies without parsing it again
+    JsonNode input = node.hasNonNull("input") ? node.get("input") : null;
+
+    //language is checked against installed ones when execution is created
+    String language = LanguageRegistry.DEFAULT_LANGUAGE;
+    if (node.hasNonNull("language")) {
+      if (!node.get("language").isTextual() || node.get("language").asText().trim().isEmpty()) {
+        throw deserializationContext.weirdStringException(node.get("language").asText(), String.class,
+            "not language id");
+      }
+      language = node.get("language").asText().trim();
+    }
+
+    //script is an ES module only when client says so, guessing it from the code would misread classic scripts
+    boolean module = false;
+    if (node.hasNonNull("module")) {
+      if (!node.get("module").isBoolean()) {
+        throw deserializationContext.weirdStringException(node.get("module").asText(), Boolean.class,
+            "not boolean");
+      }
+      module = node.get("module").booleanValue();
+      if (module && !LanguageRegistry.DEFAULT_LANGUAGE.equals(language)) {
+        throw deserializationContext.weirdStringException(language, String.class,
+            "only " + LanguageRegistry.DEFAULT_LANGUAGE + " scripts can be modules");
+      }
+    }
+
+    return JsExecutionDTO.builder(node.get("scriptBody").asText())
+        .priority(priority)
+        .runAt(runAt)
+        .cron(cron)
+        .callbackUrl(callbackUrl)
+        .cacheable(cacheable)
+        .input(input)
+        .language(language)
+        .profile(profile)
+        .module(module)
+        .build();
+  }
+
+  /**
+   * Check that callback can be posted to the url.
+   * @param url url to check
+   * @return true if url is absolute http or https one
+   */
+  private static boolean isHttpUrl(@NotNull final String url) {
+    try {
+      URI uri = new URI(url);
+
+      return ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+          && uri.getHost() != null;
+    } catch (URISyntaxException e) {
+      return false;
+    }
   }
 }
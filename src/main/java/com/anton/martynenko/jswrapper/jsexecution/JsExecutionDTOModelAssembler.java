@@ -1,6 +1,7 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
 import com.anton.martynenko.jswrapper.jsexecution.constants.Property;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
@@ -27,8 +28,8 @@ public class JsExecutionDTOModelAssembler implements RepresentationModelAssemble
 
     List<Link> links = new ArrayList<>();
 
-    links.add(linkTo(methodOn(JsExecutionController.class).getOne(jsExecutionDTO.getId())).withSelfRel());
-    links.add(linkTo(methodOn(JsExecutionController.class).listAll(null, null)).withRel("jsExecutions"));
+    links.add(linkTo(methodOn(JsExecutionController.class).getOne(jsExecutionDTO.getId(), null)).withSelfRel());
+    links.add(linkTo(methodOn(JsExecutionController.class).listAll(null, null, null)).withRel("jsExecutions"));
     links.add(linkTo(methodOn(JsExecutionController.class).deleteJsExecution(jsExecutionDTO.getId())).withRel("delete"));
 
     if (jsExecutionDTO.isCancellable()) {
@@ -51,6 +52,16 @@ public class JsExecutionDTOModelAssembler implements RepresentationModelAssemble
           .getDetails(jsExecutionDTO.getId(), Property.EXECUTION_LOG)).withRel(Property.EXECUTION_LOG));
     }
 
+    if (jsExecutionDTO.isBinary() && jsExecutionDTO.getStatus() == Status.SUCCESSFUL) {
+      links.add(linkTo(methodOn(JsExecutionController.class)
+          .getBinaryOutput(jsExecutionDTO.getId())).withRel(Property.OUTPUT));
+    }
+
+    if (jsExecutionDTO.isProfiled() && JsExecutionState.isFinal(jsExecutionDTO.getStatus())) {
+      links.add(linkTo(methodOn(JsExecutionController.class)
+          .getProfile(jsExecutionDTO.getId())).withRel(Property.PROFILE));
+    }
+
     if (!jsExecutionDTO.getErrorLog().isEmpty()) {
       links.add(linkTo(methodOn(JsExecutionController.class)
           .getDetails(jsExecutionDTO.getId(), Property.ERROR_LOG)).withRel(Property.ERROR_LOG));
@@ -1,9 +1,24 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
+import com.anton.martynenko.jswrapper.jsexecution.cluster.StolenExecution;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.anton.martynenko.jswrapper.jsexecution.problem.LanguageNotSupportedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ProfilingNotSupportedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.WasmInvocationNotValidProblem;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.LanguageRegistry;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.ScriptStream;
+import com.anton.martynenko.jswrapper.jsexecution.wasm.WasmInvocation;
+import com.anton.martynenko.jswrapper.jsexecution.wasm.WasmModule;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.hateoas.EntityModel;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.util.StringJoiner;
+
 /**
  * Simple factory component. Produces new {@link JsExecution} instances.
  * @author Martynenko Anton
@@ -11,16 +26,185 @@ import org.springframework.stereotype.Component;
  */
 
 @Component
+@RequiredArgsConstructor
 public class JsExecutionFactory {
 
   /**
-   * Simple factory method. Produces new {@link JsExecution} instances.
-   * @param scriptBody javascript code fragment
+   * {@link JsSandbox} bean building contexts of all executions.
+   */
+
+  private final JsSandbox sandbox;
+
+  /**
+   * Simple factory method. Produces new {@link JsExecution} instances from post request.
+   * @param jsExecutionDTO post request DTO
+   * @param tenant api key of the client
+   * @return new {@link JsExecution} instance
+   * @throws LanguageNotSupportedProblem if script language is not supported
+   * @throws ProfilingNotSupportedProblem if profile is requested but CPU sampler is not installed
+   * @since 1.3
+   */
+
+  @NotNull
+  JsExecution createNew(@NotNull final JsExecutionDTO jsExecutionDTO, @NotNull final String tenant) {
+    Priority priority = jsExecutionDTO.getPriority() != null ? jsExecutionDTO.getPriority() : Priority.NORMAL;
+    String language = jsExecutionDTO.getLanguage() != null
+        ? jsExecutionDTO.getLanguage()
+        : LanguageRegistry.DEFAULT_LANGUAGE;
+
+    if (!sandbox.getLanguageRegistry().isSupported(language)) {
+      throw new LanguageNotSupportedProblem(language, sandbox.getLanguageRegistry().getLanguages());
+    }
+
+    JsExecution.Builder builder = newBuilder(jsExecutionDTO.getScriptBody(), priority, tenant)
+        .language(language)
+        .input(jsExecutionDTO.getInput())
+        .module(jsExecutionDTO.isModule());
+
+    if (jsExecutionDTO.isProfile()) {
+      if (!sandbox.isProfilingAvailable()) {
+        throw new ProfilingNotSupportedProblem("CPU sampler is not installed, execution can't be profiled");
+      }
+
+      builder.cpuProfile(sandbox.newCpuProfile());
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * Produces new {@link JsExecution} instances with binary channel.
+   * @param scriptBody code fragment
+   * @param priority scheduling lane
+   * @param tenant api key of the client
+   * @param binaryInput binary input passed to the script
+   * @return new {@link JsExecution} instance
+   * @since 1.3
+   */
+
+  @NotNull
+  JsExecution createBinary(@NotNull final String scriptBody, @NotNull final Priority priority,
+                           @NotNull final String tenant, @NotNull final ByteBuffer binaryInput) {
+    return newBuilder(scriptBody, priority, tenant)
+        .binary(binaryInput, sandbox.newBinaryOutput())
+        .build();
+  }
+
+  /**
+   * Produces new {@link JsExecution} instances with streaming channel.
+   * @param scriptBody code fragment
+   * @param priority scheduling lane
+   * @param tenant api key of the client
+   * @param stream streaming channel of the script
+   * @return new {@link JsExecution} instance
+   * @since 1.3
+   */
+
+  @NotNull
+  JsExecution createStreaming(@NotNull final String scriptBody, @NotNull final Priority priority,
+                              @NotNull final String tenant, @NotNull final ScriptStream stream) {
+    return newBuilder(scriptBody, priority, tenant)
+        .stream(stream)
+        .build();
+  }
+
+  /**
+   * Produces new {@link JsExecution} instances invoking exported function of WebAssembly module.
+   * Invocation is a generated js script calling the export, returned value goes to execution log.
+   * @param module uploaded module
+   * @param invocation exported function and its arguments
+   * @param tenant api key of the client
    * @return new {@link JsExecution} instance
+   * @throws WasmInvocationNotValidProblem if function is not named or arguments are not numbers
+   * @since 1.3
    */
 
   @NotNull
-  JsExecution createNew(@NotNull final String scriptBody) {
-    return new JsExecution(scriptBody);
+  JsExecution createWasm(@NotNull final WasmModule module, @NotNull final WasmInvocation invocation,
+                         @NotNull final String tenant) {
+    if (invocation.getFunction() == null || invocation.getFunction().isEmpty()) {
+      throw new WasmInvocationNotValidProblem("Exported function must be named");
+    }
+
+    JsonNode arguments = invocation.getArguments();
+    StringJoiner argumentList = new StringJoiner(", ");
+
+    if (arguments != null && !arguments.isNull()) {
+      if (!arguments.isArray()) {
+        throw new WasmInvocationNotValidProblem("Arguments must be an array of numbers");
+      }
+
+      for (JsonNode argument : arguments) {
+        if (!argument.isNumber()) {
+          throw new WasmInvocationNotValidProblem("Arguments must be an array of numbers, got " + argument);
+        }
+        argumentList.add(argument.toString());
+      }
+    }
+
+    //export names can be any string, json string literal is valid js one
+    String scriptBody = "const result = " + JsSandbox.WASM_BINDING
+        + "[" + JsonNodeFactory.instance.textNode(invocation.getFunction()) + "](" + argumentList + ");\n"
+        + "if (result !== undefined && result !== null) { console.log(String(result)); }";
+    Priority priority = invocation.getPriority() != null ? invocation.getPriority() : Priority.NORMAL;
+
+    return newBuilder(scriptBody, priority, tenant)
+        .wasmModule(module)
+        .build();
+  }
+
+  /**
+   * Produces next turn of repeated execution.
+   * @param template execution holding cron
+   * @return new {@link JsExecution} instance with script, options, input and module flag of template
+   * @since 1.3
+   */
+
+  @NotNull
+  JsExecution createTurn(@NotNull final JsExecution template) {
+    return newBuilder(template.getScriptBody(), template.getPriority(), template.getTenant())
+        .language(template.getLanguage())
+        .input(template.getInput())
+        .module(template.isModule())
+        .build();
+  }
+
+  /**
+   * Produces local copy of execution taken from another cluster node.
+   * @param stolenExecution taken execution
+   * @return new {@link JsExecution} instance with id of the owner
+   * @since 1.3
+   */
+
+  @NotNull
+  JsExecution createStolen(@NotNull final StolenExecution stolenExecution) {
+    //language is checked by the owner, node missing it finishes execution as UNSUCCESSFUL and reports it back
+    String language = stolenExecution.getLanguage() != null
+        ? stolenExecution.getLanguage()
+        : LanguageRegistry.DEFAULT_LANGUAGE;
+
+    JsExecution jsExecution = newBuilder(stolenExecution.getScriptBody(), stolenExecution.getPriority(),
+        stolenExecution.getTenant())
+        .language(language)
+        .input(stolenExecution.getInput())
+        .build();
+    jsExecution.setId(stolenExecution.getId());
+    return jsExecution;
+  }
+
+  /**
+   * Builder of execution in sandbox of this factory.
+   * @param scriptBody code fragment
+   * @param priority scheduling lane
+   * @param tenant api key of the client
+   * @return builder with scheduling options and sandbox set
+   */
+  @NotNull
+  private JsExecution.Builder newBuilder(@NotNull final String scriptBody, @NotNull final Priority priority,
+                                         @NotNull final String tenant) {
+    return JsExecution.builder(scriptBody)
+        .tenant(tenant)
+        .priority(priority)
+        .sandbox(sandbox);
   }
 }
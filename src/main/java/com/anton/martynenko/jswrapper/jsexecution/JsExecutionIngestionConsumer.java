@@ -0,0 +1,308 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.anton.martynenko.jswrapper.jsexecution.ingestion.CompletionEvent;
+import com.anton.martynenko.jswrapper.jsexecution.ingestion.CompletionSink;
+import com.anton.martynenko.jswrapper.jsexecution.ingestion.IngestedScript;
+import com.anton.martynenko.jswrapper.jsexecution.ingestion.IngestionProperties;
+import com.anton.martynenko.jswrapper.jsexecution.ingestion.IngestionSource;
+import com.anton.martynenko.jswrapper.jsexecution.problem.JsExecutionNotFoundProblem;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds {@link JsExecutionService} from enabled {@link IngestionSource} beans, one thread per source.
+ * Message is acknowledged only after its execution is stored and submitted, so nothing is lost if the service dies
+ * before. Finished executions are published to enabled {@link CompletionSink} beans.
+ * Consumption is limited by credits: every taken message holds one until its execution is finished, and there are
+ * as many credits as executions scheduler hands to js workers at once. So busy workers stop consumption
+ * and messages wait in the source, not in memory of the service.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@Service
+@ThreadSafe
+public class JsExecutionIngestionConsumer {
+
+  /**
+   * {@link JsExecutionService} bean accepting executions.
+   */
+  private final JsExecutionService jsExecutionService;
+
+  /**
+   * Sources of script submissions.
+   */
+  private final List<IngestionSource> sources;
+
+  /**
+   * Receivers of completion events.
+   */
+  private final List<CompletionSink> sinks;
+
+  /**
+   * Ingestion configuration.
+   */
+  private final IngestionProperties properties;
+
+  /**
+   * Credits of consumption shared by all sources.
+   */
+  private final Semaphore credits;
+
+  /**
+   * Registry for ingestion metrics.
+   */
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Consuming threads.
+   */
+  private final List<Thread> consumers = new ArrayList<>();
+
+  /**
+   * Set on shutdown, stops consumption.
+   */
+  private volatile boolean stopped;
+
+  /**
+   * Basic constructor.
+   * @param jsExecutionService service bean
+   * @param jsExecutionScheduler scheduler bean defining default amount of credits
+   * @param sources all source beans
+   * @param sinks all sink beans
+   * @param properties ingestion configuration
+   * @param meterRegistry registry for ingestion metrics
+   */
+
+  public JsExecutionIngestionConsumer(@NotNull final JsExecutionService jsExecutionService,
+                                      @NotNull final JsExecutionScheduler jsExecutionScheduler,
+                                      @NotNull final List<IngestionSource> sources,
+                                      @NotNull final List<CompletionSink> sinks,
+                                      @NotNull final IngestionProperties properties,
+                                      @NotNull final MeterRegistry meterRegistry) {
+    this.jsExecutionService = jsExecutionService;
+    this.sources = sources.stream().filter(IngestionSource::isEnabled).collect(Collectors.toList());
+    this.sinks = sinks.stream().filter(CompletionSink::isEnabled).collect(Collectors.toList());
+    this.properties = properties;
+    this.credits = new Semaphore(properties.getCredits() > 0
+        ? properties.getCredits()
+        : jsExecutionScheduler.getMaxInFlight());
+    this.meterRegistry = meterRegistry;
+
+    Gauge.builder("jswrapper.ingestion.credits", credits, Semaphore::availablePermits)
+        .description("Executions ingestion can take from sources now")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Start consuming enabled sources.
+   */
+  @PostConstruct
+  void start() {
+    for (IngestionSource source : sources) {
+      Thread consumer = new Thread(() -> consume(source), "ingestion-" + source.getName());
+      consumer.setDaemon(true);
+      consumers.add(consumer);
+      consumer.start();
+
+      log.info("Ingestion from source {} started", source.getName());
+    }
+  }
+
+  /**
+   * Stop consuming, messages taken but not accepted yet are delivered again by their sources.
+   */
+  @PreDestroy
+  void stop() {
+    stopped = true;
+    consumers.forEach(Thread::interrupt);
+  }
+
+  /**
+   * Consuming loop of one source.
+   * @param source consumed source
+   */
+  private void consume(@NotNull final IngestionSource source) {
+    Counter accepted = Counter.builder("jswrapper.ingestion.accepted")
+        .description("Ingested messages accepted as executions")
+        .tag("source", source.getName())
+        .register(meterRegistry);
+    Counter rejected = Counter.builder("jswrapper.ingestion.rejected")
+        .description("Ingested messages rejected")
+        .tag("source", source.getName())
+        .register(meterRegistry);
+
+    while (!stopped) {
+      int granted = 0;
+
+      try {
+        //wait for the first credit, then take whatever else is free right now
+        credits.acquire();
+        granted = 1;
+        while (granted < properties.getBatchSize() && credits.tryAcquire()) {
+          granted++;
+        }
+
+        List<IngestedScript> batch = source.poll(granted, properties.getPollTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+        credits.release(granted - batch.size());
+        granted = 0;
+
+        for (IngestedScript message : batch) {
+          if (accept(source, message)) {
+            accepted.increment();
+          } else {
+            rejected.increment();
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        credits.release(granted);
+        return;
+      } catch (IOException | RuntimeException e) {
+        credits.release(granted);
+        log.error("Ingestion from source {} failed", source.getName(), e);
+        pause();
+      }
+    }
+  }
+
+  /**
+   * Create execution from message and acknowledge it, or reject it if it's not valid.
+   * Credit of the message is released when its execution is finished.
+   * @param source message source
+   * @param message taken message
+   * @return true if message is accepted
+   */
+  private boolean accept(@NotNull final IngestionSource source, @NotNull final IngestedScript message) {
+    JsExecutionDTO created;
+
+    try {
+      if (message.getScriptBody() == null || message.getScriptBody().trim().isEmpty()) {
+        throw new IllegalArgumentException("Message has no script body");
+      }
+
+      created = jsExecutionService.createAndRun(
+          JsExecutionDTO.builder(message.getScriptBody())
+              .priority(message.getPriority() != null ? message.getPriority() : Priority.NORMAL)
+              .build(),
+          message.getTenant() != null ? message.getTenant() : HttpHeader.DEFAULT_TENANT);
+    } catch (RuntimeException e) {
+      credits.release();
+      reject(source, message, e instanceof RejectedExecutionException
+          ? "Js worker pool rejected execution"
+          : String.valueOf(e.getMessage()));
+      return false;
+    }
+
+    whenFinished(source, message, created.getId());
+
+    try {
+      source.acknowledge(message);
+    } catch (IOException | RuntimeException e) {
+      //stored execution stays, the message is just delivered once more later
+      log.error("Message {} of source {} is not acknowledged", message.getMessageId(), source.getName(), e);
+    }
+
+    log.debug("Message {} of source {} accepted as JsExecution id {}", message.getMessageId(), source.getName(),
+        created.getId());
+
+    return true;
+  }
+
+  /**
+   * Reject message, failure is only logged because nothing else can be done with the message.
+   * @param source message source
+   * @param message rejected message
+   * @param reason description of the problem
+   */
+  private void reject(@NotNull final IngestionSource source, @NotNull final IngestedScript message,
+                      @NotNull final String reason) {
+    try {
+      source.reject(message, reason);
+    } catch (IOException | RuntimeException e) {
+      log.error("Message {} of source {} is not rejected", message.getMessageId(), source.getName(), e);
+    }
+  }
+
+  /**
+   * Release credit and publish event once execution is finished.
+   * @param source message source
+   * @param message accepted message
+   * @param executionId execution id
+   */
+  private void whenFinished(@NotNull final IngestionSource source, @NotNull final IngestedScript message,
+                            final int executionId) {
+    try {
+      jsExecutionService.whenFinished(executionId, () -> complete(source, message, executionId));
+    } catch (JsExecutionNotFoundProblem e) {
+      //deleted before listening started, it is cancelled and nobody waits for it
+      credits.release();
+    }
+  }
+
+  /**
+   * Release credit and publish event of finished execution.
+   * @param source message source
+   * @param message accepted message
+   * @param executionId execution id
+   */
+  private void complete(@NotNull final IngestionSource source, @NotNull final IngestedScript message,
+                        final int executionId) {
+    credits.release();
+
+    JsExecutionDTO dto;
+
+    try {
+      dto = jsExecutionService.getOne(executionId);
+    } catch (JsExecutionNotFoundProblem e) {
+      //deleted execution is cancelled, nothing to publish
+      return;
+    }
+
+    CompletionEvent event = new CompletionEvent(source.getName(), message.getMessageId(), executionId,
+        dto.getStatus(),
+        dto.getExecutionTime() == null ? null : dto.getExecutionTime().format(DateTimeFormatter.ISO_ZONED_DATE_TIME));
+
+    for (CompletionSink sink : sinks) {
+      try {
+        sink.publish(event);
+      } catch (IOException | RuntimeException e) {
+        log.error("Completion of JsExecution id {} is not published", executionId, e);
+      }
+    }
+  }
+
+  /**
+   * Wait a bit after failure, so broken source isn't polled in a busy loop.
+   */
+  private void pause() {
+    try {
+      Thread.sleep(properties.getPollTimeoutMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stopped = true;
+    }
+  }
+}
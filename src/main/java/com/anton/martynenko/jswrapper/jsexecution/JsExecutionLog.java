@@ -0,0 +1,174 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Output stream collecting script's console output.
+ * Unlike {@link java.io.ByteArrayOutputStream} it keeps decoded text between reads: every read decodes only
+ * bytes written since the previous one, and returns the very same string while nothing is written.
+ * Log is held once: as text decoded so far plus bytes written after the last read, decoded bytes are dropped
+ * except for the tail of a character which is not fully written yet.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+final class JsExecutionLog extends OutputStream {
+
+  /**
+   * Initial buffer capacity.
+   */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * Largest buffer kept after read.
+   */
+  private static final int MAX_KEPT_CAPACITY = 8 * 1024;
+
+  /**
+   * Bytes written since the last read.
+   */
+  @GuardedBy("this")
+  private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+  /**
+   * Amount of bytes in buffer.
+   */
+  @GuardedBy("this")
+  private int count;
+
+  /**
+   * Amount of bytes written in total.
+   */
+  @GuardedBy("this")
+  private int written;
+
+  /**
+   * Text decoded so far, the last returned one.
+   */
+  @GuardedBy("this")
+  private String text = "";
+
+  /**
+   * Action run after every write, outside of the lock.
+   */
+  private final Runnable onWrite;
+
+  /**
+   * Constructor for log nobody listens to.
+   */
+  JsExecutionLog() {
+    this(() -> { });
+  }
+
+  /**
+   * Basic constructor.
+   * @param onWrite short action run after every write
+   */
+  JsExecutionLog(@NotNull final Runnable onWrite) {
+    this.onWrite = onWrite;
+  }
+
+  @Override
+  public void write(final int b) {
+    synchronized (this) {
+      ensureCapacity(count + 1);
+      buffer[count++] = (byte) b;
+      written++;
+    }
+
+    onWrite.run();
+  }
+
+  @Override
+  public void write(@NotNull final byte[] bytes, final int offset, final int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    synchronized (this) {
+      ensureCapacity(count + length);
+      System.arraycopy(bytes, offset, buffer, count, length);
+      count += length;
+      written += length;
+    }
+
+    onWrite.run();
+  }
+
+  /**
+   * Amount of written bytes, grows with every write, so it is used as log version.
+   * @return written bytes amount
+   */
+  synchronized int size() {
+    return written;
+  }
+
+  /**
+   * Log as text. Character which is not fully written yet is left for the next read.
+   * @return decoded log
+   */
+  @NotNull
+  synchronized String asString() {
+    int end = completeEnd();
+
+    if (end > 0) {
+      text = text.concat(new String(buffer, 0, end, StandardCharsets.UTF_8));
+
+      //keep only the tail of split character, buffer grown by a burst of output is dropped too
+      byte[] rest = buffer.length > MAX_KEPT_CAPACITY ? new byte[INITIAL_CAPACITY] : buffer;
+      System.arraycopy(buffer, end, rest, 0, count - end);
+      buffer = rest;
+      count -= end;
+    }
+
+    return text;
+  }
+
+  /**
+   * Grow buffer if needed.
+   * @param capacity required capacity
+   */
+  private void ensureCapacity(final int capacity) {
+    if (capacity > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, capacity));
+    }
+  }
+
+  /**
+   * End of the last complete UTF-8 character.
+   * @return amount of bytes which can be decoded
+   */
+  private int completeEnd() {
+    for (int i = count - 1; i >= Math.max(0, count - 4); i--) {
+      int b = buffer[i] & 0xFF;
+
+      //continuation byte, look for the lead one
+      if ((b & 0xC0) == 0x80) {
+        continue;
+      }
+
+      int length;
+      if (b < 0x80) {
+        length = 1;
+      } else if ((b & 0xE0) == 0xC0) {
+        length = 2;
+      } else if ((b & 0xF0) == 0xE0) {
+        length = 3;
+      } else {
+        length = 4;
+      }
+
+      return i + length <= count ? count : i;
+    }
+
+    return count;
+  }
+}
@@ -0,0 +1,325 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of serialized responses of finished executions.
+ * Finished execution never changes, so its view with HATEOAS links is rendered once per media type and written
+ * as bytes afterwards. Cache is bounded by total size of bodies, least recently used responses are evicted first.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+@Component
+public class JsExecutionResponseCache {
+
+  /**
+   * Responses by execution id and media type, in access order.
+   */
+  @GuardedBy("this")
+  private final LinkedHashMap<Key, CachedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Jackson mappers of MVC message converters by media type they write.
+   */
+  private final Map<MediaType, ObjectMapper> objectMappers = new LinkedHashMap<>();
+
+  /**
+   * {@link JsExecutionDTOModelAssembler} bean.
+   */
+  private final JsExecutionDTOModelAssembler jsExecutionDTOModelAssembler;
+
+  /**
+   * Size limit of all cached bodies.
+   */
+  private final long maxBytes;
+
+  /**
+   * Size of all cached bodies.
+   */
+  @GuardedBy("this")
+  private long bytes;
+
+  /**
+   * Requests answered from cache.
+   */
+  private final AtomicLong hits = new AtomicLong();
+
+  /**
+   * Requests which needed rendering.
+   */
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Basic constructor.
+   * @param converters Jackson message converters, the first one wins for media type supported by several
+   * @param jsExecutionDTOModelAssembler assembler adding HATEOAS links
+   * @param meterRegistry registry for cache metrics
+   * @param maxBytes size limit of all cached bodies
+   */
+
+  public JsExecutionResponseCache(@NotNull final List<AbstractJackson2HttpMessageConverter> converters,
+                                  @NotNull final JsExecutionDTOModelAssembler jsExecutionDTOModelAssembler,
+                                  @NotNull final MeterRegistry meterRegistry,
+                                  @Value("${jswrapper.response-cache.max-bytes:16777216}") final long maxBytes) {
+    converters.forEach(converter -> converter.getSupportedMediaTypes().stream()
+        .filter(MediaType::isConcrete)
+        .forEach(mediaType -> objectMappers.putIfAbsent(mediaType, converter.getObjectMapper())));
+    this.jsExecutionDTOModelAssembler = jsExecutionDTOModelAssembler;
+    this.maxBytes = maxBytes;
+
+    Gauge.builder("jswrapper.response.cache.bytes", this, JsExecutionResponseCache::getBytes)
+        .description("Size of cached execution responses")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    FunctionCounter.builder("jswrapper.response.cache.hits", hits, AtomicLong::get)
+        .description("Execution responses written from cache")
+        .register(meterRegistry);
+    FunctionCounter.builder("jswrapper.response.cache.misses", misses, AtomicLong::get)
+        .description("Execution responses rendered for cache")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Returns cached response of finished execution or renders and caches it.
+   * Cached response is used only if it was rendered from the same DTO instance, finished execution always
+   * returns the same one, so response of an execution which is still changing is never reused.
+   * @param jsExecutionDTO DTO of finished execution
+   * @param baseUri base of HATEOAS links in current request
+   * @param mediaType one of {@link #getMediaTypes()}
+   * @return serialized response
+   */
+
+  @NotNull
+  CachedResponse get(@NotNull final JsExecutionDTO jsExecutionDTO,
+                     @NotNull final String baseUri,
+                     @NotNull final MediaType mediaType) {
+    ObjectMapper objectMapper = objectMappers.get(mediaType);
+    if (objectMapper == null) {
+      throw new IllegalArgumentException("No message converter for " + mediaType);
+    }
+
+    Key key = new Key(jsExecutionDTO.getId(), mediaType);
+
+    synchronized (this) {
+      CachedResponse cached = responses.get(key);
+
+      if (cached != null && cached.source == jsExecutionDTO && cached.baseUri.equals(baseUri)) {
+        hits.incrementAndGet();
+        return cached;
+      }
+    }
+
+    misses.incrementAndGet();
+    CachedResponse rendered = render(jsExecutionDTO, baseUri, objectMapper);
+
+    if (rendered.body.length <= maxBytes) {
+      put(key, rendered);
+    }
+
+    return rendered;
+  }
+
+  /**
+   * Forget responses of deleted execution.
+   * @param executionId execution id
+   */
+
+  synchronized void evict(final int executionId) {
+    for (MediaType mediaType : objectMappers.keySet()) {
+      CachedResponse removed = responses.remove(new Key(executionId, mediaType));
+
+      if (removed != null) {
+        bytes -= removed.body.length;
+      }
+    }
+  }
+
+  /**
+   * Media types responses can be rendered in.
+   * @return media types
+   */
+
+  @NotNull
+  Set<MediaType> getMediaTypes() {
+    return Collections.unmodifiableSet(objectMappers.keySet());
+  }
+
+  /**
+   * Size of all cached bodies.
+   * @return size in bytes
+   */
+
+  synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Put response and evict least recently used ones over the limit.
+   * @param key execution id and media type
+   * @param response rendered response
+   */
+  private synchronized void put(@NotNull final Key key, @NotNull final CachedResponse response) {
+    CachedResponse replaced = responses.put(key, response);
+
+    bytes += response.body.length;
+    if (replaced != null) {
+      bytes -= replaced.body.length;
+    }
+
+    Iterator<Map.Entry<Key, CachedResponse>> eldest = responses.entrySet().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      bytes -= eldest.next().getValue().body.length;
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Render view of execution with HATEOAS links.
+   * @param jsExecutionDTO execution DTO
+   * @param baseUri base of HATEOAS links
+   * @param objectMapper mapper of requested format
+   * @return rendered response
+   */
+  @NotNull
+  private CachedResponse render(@NotNull final JsExecutionDTO jsExecutionDTO,
+                                @NotNull final String baseUri,
+                                @NotNull final ObjectMapper objectMapper) {
+    try {
+      byte[] body = objectMapper.writeValueAsBytes(jsExecutionDTOModelAssembler.toModel(jsExecutionDTO));
+      return new CachedResponse(jsExecutionDTO, baseUri, body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+    } catch (JsonProcessingException e) {
+      log.error("JsExecution id {} can't be serialized", jsExecutionDTO.getId());
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Execution id with media type of its response.
+   */
+  private static final class Key {
+
+    /**
+     * Execution id.
+     */
+    private final int id;
+
+    /**
+     * Media type of response.
+     */
+    private final MediaType mediaType;
+
+    /**
+     * Basic constructor.
+     * @param id execution id
+     * @param mediaType media type of response
+     */
+    private Key(final int id, @NotNull final MediaType mediaType) {
+      this.id = id;
+      this.mediaType = mediaType;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return id == key.id && mediaType.equals(key.mediaType);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * id + mediaType.hashCode();
+    }
+  }
+
+  /**
+   * Serialized response with its strong ETag.
+   */
+  static final class CachedResponse {
+
+    /**
+     * DTO the response is rendered from.
+     */
+    private final JsExecutionDTO source;
+
+    /**
+     * Base of HATEOAS links.
+     */
+    private final String baseUri;
+
+    /**
+     * Json body.
+     */
+    private final byte[] body;
+
+    /**
+     * Quoted strong ETag.
+     */
+    private final String eTag;
+
+    /**
+     * Basic constructor.
+     * @param source DTO the response is rendered from
+     * @param baseUri base of HATEOAS links
+     * @param body json body
+     * @param eTag quoted strong ETag
+     */
+    private CachedResponse(@NotNull final JsExecutionDTO source,
+                           @NotNull final String baseUri,
+                           @NotNull final byte[] body,
+                           @NotNull final String eTag) {
+      this.source = source;
+      this.baseUri = baseUri;
+      this.body = body;
+      this.eTag = eTag;
+    }
+
+    /**
+     * Getter for property 'body'. Array is shared and must not be changed.
+     *
+     * @return Value for property 'body'.
+     */
+    byte[] getBody() {
+      return body;
+    }
+
+    /**
+     * Getter for property 'eTag'.
+     *
+     * @return Value for property 'eTag'.
+     */
+    String getETag() {
+      return eTag;
+    }
+  }
+}
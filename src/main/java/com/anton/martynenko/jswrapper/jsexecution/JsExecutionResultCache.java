@@ -0,0 +1,412 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoization of cacheable executions.
+ * Output of SUCCESSFUL execution is kept for a while under hash of its language, script and input, identical cacheable execution
+ * submitted meanwhile is completed with this output at once instead of running. Identical executions submitted
+ * while the first one still runs wait for it, so the script runs only once. If the first one doesn't succeed,
+ * waiting executions run by themselves.
+ * Cache is bounded by total size of kept logs, least recently used outputs are evicted first.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+@Component
+public class JsExecutionResultCache {
+
+  /**
+   * Entries by hash of script and input, in access order.
+   */
+  @GuardedBy("this")
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * {@link ThreadPoolTaskExecutor} bean finishing waiting executions away from js workers.
+   */
+  private final ThreadPoolTaskExecutor taskExecutor;
+
+  /**
+   * Time output is reused for.
+   */
+  private final long ttlNanos;
+
+  /**
+   * Size limit of all kept logs.
+   */
+  private final long maxBytes;
+
+  /**
+   * Size of all kept logs.
+   */
+  @GuardedBy("this")
+  private long bytes;
+
+  /**
+   * Executions completed from cache.
+   */
+  private final AtomicLong hits = new AtomicLong();
+
+  /**
+   * Executions which waited for identical running one.
+   */
+  private final AtomicLong joins = new AtomicLong();
+
+  /**
+   * Executions which had to run.
+   */
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Basic constructor.
+   * @param taskExecutor task executor bean
+   * @param meterRegistry registry for cache metrics
+   * @param ttlMillis time output is reused for
+   * @param maxBytes size limit of all kept logs
+   */
+
+  public JsExecutionResultCache(@NotNull final ThreadPoolTaskExecutor taskExecutor,
+                                @NotNull final MeterRegistry meterRegistry,
+                                @Value("${jswrapper.result-cache.ttl-millis:60000}") final long ttlMillis,
+                                @Value("${jswrapper.result-cache.max-bytes:16777216}") final long maxBytes) {
+    this.taskExecutor = taskExecutor;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.maxBytes = maxBytes;
+
+    Gauge.builder("jswrapper.result.cache.bytes", this, JsExecutionResultCache::getBytes)
+        .description("Size of kept outputs of cacheable executions")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("jswrapper.result.cache.hit.ratio", this, JsExecutionResultCache::getHitRatio)
+        .description("Share of cacheable executions which didn't run the script")
+        .register(meterRegistry);
+    FunctionCounter.builder("jswrapper.result.cache.hits", hits, AtomicLong::get)
+        .description("Cacheable executions completed from cache")
+        .register(meterRegistry);
+    FunctionCounter.builder("jswrapper.result.cache.joins", joins, AtomicLong::get)
+        .description("Cacheable executions which waited for identical running one")
+        .register(meterRegistry);
+    FunctionCounter.builder("jswrapper.result.cache.misses", misses, AtomicLong::get)
+        .description("Cacheable executions which ran the script")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Complete execution from cache, make it wait for identical running one, or run it.
+   * @param jsExecution cacheable execution
+   * @param runner action running the execution
+   */
+
+  void run(@NotNull final JsExecution jsExecution, @NotNull final Runnable runner) {
+    String key = keyOf(jsExecution);
+    Entry entry;
+
+    synchronized (this) {
+      entry = entries.get(key);
+
+      if (entry != null && entry.isExpired()) {
+        remove(key);
+        entry = null;
+      }
+
+      if (entry == null) {
+        entries.put(key, new Entry(jsExecution));
+      } else if (entry.isPending()) {
+        entry.waiting.add(new Waiting(jsExecution, runner));
+      }
+    }
+
+    if (entry == null) {
+      misses.incrementAndGet();
+      jsExecution.whenFinished(taskExecutor, () -> cache(key, jsExecution));
+      runner.run();
+    } else if (entry.isPending()) {
+      joins.incrementAndGet();
+      log.debug("JsExecution id {} waits for identical JsExecution id {}", jsExecution.getId(), entry.leader.getId());
+    } else {
+      hits.incrementAndGet();
+      jsExecution.completeFromCache(entry.executionLog, entry.errorLog);
+    }
+  }
+
+  /**
+   * Size of all kept logs.
+   * @return size in bytes
+   */
+
+  synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Share of cacheable executions which didn't run the script.
+   * @return ratio between 0 and 1
+   */
+
+  double getHitRatio() {
+    long reused = hits.get() + joins.get();
+    long total = reused + misses.get();
+
+    return total == 0 ? 0 : (double) reused / total;
+  }
+
+  /**
+   * Keep output of execution which is finished and has freed its worker, so logs are complete.
+   * @param key hash of script and input
+   * @param leader running execution
+   */
+  private void cache(@NotNull final String key, @NotNull final JsExecution leader) {
+    boolean successful = leader.getStatus() == Status.SUCCESSFUL;
+    String executionLog = successful ? leader.collectExecutionLog() : null;
+    String errorLog = successful ? leader.collectErrorLog() : null;
+    List<Waiting> waiting;
+
+    synchronized (this) {
+      Entry pending = entries.get(key);
+
+      //pending entry is never evicted, so it can't be anything else, but let's not break somebody's entry
+      if (pending == null || pending.leader != leader) {
+        return;
+      }
+
+      waiting = pending.waiting;
+      remove(key);
+
+      if (successful) {
+        put(key, new Entry(executionLog, errorLog, System.nanoTime() + ttlNanos));
+      }
+    }
+
+    for (Waiting next : waiting) {
+      if (successful) {
+        next.jsExecution.completeFromCache(executionLog, errorLog);
+      } else {
+        runWaiting(next);
+      }
+    }
+  }
+
+  /**
+   * Run execution which waited in vain.
+   * @param waiting waiting execution
+   */
+  private void runWaiting(@NotNull final Waiting waiting) {
+    try {
+      waiting.runner.run();
+    } catch (RuntimeException e) {
+      log.error("JsExecution id {} waiting for identical execution can't be run", waiting.jsExecution.getId(), e);
+    }
+  }
+
+  /**
+   * Put output and evict least recently used ones over the limit.
+   * @param key hash of script and input
+   * @param entry finished entry
+   */
+  @GuardedBy("this")
+  private void put(@NotNull final String key, @NotNull final Entry entry) {
+    if (entry.size > maxBytes) {
+      return;
+    }
+
+    entries.put(key, entry);
+    bytes += entry.size;
+
+    Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      Entry evicted = eldest.next().getValue();
+
+      //running executions are not counted and can't be evicted
+      if (!evicted.isPending()) {
+        bytes -= evicted.size;
+        eldest.remove();
+      }
+    }
+  }
+
+  /**
+   * Remove entry.
+   * @param key hash of script and input
+   */
+  @GuardedBy("this")
+  private void remove(@NotNull final String key) {
+    Entry removed = entries.remove(key);
+
+    if (removed != null) {
+      bytes -= removed.size;
+    }
+  }
+
+  /**
+   * Key of identical executions.
+   * @param jsExecution execution
+   * @return hash of language, module flag, script and input
+   */
+  @NotNull
+  private static String keyOf(@NotNull final JsExecution jsExecution) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] script = jsExecution.getScriptBody().getBytes(StandardCharsets.UTF_8);
+
+      //language ids never contain zero byte, so it separates language from the rest
+      digest.update(jsExecution.getLanguage().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+
+      //the same code means other things as module and as classic script
+      digest.update((byte) (jsExecution.isModule() ? 1 : 0));
+
+      //script length goes first, so the end of script can't be taken for the start of input
+      digest.update(ByteBuffer.allocate(Long.BYTES).putLong(script.length).array());
+      digest.update(script);
+
+      if (jsExecution.getInput() != null) {
+        digest.update(jsExecution.getInput().toString().getBytes(StandardCharsets.UTF_8));
+      }
+
+      byte[] hash = digest.digest();
+
+      StringBuilder key = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return key.toString();
+    } catch (NoSuchAlgorithmException e) {
+      //every java platform has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Running execution with executions waiting for it, or kept output.
+   */
+  private static final class Entry {
+
+    /**
+     * Running execution, null if output is kept.
+     */
+    private final JsExecution leader;
+
+    /**
+     * Executions waiting for the running one.
+     */
+    private final List<Waiting> waiting;
+
+    /**
+     * Kept execution log.
+     */
+    private final String executionLog;
+
+    /**
+     * Kept error log.
+     */
+    private final String errorLog;
+
+    /**
+     * Time in nanos output is kept until.
+     */
+    private final long expiresAt;
+
+    /**
+     * Size of kept logs in bytes.
+     */
+    private final long size;
+
+    /**
+     * Constructor of entry of running execution.
+     * @param leader running execution
+     */
+    private Entry(@NotNull final JsExecution leader) {
+      this.leader = leader;
+      this.waiting = new ArrayList<>();
+      this.executionLog = null;
+      this.errorLog = null;
+      this.expiresAt = Long.MAX_VALUE;
+      this.size = 0;
+    }
+
+    /**
+     * Constructor of entry of kept output.
+     * @param executionLog execution log
+     * @param errorLog error log
+     * @param expiresAt time in nanos output is kept until
+     */
+    private Entry(@NotNull final String executionLog, @NotNull final String errorLog, final long expiresAt) {
+      this.leader = null;
+      this.waiting = null;
+      this.executionLog = executionLog;
+      this.errorLog = errorLog;
+      this.expiresAt = expiresAt;
+      //strings keep two bytes per char
+      this.size = 2L * (executionLog.length() + errorLog.length());
+    }
+
+    /**
+     * Shows if execution is still running.
+     * @return true if there is no output yet
+     */
+    private boolean isPending() {
+      return leader != null;
+    }
+
+    /**
+     * Shows if output is too old.
+     * @return true if output mustn't be reused
+     */
+    private boolean isExpired() {
+      return !isPending() && System.nanoTime() - expiresAt > 0;
+    }
+  }
+
+  /**
+   * Execution waiting for identical running one.
+   */
+  private static final class Waiting {
+
+    /**
+     * Waiting execution.
+     */
+    private final JsExecution jsExecution;
+
+    /**
+     * Action running it if running one doesn't succeed.
+     */
+    private final Runnable runner;
+
+    /**
+     * Basic constructor.
+     * @param jsExecution waiting execution
+     * @param runner action running it
+     */
+    private Waiting(@NotNull final JsExecution jsExecution, @NotNull final Runnable runner) {
+      this.jsExecution = jsExecution;
+      this.runner = runner;
+    }
+  }
+}
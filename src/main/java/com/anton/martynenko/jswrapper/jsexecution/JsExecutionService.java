@@ -1,19 +1,40 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
+import com.anton.martynenko.jswrapper.jsexecution.callback.CallbackDelivery;
+import com.anton.martynenko.jswrapper.jsexecution.callback.CallbackDestinationPolicy;
+import com.anton.martynenko.jswrapper.jsexecution.cluster.JsExecutionCluster;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
 import com.anton.martynenko.jswrapper.jsexecution.enums.SortBy;
 import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.problem.BinaryOutputNotAvailableProblem;
 import com.anton.martynenko.jswrapper.jsexecution.problem.JsExecutionCanNotBeCancelledProblem;
 import com.anton.martynenko.jswrapper.jsexecution.problem.JsExecutionNotFoundProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ProfileNotAvailableProblem;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.BinaryOutput;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.ScriptStream;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionSchedulerProperties;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import com.anton.martynenko.jswrapper.jsexecution.wasm.WasmInvocation;
+import com.anton.martynenko.jswrapper.jsexecution.wasm.WasmModule;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -36,11 +57,59 @@ public class JsExecutionService {
   private final List<JsExecution> storage;
 
   /**
-   * Configured {@link ThreadPoolTaskExecutor} bean.
+   * {@link JsExecutionScheduler} bean admitting executions into worker pool.
+   */
+
+  private final JsExecutionScheduler jsExecutionScheduler;
+
+  /**
+   * {@link JsExecutionSchedulerProperties} bean limiting turns kept of repeated executions.
+   */
+
+  private final JsExecutionSchedulerProperties schedulerProperties;
+
+  /**
+   * {@link TimingWheel} bean holding delayed and repeated executions.
+   */
+
+  private final TimingWheel timingWheel;
+
+  /**
+   * {@link JsExecutionCancellationWatchdog} bean making sure cancelled executions free their workers.
+   */
+
+  private final JsExecutionCancellationWatchdog cancellationWatchdog;
+
+  /**
+   * {@link ThreadPoolTaskExecutor} bean running change listeners away from js workers.
    */
 
   private final ThreadPoolTaskExecutor taskExecutor;
 
+  /**
+   * {@link JsExecutionCluster} bean mapping ids to local storage indexes.
+   */
+
+  private final JsExecutionCluster cluster;
+
+  /**
+   * {@link CallbackDelivery} bean posting finished executions to callback urls.
+   */
+
+  private final CallbackDelivery callbackDelivery;
+
+  /**
+   * {@link CallbackDestinationPolicy} bean refusing callback urls of internal hosts.
+   */
+
+  private final CallbackDestinationPolicy callbackDestinationPolicy;
+
+  /**
+   * {@link JsExecutionResultCache} bean reusing output of identical cacheable executions.
+   */
+
+  private final JsExecutionResultCache resultCache;
+
   /**
    * Simple {@link JsExecutionFactory} bean.
    * Component is stateless
@@ -49,19 +118,263 @@ public class JsExecutionService {
 
   @NotNull
   JsExecutionDTO createAndRun(@NotNull final JsExecutionDTO jsExecutionDTO) {
-    JsExecution jsExecution = jsExecutionFactory.createNew(jsExecutionDTO.getScriptBody());
+    return createAndRun(jsExecutionDTO, HttpHeader.DEFAULT_TENANT);
+  }
+
+  @NotNull
+  JsExecutionDTO createAndRun(@NotNull final JsExecutionDTO jsExecutionDTO, @NotNull final String tenant) {
+    URI callbackUrl = jsExecutionDTO.getCallbackUrl() == null ? null : URI.create(jsExecutionDTO.getCallbackUrl());
+
+    //refused before anything is stored, delivery checks resolved addresses once more
+    if (callbackUrl != null) {
+      callbackDestinationPolicy.check(callbackUrl);
+    }
+
+    JsExecution jsExecution = jsExecutionFactory.createNew(jsExecutionDTO, tenant);
+
+    store(jsExecution);
+
+    if (jsExecutionDTO.getCron() != null) {
+
+      //execution stays SCHEDULED as template, every turn runs its own new execution
+      scheduleNextTurn(jsExecution, CronExpression.parse(jsExecutionDTO.getCron()), jsExecutionDTO.getRunAt(),
+          callbackUrl, jsExecutionDTO.isCacheable(), new ConcurrentLinkedDeque<>());
+
+      return jsExecution.getDto();
+    }
+
+    if (callbackUrl != null) {
+      jsExecution.whenFinished(taskExecutor, () -> callbackDelivery.enqueue(callbackUrl, jsExecution.getDto()));
+    }
+
+    if (jsExecutionDTO.getRunAt() != null && jsExecutionDTO.getRunAt().isAfter(ZonedDateTime.now())) {
+
+      jsExecution.schedule(timingWheel, millisUntil(jsExecutionDTO.getRunAt()),
+          () -> submit(jsExecution, jsExecutionDTO.isCacheable()));
+
+    } else {
+
+      submit(jsExecution, jsExecutionDTO.isCacheable());
+    }
+
+    //return immutable thread-safe serializable DTO built from one state snapshot
+    return jsExecution.getDto();
+  }
+
+  /**
+   * Create execution with binary channel and submit it at once. Binary output expires once its lifetime
+   * after execution is finished elapses.
+   * @param scriptBody code fragment
+   * @param priority scheduling lane
+   * @param binaryInput binary input passed to the script
+   * @param tenant api key of the client
+   * @return DTO of created execution
+   */
+  @NotNull
+  JsExecutionDTO createAndRunBinary(@NotNull final String scriptBody,
+                                    @NotNull final Priority priority,
+                                    @NotNull final ByteBuffer binaryInput,
+                                    @NotNull final String tenant) {
+    JsExecution jsExecution = jsExecutionFactory.createBinary(scriptBody, priority, tenant, binaryInput);
+
+    store(jsExecution);
+    //lifetime of binary output starts when script can't write it anymore
+    jsExecution.whenFinished(taskExecutor, () -> {
+      BinaryOutput binaryOutput = jsExecution.getBinaryOutput();
+      timingWheel.schedule(binaryOutput::expire, binaryOutput.getTtlMillis(), TimeUnit.MILLISECONDS);
+    });
+    jsExecution.submitExecution(jsExecutionScheduler);
+
+    return jsExecution.getDto();
+  }
+
+  /**
+   * Create streaming execution and submit it at once. Stream is finished together with execution,
+   * whatever way execution ends.
+   * @param scriptBody code fragment
+   * @param priority scheduling lane
+   * @param stream streaming channel of the script
+   * @param tenant api key of the client
+   * @return DTO of created execution
+   */
+  @NotNull
+  JsExecutionDTO createAndRunStreaming(@NotNull final String scriptBody,
+                                       @NotNull final Priority priority,
+                                       @NotNull final ScriptStream stream,
+                                       @NotNull final String tenant) {
+    JsExecution jsExecution = jsExecutionFactory.createStreaming(scriptBody, priority, tenant, stream);
+
+    store(jsExecution);
+    jsExecution.whenFinished(taskExecutor, stream::finish);
+    jsExecution.submitExecution(jsExecutionScheduler);
+
+    return jsExecution.getDto();
+  }
+
+  /**
+   * Create invocation of WebAssembly module function and submit it at once. Invocations skip result cache
+   * like other executions bound to this node.
+   * @param module uploaded module
+   * @param invocation exported function and its arguments
+   * @param tenant api key of the client
+   * @return DTO of created execution
+   */
+  @NotNull
+  JsExecutionDTO invokeWasm(@NotNull final WasmModule module,
+                            @NotNull final WasmInvocation invocation,
+                            @NotNull final String tenant) {
+    JsExecution jsExecution = jsExecutionFactory.createWasm(module, invocation, tenant);
+
+    store(jsExecution);
+    jsExecution.submitExecution(jsExecutionScheduler);
+
+    return jsExecution.getDto();
+  }
+
+  /**
+   * Binary output of successfully finished execution, available until it expires.
+   * @param executionId execution id
+   * @return binary output
+   */
+  @NotNull
+  BinaryOutput getBinaryOutput(final int executionId) {
+    JsExecution jsExecution = getJsExecution(executionId);
+
+    if (!jsExecution.isBinary()) {
+      throw new BinaryOutputNotAvailableProblem(
+          String.format("JsExecution id %d has no binary channel", executionId));
+    }
+
+    //status is read before runner, finished script can't add buffers anymore
+    Status status = jsExecution.getStatus();
+    if (status != Status.SUCCESSFUL || jsExecution.isRunning()) {
+      throw new BinaryOutputNotAvailableProblem(
+          String.format("JsExecution id %d is not finished successfully, status is %s", executionId, status));
+    }
 
+    BinaryOutput binaryOutput = jsExecution.getBinaryOutput();
+    if (binaryOutput.isExpired()) {
+      throw new BinaryOutputNotAvailableProblem(
+          String.format("Binary output of JsExecution id %d is expired, it is kept for %d ms",
+              executionId, binaryOutput.getTtlMillis()));
+    }
+
+    return binaryOutput;
+  }
+
+  /**
+   * CPU profile of finished execution.
+   * @param executionId execution id
+   * @return sampler report
+   */
+  @NotNull
+  String getProfile(final int executionId) {
+    JsExecution jsExecution = getJsExecution(executionId);
+
+    if (!jsExecution.isProfiled()) {
+      throw new ProfileNotAvailableProblem(
+          String.format("JsExecution id %d is not profiled", executionId));
+    }
+
+    //report is kept once context and engine of execution are closed
+    String summary = jsExecution.getCpuProfile().getSummary();
+    if (summary == null) {
+      throw new ProfileNotAvailableProblem(
+          String.format("JsExecution id %d is not finished, status is %s", executionId, jsExecution.getStatus()));
+    }
+
+    return summary;
+  }
+
+  private void store(@NotNull final JsExecution jsExecution) {
 
     //this fragment is a one of reasons why we can't use CopyOnWriteList
     synchronized (storage) {
       storage.add(jsExecution);
-      jsExecution.setId(storage.size() - 1);
+      jsExecution.setId(cluster.toId(storage.size() - 1));
     }
+  }
 
-    jsExecution.submitExecution(taskExecutor);
+  private void scheduleNextTurn(@NotNull final JsExecution template,
+                                @NotNull final CronExpression cron,
+                                final ZonedDateTime notBefore,
+                                final URI callbackUrl,
+                                final boolean cacheable,
+                                @NotNull final Deque<JsExecution> keptTurns) {
+    ZonedDateTime now = ZonedDateTime.now();
+    ZonedDateTime next = cron.next(notBefore != null && notBefore.isAfter(now) ? notBefore : now);
+
+    if (next == null) {
+      log.info("Cron of JsExecution id {} has no next turn", template.getId());
+      return;
+    }
 
-    //return immutable thread-safe serializable DTO, method is synchronized
-    return jsExecution.getDto();
+    //storing, caching and submitting don't hold up the timing wheel thread
+    template.schedule(timingWheel, millisUntil(next), () -> taskExecutor.execute(() -> {
+      JsExecution jsExecution = jsExecutionFactory.createTurn(template);
+
+      store(jsExecution);
+      if (callbackUrl != null) {
+        jsExecution.whenFinished(taskExecutor, () -> callbackDelivery.enqueue(callbackUrl, jsExecution.getDto()));
+      }
+      submit(jsExecution, cacheable);
+
+      log.debug("JsExecution id {} started by cron of JsExecution id {}", jsExecution.getId(), template.getId());
+
+      keepTurn(keptTurns, jsExecution);
+      scheduleNextTurn(template, cron, null, callbackUrl, cacheable, keptTurns);
+    }));
+  }
+
+  /**
+   * Remember new turn of repeated execution, the oldest turn is deleted from storage once it is finished
+   * if more turns than configured are kept.
+   * @param keptTurns turns of the same template, the oldest first
+   * @param turn new turn
+   */
+  private void keepTurn(@NotNull final Deque<JsExecution> keptTurns, @NotNull final JsExecution turn) {
+    keptTurns.addLast(turn);
+
+    int maxKeptTurns = schedulerProperties.getMaxKeptTurns();
+    while (maxKeptTurns > 0 && keptTurns.size() > maxKeptTurns) {
+      JsExecution oldest = keptTurns.pollFirst();
+      if (oldest == null) {
+        return;
+      }
+      oldest.whenFinished(taskExecutor, () -> forget(oldest));
+    }
+  }
+
+  /**
+   * Delete finished execution from storage unless it is deleted already.
+   * @param jsExecution stored execution
+   */
+  private void forget(@NotNull final JsExecution jsExecution) {
+    int index = cluster.toLocalIndex(jsExecution.getId());
+
+    synchronized (storage) {
+      if (index < storage.size() && storage.get(index) == jsExecution) {
+        storage.set(index, null);
+      }
+    }
+  }
+
+  /**
+   * Submit execution to scheduler, cacheable one goes through result cache first.
+   * Profiled execution always runs, profile of reused output would be empty.
+   * @param jsExecution execution
+   * @param cacheable allows reusing output of identical execution
+   */
+  private void submit(@NotNull final JsExecution jsExecution, final boolean cacheable) {
+    if (cacheable && !jsExecution.isProfiled()) {
+      resultCache.run(jsExecution, () -> jsExecution.submitExecution(jsExecutionScheduler));
+    } else {
+      jsExecution.submitExecution(jsExecutionScheduler);
+    }
+  }
+
+  private static long millisUntil(@NotNull final ZonedDateTime time) {
+    return Math.max(0, Duration.between(ZonedDateTime.now(), time).toMillis());
   }
 
   @NotNull
@@ -125,41 +438,91 @@ public class JsExecutionService {
     return jsExecution.getDto();
   }
 
+  long getVersion(final int executionId) {
+    return getJsExecution(executionId).getVersion();
+  }
+
+  /**
+   * Version of the whole storage, changed by every added, deleted or changed execution.
+   * Computed from execution versions, so no DTO is built.
+   * @return version string
+   */
+  @NotNull
+  String getStorageVersion() {
+    long deleted = 0;
+    long versionsSum = 0;
+    int size;
+
+    synchronized (storage) {
+      size = storage.size();
+
+      for (JsExecution jsExecution : storage) {
+        if (jsExecution == null) {
+          deleted++;
+        } else {
+          versionsSum += jsExecution.getVersion();
+        }
+      }
+    }
+
+    //deleting lowers the sum but always raises deleted counter
+    return size + "." + deleted + "." + versionsSum;
+  }
+
+  /**
+   * Run action on task executor when execution is changed after given version.
+   * @param executionId execution id
+   * @param sinceVersion version known to the caller
+   * @param listener action
+   * @return action removing listener which is not needed anymore
+   */
+  @NotNull
+  Runnable whenChanged(final int executionId, final long sinceVersion, @NotNull final Runnable listener) {
+    //listener is fired by the js worker writing logs, it must not do any real work there
+    return getJsExecution(executionId).whenChanged(sinceVersion, () -> taskExecutor.execute(listener));
+  }
+
+  /**
+   * Run action once execution is finished and has freed its worker, see {@link JsExecution#whenFinished}.
+   * @param executionId execution id
+   * @param action action, run on task executor unless execution is finished already
+   */
+  void whenFinished(final int executionId, @NotNull final Runnable action) {
+    getJsExecution(executionId).whenFinished(taskExecutor, action);
+  }
+
   @NotNull
   JsExecutionDTO cancelExecution(final int executionId) {
 
     final JsExecution jsExecution = getJsExecution(executionId);
 
+    if (!jsExecution.cancel()) {
+      throw new JsExecutionCanNotBeCancelledProblem(
+          String.format("JsExecution id %d and status %s can't be canceled",
+              jsExecution.getId(),
+              jsExecution.getStatus().name())
+      );
+    }
 
-    synchronized (jsExecution) {
-      if (!jsExecution.cancel()) {
-        throw new JsExecutionCanNotBeCancelledProblem(
-            String.format("JsExecution id %d and status %s can't be canceled",
-                jsExecution.getId(),
-                jsExecution.getStatus().name())
-        );
-      }
+    cancellationWatchdog.watch(jsExecution);
 
-      /*
-     I know that jsExecution.cancellable can be changed only from 'true' to 'false'
-     and synchronisation of these line is useless, but let it be here in the name of possible flow updates
-    */
-      return jsExecution.getDto();
-    }
+    //CANCELLED is final, so DTO taken without any lock still shows the result of our cancellation
+    return jsExecution.getDto();
   }
 
   void deleteExecution(final int executionId) {
 
     JsExecution jsExecution;
+    int index = indexOf(executionId);
 
     synchronized (storage) {
 
-      if (executionId >= storage.size()) {
+      if (index >= storage.size()) {
 
         throw new JsExecutionNotFoundProblem(executionId);
 
       }
-        jsExecution = storage.set(executionId, null);
+        jsExecution = storage.set(index, null);
     }
 
     if (jsExecution == null) {
@@ -167,23 +530,26 @@ public class JsExecutionService {
     }
 
     // cancel if running or in queue
-    jsExecution.cancel();
+    if (jsExecution.cancel()) {
+      cancellationWatchdog.watch(jsExecution);
+    }
   }
 
   @NotNull
   private JsExecution getJsExecution(final int executionId) {
 
     JsExecution jsExecution;
+    int index = indexOf(executionId);
 
     synchronized (storage) {
 
-      if (executionId >= storage.size()) {
+      if (index >= storage.size()) {
 
         throw new JsExecutionNotFoundProblem(executionId);
 
       }
 
-      jsExecution = storage.get(executionId);
+      jsExecution = storage.get(index);
     }
 
     if (jsExecution == null) {
@@ -194,4 +560,18 @@ public class JsExecutionService {
 
     return jsExecution;
   }
+
+  /**
+   * Index of execution in local storage.
+   * @param executionId cluster-wide id
+   * @return storage index
+   * @throws JsExecutionNotFoundProblem if execution belongs to another node
+   */
+  private int indexOf(final int executionId) {
+    if (!cluster.isLocal(executionId)) {
+      throw new JsExecutionNotFoundProblem(executionId);
+    }
+
+    return cluster.toLocalIndex(executionId);
+  }
 }
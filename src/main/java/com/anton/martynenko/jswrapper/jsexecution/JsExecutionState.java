@@ -0,0 +1,301 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Immutable snapshot of {@link JsExecution} lifecycle.
+ * Execution keeps current snapshot in atomic reference and replaces it as a whole, so every reader sees
+ * status consistent with the rest of the fields without taking any lock. Every new snapshot has version one more
+ * than the replaced one.
+ * Allowed status changes:
+ * CREATED → SCHEDULED | SUBMITTED | CANCELLED,
+ * SCHEDULED → SCHEDULED (next cron turn) | SUBMITTED | CANCELLED,
+ * SUBMITTED → RUNNING | UNSUCCESSFUL (rejected by pool) | CANCELLED,
+ * RUNNING → SUCCESSFUL | REJECTED | UNSUCCESSFUL | CANCELLED,
+ * finished statuses are final.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Immutable
+final class JsExecutionState {
+
+  /**
+   * Status transitions table.
+   */
+  private static final Map<Status, Set<Status>> TRANSITIONS = new EnumMap<>(Status.class);
+
+  static {
+    TRANSITIONS.put(Status.CREATED, EnumSet.of(Status.SCHEDULED, Status.SUBMITTED, Status.CANCELLED));
+    TRANSITIONS.put(Status.SCHEDULED, EnumSet.of(Status.SCHEDULED, Status.SUBMITTED, Status.CANCELLED));
+    TRANSITIONS.put(Status.SUBMITTED, EnumSet.of(Status.RUNNING, Status.UNSUCCESSFUL, Status.CANCELLED));
+    TRANSITIONS.put(Status.RUNNING,
+        EnumSet.of(Status.SUCCESSFUL, Status.REJECTED, Status.UNSUCCESSFUL, Status.CANCELLED));
+    TRANSITIONS.put(Status.SUCCESSFUL, Collections.emptySet());
+    TRANSITIONS.put(Status.REJECTED, Collections.emptySet());
+    TRANSITIONS.put(Status.UNSUCCESSFUL, Collections.emptySet());
+    TRANSITIONS.put(Status.CANCELLED, Collections.emptySet());
+  }
+
+  /**
+   * Initial state of every execution.
+   */
+  static final JsExecutionState INITIAL = new JsExecutionState(0, Status.CREATED, null, null, null, null, null, null);
+
+  /**
+   * Number of changes made since execution was created.
+   */
+  private final long version;
+
+  /**
+   * Current {@link Status}.
+   */
+  private final Status status;
+
+  /**
+   * Future of submitted execution, may appear a bit later than SUBMITTED status.
+   */
+  private final Future<?> executionFuture;
+
+  /**
+   * Timer of delayed or repeated execution.
+   */
+  private final TimingWheel.Timeout scheduledTimeout;
+
+  /**
+   * Thread running the script right now.
+   */
+  private final Thread runner;
+
+  /**
+   * Execution's finishing time.
+   */
+  private final ZonedDateTime executionTime;
+
+  /**
+   * Exception thrown during code parsing and running.
+   */
+  private final Exception exception;
+
+  /**
+   * Time spent loading prelude into the context of the script, null if it has no prelude.
+   */
+  private final Long preludeNanos;
+
+  /**
+   * Basic constructor.
+   * @param version number of changes
+   * @param status current status
+   * @param executionFuture future of submitted execution
+   * @param scheduledTimeout timer of delayed execution
+   * @param runner thread running the script
+   * @param executionTime finishing time
+   * @param exception exception thrown by script
+   * @param preludeNanos time spent loading prelude
+   */
+  private JsExecutionState(final long version,
+                           @NotNull final Status status,
+                           final Future<?> executionFuture,
+                           final TimingWheel.Timeout scheduledTimeout,
+                           final Thread runner,
+                           final ZonedDateTime executionTime,
+                           final Exception exception,
+                           final Long preludeNanos) {
+    this.version = version;
+    this.status = status;
+    this.executionFuture = executionFuture;
+    this.scheduledTimeout = scheduledTimeout;
+    this.runner = runner;
+    this.executionTime = executionTime;
+    this.exception = exception;
+    this.preludeNanos = preludeNanos;
+  }
+
+  /**
+   * Checks if status can be changed from one to another.
+   * @param from current status
+   * @param to next status
+   * @return true if transition is allowed
+   */
+  static boolean isAllowed(@NotNull final Status from, @NotNull final Status to) {
+    return TRANSITIONS.get(from).contains(to);
+  }
+
+  /**
+   * Checks if status is final.
+   * @param status status
+   * @return true if no transitions are allowed from status
+   */
+  static boolean isFinal(@NotNull final Status status) {
+    return TRANSITIONS.get(status).isEmpty();
+  }
+
+  /**
+   * Copy with other status, transition must be checked by caller.
+   * @param nextStatus next status
+   * @return new state
+   */
+  @NotNull
+  JsExecutionState withStatus(@NotNull final Status nextStatus) {
+    return new JsExecutionState(version + 1, nextStatus, executionFuture, scheduledTimeout, runner, executionTime, exception,
+        preludeNanos);
+  }
+
+  /**
+   * Copy with execution future.
+   * @param future future of submitted execution
+   * @return new state
+   */
+  @NotNull
+  JsExecutionState withExecutionFuture(@NotNull final Future<?> future) {
+    return new JsExecutionState(version + 1, status, future, scheduledTimeout, runner, executionTime, exception,
+        preludeNanos);
+  }
+
+  /**
+   * Copy with timer.
+   * @param timeout timer of delayed execution
+   * @return new state
+   */
+  @NotNull
+  JsExecutionState withScheduledTimeout(final TimingWheel.Timeout timeout) {
+    return new JsExecutionState(version + 1, status, executionFuture, timeout, runner, executionTime, exception,
+        preludeNanos);
+  }
+
+  /**
+   * Copy with runner thread.
+   * @param thread thread running the script or null when script frees it
+   * @return new state
+   */
+  @NotNull
+  JsExecutionState withRunner(final Thread thread) {
+    return new JsExecutionState(version + 1, status, executionFuture, scheduledTimeout, thread, executionTime, exception,
+        preludeNanos);
+  }
+
+  /**
+   * Copy with execution result.
+   * @param time finishing time
+   * @param thrown exception thrown by script
+   * @return new state
+   */
+  @NotNull
+  JsExecutionState withResult(final ZonedDateTime time, final Exception thrown) {
+    return new JsExecutionState(version + 1, status, executionFuture, scheduledTimeout, runner, time, thrown,
+        preludeNanos);
+  }
+
+  /**
+   * Copy with prelude loading time.
+   * @param nanos time spent loading prelude into the context of the script
+   * @return new state
+   */
+  @NotNull
+  JsExecutionState withPreludeNanos(final long nanos) {
+    return new JsExecutionState(version + 1, status, executionFuture, scheduledTimeout, runner, executionTime, exception,
+        nanos);
+  }
+
+  /**
+   * Shows if execution still can be cancelled.
+   * @return true if execution waits or runs
+   */
+  boolean isCancellable() {
+    return status == Status.SCHEDULED || status == Status.SUBMITTED || status == Status.RUNNING;
+  }
+
+  /**
+   * Getter for property 'version'.
+   *
+   * @return Value for property 'version'.
+   */
+  long getVersion() {
+    return version;
+  }
+
+  /**
+   * Getter for property 'status'.
+   *
+   * @return Value for property 'status'.
+   */
+  @NotNull
+  Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Getter for property 'executionFuture'.
+   *
+   * @return Value for property 'executionFuture'.
+   */
+  Future<?> getExecutionFuture() {
+    return executionFuture;
+  }
+
+  /**
+   * Getter for property 'scheduledTimeout'.
+   *
+   * @return Value for property 'scheduledTimeout'.
+   */
+  TimingWheel.Timeout getScheduledTimeout() {
+    return scheduledTimeout;
+  }
+
+  /**
+   * Getter for property 'runner'.
+   *
+   * @return Value for property 'runner'.
+   */
+  Thread getRunner() {
+    return runner;
+  }
+
+  /**
+   * Getter for property 'executionTime'.
+   *
+   * @return Value for property 'executionTime'.
+   */
+  ZonedDateTime getExecutionTime() {
+    return executionTime;
+  }
+
+  /**
+   * Getter for property 'exception'.
+   *
+   * @return Value for property 'exception'.
+   */
+  Exception getException() {
+    return exception;
+  }
+
+  /**
+   * Getter for property 'preludeNanos'.
+   *
+   * @return Value for property 'preludeNanos'.
+   */
+  Long getPreludeNanos() {
+    return preludeNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "JsExecutionState{" +
+        "status=" + status +
+        ", executionTime=" + executionTime +
+        ", running=" + (runner != null) +
+        '}';
+  }
+}
@@ -0,0 +1,512 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.cluster.JsExecutionCluster;
+import com.anton.martynenko.jswrapper.jsexecution.cluster.JsExecutionClusterClient;
+import com.anton.martynenko.jswrapper.jsexecution.cluster.JsExecutionClusterProperties;
+import com.anton.martynenko.jswrapper.jsexecution.cluster.NodeLoad;
+import com.anton.martynenko.jswrapper.jsexecution.cluster.StolenExecution;
+import com.anton.martynenko.jswrapper.jsexecution.cluster.StolenExecutionResult;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ClusterPeerNotAuthenticatedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.JsExecutionNotFoundProblem;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balances queues of cluster nodes by work stealing.
+ * Every node periodically advertises its load to peers. Node having empty queue and free slots takes queued
+ * executions of the busiest peer and runs them as its own. Execution stays in storage of its owner all the time:
+ * owner shows it as RUNNING while the thief runs it, receives its logs and status when the run is finished
+ * and tells the thief to stop it if client cancels it. Lent execution has a lease renewed by advertisements
+ * of the thief listing it, execution whose lease expires because the thief is gone or its result is lost
+ * is finished as UNSUCCESSFUL.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@Service
+@ThreadSafe
+public class JsExecutionWorkStealer {
+
+  /**
+   * {@link JsExecutionScheduler} bean giving queued executions away and running stolen ones.
+   */
+  private final JsExecutionScheduler jsExecutionScheduler;
+
+  /**
+   * {@link JsExecutionFactory} bean producing local copies of stolen executions.
+   */
+  private final JsExecutionFactory jsExecutionFactory;
+
+  /**
+   * {@link JsExecutionCluster} bean knowing loads of peers.
+   */
+  private final JsExecutionCluster cluster;
+
+  /**
+   * {@link JsExecutionClusterClient} bean calling peers.
+   */
+  private final JsExecutionClusterClient clusterClient;
+
+  /**
+   * {@link TimingWheel} bean driving balancing.
+   */
+  private final TimingWheel timingWheel;
+
+  /**
+   * {@link ThreadPoolTaskExecutor} bean doing network calls away from wheel and js workers.
+   */
+  private final ThreadPoolTaskExecutor taskExecutor;
+
+  /**
+   * {@link JsExecutionCancellationWatchdog} bean making sure cancelled stolen executions free their workers.
+   */
+  private final JsExecutionCancellationWatchdog cancellationWatchdog;
+
+  /**
+   * Balancing period in milliseconds.
+   */
+  private final long balanceIntervalMillis;
+
+  /**
+   * Minimum queue of peer to steal from.
+   */
+  private final int stealThreshold;
+
+  /**
+   * Lease time of lent executions in nanos.
+   */
+  private final long leaseNanos;
+
+  /**
+   * Own executions running on other nodes, by id.
+   */
+  private final Map<Integer, Lease> lent = new ConcurrentHashMap<>();
+
+  /**
+   * Executions of other nodes running here, by id.
+   */
+  private final Map<Integer, JsExecution> stolen = new ConcurrentHashMap<>();
+
+  /**
+   * Amount of executions taken from peers.
+   */
+  private final Counter stolenCounter;
+
+  /**
+   * Amount of executions given to peers.
+   */
+  private final Counter lentCounter;
+
+  /**
+   * Amount of lent executions whose leases expired.
+   */
+  private final Counter expiredCounter;
+
+  /**
+   * Set on shutdown, stops balancing.
+   */
+  private volatile boolean stopped;
+
+  /**
+   * Basic constructor.
+   * @param jsExecutionScheduler scheduler bean
+   * @param jsExecutionFactory factory bean
+   * @param cluster cluster bean
+   * @param clusterClient cluster client bean
+   * @param timingWheel timing wheel bean
+   * @param taskExecutor task executor bean
+   * @param cancellationWatchdog cancellation watchdog bean
+   * @param properties cluster configuration
+   * @param meterRegistry registry for stealing metrics
+   */
+
+  public JsExecutionWorkStealer(@NotNull final JsExecutionScheduler jsExecutionScheduler,
+                                @NotNull final JsExecutionFactory jsExecutionFactory,
+                                @NotNull final JsExecutionCluster cluster,
+                                @NotNull final JsExecutionClusterClient clusterClient,
+                                @NotNull final TimingWheel timingWheel,
+                                @NotNull final ThreadPoolTaskExecutor taskExecutor,
+                                @NotNull final JsExecutionCancellationWatchdog cancellationWatchdog,
+                                @NotNull final JsExecutionClusterProperties properties,
+                                @NotNull final MeterRegistry meterRegistry) {
+    this.jsExecutionScheduler = jsExecutionScheduler;
+    this.jsExecutionFactory = jsExecutionFactory;
+    this.cluster = cluster;
+    this.clusterClient = clusterClient;
+    this.timingWheel = timingWheel;
+    this.taskExecutor = taskExecutor;
+    this.cancellationWatchdog = cancellationWatchdog;
+    this.balanceIntervalMillis = properties.getBalanceIntervalMillis();
+    this.stealThreshold = Math.max(1, properties.getStealThreshold());
+    this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLeaseMillis());
+
+    this.stolenCounter = Counter.builder("jswrapper.cluster.stolen")
+        .description("Executions taken from other cluster nodes")
+        .register(meterRegistry);
+    this.lentCounter = Counter.builder("jswrapper.cluster.lent")
+        .description("Executions given to other cluster nodes")
+        .register(meterRegistry);
+    this.expiredCounter = Counter.builder("jswrapper.cluster.lease.expired")
+        .description("Executions given to other cluster nodes which were never reported back")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Start balancing if there are peers.
+   */
+  @PostConstruct
+  void start() {
+    if (cluster.isEnabled() && balanceIntervalMillis > 0) {
+      scheduleBalancing();
+    }
+  }
+
+  /**
+   * Stop balancing.
+   */
+  @PreDestroy
+  void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Give queued executions to peer. Given executions become RUNNING here until the peer reports their results.
+   * @param thief id of peer taking executions
+   * @param max maximum amount of executions
+   * @return executions for the peer to run
+   * @throws ClusterPeerNotAuthenticatedProblem if cluster mode is off or thief is not a peer
+   */
+
+  @NotNull
+  public List<StolenExecution> handOut(final int thief, final int max) {
+    if (!cluster.isPeer(thief)) {
+      throw new ClusterPeerNotAuthenticatedProblem();
+    }
+
+    List<StolenExecution> given = new ArrayList<>();
+
+    for (Runnable task : jsExecutionScheduler.steal(max)) {
+      if (!(task instanceof JsExecution)) {
+        //scheduler runs executions only, but its task can't be dropped anyway
+        jsExecutionScheduler.submit(task, HttpHeader.DEFAULT_TENANT, Priority.NORMAL);
+        continue;
+      }
+
+      JsExecution jsExecution = (JsExecution) task;
+
+      //binary buffers and streamed http exchange stay on this node, such execution goes back to the queue
+      if (jsExecution.isLocalOnly()) {
+        jsExecution.resubmit(jsExecutionScheduler);
+        continue;
+      }
+
+      CompletableFuture<Void> remoteFuture = new CompletableFuture<>();
+
+      //execution cancelled right after it was taken from the queue stays cancelled
+      if (!jsExecution.startRemotely(remoteFuture)) {
+        continue;
+      }
+
+      Lease lease = new Lease(jsExecution, thief, System.nanoTime() + leaseNanos);
+      lent.put(jsExecution.getId(), lease);
+      remoteFuture.whenComplete((ignored, error) -> {
+        lent.remove(jsExecution.getId(), lease);
+
+        if (remoteFuture.isCancelled()) {
+          taskExecutor.execute(() -> clusterClient.cancelStolen(thief, jsExecution.getId()));
+        }
+      });
+      watchLease(lease);
+
+      given.add(new StolenExecution(jsExecution.getId(), jsExecution.getScriptBody(),
+          jsExecution.getTenant(), jsExecution.getPriority(), jsExecution.getInput(), jsExecution.getLanguage()));
+    }
+
+    lentCounter.increment(given.size());
+    log.debug("{} queued executions given to cluster node {}", given.size(), thief);
+
+    return given;
+  }
+
+  /**
+   * Apply result of execution run by peer.
+   * @param thief id of peer reporting result
+   * @param executionId execution id
+   * @param result run result
+   * @throws JsExecutionNotFoundProblem if execution isn't waiting for result of this peer,
+   * e.g. it's cancelled or deleted
+   */
+
+  public void complete(final int thief, final int executionId, @NotNull final StolenExecutionResult result) {
+    Lease lease = lent.get(executionId);
+    JsExecution jsExecution = lease == null || lease.thief != thief ? null : lease.jsExecution;
+
+    ZonedDateTime executionTime = result.getExecutionTime() == null
+        ? null
+        : ZonedDateTime.parse(result.getExecutionTime(), DateTimeFormatter.ISO_ZONED_DATE_TIME);
+
+    if (jsExecution == null || !jsExecution.completeRemotely(result.getStatus(), executionTime,
+        nullToEmpty(result.getExecutionLog()), nullToEmpty(result.getErrorLog()),
+        nullToEmpty(result.getExceptionInfo()))) {
+      throw new JsExecutionNotFoundProblem(executionId);
+    }
+  }
+
+  /**
+   * Stop stolen execution cancelled by its owner.
+   * @param owner id of peer cancelling execution
+   * @param executionId execution id
+   */
+
+  public void cancelStolen(final int owner, final int executionId) {
+    //only the owner stops its execution
+    if (cluster.ownerOf(executionId) != owner) {
+      return;
+    }
+
+    JsExecution jsExecution = stolen.remove(executionId);
+
+    if (jsExecution != null && jsExecution.cancel()) {
+      cancellationWatchdog.watch(jsExecution);
+    }
+  }
+
+  /**
+   * Remember load advertised by peer and renew leases of executions it is running.
+   * @param load peer load
+   */
+
+  public void updateLoad(@NotNull final NodeLoad load) {
+    cluster.updateLoad(load);
+
+    if (load.getRunning() == null) {
+      return;
+    }
+
+    long expiresAt = System.nanoTime() + leaseNanos;
+    for (Integer executionId : load.getRunning()) {
+      Lease lease = executionId == null ? null : lent.get(executionId);
+
+      if (lease != null && lease.thief == load.getNodeId()) {
+        lease.expiresAt = expiresAt;
+      }
+    }
+  }
+
+  /**
+   * Check lease of lent execution when it should expire, finish the execution if it isn't renewed.
+   * @param lease lease of lent execution
+   */
+  private void watchLease(@NotNull final Lease lease) {
+    //result is applied or execution is cancelled
+    if (lent.get(lease.jsExecution.getId()) != lease) {
+      return;
+    }
+
+    long remainingNanos = lease.expiresAt - System.nanoTime();
+    if (remainingNanos > 0) {
+      try {
+        timingWheel.schedule(() -> watchLease(lease), TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1,
+            TimeUnit.MILLISECONDS);
+      } catch (IllegalStateException e) {
+        log.debug("Lease of JsExecution id {} is not watched, timing wheel is stopped", lease.jsExecution.getId());
+      }
+      return;
+    }
+
+    int executionId = lease.jsExecution.getId();
+    if (lease.jsExecution.completeRemotely(Status.UNSUCCESSFUL, null, "", "",
+        String.format("Cluster node %d running the execution didn't report it for %d ms",
+            lease.thief, TimeUnit.NANOSECONDS.toMillis(leaseNanos)))) {
+      expiredCounter.increment();
+      log.warn("Lease of JsExecution id {} lent to cluster node {} expired", executionId, lease.thief);
+
+      //thief may be still running it, e.g. its result was lost
+      taskExecutor.execute(() -> clusterClient.cancelStolen(lease.thief, executionId));
+    }
+  }
+
+  /**
+   * Schedule the next balancing turn.
+   */
+  private void scheduleBalancing() {
+    timingWheel.schedule(() -> {
+      if (stopped) {
+        return;
+      }
+
+      try {
+        taskExecutor.execute(() -> {
+          try {
+            balance();
+          } catch (RuntimeException e) {
+            log.error("Balancing of cluster node queues failed", e);
+          } finally {
+            scheduleBalancing();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        log.debug("Balancing is stopped, task executor is shut down");
+      }
+    }, balanceIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Advertise own load and steal from the busiest peer if this node is idle.
+   */
+  private void balance() {
+    int queued = jsExecutionScheduler.getQueued();
+    int inFlight = jsExecutionScheduler.getInFlight();
+    int maxInFlight = jsExecutionScheduler.getMaxInFlight();
+    for (int node = 0; node < cluster.getSize(); node++) {
+      if (node != cluster.getNodeId()) {
+        clusterClient.advertise(node, new NodeLoad(cluster.getNodeId(), queued, inFlight, maxInFlight,
+            runningOf(node)));
+      }
+    }
+
+    int free = maxInFlight - inFlight;
+    if (queued > 0 || free <= 0) {
+      return;
+    }
+
+    cluster.findBusiestPeer(stealThreshold).ifPresent(victim -> {
+      //take up to half of the victim's queue, so two idle nodes don't empty it in one turn
+      int max = Math.min(free, (victim.getQueued() + 1) / 2);
+
+      for (StolenExecution stolenExecution : clusterClient.steal(victim.getNodeId(), max)) {
+        runStolen(victim.getNodeId(), stolenExecution);
+      }
+    });
+  }
+
+  /**
+   * Executions of peer running here, listed in advertisement to renew their leases.
+   * @param owner peer id
+   * @return ids of executions stolen from the peer and not reported yet
+   */
+  @NotNull
+  private List<Integer> runningOf(final int owner) {
+    List<Integer> running = new ArrayList<>();
+
+    for (Integer executionId : stolen.keySet()) {
+      if (cluster.ownerOf(executionId) == owner) {
+        running.add(executionId);
+      }
+    }
+
+    return running;
+  }
+
+  /**
+   * Run execution taken from peer through local scheduler and report its result when it's finished.
+   * @param victim owner id
+   * @param stolenExecution taken execution
+   */
+  private void runStolen(final int victim, @NotNull final StolenExecution stolenExecution) {
+    JsExecution jsExecution = jsExecutionFactory.createStolen(stolenExecution);
+
+    stolen.put(jsExecution.getId(), jsExecution);
+    stolenCounter.increment();
+
+    try {
+      jsExecution.submitExecution(jsExecutionScheduler);
+    } catch (RejectedExecutionException e) {
+      log.error("Stolen JsExecution id {} is rejected by js worker pool", jsExecution.getId());
+    }
+
+    jsExecution.whenFinished(taskExecutor, () -> report(victim, jsExecution));
+  }
+
+  /**
+   * Send result of execution which is finished and has freed its worker to the owner.
+   * @param victim owner id
+   * @param jsExecution stolen execution
+   */
+  private void report(final int victim, @NotNull final JsExecution jsExecution) {
+    JsExecutionDTO dto = jsExecution.getDto();
+
+    //cancelled by owner, nobody waits for result
+    if (!stolen.remove(jsExecution.getId(), jsExecution)) {
+      return;
+    }
+
+    StolenExecutionResult result = new StolenExecutionResult(
+        dto.getStatus(),
+        dto.getExecutionTime() == null ? null : dto.getExecutionTime().format(DateTimeFormatter.ISO_ZONED_DATE_TIME),
+        dto.getExecutionLog(),
+        dto.getErrorLog(),
+        dto.getExceptionInfo());
+
+    if (!clusterClient.reportResult(victim, jsExecution.getId(), result)) {
+      log.warn("Result of stolen JsExecution id {} is not accepted by cluster node {}", jsExecution.getId(), victim);
+    }
+  }
+
+  /**
+   * Replace null with empty string.
+   * @param value string or null
+   * @return the same string or empty one
+   */
+  @NotNull
+  private static String nullToEmpty(final String value) {
+    return value == null ? "" : value;
+  }
+
+  /**
+   * Own execution given to peer.
+   */
+  private static final class Lease {
+
+    /**
+     * Given execution.
+     */
+    private final JsExecution jsExecution;
+
+    /**
+     * Id of peer running execution.
+     */
+    private final int thief;
+
+    /**
+     * Time in nanos when lease expires unless it is renewed.
+     */
+    private volatile long expiresAt;
+
+    /**
+     * Basic constructor.
+     * @param jsExecution given execution
+     * @param thief id of peer running execution
+     * @param expiresAt time in nanos when lease expires
+     */
+    private Lease(@NotNull final JsExecution jsExecution, final int thief, final long expiresAt) {
+      this.jsExecution = jsExecution;
+      this.thief = thief;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
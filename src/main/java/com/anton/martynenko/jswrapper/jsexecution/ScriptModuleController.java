@@ -0,0 +1,160 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.ModuleRegistry;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.ScriptModule;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.HttpURLConnection;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+
+/**
+ * REST-controller of ES modules shared by executions. Module is registered once under a name
+ * and imported by any number of scripts posted with <code>"module": true</code>,
+ * e.g. <code>import { check } from 'validation'</code>.
+ * Modules are kept by the node they are registered on, executions importing them run on this node too.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Tag(name = "ES modules API")
+@RestController
+@RequestMapping("/modules")
+public class ScriptModuleController {
+
+  /**
+   * Media type of js code.
+   */
+  private static final String APPLICATION_JAVASCRIPT_VALUE = "application/javascript";
+
+  /**
+   * Modules of {@link JsSandbox} bean.
+   */
+  private final ModuleRegistry moduleRegistry;
+
+  /**
+   * Basic constructor.
+   * @param sandbox sandbox bean holding modules
+   */
+
+  public ScriptModuleController(@NotNull final JsSandbox sandbox) {
+    this.moduleRegistry = sandbox.getModuleRegistry();
+  }
+
+  /**
+   * Registers module or replaces module of the same name.
+   *
+   * @param name name scripts import module by
+   * @param code module code
+   * @return {@link EntityModel} of module with HATEOAS links
+   */
+
+  @Operation(summary = "Register ES module",
+      description = "Register ES module which scripts import by name, module of the same name is replaced")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "Module registered",
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_BAD_REQUEST + "",
+          description = "Name is not valid, module is too large or there are too many modules",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @PutMapping(value = "/{name}", consumes = {APPLICATION_JAVASCRIPT_VALUE, MediaType.TEXT_PLAIN_VALUE},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public EntityModel<ScriptModule> register(@PathVariable final String name, @RequestBody final String code) {
+    return toModel(moduleRegistry.register(name, code));
+  }
+
+  /**
+   * Returns all modules of this node.
+   *
+   * @return {@link CollectionModel} of modules with HATEOAS links
+   */
+
+  @Operation(summary = "Get all ES modules", description = "Get all modules registered on this node")
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public CollectionModel<EntityModel<ScriptModule>> getAll() {
+    return CollectionModel.of(moduleRegistry.findAll().stream().map(this::toModel).collect(Collectors.toList()),
+        linkTo(methodOn(ScriptModuleController.class).getAll()).withSelfRel());
+  }
+
+  /**
+   * Returns module by name.
+   *
+   * @param name module name
+   * @return {@link EntityModel} of module with HATEOAS links
+   */
+
+  @Operation(summary = "Get ES module", description = "Get ES module by name")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "Module found",
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "Module not found",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @GetMapping(value = "/{name}", produces = {MediaType.APPLICATION_JSON_VALUE,
+      MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public EntityModel<ScriptModule> getOne(@PathVariable final String name) {
+    return toModel(moduleRegistry.get(name));
+  }
+
+  /**
+   * Returns code of module by name.
+   *
+   * @param name module name
+   * @return module code
+   */
+
+  @Operation(summary = "Get code of ES module", description = "Get code of ES module by name")
+  @GetMapping(value = "/{name}/code", produces = {APPLICATION_JAVASCRIPT_VALUE,
+      MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public String getCode(@PathVariable final String name) {
+    return moduleRegistry.get(name).getCode();
+  }
+
+  /**
+   * Deletes module by name, running executions keep code they have imported.
+   *
+   * @param name module name
+   * @return empty response
+   */
+
+  @Operation(summary = "Delete ES module", description = "Delete ES module by name")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NO_CONTENT + "", description = "Module deleted",
+          content = @Content(mediaType = MediaType.ALL_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "Module not found",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @DeleteMapping(value = "/{name}", produces = MediaType.APPLICATION_PROBLEM_JSON_VALUE)
+  public ResponseEntity<String> delete(@PathVariable final String name) {
+    moduleRegistry.delete(name);
+    return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+  }
+
+  /**
+   * Model of module with links to itself, its code and all modules.
+   * @param module module
+   * @return {@link EntityModel} of module
+   */
+  @NotNull
+  private EntityModel<ScriptModule> toModel(@NotNull final ScriptModule module) {
+    return EntityModel.of(module,
+        linkTo(methodOn(ScriptModuleController.class).getOne(module.getName())).withSelfRel(),
+        linkTo(methodOn(ScriptModuleController.class).getCode(module.getName())).withRel("code"),
+        linkTo(methodOn(ScriptModuleController.class).getAll()).withRel("modules"));
+  }
+}
@@ -0,0 +1,231 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.problem.BinaryInputTooLargeProblem;
+import com.anton.martynenko.jswrapper.jsexecution.wasm.WasmInvocation;
+import com.anton.martynenko.jswrapper.jsexecution.wasm.WasmModule;
+import com.anton.martynenko.jswrapper.jsexecution.wasm.WasmModuleStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+
+/**
+ * REST-controller of WebAssembly modules. Module is uploaded once and its exported functions are invoked
+ * many times, each invocation is a {@link JsExecution} running on the execution pool, so its status, timing
+ * and returned value (in execution log) are read by executions endpoints.
+ * Modules are kept by the node they are uploaded to, so are their invocations.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Tag(name = "WebAssembly modules API")
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/wasm-modules")
+public class WasmModuleController {
+
+  /**
+   * Size of buffer module is read with.
+   */
+  private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+  /**
+   * {@link WasmModuleStore} bean.
+   */
+  private final WasmModuleStore wasmModuleStore;
+
+  /**
+   * {@link JsExecutionService} bean.
+   */
+  private final JsExecutionService jsExecutionService;
+
+  /**
+   * {@link JsExecutionDTOModelAssembler} bean.
+   */
+  private final JsExecutionDTOModelAssembler jsExecutionDTOModelAssembler;
+
+  /**
+   * Uploads new module.
+   *
+   * @param name optional name of module
+   * @param request request with module binary as body
+   * @return {@link ResponseEntity} with json view of {@link WasmModule} with HATEOAS links
+   * @throws IOException if request body can't be read
+   */
+
+  @Operation(summary = "Upload WebAssembly module",
+      description = "Upload WebAssembly module binary to invoke its exported functions later")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_CREATED + "", description = "Module uploaded",
+          headers = @Header(name = "Location", description = "Location of uploaded module"),
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_BAD_REQUEST + "",
+          description = "Body is not WebAssembly module, wasm is not installed or modules take too much memory",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_ENTITY_TOO_LARGE + "", description = "Module is too large",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @PostMapping(consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "application/wasm"},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public ResponseEntity<EntityModel<WasmModule>> upload(@RequestParam(required = false) final Optional<String> name,
+                                                        final HttpServletRequest request) throws IOException {
+    WasmModule module = wasmModuleStore.upload(readModule(request), name.orElse(""));
+    EntityModel<WasmModule> entityModel = toModel(module);
+
+    return ResponseEntity.created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
+  }
+
+  /**
+   * Returns all modules of this node.
+   *
+   * @return {@link CollectionModel} of modules with HATEOAS links
+   */
+
+  @Operation(summary = "Get all WebAssembly modules", description = "Get all modules uploaded to this node")
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public CollectionModel<EntityModel<WasmModule>> getAll() {
+    return CollectionModel.of(wasmModuleStore.findAll().stream().map(this::toModel).collect(Collectors.toList()),
+        linkTo(methodOn(WasmModuleController.class).getAll()).withSelfRel());
+  }
+
+  /**
+   * Returns module by id.
+   *
+   * @param moduleId module id
+   * @return {@link EntityModel} of module with HATEOAS links
+   */
+
+  @Operation(summary = "Get WebAssembly module", description = "Get WebAssembly module by id")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_OK + "", description = "Module found",
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "Module not found",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @GetMapping(value = "/{moduleId}", produces = {MediaType.APPLICATION_JSON_VALUE,
+      MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public EntityModel<WasmModule> getOne(@PathVariable final Integer moduleId) {
+    return toModel(wasmModuleStore.get(moduleId));
+  }
+
+  /**
+   * Deletes module by id, invocations already created keep running.
+   *
+   * @param moduleId module id
+   * @return empty response
+   */
+
+  @Operation(summary = "Delete WebAssembly module", description = "Delete WebAssembly module by id")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NO_CONTENT + "", description = "Module deleted",
+          content = @Content(mediaType = MediaType.ALL_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "Module not found",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @DeleteMapping(value = "/{moduleId}", produces = MediaType.APPLICATION_PROBLEM_JSON_VALUE)
+  public ResponseEntity<String> delete(@PathVariable final Integer moduleId) {
+    wasmModuleStore.delete(moduleId);
+    return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+  }
+
+  /**
+   * Invokes exported function of module on the execution pool.
+   *
+   * @param moduleId module id
+   * @param invocation exported function, its numeric arguments and optional priority
+   * @param apiKey optional client's api key used as scheduling tenant
+   * @return {@link ResponseEntity} with json view of invocation {@link JsExecution} with HATEOAS links
+   */
+
+  @Operation(summary = "Invoke exported function of WebAssembly module",
+      description = "Create JsExecution calling exported function, returned value goes to execution log")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_CREATED + "", description = "Invocation created",
+          headers = @Header(name = "Location", description = "Location of created execution"),
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_BAD_REQUEST + "", description = "Invocation is not valid",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE)),
+      @ApiResponse(responseCode = HttpURLConnection.HTTP_NOT_FOUND + "", description = "Module not found",
+          content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+  })
+  @PostMapping(value = "/{moduleId}/invocations", consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE})
+  public ResponseEntity<EntityModel<JsExecutionDTO>> invoke(@PathVariable final Integer moduleId,
+                                                            @RequestBody final WasmInvocation invocation,
+                                                            @RequestHeader(value = HttpHeader.API_KEY,
+                                                                required = false)
+                                                            final Optional<String> apiKey) {
+    JsExecutionDTO jsExecutionDTO = jsExecutionService.invokeWasm(wasmModuleStore.get(moduleId), invocation,
+        apiKey.filter(key -> !key.isEmpty()).orElse(HttpHeader.DEFAULT_TENANT));
+
+    EntityModel<JsExecutionDTO> entityModel = jsExecutionDTOModelAssembler.toModel(jsExecutionDTO);
+
+    return ResponseEntity.created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
+  }
+
+  /**
+   * Model of module with links to itself, all modules and invocations.
+   * @param module module
+   * @return {@link EntityModel} of module
+   */
+  @NotNull
+  private EntityModel<WasmModule> toModel(@NotNull final WasmModule module) {
+    return EntityModel.of(module,
+        linkTo(methodOn(WasmModuleController.class).getOne(module.getId())).withSelfRel(),
+        linkTo(methodOn(WasmModuleController.class).invoke(module.getId(), null, null)).withRel("invocations"),
+        linkTo(methodOn(WasmModuleController.class).getAll()).withRel("modules"));
+  }
+
+  /**
+   * Read module binary, at most the size limit of one module.
+   * @param request request with module binary as body
+   * @return module binary
+   * @throws IOException if request body can't be read
+   */
+  @NotNull
+  private byte[] readModule(@NotNull final HttpServletRequest request) throws IOException {
+    int maxBytes = wasmModuleStore.getMaxModuleBytes();
+
+    if (request.getContentLengthLong() > maxBytes) {
+      throw new BinaryInputTooLargeProblem(maxBytes);
+    }
+
+    ByteArrayOutputStream module = new ByteArrayOutputStream(
+        (int) Math.max(0, Math.min(maxBytes, request.getContentLengthLong())));
+    byte[] buffer = new byte[READ_BUFFER_BYTES];
+    InputStream in = request.getInputStream();
+    int read;
+
+    while ((read = in.read(buffer)) >= 0) {
+      if (module.size() + read > maxBytes) {
+        throw new BinaryInputTooLargeProblem(maxBytes);
+      }
+      module.write(buffer, 0, read);
+    }
+
+    return module.toByteArray();
+  }
+}
@@ -0,0 +1,340 @@
+package com.anton.martynenko.jswrapper.jsexecution.callback;
+
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts callbacks to their destinations.
+ * Callbacks of one destination are queued and posted in batches as json array, one batch of a destination
+ * is in flight at once, so callbacks come in order and slow destination doesn't get flooded. Failed batch is retried
+ * with exponential backoff and dropped after the last attempt. Requests are sent by non-blocking http client keeping
+ * connections alive between batches, nothing here waits for network. Client resolves destinations through
+ * {@link CallbackDestinationPolicy}, so callbacks never reach internal addresses which aren't allowed.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+@Component
+public class CallbackDelivery {
+
+  /**
+   * Delivery configuration.
+   */
+  private final CallbackProperties properties;
+
+  /**
+   * Mapper writing batches.
+   */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * {@link TimingWheel} bean delaying batches and retries.
+   */
+  private final TimingWheel timingWheel;
+
+  /**
+   * {@link ThreadPoolTaskExecutor} bean preparing batches away from wheel and http client threads.
+   */
+  private final ThreadPoolTaskExecutor taskExecutor;
+
+  /**
+   * Non-blocking http client with connection pool.
+   */
+  private final CloseableHttpAsyncClient client;
+
+  /**
+   * Destinations having queued or posted callbacks.
+   */
+  private final ConcurrentMap<URI, Destination> destinations = new ConcurrentHashMap<>();
+
+  /**
+   * Amount of delivered callbacks.
+   */
+  private final Counter delivered;
+
+  /**
+   * Amount of retried batches.
+   */
+  private final Counter retried;
+
+  /**
+   * Amount of dropped callbacks.
+   */
+  private final Counter dropped;
+
+  /**
+   * Basic constructor, starts http client.
+   * @param properties delivery configuration
+   * @param destinationPolicy policy resolving destinations
+   * @param objectMapper mapper writing batches
+   * @param timingWheel timing wheel bean
+   * @param taskExecutor task executor bean
+   * @param meterRegistry registry for delivery metrics
+   */
+
+  public CallbackDelivery(@NotNull final CallbackProperties properties,
+                          @NotNull final CallbackDestinationPolicy destinationPolicy,
+                          @NotNull final ObjectMapper objectMapper,
+                          @NotNull final TimingWheel timingWheel,
+                          @NotNull final ThreadPoolTaskExecutor taskExecutor,
+                          @NotNull final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.objectMapper = objectMapper;
+    this.timingWheel = timingWheel;
+    this.taskExecutor = taskExecutor;
+
+    this.client = HttpAsyncClients.custom()
+        .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+            .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+            .setMaxConnTotal(properties.getMaxConnections())
+            .setDnsResolver(destinationPolicy)
+            .build())
+        .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeoutMillis()))
+            .setResponseTimeout(Timeout.ofMilliseconds(properties.getResponseTimeoutMillis()))
+            .build())
+        //retries are ours, with backoff
+        .disableAutomaticRetries()
+        .build();
+    this.client.start();
+
+    this.delivered = Counter.builder("jswrapper.callback.delivered")
+        .description("Callbacks accepted by destinations")
+        .register(meterRegistry);
+    this.retried = Counter.builder("jswrapper.callback.retried")
+        .description("Callback batches posted again after failure")
+        .register(meterRegistry);
+    this.dropped = Counter.builder("jswrapper.callback.dropped")
+        .description("Callbacks given up on")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Queue callback for destination. Returns at once, callback is posted later.
+   * @param destination url to post callback to
+   * @param payload callback body, posted as element of json array
+   */
+
+  public void enqueue(@NotNull final URI destination, @NotNull final Object payload) {
+    while (true) {
+      Destination target = destinations.computeIfAbsent(destination, Destination::new);
+      boolean idle;
+
+      synchronized (target) {
+        //destination is removed by the last flush, next callback needs a new one
+        if (target.removed) {
+          continue;
+        }
+
+        if (target.queue.size() >= properties.getQueueCapacity()) {
+          dropped.increment();
+          log.warn("Callback queue of {} is full, callback dropped", destination);
+          return;
+        }
+
+        target.queue.addLast(payload);
+        idle = !target.busy;
+        target.busy = true;
+      }
+
+      //give other callbacks finishing about the same time a chance to join the batch
+      if (idle) {
+        timingWheel.schedule(() -> taskExecutor.execute(() -> flush(target)), properties.getLingerMillis(),
+            TimeUnit.MILLISECONDS);
+      }
+
+      return;
+    }
+  }
+
+  /**
+   * Close http client, callbacks still queued are lost.
+   */
+  @PreDestroy
+  void close() {
+    client.close(CloseMode.GRACEFUL);
+  }
+
+  /**
+   * Post next batch of destination or forget idle destination.
+   * @param destination destination
+   */
+  private void flush(@NotNull final Destination destination) {
+    List<Object> batch = new ArrayList<>();
+
+    synchronized (destination) {
+      while (batch.size() < properties.getBatchSize() && !destination.queue.isEmpty()) {
+        batch.add(destination.queue.pollFirst());
+      }
+
+      if (batch.isEmpty()) {
+        destination.busy = false;
+        destination.removed = true;
+        destinations.remove(destination.uri, destination);
+        return;
+      }
+    }
+
+    byte[] body;
+
+    try {
+      body = objectMapper.writeValueAsBytes(batch);
+    } catch (JsonProcessingException e) {
+      log.error("Callbacks to {} can't be serialized", destination.uri, e);
+      dropped.increment(batch.size());
+      flush(destination);
+      return;
+    }
+
+    post(destination, batch.size(), body, 1);
+  }
+
+  /**
+   * Post batch, retry it or go to the next one when response comes.
+   * @param destination destination
+   * @param size amount of callbacks in batch
+   * @param body serialized batch
+   * @param attempt number of attempt
+   */
+  private void post(@NotNull final Destination destination, final int size, @NotNull final byte[] body,
+                    final int attempt) {
+    client.execute(SimpleRequestBuilder.post(destination.uri).setBody(body, ContentType.APPLICATION_JSON).build(),
+        new FutureCallback<SimpleHttpResponse>() {
+          @Override
+          public void completed(final SimpleHttpResponse response) {
+            int code = response.getCode();
+
+            if (code >= 200 && code < 300) {
+              delivered.increment(size);
+              taskExecutor.execute(() -> flush(destination));
+            } else if (code >= 500 || code == 408 || code == 429) {
+              retryOrDrop(destination, size, body, attempt, "status " + code);
+            } else {
+              //destination refuses callbacks, posting them again won't change its mind
+              drop(destination, size, "status " + code);
+            }
+          }
+
+          @Override
+          public void failed(final Exception e) {
+            retryOrDrop(destination, size, body, attempt, e.toString());
+          }
+
+          @Override
+          public void cancelled() {
+            drop(destination, size, "request cancelled");
+          }
+        });
+  }
+
+  /**
+   * Schedule next attempt of failed batch after backoff, or drop it if attempts are over.
+   * @param destination destination
+   * @param size amount of callbacks in batch
+   * @param body serialized batch
+   * @param attempt number of failed attempt
+   * @param reason description of failure
+   */
+  private void retryOrDrop(@NotNull final Destination destination, final int size, @NotNull final byte[] body,
+                           final int attempt, @NotNull final String reason) {
+    if (attempt >= properties.getMaxAttempts()) {
+      drop(destination, size, reason);
+      return;
+    }
+
+    long backoff = Math.min(properties.getMaxBackoffMillis(), properties.getInitialBackoffMillis() << Math.min(attempt - 1, 30));
+    //jitter keeps callbacks of many nodes from coming back to recovering destination all at once
+    long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+    retried.increment();
+    log.debug("Callbacks to {} failed ({}), attempt {} in {} ms", destination.uri, reason, attempt + 1, delay);
+
+    timingWheel.schedule(() -> taskExecutor.execute(() -> post(destination, size, body, attempt + 1)), delay,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Give up on batch and go to the next one.
+   * @param destination destination
+   * @param size amount of callbacks in batch
+   * @param reason description of failure
+   */
+  private void drop(@NotNull final Destination destination, final int size, @NotNull final String reason) {
+    dropped.increment(size);
+    log.warn("{} callbacks to {} dropped: {}", size, destination.uri, reason);
+
+    taskExecutor.execute(() -> flush(destination));
+  }
+
+  /**
+   * Callbacks queued for one url.
+   */
+  private static final class Destination {
+
+    /**
+     * Destination url.
+     */
+    private final URI uri;
+
+    /**
+     * Callbacks waiting to be posted.
+     */
+    @GuardedBy("this")
+    private final Deque<Object> queue = new ArrayDeque<>();
+
+    /**
+     * Set while batch is waiting for linger, posted or retried.
+     */
+    @GuardedBy("this")
+    private boolean busy;
+
+    /**
+     * Set when destination is idle and forgotten.
+     */
+    @GuardedBy("this")
+    private boolean removed;
+
+    /**
+     * Basic constructor.
+     * @param uri destination url
+     */
+    private Destination(@NotNull final URI uri) {
+      this.uri = uri;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.anton.martynenko.jswrapper.jsexecution.callback;
+
+import com.anton.martynenko.jswrapper.jsexecution.problem.CallbackUrlNotAllowedProblem;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which hosts callbacks may be posted to. Hosts resolving to loopback, link-local, site-local or other
+ * internal addresses are refused unless they are configured as allowed, so callbacks can't be used to reach
+ * the service's own network. Urls are checked when execution is created, and addresses once more when callback
+ * client connects, so host resolving to other address later can't get around the check.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+@Component
+public class CallbackDestinationPolicy implements DnsResolver {
+
+  /**
+   * Hosts callbacks are posted to whatever they resolve to, in lower case.
+   */
+  private final Set<String> allowedHosts;
+
+  /**
+   * Basic constructor.
+   * @param properties delivery configuration
+   */
+
+  public CallbackDestinationPolicy(@NotNull final CallbackProperties properties) {
+    this.allowedHosts = properties.getAllowedHosts().stream()
+        .map(host -> host.toLowerCase(Locale.ROOT))
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * Check that callback may be posted to the url.
+   * @param url absolute http url
+   * @throws CallbackUrlNotAllowedProblem if host can't be resolved or resolves to internal address
+   */
+
+  public void check(@NotNull final URI url) {
+    try {
+      resolve(url.getHost());
+    } catch (UnknownHostException e) {
+      throw new CallbackUrlNotAllowedProblem(
+          String.format("Callbacks can't be posted to %s: %s", url, e.getMessage()));
+    }
+  }
+
+  /**
+   * Resolve host of callback destination, refusing internal addresses of hosts which aren't allowed.
+   * @param host host name or address literal
+   * @return addresses of host
+   * @throws UnknownHostException if host can't be resolved or resolves to internal address
+   */
+
+  @Override
+  public InetAddress[] resolve(@NotNull final String host) throws UnknownHostException {
+    InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+
+    if (allowedHosts.contains(stripBrackets(host).toLowerCase(Locale.ROOT))) {
+      return addresses;
+    }
+
+    //one internal address is enough, client could connect to any of them
+    for (InetAddress address : addresses) {
+      if (isInternal(address)) {
+        throw new UnknownHostException(
+            String.format("host %s resolves to internal address %s", host, address.getHostAddress()));
+      }
+    }
+
+    return addresses;
+  }
+
+  @Override
+  public String resolveCanonicalHostname(@NotNull final String host) throws UnknownHostException {
+    return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+  }
+
+  /**
+   * Checks if address belongs to this host or private network.
+   * @param address resolved address
+   * @return true for wildcard, loopback, link-local, site-local, unique local and multicast addresses
+   */
+  static boolean isInternal(@NotNull final InetAddress address) {
+    return address.isAnyLocalAddress()
+        || address.isLoopbackAddress()
+        || address.isLinkLocalAddress()
+        || address.isSiteLocalAddress()
+        || address.isMulticastAddress()
+        //fc00::/7, private networks of IPv6
+        || (address instanceof Inet6Address && (address.getAddress()[0] & 0xfe) == 0xfc);
+  }
+
+  /**
+   * Host of IPv6 url is written in brackets.
+   * @param host host of url
+   * @return host without brackets
+   */
+  @NotNull
+  private static String stripBrackets(@NotNull final String host) {
+    return host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+  }
+}
@@ -0,0 +1,79 @@
+package com.anton.martynenko.jswrapper.jsexecution.callback;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Configuration of {@link CallbackDelivery}, bound from <code>jswrapper.callback.*</code> properties.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "jswrapper.callback")
+public class CallbackProperties {
+
+  /**
+   * Maximum amount of callbacks posted to one destination in one request.
+   */
+  private int batchSize = 50;
+
+  /**
+   * Time callbacks are gathered for before the first request to idle destination.
+   */
+  private long lingerMillis = 200;
+
+  /**
+   * Maximum amount of callbacks waiting for one destination, new ones are dropped above it.
+   */
+  private int queueCapacity = 10_000;
+
+  /**
+   * Attempts of posting one batch, including the first one.
+   */
+  private int maxAttempts = 5;
+
+  /**
+   * Delay before the first retry, doubled by every next one.
+   */
+  private long initialBackoffMillis = 500;
+
+  /**
+   * Maximum delay between retries.
+   */
+  private long maxBackoffMillis = 30_000;
+
+  /**
+   * Timeout of connecting to destination.
+   */
+  private long connectTimeoutMillis = 2000;
+
+  /**
+   * Timeout of waiting for response of destination.
+   */
+  private long responseTimeoutMillis = 10_000;
+
+  /**
+   * Maximum amount of kept connections to one destination host.
+   */
+  private int maxConnectionsPerRoute = 2;
+
+  /**
+   * Maximum amount of kept connections to all destinations.
+   */
+  private int maxConnections = 50;
+
+  /**
+   * Hosts callbacks may be posted to even if they resolve to loopback, link-local or site-local address,
+   * e.g. receivers in the same private network. Other hosts resolving to such addresses are refused.
+   */
+  private Set<String> allowedHosts = new LinkedHashSet<>();
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains delivery of completion callbacks: finished executions are posted to urls given by clients.
+ * @since 1.3
+ * @author Martynenko Anton
+ */
+
+package com.anton.martynenko.jswrapper.jsexecution.callback;
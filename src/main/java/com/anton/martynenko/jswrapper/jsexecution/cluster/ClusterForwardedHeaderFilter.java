@@ -0,0 +1,74 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.ForwardedHeaderFilter;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Applies <code>Forwarded</code> and <code>X-Forwarded-*</code> headers of requests forwarded by cluster peers,
+ * so Location and HATEOAS links point to the node the client talks to. Such headers of any other request
+ * are dropped, clients can't make links point anywhere they like.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ClusterForwardedHeaderFilter extends OncePerRequestFilter {
+
+  /**
+   * {@link JsExecutionCluster} bean.
+   */
+  private final JsExecutionCluster cluster;
+
+  /**
+   * Filter applying forwarded headers.
+   */
+  private final ForwardedHeaderFilter applying = new ForwardedHeaderFilter();
+
+  /**
+   * Filter dropping forwarded headers.
+   */
+  private final ForwardedHeaderFilter removing = new ForwardedHeaderFilter();
+
+  /**
+   * Basic constructor.
+   * @param cluster cluster bean
+   */
+
+  public ClusterForwardedHeaderFilter(@NotNull final JsExecutionCluster cluster) {
+    this.cluster = cluster;
+    this.removing.setRemoveOnly(true);
+  }
+
+  @Override
+  protected void doFilterInternal(@NotNull final HttpServletRequest request,
+                                  @NotNull final HttpServletResponse response,
+                                  @NotNull final FilterChain filterChain) throws ServletException, IOException {
+    boolean peer = cluster.isPeer(request.getHeader(HttpHeader.CLUSTER_NODE),
+        request.getHeader(HttpHeader.CLUSTER_SECRET));
+
+    (peer ? applying : removing).doFilter(request, response, filterChain);
+  }
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected boolean shouldNotFilterErrorDispatch() {
+    return false;
+  }
+}
@@ -0,0 +1,49 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ClusterPeerNotAuthenticatedProblem;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Lets only cluster peers call internal cluster API, see {@link JsExecutionClusterController}.
+ * Request must name a peer in {@link HttpHeader#CLUSTER_NODE} header and carry cluster secret
+ * in {@link HttpHeader#CLUSTER_SECRET} header, in single node mode the API is closed.
+ * Interceptor registers itself for internal cluster endpoints.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@RequiredArgsConstructor
+@Component
+public class ClusterPeerInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+
+  /**
+   * {@link JsExecutionCluster} bean.
+   */
+  private final JsExecutionCluster cluster;
+
+  @Override
+  public void addInterceptors(@NotNull final InterceptorRegistry registry) {
+    registry.addInterceptor(this).addPathPatterns(JsExecutionClusterController.PATH + "/**");
+  }
+
+  @Override
+  public boolean preHandle(@NotNull final HttpServletRequest request,
+                           @NotNull final HttpServletResponse response,
+                           @NotNull final Object handler) {
+    if (!cluster.isPeer(request.getHeader(HttpHeader.CLUSTER_NODE), request.getHeader(HttpHeader.CLUSTER_SECRET))) {
+      throw new ClusterPeerNotAuthenticatedProblem();
+    }
+
+    return true;
+  }
+}
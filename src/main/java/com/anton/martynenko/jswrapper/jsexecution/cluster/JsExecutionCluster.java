@@ -0,0 +1,317 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Static cluster of nodes sharing id space.
+ * Id of execution is <code>localIndex * size + nodeId</code>, so any node knows the owner of any id without
+ * coordination, and ids of the single node are just storage indexes as before.
+ * Cluster also keeps the last load advertised by every peer. Nodes prove to each other they are peers
+ * by the shared secret.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+@Component
+public class JsExecutionCluster {
+
+  /**
+   * Index of this node.
+   */
+  private final int nodeId;
+
+  /**
+   * Base uris of all nodes, empty in single node mode.
+   */
+  private final List<String> nodes;
+
+  /**
+   * Secret shared by nodes.
+   */
+  private final String secret;
+
+  /**
+   * Round-robin counter spreading new executions.
+   */
+  private final AtomicInteger nextNode = new AtomicInteger();
+
+  /**
+   * Time in nanos until which node doesn't get new executions because it didn't answer.
+   */
+  private final AtomicLongArray unavailableUntil;
+
+  /**
+   * Time unavailable node is skipped for.
+   */
+  private final long unavailabilityNanos;
+
+  /**
+   * Last advertised loads of peers.
+   */
+  private final AtomicReferenceArray<AdvertisedLoad> loads;
+
+  /**
+   * Age after which advertised load is not trusted anymore.
+   */
+  private final long loadExpirationNanos;
+
+  /**
+   * Basic constructor.
+   * @param properties cluster configuration
+   */
+
+  public JsExecutionCluster(@NotNull final JsExecutionClusterProperties properties) {
+    List<String> uris = new ArrayList<>();
+    for (String node : properties.getNodes()) {
+      uris.add(node.endsWith("/") ? node.substring(0, node.length() - 1) : node);
+    }
+
+    if (!uris.isEmpty() && (properties.getNodeId() < 0 || properties.getNodeId() >= uris.size())) {
+      throw new IllegalStateException(String.format("Node id %d is out of %d cluster nodes",
+          properties.getNodeId(), uris.size()));
+    }
+
+    if (uris.size() > 1 && (properties.getSecret() == null || properties.getSecret().isEmpty())) {
+      throw new IllegalStateException("Cluster secret must be set in cluster mode");
+    }
+
+    this.nodeId = uris.isEmpty() ? 0 : properties.getNodeId();
+    this.nodes = Collections.unmodifiableList(uris);
+    this.secret = properties.getSecret() == null ? "" : properties.getSecret();
+    this.nextNode.set(nodeId);
+    this.unavailableUntil = new AtomicLongArray(getSize());
+    this.unavailabilityNanos = TimeUnit.MILLISECONDS.toNanos(properties.getUnavailabilityMillis());
+    this.loads = new AtomicReferenceArray<>(getSize());
+    //a few missed advertisements in a row mean the load is unknown
+    this.loadExpirationNanos = TimeUnit.MILLISECONDS.toNanos(properties.getBalanceIntervalMillis() * 3);
+
+    if (isEnabled()) {
+      log.info("Cluster node {} of {} started", nodeId, nodes);
+    }
+  }
+
+  /**
+   * Cluster mode is on when there is more than one node.
+   * @return true if requests may be routed to other nodes
+   */
+  public boolean isEnabled() {
+    return nodes.size() > 1;
+  }
+
+  /**
+   * Getter for property 'nodeId'.
+   *
+   * @return Value for property 'nodeId'.
+   */
+  public int getNodeId() {
+    return nodeId;
+  }
+
+  /**
+   * Amount of nodes, one in single node mode.
+   * @return cluster size
+   */
+  public int getSize() {
+    return Math.max(1, nodes.size());
+  }
+
+  /**
+   * Whether node is another node of this cluster.
+   * @param node node id
+   * @return false in single node mode, for this node and for unknown ids
+   */
+  public boolean isPeer(final int node) {
+    return isEnabled() && node >= 0 && node < getSize() && node != nodeId;
+  }
+
+  /**
+   * Whether request headers come from another node of this cluster.
+   * @param node value of {@link com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader#CLUSTER_NODE}
+   *             header or null
+   * @param secret value of {@link com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader#CLUSTER_SECRET}
+   *               header or null
+   * @return true if node is a peer and secret is the cluster one
+   */
+  public boolean isPeer(final String node, final String secret) {
+    if (!isEnabled() || node == null || secret == null) {
+      return false;
+    }
+
+    //constant time comparison doesn't tell how much of the secret is guessed
+    if (!MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8),
+        this.secret.getBytes(StandardCharsets.UTF_8))) {
+      return false;
+    }
+
+    try {
+      return isPeer(Integer.parseInt(node));
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Getter for property 'secret'.
+   *
+   * @return Value for property 'secret'.
+   */
+  @NotNull
+  public String getSecret() {
+    return secret;
+  }
+
+  /**
+   * Id of execution stored by this node.
+   * @param localIndex index in local storage
+   * @return cluster-wide id
+   */
+  public int toId(final int localIndex) {
+    return localIndex * getSize() + nodeId;
+  }
+
+  /**
+   * Index in local storage of execution owned by this node.
+   * @param executionId cluster-wide id
+   * @return local index
+   */
+  public int toLocalIndex(final int executionId) {
+    return executionId / getSize();
+  }
+
+  /**
+   * Node storing execution.
+   * @param executionId cluster-wide id
+   * @return owner node id
+   */
+  public int ownerOf(final int executionId) {
+    return executionId % getSize();
+  }
+
+  /**
+   * Whether execution is stored by this node.
+   * @param executionId cluster-wide id
+   * @return true if this node is the owner
+   */
+  public boolean isLocal(final int executionId) {
+    return executionId >= 0 && ownerOf(executionId) == nodeId;
+  }
+
+  /**
+   * Node for the next new execution, nodes take turns. Nodes which recently didn't answer are skipped.
+   * @return node id
+   */
+  public int nextNode() {
+    long now = System.nanoTime();
+
+    for (int i = 0; i < getSize(); i++) {
+      int node = Math.floorMod(nextNode.getAndIncrement(), getSize());
+
+      if (node == nodeId || now - unavailableUntil.get(node) >= 0) {
+        return node;
+      }
+    }
+
+    return nodeId;
+  }
+
+  /**
+   * Stop giving new executions to node which didn't answer for a while.
+   * @param node node id
+   */
+  public void markUnavailable(final int node) {
+    log.warn("Cluster node {} is unavailable", node);
+    unavailableUntil.set(node, System.nanoTime() + unavailabilityNanos);
+  }
+
+  /**
+   * Remember load advertised by peer. Advertisement also means the peer is available again.
+   * @param load advertised load
+   */
+  public void updateLoad(@NotNull final NodeLoad load) {
+    if (load.getNodeId() < 0 || load.getNodeId() >= getSize() || load.getNodeId() == nodeId) {
+      throw new IllegalArgumentException("Load of unknown node " + load.getNodeId());
+    }
+
+    loads.set(load.getNodeId(), new AdvertisedLoad(load, System.nanoTime()));
+    unavailableUntil.set(load.getNodeId(), System.nanoTime());
+  }
+
+  /**
+   * Peer with the longest queue according to recent advertisements.
+   * @param minQueued minimum queue to take the peer into account
+   * @return load of the busiest peer, empty if no peer has enough queued executions
+   */
+  @NotNull
+  public Optional<NodeLoad> findBusiestPeer(final int minQueued) {
+    long now = System.nanoTime();
+    NodeLoad busiest = null;
+
+    for (int node = 0; node < loads.length(); node++) {
+      AdvertisedLoad advertised = loads.get(node);
+
+      if (advertised == null || now - advertised.receivedAt > loadExpirationNanos) {
+        continue;
+      }
+
+      if (advertised.load.getQueued() >= minQueued
+          && (busiest == null || advertised.load.getQueued() > busiest.getQueued())) {
+        busiest = advertised.load;
+      }
+    }
+
+    return Optional.ofNullable(busiest);
+  }
+
+  /**
+   * Base uri of node.
+   * @param node node id
+   * @return uri without trailing slash
+   */
+  @NotNull
+  public String getNodeUri(final int node) {
+    return nodes.get(node);
+  }
+
+  /**
+   * Load with the time it was received.
+   */
+  private static final class AdvertisedLoad {
+
+    /**
+     * Advertised load.
+     */
+    private final NodeLoad load;
+
+    /**
+     * Receiving time in nanos.
+     */
+    private final long receivedAt;
+
+    /**
+     * Basic constructor.
+     * @param load advertised load
+     * @param receivedAt receiving time in nanos
+     */
+    private AdvertisedLoad(@NotNull final NodeLoad load, final long receivedAt) {
+      this.load = load;
+      this.receivedAt = receivedAt;
+    }
+  }
+}
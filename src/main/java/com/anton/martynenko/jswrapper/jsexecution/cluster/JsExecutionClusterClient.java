@@ -0,0 +1,316 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ClusterNodeUnavailableProblem;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Forwards requests to other cluster nodes without blocking and copies their responses back as is.
+ * Forwarded request carries <code>X-Forwarded-*</code> headers, so HATEOAS links of the response point to the node
+ * the client talks to, and {@link HttpHeader#CLUSTER_NODE} header with {@link HttpHeader#CLUSTER_SECRET},
+ * so it is never forwarded again.
+ * Client also calls internal endpoints of peers used for balancing queues, see {@link JsExecutionClusterController}.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@Component
+public class JsExecutionClusterClient {
+
+  /**
+   * Headers describing single connection, they are not forwarded.
+   * Accept-Encoding is dropped too, this node compresses the response for its client itself.
+   */
+  private static final Set<String> NOT_FORWARDED_HEADERS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+      "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+      "transfer-encoding", "upgrade", "host", "content-length", "accept-encoding")));
+
+  /**
+   * Type of stolen executions list.
+   */
+  private static final ParameterizedTypeReference<List<StolenExecution>> STOLEN_EXECUTIONS =
+      new ParameterizedTypeReference<List<StolenExecution>>() { };
+
+  /**
+   * {@link JsExecutionCluster} bean.
+   */
+  private final JsExecutionCluster cluster;
+
+  /**
+   * Client of internal cluster API, keeping raw responses of all statuses.
+   */
+  private final RestTemplate restTemplate;
+
+  /**
+   * Non-blocking client forwarding requests of clients.
+   */
+  private final CloseableHttpAsyncClient asyncClient;
+
+  /**
+   * Timeout of connecting to another node.
+   */
+  private final int connectTimeoutMillis;
+
+  /**
+   * Timeout of reading response of another node.
+   */
+  private final int readTimeoutMillis;
+
+  /**
+   * Basic constructor.
+   * @param cluster cluster bean
+   * @param properties cluster configuration
+   */
+
+  public JsExecutionClusterClient(@NotNull final JsExecutionCluster cluster,
+                                  @NotNull final JsExecutionClusterProperties properties) {
+    this.cluster = cluster;
+
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(properties.getConnectTimeoutMillis());
+    requestFactory.setReadTimeout(properties.getReadTimeoutMillis());
+
+    this.restTemplate = new RestTemplate(requestFactory);
+    this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+      @Override
+      public boolean hasError(@NotNull final ClientHttpResponse response) {
+        //problems of the owner are passed to the client as they are
+        return false;
+      }
+    });
+
+    this.connectTimeoutMillis = properties.getConnectTimeoutMillis();
+    this.readTimeoutMillis = properties.getReadTimeoutMillis();
+    this.asyncClient = HttpAsyncClients.custom()
+        .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+            .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+            .build())
+        //request of client is forwarded once, its answer or failure goes to the client
+        .disableAutomaticRetries()
+        .build();
+    this.asyncClient.start();
+  }
+
+  /**
+   * Stop forwarding client.
+   */
+  @PreDestroy
+  void close() {
+    asyncClient.close(CloseMode.GRACEFUL);
+  }
+
+  /**
+   * Send request to another node without waiting for its response, so long-polling request doesn't hold
+   * a container thread while the owner waits for a change.
+   * @param node node id
+   * @param request incoming request, its body is not read yet
+   * @return response of the node as it is, or {@link ClusterNodeUnavailableProblem} if node doesn't answer
+   * @throws IOException if request body can't be read
+   */
+
+  @NotNull
+  public DeferredResult<ResponseEntity<byte[]>> forward(final int node,
+                                                        @NotNull final HttpServletRequest request)
+      throws IOException {
+    String query = request.getQueryString();
+    URI uri = URI.create(cluster.getNodeUri(node) + request.getRequestURI() + (query == null ? "" : "?" + query));
+    byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+
+    log.debug("{} {} is forwarded to cluster node {}", request.getMethod(), request.getRequestURI(), node);
+
+    SimpleRequestBuilder clientRequest = SimpleRequestBuilder.create(request.getMethod()).setUri(uri);
+
+    for (String name : Collections.list(request.getHeaderNames())) {
+      if (!NOT_FORWARDED_HEADERS.contains(name.toLowerCase())) {
+        Collections.list(request.getHeaders(name)).forEach(value -> clientRequest.addHeader(name, value));
+      }
+    }
+
+    if (request.getHeader("X-Forwarded-Host") == null) {
+      clientRequest.setHeader("X-Forwarded-Host", request.getHeader(HttpHeaders.HOST));
+      clientRequest.setHeader("X-Forwarded-Proto", request.getScheme());
+      clientRequest.setHeader("X-Forwarded-Port", String.valueOf(request.getServerPort()));
+    }
+    clientRequest.setHeader(HttpHeader.CLUSTER_NODE, String.valueOf(cluster.getNodeId()));
+    clientRequest.setHeader(HttpHeader.CLUSTER_SECRET, cluster.getSecret());
+
+    if (body.length > 0) {
+      clientRequest.setBody(body, request.getContentType() == null
+          ? ContentType.APPLICATION_OCTET_STREAM
+          : ContentType.parse(request.getContentType()));
+    }
+
+    //client gives up on its own read timeout first, this one only guards against a lost callback
+    DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>((long) readTimeoutMillis + connectTimeoutMillis);
+
+    asyncClient.execute(clientRequest.build(), new FutureCallback<SimpleHttpResponse>() {
+      @Override
+      public void completed(@NotNull final SimpleHttpResponse clientResponse) {
+        HttpHeaders headers = new HttpHeaders();
+
+        for (Header header : clientResponse.getHeaders()) {
+          if (!NOT_FORWARDED_HEADERS.contains(header.getName().toLowerCase())) {
+            headers.add(header.getName(), header.getValue());
+          }
+        }
+
+        result.setResult(ResponseEntity.status(clientResponse.getCode())
+            .headers(headers)
+            .body(clientResponse.getBodyBytes()));
+      }
+
+      @Override
+      public void failed(@NotNull final Exception e) {
+        log.debug("Forwarding to cluster node {} failed: {}", node, e.getMessage());
+        cluster.markUnavailable(node);
+        result.setErrorResult(new ClusterNodeUnavailableProblem(node));
+      }
+
+      @Override
+      public void cancelled() {
+        result.setErrorResult(new ClusterNodeUnavailableProblem(node));
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Tell peer about load of this node.
+   * @param node peer id
+   * @param load load of this node
+   */
+
+  public void advertise(final int node, @NotNull final NodeLoad load) {
+    call(node, HttpMethod.PUT, "/nodes/" + load.getNodeId() + "/load", load, Void.class);
+  }
+
+  /**
+   * Take queued executions of peer to run them on this node.
+   * @param node peer id
+   * @param max maximum amount of executions
+   * @return taken executions, empty if peer has nothing to give or doesn't answer
+   */
+
+  @NotNull
+  public List<StolenExecution> steal(final int node, final int max) {
+    ResponseEntity<List<StolenExecution>> response = call(node, HttpMethod.POST, "/executions/steal?max=" + max,
+        null, STOLEN_EXECUTIONS);
+
+    if (response == null || response.getBody() == null) {
+      return Collections.emptyList();
+    }
+
+    return response.getBody();
+  }
+
+  /**
+   * Send result of stolen execution to its owner.
+   * @param node owner id
+   * @param executionId execution id
+   * @param result run result
+   * @return true if owner accepted the result
+   */
+
+  public boolean reportResult(final int node, final int executionId, @NotNull final StolenExecutionResult result) {
+    return call(node, HttpMethod.PUT, "/executions/" + executionId + "/result", result, Void.class) != null;
+  }
+
+  /**
+   * Tell peer running stolen execution that the execution is cancelled by its owner.
+   * @param node peer id
+   * @param executionId execution id
+   */
+
+  public void cancelStolen(final int node, final int executionId) {
+    call(node, HttpMethod.DELETE, "/executions/" + executionId + "/stolen", null, Void.class);
+  }
+
+  /**
+   * Call internal cluster endpoint of peer.
+   * @param node peer id
+   * @param method http method
+   * @param path path relative to internal cluster api
+   * @param body request body or null
+   * @param type response body type
+   * @param <T> response body type
+   * @return successful response or null
+   */
+  private <T> ResponseEntity<T> call(final int node, @NotNull final HttpMethod method, @NotNull final String path,
+                                     final Object body, @NotNull final Class<T> type) {
+    return call(node, method, path, body, ParameterizedTypeReference.forType(type));
+  }
+
+  /**
+   * Call internal cluster endpoint of peer.
+   * @param node peer id
+   * @param method http method
+   * @param path path relative to internal cluster api
+   * @param body request body or null
+   * @param type response body type
+   * @param <T> response body type
+   * @return successful response or null
+   */
+  private <T> ResponseEntity<T> call(final int node, @NotNull final HttpMethod method, @NotNull final String path,
+                                     final Object body, @NotNull final ParameterizedTypeReference<T> type) {
+    URI uri = URI.create(cluster.getNodeUri(node) + JsExecutionClusterController.PATH + path);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeader.CLUSTER_NODE, String.valueOf(cluster.getNodeId()));
+    headers.set(HttpHeader.CLUSTER_SECRET, cluster.getSecret());
+
+    try {
+      ResponseEntity<T> response = restTemplate.exchange(uri, method, new HttpEntity<>(body, headers), type);
+
+      if (!response.getStatusCode().is2xxSuccessful()) {
+        log.debug("{} {} of cluster node {} answered with status {}", method, path, node, response.getStatusCode());
+        return null;
+      }
+
+      return response;
+    } catch (ResourceAccessException e) {
+      //peer could be still starting, only failed forwarding takes it out of rotation
+      log.debug("Cluster node {} is unavailable: {}", node, e.getMessage());
+      return null;
+    }
+  }
+}
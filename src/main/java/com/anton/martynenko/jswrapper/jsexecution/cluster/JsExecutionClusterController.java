@@ -0,0 +1,79 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import com.anton.martynenko.jswrapper.jsexecution.JsExecutionWorkStealer;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ClusterPeerNotAuthenticatedProblem;
+import io.swagger.v3.oas.annotations.Hidden;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Internal API used by cluster nodes to balance their queues, see {@link JsExecutionWorkStealer}.
+ * It is not a part of public API, {@link ClusterPeerInterceptor} lets only peers knowing cluster secret call it.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Hidden
+@RequiredArgsConstructor
+@RestController
+@RequestMapping(JsExecutionClusterController.PATH)
+public class JsExecutionClusterController {
+
+  /**
+   * Base path of internal cluster API.
+   */
+  static final String PATH = "/internal/cluster";
+
+  /**
+   * {@link JsExecutionWorkStealer} bean.
+   */
+  private final JsExecutionWorkStealer workStealer;
+
+  @PutMapping("/nodes/{nodeId}/load")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void updateLoad(@RequestHeader(HttpHeader.CLUSTER_NODE) final int node,
+                         @PathVariable final int nodeId, @NotNull @RequestBody final NodeLoad load) {
+    //peer advertises its own load only
+    if (nodeId != node) {
+      throw new ClusterPeerNotAuthenticatedProblem();
+    }
+
+    load.setNodeId(nodeId);
+    workStealer.updateLoad(load);
+  }
+
+  @PostMapping("/executions/steal")
+  public List<StolenExecution> steal(@RequestHeader(HttpHeader.CLUSTER_NODE) final int node,
+                                     @RequestParam final int max) {
+    return workStealer.handOut(node, max);
+  }
+
+  @PutMapping("/executions/{executionId}/result")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void complete(@RequestHeader(HttpHeader.CLUSTER_NODE) final int node,
+                       @PathVariable final int executionId, @NotNull @RequestBody final StolenExecutionResult result) {
+    workStealer.complete(node, executionId, result);
+  }
+
+  @DeleteMapping("/executions/{executionId}/stolen")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void cancelStolen(@RequestHeader(HttpHeader.CLUSTER_NODE) final int node,
+                           @PathVariable final int executionId) {
+    workStealer.cancelStolen(node, executionId);
+  }
+}
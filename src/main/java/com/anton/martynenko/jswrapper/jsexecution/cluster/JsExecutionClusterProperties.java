@@ -0,0 +1,71 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of {@link JsExecutionCluster}, bound from <code>jswrapper.cluster.*</code> properties.
+ * Every node gets the same list of nodes and its own index in it.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "jswrapper.cluster")
+public class JsExecutionClusterProperties {
+
+  /**
+   * Index of this node in {@link #nodes}.
+   */
+  private int nodeId;
+
+  /**
+   * Base uris of all nodes, like <code>http://localhost:8080</code>. Single node mode if empty.
+   */
+  private List<String> nodes = new ArrayList<>();
+
+  /**
+   * Secret shared by all nodes, required in cluster mode. Nodes send it with every request to each other,
+   * internal cluster API and node header of requests without it are rejected.
+   */
+  private String secret = "";
+
+  /**
+   * Timeout of connecting to another node.
+   */
+  private int connectTimeoutMillis = 1000;
+
+  /**
+   * Timeout of reading response of another node, longer than long-polling limit.
+   */
+  private int readTimeoutMillis = 65_000;
+
+  /**
+   * Time node which didn't answer gets no new executions.
+   */
+  private long unavailabilityMillis = 5000;
+
+  /**
+   * Period of advertising load to peers and stealing work from them. Stealing is off if not positive.
+   */
+  private long balanceIntervalMillis = 500;
+
+  /**
+   * Minimum queue of peer to steal from.
+   */
+  private int stealThreshold = 2;
+
+  /**
+   * Time execution lent to peer stays RUNNING without peer's advertisement listing it. When it expires,
+   * execution is finished as UNSUCCESSFUL and peer is told to stop it.
+   */
+  private long leaseMillis = 5000;
+}
@@ -0,0 +1,105 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import com.anton.martynenko.jswrapper.jsexecution.JsExecutionController;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Routes requests of {@link JsExecutionController} in cluster mode.
+ * Request for execution of another node is forwarded to its owner, new executions are spread between nodes
+ * by turns. Forwarded request is handled asynchronously, no container thread waits for the owner. Requests already forwarded by another node and requests of {@link NodeLocal} handlers are always
+ * handled locally. Request counts as forwarded only if it carries cluster secret, so clients can't pin requests
+ * to a node.
+ * Interceptor registers itself for executions endpoints.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@RequiredArgsConstructor
+@Component
+public class JsExecutionRoutingInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+
+  /**
+   * Name of path variable holding execution id.
+   */
+  private static final String EXECUTION_ID = "executionId";
+
+  /**
+   * {@link JsExecutionCluster} bean.
+   */
+  private final JsExecutionCluster cluster;
+
+  /**
+   * {@link JsExecutionClusterClient} bean.
+   */
+  private final JsExecutionClusterClient clusterClient;
+
+  @Override
+  public void addInterceptors(@NotNull final InterceptorRegistry registry) {
+    registry.addInterceptor(this).addPathPatterns("/executions", "/executions/**");
+  }
+
+  @Override
+  public boolean preHandle(@NotNull final HttpServletRequest request,
+                           @NotNull final HttpServletResponse response,
+                           @NotNull final Object handler) throws Exception {
+    if (!cluster.isEnabled()
+        || request.getDispatcherType() != DispatcherType.REQUEST
+        || cluster.isPeer(request.getHeader(HttpHeader.CLUSTER_NODE), request.getHeader(HttpHeader.CLUSTER_SECRET))
+        || !(handler instanceof HandlerMethod)
+        || ((HandlerMethod) handler).getBeanType() != JsExecutionController.class
+        || ((HandlerMethod) handler).hasMethodAnnotation(NodeLocal.class)) {
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(
+        HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+    String executionId = pathVariables == null ? null : pathVariables.get(EXECUTION_ID);
+
+    int node;
+    if (executionId != null) {
+      try {
+        node = cluster.ownerOf(Integer.parseInt(executionId));
+      } catch (NumberFormatException e) {
+        //controller answers it as bad request
+        return true;
+      }
+    } else if (HttpMethod.POST.matches(request.getMethod())) {
+      node = cluster.nextNode();
+    } else {
+      return true;
+    }
+
+    if (node < 0 || node == cluster.getNodeId()) {
+      return true;
+    }
+
+    DeferredResult<ResponseEntity<byte[]>> forwarded = clusterClient.forward(node, request);
+
+    //handler adapter writes the response on async dispatch, like for DeferredResult returned by the handler
+    WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+    asyncManager.setAsyncWebRequest(WebAsyncUtils.createAsyncWebRequest(request, response));
+    asyncManager.startDeferredResultProcessing(forwarded, new ModelAndViewContainer());
+    return false;
+  }
+}
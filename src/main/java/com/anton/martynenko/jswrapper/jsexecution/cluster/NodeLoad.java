@@ -0,0 +1,49 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load of cluster node advertised to its peers. Advertisement also renews leases of executions the receiving
+ * node has lent to the advertising one.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeLoad {
+
+  /**
+   * Id of advertising node.
+   */
+  private int nodeId;
+
+  /**
+   * Executions waiting for admission.
+   */
+  private int queued;
+
+  /**
+   * Executions handed to js workers.
+   */
+  private int inFlight;
+
+  /**
+   * Limit of executions handed to js workers.
+   */
+  private int maxInFlight;
+
+  /**
+   * Ids of executions of the receiving node which advertising node is running.
+   */
+  private List<Integer> running = new ArrayList<>();
+}
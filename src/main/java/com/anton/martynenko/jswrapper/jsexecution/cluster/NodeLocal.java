@@ -0,0 +1,21 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks handler method which is always served by the node receiving request, e.g. because forwarding
+ * would buffer the streamed exchange. {@link JsExecutionRoutingInterceptor} doesn't route such requests.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NodeLocal {
+}
@@ -0,0 +1,52 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Submitted execution handed by its owner to another node to run.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StolenExecution {
+
+  /**
+   * Id of execution, it stays with the owner.
+   */
+  private int id;
+
+  /**
+   * Code fragment.
+   */
+  private String scriptBody;
+
+  /**
+   * Api key of the client owning execution.
+   */
+  private String tenant;
+
+  /**
+   * Scheduling lane.
+   */
+  private Priority priority;
+
+  /**
+   * Json document passed to the script, null if there is none.
+   */
+  private JsonNode input;
+
+  /**
+   * Language of code fragment, null means js.
+   */
+  private String language;
+}
@@ -0,0 +1,46 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Result of {@link StolenExecution} sent back to its owner.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StolenExecutionResult {
+
+  /**
+   * Final status.
+   */
+  private Status status;
+
+  /**
+   * Time of successful finish in ISO_ZONED_DATE_TIME format, null if script didn't finish successfully.
+   */
+  private String executionTime;
+
+  /**
+   * Execution log.
+   */
+  private String executionLog;
+
+  /**
+   * Error log.
+   */
+  private String errorLog;
+
+  /**
+   * Exception description, empty if there is no exception.
+   */
+  private String exceptionInfo;
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains cluster mode: id partitioning between nodes and routing of requests to owning node.
+ * @since 1.3
+ * @author Martynenko Anton
+ */
+
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
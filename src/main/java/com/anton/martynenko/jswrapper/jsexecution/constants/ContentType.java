@@ -0,0 +1,33 @@
+package com.anton.martynenko.jswrapper.jsexecution.constants;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Binary media types served to machine clients along with json.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+public final class ContentType {
+
+  /**
+   * Hidden empty constructor to forbid instance's creation .
+   */
+  private ContentType() {
+  }
+
+  /**
+   * Concise Binary Object Representation, RFC 8949.
+   */
+  public static final String APPLICATION_CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+
+  /**
+   * Jackson's binary json.
+   */
+  public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+  /**
+   * {@link #APPLICATION_SMILE_VALUE} as {@link MediaType}.
+   */
+  public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+}
@@ -0,0 +1,36 @@
+package com.anton.martynenko.jswrapper.jsexecution.constants;
+
+/**
+ * Http headers used by JS executions API.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+public final class HttpHeader {
+
+  /**
+   * Hidden empty constructor to forbid instance's creation .
+   */
+  private HttpHeader() {
+  }
+
+  /**
+   * Client's api key, used as tenant key during scheduling.
+   */
+  public static final String API_KEY = "X-Api-Key";
+
+  /**
+   * Tenant used for requests without api key.
+   */
+  public static final String DEFAULT_TENANT = "anonymous";
+
+  /**
+   * Id of cluster node which forwarded the request, such request is never forwarded again.
+   */
+  public static final String CLUSTER_NODE = "X-Jswrapper-Node";
+
+  /**
+   * Secret shared by cluster nodes, node header is trusted only together with it.
+   */
+  public static final String CLUSTER_SECRET = "X-Jswrapper-Secret";
+}
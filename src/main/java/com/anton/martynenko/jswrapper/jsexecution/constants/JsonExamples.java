@@ -126,7 +126,7 @@ public final class JsonExamples {
    * Json example of {@link com.anton.martynenko.jswrapper.jsexecution.JsExecution} object used as post query's body.
    */
 
-  public static final String CREATE_JS_EXECUTION_REQUEST_BODY_EXAMPLE = "{\"scriptBody\": \"console.log('I am js snippet!');\"}";
+  public static final String CREATE_JS_EXECUTION_REQUEST_BODY_EXAMPLE = "{\"scriptBody\": \"console.log('I am js snippet!');\", \"priority\": \"NORMAL\"}";
 
   /**
    * Json example of {@link com.anton.martynenko.jswrapper.jsexecution.JsExecution} objects array .
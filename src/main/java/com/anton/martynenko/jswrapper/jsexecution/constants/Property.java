@@ -33,4 +33,14 @@ public final class Property {
    * <code>jsexecution/{id}/exceptioninfo</code> endpoint.
    */
   public static final String EXCEPTION_INFO = "exceptioninfo";
+
+  /**
+   * <code>jsexecution/{id}/output</code> endpoint of binary output.
+   */
+  public static final String OUTPUT = "output";
+
+  /**
+   * <code>jsexecution/{id}/profile</code> endpoint of CPU profile.
+   */
+  public static final String PROFILE = "profile";
 }
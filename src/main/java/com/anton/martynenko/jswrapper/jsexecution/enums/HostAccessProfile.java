@@ -0,0 +1,26 @@
+package com.anton.martynenko.jswrapper.jsexecution.enums;
+
+/**
+ * What scripts may reach outside of js. One profile is applied to all contexts, so they keep sharing
+ * engines of js workers.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+public enum HostAccessProfile {
+
+  /**
+   * Pure js, no host objects and no helpers.
+   */
+  NONE,
+
+  /**
+   * Default. Only members exported by helpers bound into context, no other languages.
+   */
+  EXPLICIT,
+
+  /**
+   * Any public member of any host object and any other language, the way it was before profiles.
+   */
+  ALL
+}
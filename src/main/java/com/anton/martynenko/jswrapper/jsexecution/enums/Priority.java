@@ -0,0 +1,26 @@
+package com.anton.martynenko.jswrapper.jsexecution.enums;
+
+/**
+ * {@link com.anton.martynenko.jswrapper.jsexecution.JsExecution} priority lanes.
+ * Lanes are served strictly in declaration order.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+public enum Priority {
+
+  /**
+   * Served before any other lane.
+   */
+  HIGH,
+
+  /**
+   * Default lane.
+   */
+  NORMAL,
+
+  /**
+   * Served only when other lanes have nothing to run.
+   */
+  LOW
+}
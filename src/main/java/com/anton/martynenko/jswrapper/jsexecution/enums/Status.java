@@ -14,6 +14,11 @@ public enum  Status {
    */
   CREATED,
 
+  /**
+   * {@link com.anton.martynenko.jswrapper.jsexecution.JsExecution} waits for its start time or repeats on cron schedule.
+   */
+  SCHEDULED,
+
   /**
    * {@link com.anton.martynenko.jswrapper.jsexecution.JsExecution} object is submitted to pool.
    */
@@ -0,0 +1,46 @@
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Event of finished execution published to {@link CompletionSink}.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompletionEvent {
+
+  /**
+   * Name of source the execution came from.
+   */
+  private String source;
+
+  /**
+   * Id of message in its source.
+   */
+  private String messageId;
+
+  /**
+   * Execution id, details can be read by <code>GET /executions/{id}</code>.
+   */
+  private int executionId;
+
+  /**
+   * Final status.
+   */
+  private Status status;
+
+  /**
+   * Time of successful finish in ISO_ZONED_DATE_TIME format, null if script didn't finish successfully.
+   */
+  private String executionTime;
+}
@@ -0,0 +1,28 @@
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Receiver of completion events of ingested executions, e.g. outbound queue of some broker.
+ * Every enabled sink bean receives every event.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+public interface CompletionSink {
+
+  /**
+   * Shows if sink is configured and must receive events.
+   * @return true if sink is enabled
+   */
+  boolean isEnabled();
+
+  /**
+   * Publish event of finished execution.
+   * @param event completion event
+   * @throws IOException if event can't be published
+   */
+  void publish(@NotNull CompletionEvent event) throws IOException;
+}
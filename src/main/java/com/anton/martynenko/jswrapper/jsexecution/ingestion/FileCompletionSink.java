@@ -0,0 +1,65 @@
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Local {@link CompletionSink} appending events to a file, one json per line.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+@Component
+public class FileCompletionSink implements CompletionSink {
+
+  /**
+   * Events file or null if file sink is disabled.
+   */
+  private final Path file;
+
+  /**
+   * Mapper writing events.
+   */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Basic constructor.
+   * @param properties ingestion configuration
+   * @param objectMapper mapper writing events
+   */
+
+  public FileCompletionSink(@NotNull final IngestionProperties properties, @NotNull final ObjectMapper objectMapper) {
+    this.file = properties.getCompletionsFile() == null ? null : Paths.get(properties.getCompletionsFile());
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return file != null;
+  }
+
+  @Override
+  public void publish(@NotNull final CompletionEvent event) throws IOException {
+    byte[] line = (objectMapper.writeValueAsString(event) + "\n").getBytes(StandardCharsets.UTF_8);
+
+    //one write per line, so lines of concurrent events are never mixed
+    synchronized (this) {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+
+      Files.write(file, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local {@link IngestionSource} over a directory, every <code>*.json</code> file is one message like
+ * <code>{"scriptBody": "...", "priority": "HIGH", "tenant": "..."}</code>.
+ * Files are taken in order of their names, so producers name them by time. Producer must write file under other
+ * name and rename it when it's complete. Acknowledged files are deleted, rejected ones are moved
+ * to <code>rejected</code> subdirectory.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+@Component
+public class FileQueueIngestionSource implements IngestionSource {
+
+  /**
+   * Glob of message files.
+   */
+  private static final String MESSAGE_GLOB = "*.json";
+
+  /**
+   * Subdirectory of rejected messages.
+   */
+  private static final String REJECTED_DIRECTORY = "rejected";
+
+  /**
+   * Queue directory or null if file queue is disabled.
+   */
+  private final Path directory;
+
+  /**
+   * Mapper reading messages.
+   */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Names of files handed out and neither acknowledged nor rejected yet.
+   */
+  private final Set<String> delivered = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Watcher of new files, created by the first poll.
+   */
+  private volatile WatchService watchService;
+
+  /**
+   * Basic constructor.
+   * @param properties ingestion configuration
+   * @param objectMapper mapper reading messages
+   */
+
+  public FileQueueIngestionSource(@NotNull final IngestionProperties properties,
+                                  @NotNull final ObjectMapper objectMapper) {
+    this.directory = properties.getFileQueueDirectory() == null ? null : Paths.get(properties.getFileQueueDirectory());
+    this.objectMapper = objectMapper;
+  }
+
+  @NotNull
+  @Override
+  public String getName() {
+    return "file-queue";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return directory != null;
+  }
+
+  @NotNull
+  @Override
+  public List<IngestedScript> poll(final int max, final long timeout, @NotNull final TimeUnit unit)
+      throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+    while (true) {
+      //watcher is registered before listing, so a file created meanwhile still wakes us up
+      WatchService watcher = getWatchService();
+      List<Path> ready = listReady(max);
+
+      long remaining = deadline - System.nanoTime();
+      if (!ready.isEmpty() || remaining <= 0) {
+        return read(ready);
+      }
+
+      WatchKey key = watcher.poll(remaining, TimeUnit.NANOSECONDS);
+      if (key != null) {
+        key.pollEvents();
+        key.reset();
+      }
+    }
+  }
+
+  @Override
+  public void acknowledge(@NotNull final IngestedScript message) throws IOException {
+    Files.deleteIfExists(directory.resolve(message.getMessageId()));
+    delivered.remove(message.getMessageId());
+  }
+
+  @Override
+  public void reject(@NotNull final IngestedScript message, @NotNull final String reason) throws IOException {
+    Path rejected = Files.createDirectories(directory.resolve(REJECTED_DIRECTORY));
+
+    Files.move(directory.resolve(message.getMessageId()), rejected.resolve(message.getMessageId()),
+        StandardCopyOption.REPLACE_EXISTING);
+    delivered.remove(message.getMessageId());
+
+    log.warn("Message {} of file queue is rejected: {}", message.getMessageId(), reason);
+  }
+
+  /**
+   * Close watcher of new files.
+   * @throws IOException if watcher can't be closed
+   */
+  @PreDestroy
+  void close() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  /**
+   * Watcher of new files, queue directory is created if it doesn't exist.
+   * @return watcher
+   * @throws IOException if directory can't be created or watched
+   */
+  @NotNull
+  private WatchService getWatchService() throws IOException {
+    if (watchService == null) {
+      synchronized (this) {
+        if (watchService == null) {
+          WatchService watcher = FileSystems.getDefault().newWatchService();
+          watchDirectory(watcher);
+          watchService = watcher;
+        }
+      }
+    }
+
+    return watchService;
+  }
+
+  /**
+   * Create queue directory if it doesn't exist and register it with watcher.
+   * @param watcher watcher of new files
+   * @throws IOException if directory can't be created or watched
+   */
+  private synchronized void watchDirectory(@NotNull final WatchService watcher) throws IOException {
+    Files.createDirectories(directory);
+    directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+  }
+
+  /**
+   * Find the oldest message files not handed out yet.
+   * @param max maximum amount of files
+   * @return files in order of names
+   * @throws IOException if directory can't be listed
+   */
+  @NotNull
+  private List<Path> listReady(final int max) throws IOException {
+    List<Path> ready = new ArrayList<>();
+
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, MESSAGE_GLOB)) {
+      for (Path file : files) {
+        if (!delivered.contains(file.getFileName().toString())) {
+          ready.add(file);
+        }
+      }
+    } catch (NoSuchFileException e) {
+      //key of deleted directory is cancelled, new directory is watched by new key
+      log.warn("Queue directory {} is deleted, it's created again", directory);
+      watchDirectory(getWatchService());
+      return Collections.emptyList();
+    }
+
+    Collections.sort(ready);
+
+    return ready.size() > max ? ready.subList(0, max) : ready;
+  }
+
+  /**
+   * Read message files and mark them as handed out.
+   * @param files message files
+   * @return messages
+   */
+  @NotNull
+  private List<IngestedScript> read(@NotNull final List<Path> files) {
+    List<IngestedScript> messages = new ArrayList<>(files.size());
+
+    for (Path file : files) {
+      String messageId = file.getFileName().toString();
+      delivered.add(messageId);
+
+      try {
+        JsonNode body = objectMapper.readTree(file.toFile());
+
+        messages.add(new IngestedScript(messageId,
+            body.path("scriptBody").textValue(),
+            body.hasNonNull("priority") ? Priority.valueOf(body.get("priority").asText().toUpperCase(Locale.ROOT)) : null,
+            body.path("tenant").textValue()));
+      } catch (IOException | IllegalArgumentException e) {
+        //message without script is rejected by consumer
+        log.debug("Message {} of file queue can't be read: {}", messageId, e.getMessage());
+        messages.add(new IngestedScript(messageId, null, null, null));
+      }
+    }
+
+    return messages;
+  }
+}
@@ -0,0 +1,39 @@
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Script submission taken from {@link IngestionSource}.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@ToString(exclude = "scriptBody")
+@RequiredArgsConstructor
+public final class IngestedScript {
+
+  /**
+   * Id of message in its source, used for acknowledgement and in completion event.
+   */
+  private final String messageId;
+
+  /**
+   * Code fragment, null if message has none.
+   */
+  private final String scriptBody;
+
+  /**
+   * Scheduling lane, null for default one.
+   */
+  private final Priority priority;
+
+  /**
+   * Api key of the producer, null for default tenant.
+   */
+  private final String tenant;
+}
@@ -0,0 +1,45 @@
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of ingestion, bound from <code>jswrapper.ingestion.*</code> properties.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "jswrapper.ingestion")
+public class IngestionProperties {
+
+  /**
+   * Maximum amount of messages taken from source at once.
+   */
+  private int batchSize = 16;
+
+  /**
+   * Maximum amount of ingested executions not finished yet, maximum in-flight executions of scheduler if not positive.
+   */
+  private int credits;
+
+  /**
+   * Time of waiting for messages in one poll.
+   */
+  private long pollTimeoutMillis = 1000;
+
+  /**
+   * Directory of local file queue, file queue is disabled if not set.
+   */
+  private String fileQueueDirectory;
+
+  /**
+   * File local completion events are appended to, file sink is disabled if not set.
+   */
+  private String completionsFile;
+}
@@ -0,0 +1,59 @@
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of script submissions consumed by the service. Implementations adapt some broker or storage, every enabled
+ * source bean is consumed by its own thread.
+ * Delivery is at least once: message handed out by {@link #poll} and neither acknowledged nor rejected
+ * is delivered again after restart.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+public interface IngestionSource {
+
+  /**
+   * Name used in thread names, logs and metrics.
+   * @return source name
+   */
+  @NotNull
+  String getName();
+
+  /**
+   * Shows if source is configured and must be consumed.
+   * @return true if source is enabled
+   */
+  boolean isEnabled();
+
+  /**
+   * Take next messages, waiting for them if there are none.
+   * @param max maximum amount of messages, always positive
+   * @param timeout maximum waiting time
+   * @param unit unit of timeout
+   * @return messages, empty if nothing came in time
+   * @throws IOException if queue can't be read
+   * @throws InterruptedException if consumer is stopped while waiting
+   */
+  @NotNull
+  List<IngestedScript> poll(int max, long timeout, @NotNull TimeUnit unit) throws IOException, InterruptedException;
+
+  /**
+   * Remove message accepted by the service, so it is never delivered again.
+   * @param message accepted message
+   * @throws IOException if queue can't be updated
+   */
+  void acknowledge(@NotNull IngestedScript message) throws IOException;
+
+  /**
+   * Remove message which can't be accepted, keeping it aside for investigation if queue can.
+   * @param message rejected message
+   * @param reason description of the problem
+   * @throws IOException if queue can't be updated
+   */
+  void reject(@NotNull IngestedScript message, @NotNull String reason) throws IOException;
+}
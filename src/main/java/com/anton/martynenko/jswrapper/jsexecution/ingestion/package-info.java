@@ -0,0 +1,8 @@
+/**
+ * This package contains ingestion of executions from external queues: sources consumed instead of
+ * <code>POST /executions</code>, sinks receiving completion events and the local file queue implementation of both.
+ * @since 1.3
+ * @author Martynenko Anton
+ */
+
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
@@ -0,0 +1,27 @@
+package com.anton.martynenko.jswrapper.jsexecution.problem;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+/**
+ * Custom {@link AbstractThrowableProblem}'s extension .
+ * @author Martynenko Anton
+ * @since 1.3
+ * @see AbstractThrowableProblem
+ */
+
+public class BinaryInputTooLargeProblem extends AbstractThrowableProblem {
+  /**
+   * Custom constructor which should be used when binary input is over the limit.
+   * @param maxBytes size limit of binary input
+   * @author Martynenko Anton
+   * @since 1.3
+   */
+  public BinaryInputTooLargeProblem(final long maxBytes) {
+    super(Problem.DEFAULT_TYPE,
+        Status.REQUEST_ENTITY_TOO_LARGE.getReasonPhrase(),
+        Status.REQUEST_ENTITY_TOO_LARGE,
+        String.format("Binary input is limited to %d bytes", maxBytes));
+  }
+}
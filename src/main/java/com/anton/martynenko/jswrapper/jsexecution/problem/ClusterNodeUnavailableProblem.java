@@ -0,0 +1,25 @@
+package com.anton.martynenko.jswrapper.jsexecution.problem;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+/**
+ * Custom {@link AbstractThrowableProblem}'s extension .
+ * @author Martynenko Anton
+ * @since 1.3
+ * @see AbstractThrowableProblem
+ */
+public class ClusterNodeUnavailableProblem extends AbstractThrowableProblem {
+
+  /**
+   * Custom constructor which should be used when node owning requested execution doesn't answer.
+   * @param nodeId id of unavailable node
+   */
+  public ClusterNodeUnavailableProblem(final int nodeId) {
+    super(Problem.DEFAULT_TYPE,
+        Status.SERVICE_UNAVAILABLE.getReasonPhrase(),
+        Status.SERVICE_UNAVAILABLE,
+        String.format("Cluster node %d owning JsExecution is unavailable", nodeId));
+  }
+}
@@ -0,0 +1,27 @@
+package com.anton.martynenko.jswrapper.jsexecution.problem;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+/**
+ * Custom {@link AbstractThrowableProblem}'s extension .
+ * @author Martynenko Anton
+ * @since 1.3
+ * @see AbstractThrowableProblem
+ */
+
+public class ClusterPeerNotAuthenticatedProblem extends AbstractThrowableProblem {
+  /**
+   * Custom constructor which should be used when internal cluster API is called by anyone but a configured peer
+   * knowing cluster secret, or when cluster mode is off.
+   * @author Martynenko Anton
+   * @since 1.3
+   */
+  public ClusterPeerNotAuthenticatedProblem() {
+    super(Problem.DEFAULT_TYPE,
+        Status.FORBIDDEN.getReasonPhrase(),
+        Status.FORBIDDEN,
+        "Internal cluster API is available to cluster nodes only");
+  }
+}
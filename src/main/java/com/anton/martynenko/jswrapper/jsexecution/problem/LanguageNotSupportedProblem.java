@@ -0,0 +1,31 @@
+package com.anton.martynenko.jswrapper.jsexecution.problem;
+
+import org.jetbrains.annotations.NotNull;
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+import java.util.Collection;
+
+/**
+ * Custom {@link AbstractThrowableProblem}'s extension .
+ * @author Martynenko Anton
+ * @since 1.3
+ * @see AbstractThrowableProblem
+ */
+
+public class LanguageNotSupportedProblem extends AbstractThrowableProblem {
+  /**
+   * Custom constructor which should be used when execution is written in language which can't be run.
+   * @param language requested language id
+   * @param supported supported language ids
+   * @author Martynenko Anton
+   * @since 1.3
+   */
+  public LanguageNotSupportedProblem(@NotNull final String language, @NotNull final Collection<String> supported) {
+    super(Problem.DEFAULT_TYPE,
+        Status.BAD_REQUEST.getReasonPhrase(),
+        Status.BAD_REQUEST,
+        String.format("Language %s is not supported, supported ones are %s", language, supported));
+  }
+}
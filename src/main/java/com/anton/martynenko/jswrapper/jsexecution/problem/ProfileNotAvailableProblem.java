@@ -0,0 +1,29 @@
+package com.anton.martynenko.jswrapper.jsexecution.problem;
+
+import org.jetbrains.annotations.NotNull;
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+/**
+ * Custom {@link AbstractThrowableProblem}'s extension .
+ * @author Martynenko Anton
+ * @since 1.3
+ * @see AbstractThrowableProblem
+ */
+
+public class ProfileNotAvailableProblem extends AbstractThrowableProblem {
+  /**
+   * Custom constructor which should be used when profile is requested from execution which is not profiled
+   * or is not finished yet.
+   * @param details details of problem
+   * @author Martynenko Anton
+   * @since 1.3
+   */
+  public ProfileNotAvailableProblem(@NotNull final String details) {
+    super(Problem.DEFAULT_TYPE,
+        Status.CONFLICT.getReasonPhrase(),
+        Status.CONFLICT,
+        details);
+  }
+}
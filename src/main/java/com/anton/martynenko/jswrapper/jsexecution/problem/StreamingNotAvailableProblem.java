@@ -0,0 +1,24 @@
+package com.anton.martynenko.jswrapper.jsexecution.problem;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+/**
+ * Custom {@link AbstractThrowableProblem}'s extension .
+ * @author Martynenko Anton
+ * @since 1.3
+ * @see AbstractThrowableProblem
+ */
+public class StreamingNotAvailableProblem extends AbstractThrowableProblem {
+
+  /**
+   * Custom constructor which should be used when all threads reading chunked streaming requests are busy.
+   */
+  public StreamingNotAvailableProblem() {
+    super(Problem.DEFAULT_TYPE,
+        Status.SERVICE_UNAVAILABLE.getReasonPhrase(),
+        Status.SERVICE_UNAVAILABLE,
+        "Too many chunked streaming executions are read now, try again later");
+  }
+}
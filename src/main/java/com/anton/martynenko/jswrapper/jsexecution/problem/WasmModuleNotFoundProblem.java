@@ -0,0 +1,29 @@
+package com.anton.martynenko.jswrapper.jsexecution.problem;
+
+import org.jetbrains.annotations.NotNull;
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+/**
+ * Custom {@link AbstractThrowableProblem}'s extension .
+ * @author Martynenko Anton
+ * @since 1.3
+ * @see AbstractThrowableProblem
+ */
+
+public class WasmModuleNotFoundProblem extends AbstractThrowableProblem {
+  /**
+   * Custom constructor which should be used when {@link com.anton.martynenko.jswrapper.jsexecution.wasm.WasmModule}
+   * is not found.
+   * @param moduleId id of not found module
+   * @author Martynenko Anton
+   * @since 1.3
+   */
+  public WasmModuleNotFoundProblem(@NotNull final Integer moduleId) {
+    super(Problem.DEFAULT_TYPE,
+        Status.NOT_FOUND.getReasonPhrase(),
+        Status.NOT_FOUND,
+        String.format("WasmModule id '%d' not found", moduleId));
+  }
+}
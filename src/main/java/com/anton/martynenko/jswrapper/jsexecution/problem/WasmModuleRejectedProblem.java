@@ -0,0 +1,28 @@
+package com.anton.martynenko.jswrapper.jsexecution.problem;
+
+import org.jetbrains.annotations.NotNull;
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+/**
+ * Custom {@link AbstractThrowableProblem}'s extension .
+ * @author Martynenko Anton
+ * @since 1.3
+ * @see AbstractThrowableProblem
+ */
+
+public class WasmModuleRejectedProblem extends AbstractThrowableProblem {
+  /**
+   * Custom constructor which should be used when uploaded module can't be kept.
+   * @param details details of problem
+   * @author Martynenko Anton
+   * @since 1.3
+   */
+  public WasmModuleRejectedProblem(@NotNull final String details) {
+    super(Problem.DEFAULT_TYPE,
+        Status.BAD_REQUEST.getReasonPhrase(),
+        Status.BAD_REQUEST,
+        details);
+  }
+}
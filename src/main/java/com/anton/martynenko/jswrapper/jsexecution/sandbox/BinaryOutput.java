@@ -0,0 +1,145 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary output of execution. Script allocates buffers and fills them as js ArrayBuffers backed by the same memory,
+ * so output is never copied on the way from script to response.
+ * Output is kept for a limited time after execution is finished, then its buffers are dropped.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+public final class BinaryOutput {
+
+  /**
+   * Size limit of all buffers.
+   */
+  private final long maxBytes;
+
+  /**
+   * Time output is kept after execution is finished.
+   */
+  private final long ttlMillis;
+
+  /**
+   * Buffers in allocation order.
+   */
+  @GuardedBy("this")
+  private final List<ByteBuffer> buffers = new ArrayList<>();
+
+  /**
+   * Size of all buffers.
+   */
+  @GuardedBy("this")
+  private long size;
+
+  /**
+   * Set when buffers are dropped.
+   */
+  @GuardedBy("this")
+  private boolean expired;
+
+  /**
+   * Basic constructor.
+   * @param maxBytes size limit of all buffers
+   * @param ttlMillis time output is kept after execution is finished
+   */
+
+  BinaryOutput(final long maxBytes, final long ttlMillis) {
+    this.maxBytes = maxBytes;
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Append new buffer to output.
+   * @param bytes size of buffer
+   * @return zero filled buffer
+   */
+
+  @NotNull
+  synchronized ByteBuffer allocate(final int bytes) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Buffer size can't be negative");
+    }
+
+    if (size + bytes > maxBytes) {
+      throw new IllegalArgumentException("Binary output is limited to " + maxBytes + " bytes");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(bytes);
+    buffers.add(buffer);
+    size += bytes;
+
+    return buffer;
+  }
+
+  /**
+   * Size of output.
+   * @return size in bytes
+   */
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Time output is kept after execution is finished.
+   * @return time in milliseconds
+   */
+
+  public long getTtlMillis() {
+    return ttlMillis;
+  }
+
+  /**
+   * Drop buffers, output can't be written anymore. Writing which has started already goes on with its buffers.
+   */
+
+  public synchronized void expire() {
+    buffers.clear();
+    size = 0;
+    expired = true;
+  }
+
+  /**
+   * Shows if buffers are dropped.
+   * @return true if output is expired
+   */
+
+  public synchronized boolean isExpired() {
+    return expired;
+  }
+
+  /**
+   * Write output straight from buffers.
+   * @param out stream to write to
+   * @throws IOException if output can't be written or is expired
+   */
+
+  public void writeTo(@NotNull final OutputStream out) throws IOException {
+    List<ByteBuffer> written;
+
+    synchronized (this) {
+      if (expired) {
+        throw new IOException("Binary output is expired");
+      }
+
+      written = new ArrayList<>(buffers);
+    }
+
+    for (ByteBuffer buffer : written) {
+      out.write(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import org.graalvm.polyglot.Engine;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CPU sampling profile of one execution. Sampler is an instrument of the whole engine, so profiled execution
+ * runs in a context of its own engine with sampler enabled, while other executions keep sharing engines of workers
+ * and pay nothing for profiling. Sampler writes its report when the engine is closed.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+public final class CpuProfile {
+
+  /**
+   * Id of GraalVM CPU sampler instrument.
+   */
+  static final String INSTRUMENT = "cpusampler";
+
+  /**
+   * Sampler output format, like <code>histogram</code> or <code>flamegraph</code>.
+   */
+  private final String output;
+
+  /**
+   * Sampling period.
+   */
+  private final long periodMillis;
+
+  /**
+   * Report written by sampler, used by engine only.
+   */
+  private final ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+  /**
+   * Engine with sampler, null until execution is started and after it is finished.
+   */
+  private Engine engine;
+
+  /**
+   * Report of finished execution.
+   */
+  private volatile String summary;
+
+  /**
+   * Basic constructor.
+   * @param output sampler output format
+   * @param periodMillis sampling period
+   */
+
+  CpuProfile(@NotNull final String output, final long periodMillis) {
+    this.output = output;
+    this.periodMillis = periodMillis;
+  }
+
+  /**
+   * Start sampling. Called by the thread running execution.
+   * @return engine with sampler for the context of execution
+   */
+
+  @NotNull
+  public synchronized Engine start() {
+    if (engine != null || summary != null) {
+      throw new IllegalStateException("Profile is started already");
+    }
+
+    engine = Engine.newBuilder()
+        .option("engine.WarnInterpreterOnly", "false")
+        .option(INSTRUMENT, "true")
+        .option(INSTRUMENT + ".Output", output)
+        .option(INSTRUMENT + ".Period", String.valueOf(periodMillis))
+        .out(report)
+        .err(report)
+        .build();
+
+    return engine;
+  }
+
+  /**
+   * Stop sampling and keep the report. Called once the context of execution is closed.
+   */
+
+  public synchronized void finish() {
+    if (engine == null) {
+      return;
+    }
+
+    //sampler writes the report while its engine is closed
+    engine.close(true);
+    engine = null;
+    summary = new String(report.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Report of finished execution.
+   * @return sampler report or null while execution is not finished
+   */
+
+  public String getSummary() {
+    return summary;
+  }
+}
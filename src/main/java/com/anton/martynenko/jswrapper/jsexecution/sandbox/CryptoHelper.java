@@ -0,0 +1,112 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import org.graalvm.polyglot.HostAccess;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+/**
+ * Hashing helper bound as <code>host.crypto</code>. Texts are hashed as UTF-8, hashes are returned as lowercase hex.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+public class CryptoHelper {
+
+  /**
+   * SHA-256 hash of text.
+   * @param text text
+   * @return hex hash
+   */
+
+  @HostAccess.Export
+  public String sha256(@NotNull final String text) {
+    return digest("SHA-256", text);
+  }
+
+  /**
+   * SHA-512 hash of text.
+   * @param text text
+   * @return hex hash
+   */
+
+  @HostAccess.Export
+  public String sha512(@NotNull final String text) {
+    return digest("SHA-512", text);
+  }
+
+  /**
+   * MD5 hash of text, for checksums only.
+   * @param text text
+   * @return hex hash
+   */
+
+  @HostAccess.Export
+  public String md5(@NotNull final String text) {
+    return digest("MD5", text);
+  }
+
+  /**
+   * HMAC-SHA256 of text.
+   * @param key secret key
+   * @param text text
+   * @return hex code
+   */
+
+  @HostAccess.Export
+  public String hmacSha256(@NotNull final String key, @NotNull final String text) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+      return hex(mac.doFinal(text.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException | IllegalArgumentException e) {
+      //empty key is refused by SecretKeySpec
+      throw new IllegalArgumentException("HMAC can't be calculated: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Random UUID.
+   * @return UUID text
+   */
+
+  @HostAccess.Export
+  public String randomUuid() {
+    return UUID.randomUUID().toString();
+  }
+
+  /**
+   * Hash text.
+   * @param algorithm digest algorithm, every java platform has used ones
+   * @param text text
+   * @return hex hash
+   */
+  private static String digest(@NotNull final String algorithm, @NotNull final String text) {
+    try {
+      return hex(MessageDigest.getInstance(algorithm).digest(text.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Lowercase hex of bytes.
+   * @param bytes bytes
+   * @return hex text
+   */
+  private static String hex(@NotNull final byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
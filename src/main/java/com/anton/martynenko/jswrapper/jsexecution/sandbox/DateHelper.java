@@ -0,0 +1,110 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import org.graalvm.polyglot.HostAccess;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Date helper bound as <code>host.date</code>. Dates are passed as epoch milliseconds, like js Date keeps them,
+ * zones are IANA ids or offsets.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+public class DateHelper {
+
+  /**
+   * Current time.
+   * @return epoch milliseconds
+   */
+
+  @HostAccess.Export
+  public double now() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Format date with pattern of {@link DateTimeFormatter}.
+   * @param epochMillis date
+   * @param pattern pattern, e.g. <code>yyyy-MM-dd HH:mm</code>
+   * @param zone zone id
+   * @return formatted date
+   */
+
+  @HostAccess.Export
+  public String format(final double epochMillis, @NotNull final String pattern, @NotNull final String zone) {
+    try {
+      return DateTimeFormatter.ofPattern(pattern).format(toZoned(epochMillis, zone));
+    } catch (IllegalArgumentException | DateTimeException e) {
+      throw new IllegalArgumentException("Date can't be formatted: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Format date as ISO date time with zone.
+   * @param epochMillis date
+   * @param zone zone id
+   * @return formatted date
+   */
+
+  @HostAccess.Export
+  public String toIso(final double epochMillis, @NotNull final String zone) {
+    try {
+      return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(toZoned(epochMillis, zone));
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException("Date can't be formatted: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Parse ISO date time with offset or zone.
+   * @param text ISO date time
+   * @return epoch milliseconds
+   */
+
+  @HostAccess.Export
+  public double parseIso(@NotNull final String text) {
+    try {
+      return ZonedDateTime.parse(text).toInstant().toEpochMilli();
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Not ISO date time: " + text);
+    }
+  }
+
+  /**
+   * Add calendar days in zone, so daylight saving shifts keep time of day.
+   * @param epochMillis date
+   * @param days days to add, negative to subtract
+   * @param zone zone id
+   * @return epoch milliseconds
+   */
+
+  @HostAccess.Export
+  public double plusDays(final double epochMillis, final int days, @NotNull final String zone) {
+    try {
+      return toZoned(epochMillis, zone).plus(days, ChronoUnit.DAYS).toInstant().toEpochMilli();
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException("Days can't be added: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Date in zone.
+   * @param epochMillis date
+   * @param zone zone id
+   * @return zoned date
+   */
+  private static ZonedDateTime toZoned(final double epochMillis, @NotNull final String zone) {
+    return Instant.ofEpochMilli((long) epochMillis).atZone(ZoneId.of(zone));
+  }
+}
@@ -0,0 +1,595 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.HostAccessProfile;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.PolyglotAccess;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyExecutable;
+import org.graalvm.polyglot.proxy.ProxyObject;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds contexts of all executions with the same host access, so they share engines of js workers,
+ * and binds Java helpers into them.
+ * Helpers are reachable from scripts as <code>host.json</code>, <code>host.crypto</code> and <code>host.date</code>,
+ * see {@link JsonHelper}, {@link CryptoHelper} and {@link DateHelper}. Input document of execution is reachable
+ * as <code>input</code>, see {@link JsonNodeProxies}. Binary input is reachable as <code>binaryInput</code>
+ * read-only ArrayBuffer, binary output is written to ArrayBuffers from <code>binaryOutput.allocate(size)</code>,
+ * both share memory with Java buffers. Streaming execution reads request body as it comes and writes response
+ * with <code>stream</code> object, see {@link ScriptStream}. Exports of WebAssembly module are reachable as <code>wasm</code>.
+ * Scripts can be written in any language of {@link LanguageRegistry}, bindings are put into bindings of the language.
+ * Js scripts posted with <code>"module": true</code> are ES modules and import modules of {@link ModuleRegistry},
+ * contexts can't read any other file.
+ * Js executions start with prelude scripts already evaluated, js workers keep a context with prelude ready
+ * for the next execution, see {@link PreparedContext}.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+@Component
+public class JsSandbox {
+
+  /**
+   * Sandbox with default configuration, for executions created outside of the application context.
+   */
+  public static final JsSandbox DEFAULT = new JsSandbox(new SandboxProperties(), new ObjectMapper());
+
+  /**
+   * Name of helpers object in js bindings.
+   */
+  public static final String HELPERS_BINDING = "host";
+
+  /**
+   * Name of input document in js bindings.
+   */
+  public static final String INPUT_BINDING = "input";
+
+  /**
+   * Name of binary input in js bindings.
+   */
+  public static final String BINARY_INPUT_BINDING = "binaryInput";
+
+  /**
+   * Name of binary output in js bindings.
+   */
+  public static final String BINARY_OUTPUT_BINDING = "binaryOutput";
+
+  /**
+   * Name of streaming channel in js bindings.
+   */
+  public static final String STREAM_BINDING = "stream";
+
+  /**
+   * Name of exports of WebAssembly module in js bindings.
+   */
+
+  public static final String WASM_BINDING = "wasm";
+
+  /**
+   * Js function wrapping host buffer into ArrayBuffer over the same memory.
+   */
+  private static final Source ARRAY_BUFFER_OF = Source.create("js", "(buffer) => new ArrayBuffer(buffer)");
+
+  /**
+   * Js function making binary output object from host allocating function.
+   */
+  private static final Source BINARY_OUTPUT_OF = Source.create("js",
+      "(allocate) => Object.freeze({allocate: (size) => new ArrayBuffer(allocate(size))})");
+
+  /**
+   * Js function making stream object from host reading and writing functions. Chunks are taken by sync and async
+   * iteration or by <code>read()</code> returning null at the end, <code>lines()</code> splits them into lines.
+   */
+  private static final Source STREAM_OF = Source.create("js",
+      "(read, write) => Object.freeze({\n"
+          + "  read: () => read(),\n"
+          + "  write: (text) => { write(String(text)); },\n"
+          + "  [Symbol.iterator]: function* () { for (let c = read(); c !== null; c = read()) { yield c; } },\n"
+          + "  [Symbol.asyncIterator]: async function* () { for (let c = read(); c !== null; c = read()) { yield c; } },\n"
+          + "  lines: function* () {\n"
+          + "    let rest = '';\n"
+          + "    for (let c = read(); c !== null; c = read()) {\n"
+          + "      const lines = (rest + c).split('\\n');\n"
+          + "      rest = lines.pop();\n"
+          + "      for (const line of lines) { yield line.endsWith('\\r') ? line.slice(0, -1) : line; }\n"
+          + "    }\n"
+          + "    if (rest !== '') { yield rest; }\n"
+          + "  }\n"
+          + "})");
+
+  /**
+   * Mime type of js sources parsed as ES modules.
+   */
+  private static final String MODULE_MIME_TYPE = "application/javascript+module";
+
+  /**
+   * Host access of {@link HostAccessProfile#NONE} profile, buffers of binary input and output are still reachable.
+   */
+  private static final HostAccess NONE_ACCESS = HostAccess.newBuilder(HostAccess.NONE)
+      .allowBufferAccess(true).build();
+
+  /**
+   * Host access of {@link HostAccessProfile#EXPLICIT} profile, buffers of binary input and output are reachable too.
+   */
+  private static final HostAccess EXPLICIT_ACCESS = HostAccess.newBuilder(HostAccess.EXPLICIT)
+      .allowBufferAccess(true).build();
+
+  /**
+   * Host access of all contexts.
+   */
+  private final HostAccessProfile profile;
+
+  /**
+   * Languages executions can be written in.
+   */
+  private final LanguageRegistry languageRegistry;
+
+  /**
+   * ES modules scripts can import.
+   */
+  private final ModuleRegistry moduleRegistry;
+
+  /**
+   * File system of all contexts, holding registered modules only.
+   */
+  private final ModuleFileSystem moduleFileSystem;
+
+  /**
+   * Prelude scripts in evaluation order.
+   */
+  private final List<Source> prelude;
+
+  /**
+   * Helpers by name, null if helpers are not bound.
+   */
+  private final Map<String, Object> helpers;
+
+  /**
+   * Size limit of binary input.
+   */
+  private final long maxBinaryInputBytes;
+
+  /**
+   * Size limit of binary output.
+   */
+  private final long maxBinaryOutputBytes;
+
+  /**
+   * Time binary output is kept after execution is finished.
+   */
+  private final long binaryOutputTtlMillis;
+
+  /**
+   * Size of chunks streaming execution reads from request.
+   */
+  private final int streamChunkBytes;
+
+  /**
+   * Amount of chunks streaming execution queues in each direction.
+   */
+  private final int streamQueueChunks;
+
+  /**
+   * Time streaming script waits for the client.
+   */
+  private final long streamIdleTimeoutMillis;
+
+  /**
+   * Threads reading chunked request bodies of streaming executions, created when needed.
+   */
+  private final ExecutorService streamReaders;
+
+  /**
+   * Report format of profiled executions.
+   */
+  private final String profileOutput;
+
+  /**
+   * Sampling period of profiled executions.
+   */
+  private final long profilePeriodMillis;
+
+  /**
+   * Set when it is known if CPU sampler is installed, looked up on the first profiled execution.
+   */
+  private volatile Boolean profilingAvailable;
+
+  /**
+   * Basic constructor.
+   * @param properties sandbox configuration
+   * @param objectMapper mapper used by json helper
+   */
+
+  public JsSandbox(@NotNull final SandboxProperties properties, @NotNull final ObjectMapper objectMapper) {
+    this.profile = properties.getProfile();
+    this.languageRegistry = new LanguageRegistry(properties.getLanguages());
+    this.moduleRegistry = new ModuleRegistry(properties.getMaxModuleBytes(), properties.getMaxModules());
+    this.moduleFileSystem = new ModuleFileSystem(moduleRegistry);
+    this.prelude = loadPrelude(properties.getPrelude());
+    this.maxBinaryInputBytes = properties.getMaxBinaryInputBytes();
+    this.maxBinaryOutputBytes = properties.getMaxBinaryOutputBytes();
+    this.binaryOutputTtlMillis = properties.getBinaryOutputTtlMillis();
+    this.streamChunkBytes = properties.getStreamChunkBytes();
+    this.streamQueueChunks = properties.getStreamQueueChunks();
+    this.streamIdleTimeoutMillis = properties.getStreamIdleTimeoutMillis();
+    this.streamReaders = newStreamReaders(properties.getMaxStreamReaders());
+    this.profileOutput = properties.getProfileOutput();
+    this.profilePeriodMillis = properties.getProfilePeriodMillis();
+
+    if (properties.isHelpers() && profile != HostAccessProfile.NONE) {
+      Map<String, Object> bound = new HashMap<>();
+      bound.put("json", new JsonHelper(objectMapper));
+      bound.put("crypto", new CryptoHelper());
+      bound.put("date", new DateHelper());
+      this.helpers = bound;
+    } else {
+      this.helpers = null;
+    }
+
+    //broken prelude stops startup instead of failing every execution
+    if (hasPrelude()) {
+      try (PreparedContext check = prepareContext(null)) {
+        log.info("Prelude of {} scripts is loaded in {} ms", prelude.size(),
+            TimeUnit.NANOSECONDS.toMillis(check.getPreludeNanos()));
+      }
+    }
+  }
+
+  /**
+   * Check if js executions start with prelude.
+   * @return true if prelude scripts are configured
+   */
+
+  public boolean hasPrelude() {
+    return !prelude.isEmpty();
+  }
+
+  /**
+   * New js context with prelude evaluated. Prelude sources are cached by the engine,
+   * so they are parsed once per engine and only evaluated for each context.
+   * @param engine engine to share or null for context's own one
+   * @return context waiting for execution
+   */
+
+  @NotNull
+  public PreparedContext prepareContext(final Engine engine) {
+    PreparedContext.RedirectedOutputStream out = new PreparedContext.RedirectedOutputStream();
+    PreparedContext.RedirectedOutputStream err = new PreparedContext.RedirectedOutputStream();
+
+    Context.Builder builder = newContextBuilder().out(out).err(err);
+    if (engine != null) {
+      builder.engine(engine);
+    }
+
+    Context context = builder.build();
+    long started = System.nanoTime();
+
+    try {
+      for (Source source : prelude) {
+        context.eval(source);
+      }
+    } catch (RuntimeException e) {
+      context.close();
+      throw e;
+    }
+
+    return new PreparedContext(this, context, out, err, System.nanoTime() - started);
+  }
+
+  /**
+   * New js context builder with host access of the profile.
+   * @return context builder for js
+   */
+
+  @NotNull
+  public Context.Builder newContextBuilder() {
+    return newContextBuilder(LanguageRegistry.DEFAULT_LANGUAGE);
+  }
+
+  /**
+   * New context builder with host access of the profile.
+   * @param language language of the script, one of {@link LanguageRegistry#getLanguages()}
+   * @return context builder for the language, js is permitted too for bindings
+   */
+
+  @NotNull
+  public Context.Builder newContextBuilder(@NotNull final String language) {
+    //arrays of input and helpers get Array.prototype methods like js ones
+    Context.Builder builder = (LanguageRegistry.DEFAULT_LANGUAGE.equals(language)
+        ? Context.newBuilder(language)
+        : Context.newBuilder(language, LanguageRegistry.DEFAULT_LANGUAGE))
+        .option("js.foreign-object-prototype", "true")
+        //imports read registered modules only
+        .allowIO(true)
+        .fileSystem(moduleFileSystem);
+
+    switch (profile) {
+      case ALL:
+        return builder
+            .allowHostAccess(HostAccess.ALL)
+            .allowPolyglotAccess(PolyglotAccess.ALL);
+      case EXPLICIT:
+        return builder
+            .allowHostAccess(EXPLICIT_ACCESS)
+            .allowPolyglotAccess(PolyglotAccess.NONE);
+      default:
+        return builder
+            .allowHostAccess(NONE_ACCESS)
+            .allowPolyglotAccess(PolyglotAccess.NONE);
+    }
+  }
+
+  /**
+   * Source of the script, js script posted as module is parsed as ES module and can import registered ones.
+   * @param language language of the script
+   * @param scriptBody code fragment
+   * @param module true if js script is an ES module
+   * @return source to parse in context
+   */
+
+  @NotNull
+  public Source newScriptSource(@NotNull final String language, @NotNull final String scriptBody,
+                                final boolean module) {
+    if (!LanguageRegistry.DEFAULT_LANGUAGE.equals(language) || !module) {
+      return Source.create(language, scriptBody);
+    }
+
+    //module sources are cached by the engine like classic ones, the name only has to say it's a module
+    return Source.newBuilder(language, scriptBody, "script" + ModuleFileSystem.EXTENSION)
+        .mimeType(MODULE_MIME_TYPE)
+        .buildLiteral();
+  }
+
+  /**
+   * New binary output with configured limit and lifetime.
+   * @return empty binary output
+   */
+
+  @NotNull
+  public BinaryOutput newBinaryOutput() {
+    return new BinaryOutput(maxBinaryOutputBytes, binaryOutputTtlMillis);
+  }
+
+  /**
+   * New streaming channel with configured chunks and timeout.
+   * @return stream which isn't reading yet
+   */
+
+  @NotNull
+  public ScriptStream newScriptStream() {
+    return new ScriptStream(streamChunkBytes, streamQueueChunks, streamIdleTimeoutMillis, streamReaders);
+  }
+
+  /**
+   * Check if executions can be profiled.
+   * @return true if GraalVM CPU sampler is installed
+   */
+
+  public boolean isProfilingAvailable() {
+    Boolean available = profilingAvailable;
+
+    if (available == null) {
+      try (Engine engine = Engine.newBuilder().option("engine.WarnInterpreterOnly", "false").build()) {
+        available = engine.getInstruments().containsKey(CpuProfile.INSTRUMENT);
+      }
+      profilingAvailable = available;
+    }
+
+    return available;
+  }
+
+  /**
+   * New CPU profile with configured format and period.
+   * @return profile which isn't sampling yet
+   * @throws IllegalStateException if CPU sampler is not installed
+   */
+
+  @NotNull
+  public CpuProfile newCpuProfile() {
+    if (!isProfilingAvailable()) {
+      throw new IllegalStateException("GraalVM CPU sampler is not installed");
+    }
+
+    return new CpuProfile(profileOutput, profilePeriodMillis);
+  }
+
+  /**
+   * Bind helpers and input document into new context.
+   * @param context context built by {@link #newContextBuilder()}
+   * @param input input document or null if there is none
+   */
+
+  public void bind(@NotNull final Context context, final JsonNode input) {
+    bind(context, input, null, null, null);
+  }
+
+  /**
+   * Bind helpers, input document, binary and streaming channels into new context.
+   * @param context context built by {@link #newContextBuilder()}
+   * @param input input document or null if there is none
+   * @param binaryInput binary input or null if there is none
+   * @param binaryOutput binary output or null if there is none
+   * @param stream streaming channel or null if there is none
+   */
+
+  public void bind(@NotNull final Context context, final JsonNode input, final ByteBuffer binaryInput,
+                   final BinaryOutput binaryOutput, final ScriptStream stream) {
+    bind(context, LanguageRegistry.DEFAULT_LANGUAGE, input, binaryInput, binaryOutput, stream);
+  }
+
+  /**
+   * Bind helpers, input document, binary and streaming channels into bindings of the script language.
+   * @param context context built by {@link #newContextBuilder(String)}
+   * @param language language of the script
+   * @param input input document or null if there is none
+   * @param binaryInput binary input or null if there is none
+   * @param binaryOutput binary output or null if there is none
+   * @param stream streaming channel or null if there is none
+   */
+
+  public void bind(@NotNull final Context context, @NotNull final String language, final JsonNode input,
+                   final ByteBuffer binaryInput, final BinaryOutput binaryOutput, final ScriptStream stream) {
+    Value bindings = context.getBindings(language);
+
+    //proxies are reachable with any host access, helpers expose only exported members
+    if (helpers != null) {
+      bindings.putMember(HELPERS_BINDING, ProxyObject.fromMap(new HashMap<>(helpers)));
+    }
+
+    if (input != null) {
+      bindings.putMember(INPUT_BINDING, JsonNodeProxies.toJs(input));
+    }
+
+    if (binaryInput != null) {
+      //read-only view of the same memory, so script can't change input of the next run
+      bindings.putMember(BINARY_INPUT_BINDING,
+          context.eval(ARRAY_BUFFER_OF).execute(binaryInput.asReadOnlyBuffer()));
+    }
+
+    if (binaryOutput != null) {
+      ProxyExecutable allocate = arguments -> {
+        if (arguments.length != 1 || !arguments[0].fitsInInt()) {
+          throw new IllegalArgumentException("Buffer size must be integer");
+        }
+        return binaryOutput.allocate(arguments[0].asInt());
+      };
+      bindings.putMember(BINARY_OUTPUT_BINDING, context.eval(BINARY_OUTPUT_OF).execute(allocate));
+    }
+
+    if (stream != null) {
+      //host calls block script thread while the client is behind, that is the backpressure
+      ProxyExecutable read = arguments -> stream.read();
+      ProxyExecutable write = arguments -> {
+        stream.write(arguments[0].asString());
+        return null;
+      };
+      bindings.putMember(STREAM_BINDING, context.eval(STREAM_OF).execute(read, write));
+    }
+  }
+
+  /**
+   * Instantiate WebAssembly module in new context and bind its exports.
+   * Parsed module is kept by the engine of context, so contexts sharing worker's engine parse it only once.
+   * @param context context built by {@link #newContextBuilder(String)} for wasm
+   * @param language language of the script
+   * @param module source of WebAssembly module, its name is the module name
+   */
+
+  public void bindWasm(@NotNull final Context context, @NotNull final String language, @NotNull final Source module) {
+    context.eval(module);
+
+    context.getBindings(language).putMember(WASM_BINDING,
+        context.getBindings(module.getLanguage()).getMember(module.getName()));
+  }
+
+  /**
+   * Read prelude scripts.
+   * @param locations locations of prelude scripts
+   * @return prelude sources in evaluation order
+   */
+  @NotNull
+  private List<Source> loadPrelude(@NotNull final List<String> locations) {
+    if (locations.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<Source> sources = new ArrayList<>(locations.size());
+
+    for (String location : locations) {
+      try {
+        URL url = ResourceUtils.getURL(location);
+
+        try (InputStream in = url.openStream()) {
+          String code = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+          sources.add(Source.newBuilder(LanguageRegistry.DEFAULT_LANGUAGE, code, location).build());
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Prelude script " + location + " can't be read", e);
+      }
+    }
+
+    return Collections.unmodifiableList(sources);
+  }
+
+  /**
+   * Pool of stream reader threads, without waiting queue, so request over the limit is rejected at once.
+   * Idle threads die after a minute, reader threads don't keep application running.
+   * @param maxReaders limit of threads
+   * @return empty pool
+   */
+  @NotNull
+  private static ExecutorService newStreamReaders(final int maxReaders) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("script-stream-reader-");
+    threadFactory.setDaemon(true);
+
+    return new ThreadPoolExecutor(0, maxReaders, 1, TimeUnit.MINUTES, new SynchronousQueue<>(), threadFactory);
+  }
+
+  /**
+   * Getter for property 'languageRegistry'.
+   *
+   * @return Value for property 'languageRegistry'.
+   */
+  @NotNull
+  public LanguageRegistry getLanguageRegistry() {
+    return languageRegistry;
+  }
+
+  /**
+   * Getter for property 'moduleRegistry'.
+   *
+   * @return Value for property 'moduleRegistry'.
+   */
+  @NotNull
+  public ModuleRegistry getModuleRegistry() {
+    return moduleRegistry;
+  }
+
+  /**
+   * Getter for property 'maxBinaryInputBytes'.
+   *
+   * @return Value for property 'maxBinaryInputBytes'.
+   */
+  public long getMaxBinaryInputBytes() {
+    return maxBinaryInputBytes;
+  }
+
+  /**
+   * Getter for property 'profile'.
+   *
+   * @return Value for property 'profile'.
+   */
+  @NotNull
+  public HostAccessProfile getProfile() {
+    return profile;
+  }
+}
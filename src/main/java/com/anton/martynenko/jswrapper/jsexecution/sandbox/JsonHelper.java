@@ -0,0 +1,146 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Value;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Json helper bound as <code>host.json</code>. Parses and writes json with Jackson,
+ * parsed documents are read-only views materialized as script reaches them, see {@link JsonNodeProxies}.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+public class JsonHelper {
+
+  /**
+   * Nesting limit of written values, cyclic object would go forever otherwise.
+   */
+  private static final int MAX_DEPTH = 1000;
+
+  /**
+   * Mapper reading and writing json.
+   */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Basic constructor.
+   * @param objectMapper mapper reading and writing json
+   */
+
+  JsonHelper(@NotNull final ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Parse json text.
+   * @param text json text
+   * @return js value: object, array, string, number, boolean or null
+   */
+
+  @HostAccess.Export
+  public Object parse(@NotNull final String text) {
+    try {
+      return JsonNodeProxies.toJs(objectMapper.readTree(text));
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Not valid json: " + e.getOriginalMessage());
+    }
+  }
+
+  /**
+   * Write js value as json text. Functions are skipped like JSON.stringify does.
+   * @param value js value
+   * @return json text
+   */
+
+  @HostAccess.Export
+  public String stringify(@NotNull final Value value) {
+    StringWriter writer = new StringWriter();
+
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+      write(generator, value, 0);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Value can't be written as json: " + e.getMessage());
+    }
+
+    return writer.toString();
+  }
+
+  /**
+   * Write js value.
+   * @param generator json generator
+   * @param value js value
+   * @param depth nesting of value
+   * @throws IOException if value can't be written
+   */
+  private static void write(@NotNull final JsonGenerator generator, @NotNull final Value value, final int depth)
+      throws IOException {
+    if (depth > MAX_DEPTH) {
+      throw new IOException("nesting is deeper than " + MAX_DEPTH);
+    }
+
+    if (value.isNull()) {
+      generator.writeNull();
+    } else if (value.isBoolean()) {
+      generator.writeBoolean(value.asBoolean());
+    } else if (value.isString()) {
+      generator.writeString(value.asString());
+    } else if (value.isNumber()) {
+      writeNumber(generator, value);
+    } else if (value.hasArrayElements()) {
+      generator.writeStartArray();
+      for (long i = 0; i < value.getArraySize(); i++) {
+        Value element = value.getArrayElement(i);
+        if (element.canExecute()) {
+          generator.writeNull();
+        } else {
+          write(generator, element, depth + 1);
+        }
+      }
+      generator.writeEndArray();
+    } else if (value.hasMembers()) {
+      generator.writeStartObject();
+      for (String key : value.getMemberKeys()) {
+        Value member = value.getMember(key);
+        if (!member.canExecute()) {
+          generator.writeFieldName(key);
+          write(generator, member, depth + 1);
+        }
+      }
+      generator.writeEndObject();
+    } else {
+      generator.writeNull();
+    }
+  }
+
+  /**
+   * Write js number, integral one without fraction.
+   * @param generator json generator
+   * @param value js number
+   * @throws IOException if value can't be written
+   */
+  private static void writeNumber(@NotNull final JsonGenerator generator, @NotNull final Value value)
+      throws IOException {
+    if (value.fitsInLong()) {
+      generator.writeNumber(value.asLong());
+      return;
+    }
+
+    double number = value.asDouble();
+    //JSON.stringify writes null for NaN and Infinity
+    if (Double.isNaN(number) || Double.isInfinite(number)) {
+      generator.writeNull();
+    } else {
+      generator.writeNumber(number);
+    }
+  }
+}
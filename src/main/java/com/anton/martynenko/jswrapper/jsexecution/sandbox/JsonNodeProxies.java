@@ -0,0 +1,183 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+import org.graalvm.polyglot.proxy.ProxyObject;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only js views of Jackson trees. Nothing is converted in advance: objects and arrays are wrapped when script
+ * reaches them, scalars are converted on access, so script pays only for the part of the tree it touches.
+ * Wrapped children are remembered, so the same member gives the same js object every time.
+ * Views belong to one context and, like the context, are used by one thread at once.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+public final class JsonNodeProxies {
+
+  /**
+   * Utility class.
+   */
+  private JsonNodeProxies() {
+  }
+
+  /**
+   * Js value of json node.
+   * @param node json node
+   * @return proxy for object or array, string, number, boolean or null for scalars
+   */
+
+  public static Object toJs(final JsonNode node) {
+    if (node == null) {
+      return null;
+    }
+
+    if (node.isObject()) {
+      return new JsonObjectProxy(node);
+    }
+
+    if (node.isArray()) {
+      return new JsonArrayProxy(node);
+    }
+
+    if (node.isTextual()) {
+      return node.textValue();
+    }
+
+    if (node.isBoolean()) {
+      return node.booleanValue();
+    }
+
+    //js numbers are doubles anyway
+    if (node.isNumber()) {
+      return node.isIntegralNumber() && node.canConvertToInt() ? (Object) node.intValue() : (Object) node.doubleValue();
+    }
+
+    if (node.isBinary()) {
+      return node.asText();
+    }
+
+    return null;
+  }
+
+  /**
+   * Js object over json object.
+   */
+  @NotThreadSafe
+  private static final class JsonObjectProxy implements ProxyObject {
+
+    /**
+     * Json object.
+     */
+    private final JsonNode node;
+
+    /**
+     * Members converted so far.
+     */
+    private final Map<String, Object> converted = new HashMap<>();
+
+    /**
+     * Basic constructor.
+     * @param node json object
+     */
+    private JsonObjectProxy(@NotNull final JsonNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public Object getMember(final String key) {
+      JsonNode member = node.get(key);
+
+      if (member == null || !member.isContainerNode()) {
+        return toJs(member);
+      }
+
+      return converted.computeIfAbsent(key, k -> toJs(member));
+    }
+
+    @Override
+    public Object getMemberKeys() {
+      List<Object> keys = new ArrayList<>(node.size());
+      Iterator<String> names = node.fieldNames();
+      while (names.hasNext()) {
+        keys.add(names.next());
+      }
+      return ProxyArray.fromList(keys);
+    }
+
+    @Override
+    public boolean hasMember(final String key) {
+      return node.has(key);
+    }
+
+    @Override
+    public void putMember(final String key, final Value value) {
+      throw new UnsupportedOperationException("Input is read-only");
+    }
+
+    @Override
+    public boolean removeMember(final String key) {
+      throw new UnsupportedOperationException("Input is read-only");
+    }
+  }
+
+  /**
+   * Js array over json array.
+   */
+  @NotThreadSafe
+  private static final class JsonArrayProxy implements ProxyArray {
+
+    /**
+     * Json array.
+     */
+    private final JsonNode node;
+
+    /**
+     * Containers converted so far, by index.
+     */
+    private final Map<Integer, Object> converted = new HashMap<>();
+
+    /**
+     * Basic constructor.
+     * @param node json array
+     */
+    private JsonArrayProxy(@NotNull final JsonNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public Object get(final long index) {
+      if (index < 0 || index >= node.size()) {
+        throw new ArrayIndexOutOfBoundsException((int) index);
+      }
+
+      JsonNode element = node.get((int) index);
+
+      if (!element.isContainerNode()) {
+        return toJs(element);
+      }
+
+      return converted.computeIfAbsent((int) index, i -> toJs(element));
+    }
+
+    @Override
+    public void set(final long index, final Value value) {
+      throw new UnsupportedOperationException("Input is read-only");
+    }
+
+    @Override
+    public long getSize() {
+      return node.size();
+    }
+  }
+}
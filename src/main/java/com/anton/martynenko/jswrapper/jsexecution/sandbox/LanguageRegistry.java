@@ -0,0 +1,116 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.Engine;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Languages executions can be written in: configured ones which are installed into GraalVM, except languages
+ * of binaries like WebAssembly, whose modules are uploaded and called by js scripts instead.
+ * Every js worker has one polyglot engine for all of them, so contexts of one language share its parsed sources
+ * and compiled code whatever other languages run on the worker. Bindings of the sandbox are made by js,
+ * so js is always installed and permitted in contexts of other languages too.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@Immutable
+public final class LanguageRegistry {
+
+  /**
+   * Language of executions which don't choose one.
+   */
+  public static final String DEFAULT_LANGUAGE = "js";
+
+  /**
+   * Languages whose sources are binaries, WebAssembly modules and LLVM bitcode, text of script can't be one.
+   */
+  private static final Set<String> BINARY_LANGUAGES = Collections.unmodifiableSet(
+      new TreeSet<>(Arrays.asList("llvm", "wasm")));
+
+  /**
+   * Installed language ids in alphabetical order.
+   */
+  private final Set<String> installed;
+
+  /**
+   * Supported language ids in alphabetical order.
+   */
+  private final Set<String> languages;
+
+  /**
+   * Basic constructor, looks up installed languages.
+   * @param configured language ids to support, every installed script language if empty
+   */
+
+  LanguageRegistry(@NotNull final Collection<String> configured) {
+    Set<String> installed;
+
+    try (Engine engine = Engine.newBuilder().option("engine.WarnInterpreterOnly", "false").build()) {
+      installed = new TreeSet<>(engine.getLanguages().keySet());
+    }
+
+    if (!installed.contains(DEFAULT_LANGUAGE)) {
+      throw new IllegalStateException("GraalVM javascript is not installed");
+    }
+
+    Set<String> supported = new TreeSet<>();
+
+    if (configured.isEmpty()) {
+      supported.addAll(installed);
+      supported.removeAll(BINARY_LANGUAGES);
+    } else {
+      for (String language : configured) {
+        if (BINARY_LANGUAGES.contains(language)) {
+          log.warn("Language {} runs binaries, not scripts, and won't be accepted", language);
+        } else if (installed.contains(language)) {
+          supported.add(language);
+        } else {
+          log.warn("Language {} is not installed and won't be accepted, installed ones are {}", language, installed);
+        }
+      }
+    }
+
+    this.installed = Collections.unmodifiableSet(installed);
+    this.languages = Collections.unmodifiableSet(supported);
+  }
+
+  /**
+   * Check that executions can be written in the language.
+   * @param language language id
+   * @return true if language is configured and installed
+   */
+
+  public boolean isSupported(@NotNull final String language) {
+    return languages.contains(language);
+  }
+
+  /**
+   * Check that the language is installed into GraalVM, whether scripts can be written in it or not.
+   * @param language language id
+   * @return true if language is installed
+   */
+
+  public boolean isInstalled(@NotNull final String language) {
+    return installed.contains(language);
+  }
+
+  /**
+   * Getter for property 'languages'.
+   *
+   * @return Value for property 'languages'.
+   */
+  @NotNull
+  public Set<String> getLanguages() {
+    return languages;
+  }
+}
@@ -0,0 +1,250 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import org.graalvm.polyglot.io.FileSystem;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AccessMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only file system of contexts holding nothing but registered modules.
+ * Modules are files of {@link #ROOT} directory, relative paths and bare import specifiers are resolved against it,
+ * so <code>'validation'</code>, <code>'./validation.mjs'</code> and <code>'/modules/validation.mjs'</code>
+ * all import module <code>validation</code>. Scripts can't reach any other file of the host.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+final class ModuleFileSystem implements FileSystem {
+
+  /**
+   * Directory of modules.
+   */
+  static final Path ROOT = Paths.get("/modules");
+
+  /**
+   * Extension module file may have.
+   */
+  static final String EXTENSION = ".mjs";
+
+  /**
+   * Modules served by this file system.
+   */
+  private final ModuleRegistry moduleRegistry;
+
+  /**
+   * Basic constructor.
+   * @param moduleRegistry modules served by this file system
+   */
+
+  ModuleFileSystem(@NotNull final ModuleRegistry moduleRegistry) {
+    this.moduleRegistry = moduleRegistry;
+  }
+
+  @Override
+  public Path parsePath(@NotNull final URI uri) {
+    if (!"file".equals(uri.getScheme())) {
+      throw new UnsupportedOperationException("Only modules can be imported");
+    }
+
+    return Paths.get(uri.getPath());
+  }
+
+  @Override
+  public Path parsePath(@NotNull final String path) {
+    //engine parses paths of language homes too, parsing doesn't give any access
+    return Paths.get(path);
+  }
+
+  @Override
+  public void checkAccess(@NotNull final Path path, @NotNull final Set<? extends AccessMode> modes,
+                          @NotNull final LinkOption... linkOptions) throws IOException {
+    module(path);
+
+    if (modes.contains(AccessMode.WRITE) || modes.contains(AccessMode.EXECUTE)) {
+      throw new AccessDeniedException(path.toString());
+    }
+  }
+
+  @Override
+  public void createDirectory(@NotNull final Path dir, @NotNull final FileAttribute<?>... attrs) throws IOException {
+    throw new AccessDeniedException(dir.toString());
+  }
+
+  @Override
+  public void delete(@NotNull final Path path) throws IOException {
+    throw new AccessDeniedException(path.toString());
+  }
+
+  @Override
+  public SeekableByteChannel newByteChannel(@NotNull final Path path, @NotNull final Set<? extends OpenOption> options,
+                                            @NotNull final FileAttribute<?>... attrs) throws IOException {
+    for (OpenOption option : options) {
+      if (option != StandardOpenOption.READ) {
+        throw new AccessDeniedException(path.toString());
+      }
+    }
+
+    return new ModuleChannel(module(path).getBytes());
+  }
+
+  @Override
+  public DirectoryStream<Path> newDirectoryStream(@NotNull final Path dir,
+                                                  @NotNull final DirectoryStream.Filter<? super Path> filter)
+      throws IOException {
+    throw new AccessDeniedException(dir.toString());
+  }
+
+  @Override
+  public Path toAbsolutePath(@NotNull final Path path) {
+    return ROOT.resolve(path).normalize();
+  }
+
+  @Override
+  public Path toRealPath(@NotNull final Path path, @NotNull final LinkOption... linkOptions) {
+    return toAbsolutePath(path);
+  }
+
+  @Override
+  public Map<String, Object> readAttributes(@NotNull final Path path, @NotNull final String attributes,
+                                            @NotNull final LinkOption... options) throws IOException {
+    ScriptModule module = module(path);
+    FileTime registered = FileTime.from(module.getRegisteredTime().toInstant());
+
+    Map<String, Object> basic = new HashMap<>();
+    basic.put("size", (long) module.getSize());
+    basic.put("lastModifiedTime", registered);
+    basic.put("lastAccessTime", registered);
+    basic.put("creationTime", registered);
+    basic.put("isRegularFile", true);
+    basic.put("isDirectory", false);
+    basic.put("isSymbolicLink", false);
+    basic.put("isOther", false);
+    basic.put("fileKey", null);
+
+    return basic;
+  }
+
+  /**
+   * Registered module of the path.
+   * @param path path of module file
+   * @return module
+   * @throws NoSuchFileException if path is not a file of registered module
+   */
+  @NotNull
+  private ScriptModule module(@NotNull final Path path) throws NoSuchFileException {
+    Path absolute = toAbsolutePath(path);
+    ScriptModule module = null;
+
+    if (ROOT.equals(absolute.getParent())) {
+      String name = absolute.getFileName().toString();
+      module = moduleRegistry.find(name.endsWith(EXTENSION)
+          ? name.substring(0, name.length() - EXTENSION.length())
+          : name);
+    }
+
+    if (module == null) {
+      throw new NoSuchFileException(path.toString());
+    }
+
+    return module;
+  }
+
+  /**
+   * Read-only channel over code of module.
+   */
+  private static final class ModuleChannel implements SeekableByteChannel {
+
+    /**
+     * Module code, never changed.
+     */
+    private final byte[] bytes;
+
+    /**
+     * Position of next read.
+     */
+    private long position;
+
+    /**
+     * Set when channel is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Basic constructor.
+     * @param bytes module code
+     */
+    private ModuleChannel(@NotNull final byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int read(@NotNull final ByteBuffer dst) {
+      if (position >= bytes.length) {
+        return -1;
+      }
+
+      int read = (int) Math.min(dst.remaining(), bytes.length - position);
+      dst.put(bytes, (int) position, read);
+      position += read;
+
+      return read;
+    }
+
+    @Override
+    public int write(@NotNull final ByteBuffer src) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() {
+      return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(final long newPosition) {
+      this.position = newPosition;
+      return this;
+    }
+
+    @Override
+    public long size() {
+      return bytes.length;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !closed;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.anton.martynenko.jswrapper.jsexecution.problem.ScriptModuleNotFoundProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ScriptModuleRejectedProblem;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * ES modules registered on this node, shared by all executions. Scripts posted as ES modules import them by name,
+ * {@link ModuleFileSystem} serves their code to the engines. Engine keeps parsed sources by their content,
+ * so a module is parsed once by each js worker engine and reused by all its contexts until it is registered again
+ * with another code.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+public final class ModuleRegistry {
+
+  /**
+   * Names which can't escape module root: no slashes and no dots.
+   */
+  private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]{0,63}");
+
+  /**
+   * Modules by name, read by engines without locking.
+   */
+  private final Map<String, ScriptModule> modules = new ConcurrentHashMap<>();
+
+  /**
+   * Size limit of one module.
+   */
+  private final int maxModuleBytes;
+
+  /**
+   * Limit of amount of modules.
+   */
+  private final int maxModules;
+
+  /**
+   * Basic constructor.
+   * @param maxModuleBytes size limit of one module
+   * @param maxModules limit of amount of modules
+   */
+
+  ModuleRegistry(final int maxModuleBytes, final int maxModules) {
+    this.maxModuleBytes = maxModuleBytes;
+    this.maxModules = maxModules;
+  }
+
+  /**
+   * Register module or replace module of the same name. Running executions keep code they have imported.
+   * @param name name scripts import module by
+   * @param code module code
+   * @return registered module
+   */
+
+  @NotNull
+  public ScriptModule register(@NotNull final String name, @NotNull final String code) {
+    if (!NAME.matcher(name).matches()) {
+      throw new ScriptModuleRejectedProblem(
+          "Module name must be up to 64 letters, digits, '_' or '-' starting with letter or digit");
+    }
+
+    if (code.getBytes(StandardCharsets.UTF_8).length > maxModuleBytes) {
+      throw new ScriptModuleRejectedProblem(String.format("Module is limited to %d bytes", maxModuleBytes));
+    }
+
+    ScriptModule module = new ScriptModule(name, code);
+
+    synchronized (this) {
+      if (!modules.containsKey(name) && modules.size() >= maxModules) {
+        throw new ScriptModuleRejectedProblem(
+            String.format("Modules are limited to %d, delete some first", maxModules));
+      }
+
+      modules.put(name, module);
+    }
+
+    log.info("ScriptModule '{}' of {} bytes registered", name, module.getSize());
+
+    return module;
+  }
+
+  /**
+   * Module by name.
+   * @param name module name
+   * @return module
+   */
+
+  @NotNull
+  public ScriptModule get(@NotNull final String name) {
+    ScriptModule module = modules.get(name);
+
+    if (module == null) {
+      throw new ScriptModuleNotFoundProblem(name);
+    }
+
+    return module;
+  }
+
+  /**
+   * All modules in name order.
+   * @return snapshot of modules
+   */
+
+  @NotNull
+  public Collection<ScriptModule> findAll() {
+    return new ArrayList<>(new TreeMap<>(modules).values());
+  }
+
+  /**
+   * Forget module, running executions keep code they have imported.
+   * @param name module name
+   */
+
+  public void delete(@NotNull final String name) {
+    //synchronized with register, so the limit is never exceeded
+    synchronized (this) {
+      if (modules.remove(name) == null) {
+        throw new ScriptModuleNotFoundProblem(name);
+      }
+    }
+
+    log.info("ScriptModule '{}' deleted", name);
+  }
+
+  /**
+   * Module by name for engines, missing module is a failure of the importing script, not of the request.
+   * @param name module name
+   * @return module or null if there is none
+   */
+
+  ScriptModule find(@NotNull final String name) {
+    return modules.get(name);
+  }
+}
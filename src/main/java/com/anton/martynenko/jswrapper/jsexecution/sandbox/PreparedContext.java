@@ -0,0 +1,142 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import org.graalvm.polyglot.Context;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Js context with prelude scripts already evaluated, waiting for the execution it is attached to.
+ * Context is used by one execution only, so scripts never see globals left by each other.
+ * Logs of execution are not known while context is built, so its output goes through streams
+ * redirected on attaching, output of prelude itself is dropped.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@NotThreadSafe
+public final class PreparedContext implements AutoCloseable {
+
+  /**
+   * Sandbox which built the context.
+   */
+  private final JsSandbox sandbox;
+
+  /**
+   * Context with prelude.
+   */
+  private final Context context;
+
+  /**
+   * Execution log of the context.
+   */
+  private final RedirectedOutputStream out;
+
+  /**
+   * Error log of the context.
+   */
+  private final RedirectedOutputStream err;
+
+  /**
+   * Time spent evaluating prelude.
+   */
+  private final long preludeNanos;
+
+  /**
+   * Basic constructor.
+   * @param sandbox sandbox which built the context
+   * @param context context with prelude
+   * @param out execution log of the context
+   * @param err error log of the context
+   * @param preludeNanos time spent evaluating prelude
+   */
+
+  PreparedContext(@NotNull final JsSandbox sandbox, @NotNull final Context context,
+                  @NotNull final RedirectedOutputStream out, @NotNull final RedirectedOutputStream err,
+                  final long preludeNanos) {
+    this.sandbox = sandbox;
+    this.context = context;
+    this.out = out;
+    this.err = err;
+    this.preludeNanos = preludeNanos;
+  }
+
+  /**
+   * Give context to execution.
+   * @param executionLog execution log of the script
+   * @param errorLog error log of the script
+   * @return context writing to the logs of the script
+   */
+
+  @NotNull
+  public Context attach(@NotNull final OutputStream executionLog, @NotNull final OutputStream errorLog) {
+    out.target = executionLog;
+    err.target = errorLog;
+    return context;
+  }
+
+  /**
+   * Getter for property 'sandbox'.
+   *
+   * @return Value for property 'sandbox'.
+   */
+  @NotNull
+  public JsSandbox getSandbox() {
+    return sandbox;
+  }
+
+  /**
+   * Getter for property 'preludeNanos'.
+   *
+   * @return Value for property 'preludeNanos'.
+   */
+  public long getPreludeNanos() {
+    return preludeNanos;
+  }
+
+  /**
+   * Close context which won't be attached.
+   */
+  @Override
+  public void close() {
+    context.close();
+  }
+
+  /**
+   * Output stream writing to the stream set later, bytes written before are dropped.
+   */
+  static final class RedirectedOutputStream extends OutputStream {
+
+    /**
+     * Current target, null until context is attached.
+     */
+    private volatile OutputStream target;
+
+    @Override
+    public void write(final int b) throws IOException {
+      OutputStream current = target;
+      if (current != null) {
+        current.write(b);
+      }
+    }
+
+    @Override
+    public void write(@NotNull final byte[] b, final int off, final int len) throws IOException {
+      OutputStream current = target;
+      if (current != null) {
+        current.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      OutputStream current = target;
+      if (current != null) {
+        current.flush();
+      }
+    }
+  }
+}
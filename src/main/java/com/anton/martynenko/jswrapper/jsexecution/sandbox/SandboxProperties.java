@@ -0,0 +1,105 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.HostAccessProfile;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Configuration of {@link JsSandbox}, bound from <code>jswrapper.sandbox.*</code> properties.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "jswrapper.sandbox")
+public class SandboxProperties {
+
+  /**
+   * Host access of all contexts.
+   */
+  private HostAccessProfile profile = HostAccessProfile.EXPLICIT;
+
+  /**
+   * Languages executions can be written in, every installed one if empty.
+   */
+  private Set<String> languages = new LinkedHashSet<>();
+
+  /**
+   * Bind Java helpers as <code>host</code> object, ignored by {@link HostAccessProfile#NONE} profile.
+   */
+  private boolean helpers = true;
+
+  /**
+   * Size limit of binary input of execution.
+   */
+  private long maxBinaryInputBytes = 64L * 1024 * 1024;
+
+  /**
+   * Size limit of binary output of execution.
+   */
+  private long maxBinaryOutputBytes = 64L * 1024 * 1024;
+
+  /**
+   * Time binary output is kept after execution is finished.
+   */
+  private long binaryOutputTtlMillis = 10 * 60 * 1000;
+
+  /**
+   * Size of chunks streaming execution reads from request.
+   */
+  private int streamChunkBytes = 8 * 1024;
+
+  /**
+   * Amount of chunks streaming execution queues in each direction before the other side has to wait.
+   */
+  private int streamQueueChunks = 16;
+
+  /**
+   * Time streaming script waits for the client to send input or to take output.
+   */
+  private long streamIdleTimeoutMillis = 60_000;
+
+  /**
+   * Limit of chunked streaming requests read at once, each of them takes a reader thread.
+   */
+  private int maxStreamReaders = 64;
+
+  /**
+   * Size limit of one registered ES module.
+   */
+  private int maxModuleBytes = 1024 * 1024;
+
+  /**
+   * Limit of amount of registered ES modules.
+   */
+  private int maxModules = 1024;
+
+  /**
+   * Locations of js prelude scripts, like <code>classpath:prelude/validation.js</code> or
+   * <code>file:/opt/jswrapper/format.js</code>, evaluated in listed order into context of every js execution.
+   * Prelude is evaluated before <code>host</code>, <code>input</code> and other bindings are bound,
+   * its functions can use them when called by the script.
+   */
+  private List<String> prelude = new ArrayList<>();
+
+  /**
+   * Report format of profiled executions: <code>histogram</code> of hotspots, <code>calltree</code>,
+   * <code>json</code> or <code>flamegraph</code> svg.
+   */
+  private String profileOutput = "histogram";
+
+  /**
+   * Sampling period of profiled executions.
+   */
+  private long profilePeriodMillis = 10;
+}
@@ -0,0 +1,70 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.Immutable;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+
+/**
+ * Registered ES module which scripts import by name, e.g. <code>import { check } from 'validation'</code>.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Immutable
+public final class ScriptModule {
+
+  /**
+   * Name scripts import module by.
+   */
+  private final String name;
+
+  /**
+   * Module code.
+   */
+  @JsonIgnore
+  private final String code;
+
+  /**
+   * Module code in UTF-8, read by engines importing the module.
+   */
+  @Getter(AccessLevel.PACKAGE)
+  private final byte[] bytes;
+
+  /**
+   * Registration time.
+   */
+  @JsonProperty("Registered at")
+  @JsonFormat(shape = JsonFormat.Shape.STRING)
+  private final ZonedDateTime registeredTime;
+
+  /**
+   * Basic constructor.
+   * @param name name scripts import module by
+   * @param code module code
+   */
+
+  ScriptModule(@NotNull final String name, @NotNull final String code) {
+    this.name = name;
+    this.code = code;
+    this.bytes = code.getBytes(StandardCharsets.UTF_8);
+    this.registeredTime = ZonedDateTime.now();
+  }
+
+  /**
+   * Size of module code.
+   * @return size in bytes
+   */
+
+  public int getSize() {
+    return bytes.length;
+  }
+}
@@ -0,0 +1,525 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.anton.martynenko.jswrapper.jsexecution.problem.StreamingNotAvailableProblem;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Streaming channel between http exchange and running script.
+ * Request body is read without blocking as container delivers it and queued by chunks, script takes them one by one.
+ * Reading stops while the queue is full and goes on when script takes a chunk, so the client can't send faster
+ * than script consumes. Text written by script is queued the same way and written to response as it comes,
+ * script waits while the client doesn't read.
+ * Chunked request body is read blocking by a thread of bounded reader pool instead, non-blocking chunked reading
+ * of Tomcat 9.0.63 fails with "Invalid chunk header" when CRLF closing a chunk comes in a separate packet.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@ThreadSafe
+public final class ScriptStream implements ReadListener {
+
+  /**
+   * Marker of the end of queue.
+   */
+  private static final byte[] END = new byte[0];
+
+  /**
+   * Time writer waits for output before checking if the stream is finished.
+   */
+  private static final long OUTPUT_POLL_MILLIS = 100;
+
+  /**
+   * Size of chunks read from request.
+   */
+  private final int chunkBytes;
+
+  /**
+   * Amount of chunks queued in each direction.
+   */
+  private final int queueChunks;
+
+  /**
+   * Time script and writer wait for each other.
+   */
+  private final long idleTimeoutMillis;
+
+  /**
+   * Pool of threads reading request bodies blocking.
+   */
+  private final ExecutorService readers;
+
+  /**
+   * Request chunks waiting for script, the end marker is not counted by the limit.
+   */
+  private final BlockingQueue<byte[]> input = new LinkedBlockingQueue<>();
+
+  /**
+   * Output chunks waiting for response.
+   */
+  private final BlockingQueue<byte[]> output;
+
+  /**
+   * Request body, null until reading is started.
+   */
+  @GuardedBy("this")
+  private ServletInputStream in;
+
+  /**
+   * Set when reading is stopped because the queue is full.
+   */
+  @GuardedBy("this")
+  private boolean paused;
+
+  /**
+   * Request body read blocking, null if body is read without blocking.
+   */
+  @GuardedBy("this")
+  private InputStream blockingIn;
+
+  /**
+   * Task reading request body blocking, null if body is read without blocking.
+   */
+  @GuardedBy("this")
+  private Future<?> reader;
+
+  /**
+   * Set when the whole request body is read.
+   */
+  @GuardedBy("this")
+  private boolean inputComplete;
+
+  /**
+   * Failure of reading request body.
+   */
+  private volatile Throwable inputError;
+
+  /**
+   * Set when execution is finished, nothing is read or written anymore.
+   */
+  private volatile boolean finished;
+
+  /**
+   * Set when response can't be written anymore.
+   */
+  private volatile boolean outputBroken;
+
+  /**
+   * Decoder of request body, used by script thread only.
+   */
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  /**
+   * Bytes of character split between chunks, used by script thread only.
+   */
+  private ByteBuffer undecoded = ByteBuffer.allocate(0);
+
+  /**
+   * Set when script has taken the end of input, used by script thread only.
+   */
+  private boolean inputTaken;
+
+  /**
+   * Basic constructor.
+   * @param chunkBytes size of chunks read from request
+   * @param queueChunks amount of chunks queued in each direction
+   * @param idleTimeoutMillis time script and writer wait for each other
+   * @param readers pool of threads reading request bodies blocking
+   */
+
+  ScriptStream(final int chunkBytes, final int queueChunks, final long idleTimeoutMillis,
+               @NotNull final ExecutorService readers) {
+    if (chunkBytes <= 0 || queueChunks <= 0) {
+      throw new IllegalArgumentException("Stream chunks and queue must not be empty");
+    }
+
+    this.chunkBytes = chunkBytes;
+    this.queueChunks = queueChunks;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.readers = readers;
+    this.output = new LinkedBlockingQueue<>(queueChunks);
+  }
+
+  /**
+   * Start reading request body. Request must be in async mode.
+   * @param requestBody body of request in async mode
+   */
+
+  public void readFrom(@NotNull final ServletInputStream requestBody) {
+    synchronized (this) {
+      this.in = requestBody;
+    }
+
+    //container calls onDataAvailable right away if something is there already
+    requestBody.setReadListener(this);
+  }
+
+  /**
+   * Start reading request body blocking by a reader thread, the way for chunked body.
+   * Reader waits while the queue is full and stops when execution is finished or body is read,
+   * {@link #writeTo(OutputStream)} waits for it to stop up to idle timeout.
+   * @param requestBody body of request
+   * @throws StreamingNotAvailableProblem if all reader threads are busy
+   */
+
+  public void readBlockingFrom(@NotNull final InputStream requestBody) {
+    synchronized (this) {
+      blockingIn = requestBody;
+
+      try {
+        reader = readers.submit(() -> pump(requestBody));
+      } catch (RejectedExecutionException e) {
+        blockingIn = null;
+        throw new StreamingNotAvailableProblem();
+      }
+    }
+  }
+
+  @Override
+  public void onDataAvailable() {
+    drain();
+  }
+
+  @Override
+  public void onAllDataRead() {
+    synchronized (this) {
+      inputComplete = true;
+    }
+
+    input.add(END);
+  }
+
+  @Override
+  public void onError(@NotNull final Throwable t) {
+    inputError = t;
+    input.add(END);
+  }
+
+  /**
+   * Write script output to response as it comes, until execution is finished and everything is written.
+   * Response is flushed whenever script has nothing more for now, so the client gets output without delay.
+   * Returns only after blocking reader is stopped, request must not be completed while it reads,
+   * reader still blocked after idle timeout is interrupted and its input is closed.
+   * @param out response body
+   * @throws IOException if response can't be written, e.g. the client is gone
+   */
+
+  public void writeTo(@NotNull final OutputStream out) throws IOException {
+    try {
+      while (true) {
+        byte[] chunk = output.poll(OUTPUT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+        if (chunk == null) {
+          //finished script doesn't add anything, but let's take what it added just before
+          if (finished && output.isEmpty()) {
+            return;
+          }
+          continue;
+        }
+
+        out.write(chunk);
+
+        if (output.isEmpty()) {
+          out.flush();
+        }
+      }
+    } catch (IOException e) {
+      outputBroken = true;
+      output.clear();
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      outputBroken = true;
+      output.clear();
+      throw new IOException("Streaming of output is interrupted", e);
+    } finally {
+      awaitReader();
+    }
+  }
+
+  /**
+   * Stop the stream when execution is finished: stop reading, drop unread input and let the writer finish.
+   * Request body read blocking is closed, so reader doesn't wait for the client anymore.
+   */
+
+  public void finish() {
+    finished = true;
+    input.clear();
+
+    InputStream body;
+
+    synchronized (this) {
+      //reader waiting for room in the queue stops
+      notifyAll();
+      body = blockingIn;
+    }
+
+    close(body);
+  }
+
+  /**
+   * Take next text of request body, waiting for it if the client hasn't sent it yet. Called by script thread.
+   * @return text of one or more chunks, or null at the end of request body
+   */
+
+  String read() {
+    if (inputTaken) {
+      return null;
+    }
+
+    while (true) {
+      byte[] chunk;
+
+      try {
+        chunk = input.poll(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        //cancelled execution, let the script stop
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Reading of input is interrupted");
+      }
+
+      if (chunk == null) {
+        throw new IllegalStateException("No input came for " + idleTimeoutMillis + " ms");
+      }
+
+      if (chunk == END) {
+        if (inputError != null) {
+          throw new IllegalStateException("Input can't be read: " + inputError.getMessage());
+        }
+
+        inputTaken = true;
+        String rest = decode(ByteBuffer.allocate(0), true);
+        return rest.isEmpty() ? null : rest;
+      }
+
+      resume();
+
+      String text = decode(ByteBuffer.wrap(chunk), false);
+
+      //chunk could hold just a part of one character
+      if (!text.isEmpty()) {
+        return text;
+      }
+    }
+  }
+
+  /**
+   * Queue text for response, waiting while the queue is full. Called by script thread.
+   * @param text script output
+   */
+
+  void write(@NotNull final String text) {
+    if (outputBroken || finished) {
+      throw new IllegalStateException("Output stream is closed");
+    }
+
+    if (text.isEmpty()) {
+      return;
+    }
+
+    try {
+      if (!output.offer(text.getBytes(StandardCharsets.UTF_8), idleTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new IllegalStateException("Output isn't taken by the client for " + idleTimeoutMillis + " ms");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Writing of output is interrupted");
+    }
+
+    //writer could fail while we were waiting
+    if (outputBroken) {
+      output.clear();
+      throw new IllegalStateException("Output stream is closed");
+    }
+  }
+
+  /**
+   * Read whatever container has without blocking while the queue has room.
+   * Container and script thread never drain at once.
+   */
+  private synchronized void drain() {
+    try {
+      while (!finished && !inputComplete && in != null) {
+        if (input.size() >= queueChunks) {
+          //container won't call us while we don't read, script resumes reading when it takes a chunk
+          paused = true;
+          return;
+        }
+
+        //false registers interest, container calls onDataAvailable when more data comes
+        if (!in.isReady()) {
+          return;
+        }
+
+        byte[] buffer = new byte[chunkBytes];
+        int read = in.read(buffer);
+
+        if (read < 0) {
+          //onAllDataRead follows
+          return;
+        }
+
+        if (read > 0) {
+          input.add(read == chunkBytes ? buffer : Arrays.copyOf(buffer, read));
+        }
+      }
+    } catch (IOException e) {
+      onError(e);
+    }
+  }
+
+  /**
+   * Read request body blocking while execution isn't finished, waiting while the queue is full.
+   * Used by reader thread only, a read blocked on the client is bounded by connector's read timeout.
+   * @param requestBody body of request
+   */
+  private void pump(@NotNull final InputStream requestBody) {
+    try {
+      while (true) {
+        synchronized (this) {
+          while (!finished && input.size() >= queueChunks) {
+            //script notifies when it takes a chunk
+            wait(OUTPUT_POLL_MILLIS);
+          }
+        }
+
+        if (finished) {
+          return;
+        }
+
+        byte[] buffer = new byte[chunkBytes];
+        int read = requestBody.read(buffer);
+
+        if (read < 0) {
+          onAllDataRead();
+          return;
+        }
+
+        if (read > 0) {
+          input.add(read == chunkBytes ? buffer : Arrays.copyOf(buffer, read));
+        }
+      }
+    } catch (IOException e) {
+      onError(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      onError(e);
+    }
+  }
+
+  /**
+   * Wait until blocking reader stops, if there is one, but not longer than idle timeout.
+   * Reader which doesn't stop in time is interrupted and its input is closed.
+   */
+  private void awaitReader() {
+    Future<?> task;
+    InputStream body;
+
+    synchronized (this) {
+      task = reader;
+      body = blockingIn;
+    }
+
+    if (task == null) {
+      return;
+    }
+
+    try {
+      task.get(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      //pump reports its failures to script by itself
+    } catch (TimeoutException e) {
+      task.cancel(true);
+      close(body);
+    } catch (InterruptedException e) {
+      task.cancel(true);
+      close(body);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Close request body read blocking, ignoring failures.
+   * @param body request body, nothing is done if null
+   */
+  private static void close(final InputStream body) {
+    if (body == null) {
+      return;
+    }
+
+    try {
+      body.close();
+    } catch (IOException e) {
+      //reader gets failure on its next read anyway
+    }
+  }
+
+  /**
+   * Go on reading if it was stopped by the full queue. Called by script thread after it takes a chunk.
+   */
+  private void resume() {
+    boolean wasPaused;
+
+    synchronized (this) {
+      //blocking reader waits for room in the queue
+      notifyAll();
+
+      wasPaused = paused && input.size() < queueChunks;
+      if (wasPaused) {
+        paused = false;
+      }
+    }
+
+    if (wasPaused) {
+      drain();
+    }
+  }
+
+  /**
+   * Decode chunk together with bytes left from the previous one.
+   * @param chunk next bytes
+   * @param endOfInput true if there are no more bytes
+   * @return decoded text
+   */
+  @NotNull
+  private String decode(@NotNull final ByteBuffer chunk, final boolean endOfInput) {
+    ByteBuffer bytes = ByteBuffer.allocate(undecoded.remaining() + chunk.remaining());
+    bytes.put(undecoded).put(chunk).flip();
+
+    CharBuffer chars = CharBuffer.allocate((int) (bytes.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+    decoder.decode(bytes, chars, endOfInput);
+
+    if (endOfInput) {
+      decoder.flush(chars);
+    }
+
+    undecoded = bytes.slice();
+    chars.flip();
+
+    return chars.toString();
+  }
+}
@@ -0,0 +1,8 @@
+/**
+ * This package contains sandbox of JS contexts: host access profiles and helpers implemented in Java,
+ * bound into contexts for scripts to call.
+ * @since 1.3
+ * @author Martynenko Anton
+ */
+
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
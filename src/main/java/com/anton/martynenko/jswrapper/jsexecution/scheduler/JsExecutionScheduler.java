@@ -0,0 +1,598 @@
+package com.anton.martynenko.jswrapper.jsexecution.scheduler;
+
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorkerPool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Admission scheduler standing in front of {@link JsWorkerPool}.
+ * Executions wait in per-tenant queues split by {@link Priority} lanes. Lanes are served strictly by priority,
+ * inside of a lane tenants are served by weighted fair queuing (stride scheduling), so one flooding client
+ * can't starve others. Only limited amount of executions is handed to the pool at once.
+ * Only tenants having queued or running executions are kept, amount of them is limited, executions of keys
+ * beyond the limit go to the default tenant. Api keys are never used as metric tags, tenants are tagged by hash.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+@Component
+public class JsExecutionScheduler {
+
+  /**
+   * Pool running admitted executions.
+   */
+  private final JsWorkerPool jsWorkerPool;
+
+  /**
+   * Scheduler configuration.
+   */
+  private final JsExecutionSchedulerProperties properties;
+
+  /**
+   * Registry for per-tenant metrics.
+   */
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Maximum amount of executions handed to the pool at once.
+   */
+  private final int maxInFlight;
+
+  /**
+   * Scheduler state lock.
+   */
+  private final Object lock = new Object();
+
+  /**
+   * Active tenants by api key.
+   */
+  @GuardedBy("lock")
+  private final Map<String, Tenant> tenants = new HashMap<>();
+
+  /**
+   * Admissions of tasks being run, by thread running them.
+   */
+  @GuardedBy("lock")
+  private final Map<Thread, Admission> admissions = new HashMap<>();
+
+  /**
+   * Amount of executions handed to the pool and not finished yet.
+   */
+  @GuardedBy("lock")
+  private volatile int inFlight;
+
+  /**
+   * Pass of the last served tenant. Tenant becoming active again starts from here, so it can't save up turns while idle.
+   */
+  @GuardedBy("lock")
+  private double virtualTime;
+
+  /**
+   * Basic constructor.
+   * @param jsWorkerPool pool running admitted executions
+   * @param properties scheduler configuration
+   * @param meterRegistry registry for per-tenant metrics
+   */
+
+  public JsExecutionScheduler(@NotNull final JsWorkerPool jsWorkerPool,
+                              @NotNull final JsExecutionSchedulerProperties properties,
+                              @NotNull final MeterRegistry meterRegistry) {
+    this.jsWorkerPool = jsWorkerPool;
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.maxInFlight = properties.getMaxInFlight() > 0 ? properties.getMaxInFlight() : jsWorkerPool.getSize() * 2;
+
+    Gauge.builder("jswrapper.scheduler.inflight", this, JsExecutionScheduler::getInFlight)
+        .description("Executions handed to js worker pool")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Put task into tenant's lane and dispatch whatever can be run now.
+   * @param task task to run
+   * @param tenantKey tenant api key
+   * @param priority task lane
+   * @return {@link Future} which can be used to check or cancel task, even while it is still queued
+   */
+
+  @NotNull
+  public Future<?> submit(@NotNull final Runnable task, @NotNull final String tenantKey, @NotNull final Priority priority) {
+    QueuedTask futureTask = new QueuedTask(task);
+
+    synchronized (lock) {
+      Tenant tenant = tenants.get(tenantKey);
+
+      if (tenant == null) {
+        //unknown keys can't grow tenants without bound, the rest of them shares the default tenant
+        String key = tenants.size() < properties.getMaxTenants() || isConfigured(tenantKey)
+            ? tenantKey
+            : HttpHeader.DEFAULT_TENANT;
+        tenant = tenants.computeIfAbsent(key, this::newTenant);
+      }
+
+      if (tenant.queued == 0 && tenant.running == 0) {
+        tenant.pass = Math.max(tenant.pass, virtualTime);
+      }
+
+      tenant.lanes.get(priority).addLast(futureTask);
+      tenant.queued++;
+
+      dispatch();
+    }
+
+    log.debug("Task of tenant {} queued in {} lane", tenantKey, priority);
+
+    return futureTask;
+  }
+
+  /**
+   * Take queued tasks away, so they can be run somewhere else. Tasks are taken from tails of the lowest lanes
+   * of tenants with the longest queues, they would wait here the longest. Futures of taken tasks are cancelled.
+   * @param max maximum amount of tasks
+   * @return taken tasks
+   * @since 1.3
+   */
+
+  @NotNull
+  public List<Runnable> steal(final int max) {
+    List<Runnable> stolen = new ArrayList<>();
+    Priority[] priorities = Priority.values();
+
+    synchronized (lock) {
+      for (int i = priorities.length - 1; i >= 0 && stolen.size() < max; i--) {
+        Tenant tenant;
+
+        while (stolen.size() < max && (tenant = pickLongestLane(priorities[i])) != null) {
+          QueuedTask task = tenant.lanes.get(priorities[i]).pollLast();
+          tenant.queued--;
+          evictIfIdle(tenant);
+
+          //task cancelled while queued is just dropped
+          if (task.cancel(false)) {
+            stolen.add(task.task);
+          }
+        }
+      }
+    }
+
+    log.debug("{} queued tasks are stolen", stolen.size());
+
+    return stolen;
+  }
+
+  /**
+   * Hand queued tasks to the pool while there are free slots.
+   */
+  @GuardedBy("lock")
+  private void dispatch() {
+    while (inFlight < maxInFlight) {
+      Tenant tenant = null;
+      QueuedTask task = null;
+
+      for (Priority priority : Priority.values()) {
+        tenant = pickTenant(priority);
+        if (tenant != null) {
+          task = tenant.lanes.get(priority).pollFirst();
+          break;
+        }
+      }
+
+      if (task == null) {
+        return;
+      }
+
+      tenant.queued--;
+      tenant.running++;
+      inFlight++;
+      virtualTime = tenant.pass;
+      tenant.pass += 1.0 / tenant.weight;
+
+      final Tenant owner = tenant;
+      final QueuedTask admitted = task;
+
+      try {
+        jsWorkerPool.submit(() -> runAndRelease(owner, admitted));
+      } catch (RejectedExecutionException e) {
+        log.error("Js worker pool rejected task of tenant {}", owner.key);
+        owner.running--;
+        inFlight--;
+        evictIfIdle(owner);
+
+        //task must not wait forever for the run which won't come, the next ones are refused all the same
+        admitted.reject(e);
+      }
+    }
+  }
+
+  /**
+   * Find tenant with the smallest pass having runnable work in the lane and not exceeding its concurrency limit.
+   * @param priority lane
+   * @return chosen tenant or null
+   */
+  @GuardedBy("lock")
+  private Tenant pickTenant(@NotNull final Priority priority) {
+    Tenant chosen = null;
+
+    for (Iterator<Tenant> iterator = tenants.values().iterator(); iterator.hasNext(); ) {
+      Tenant tenant = iterator.next();
+      Deque<QueuedTask> lane = tenant.lanes.get(priority);
+
+      //tasks cancelled while queued are dropped lazily
+      while (!lane.isEmpty() && lane.peekFirst().isCancelled()) {
+        lane.pollFirst();
+        tenant.queued--;
+      }
+
+      if (isIdle(tenant)) {
+        iterator.remove();
+        removeMeters(tenant);
+        continue;
+      }
+
+      if (lane.isEmpty() || (tenant.limit > 0 && tenant.running >= tenant.limit)) {
+        continue;
+      }
+
+      if (chosen == null || tenant.pass < chosen.pass) {
+        chosen = tenant;
+      }
+    }
+
+    return chosen;
+  }
+
+  /**
+   * Find tenant with the longest queue in the lane.
+   * @param priority lane
+   * @return chosen tenant or null if lane is empty
+   */
+  @GuardedBy("lock")
+  private Tenant pickLongestLane(@NotNull final Priority priority) {
+    Tenant chosen = null;
+
+    for (Tenant tenant : tenants.values()) {
+      int size = tenant.lanes.get(priority).size();
+
+      if (size > 0 && (chosen == null || size > chosen.lanes.get(priority).size())) {
+        chosen = tenant;
+      }
+    }
+
+    return chosen;
+  }
+
+  /**
+   * Free the slot of task run by thread which is given up on, e.g. js worker replaced because its script
+   * can't be stopped. Slot is given to the next task at once, the task itself keeps running on its own.
+   * @param thread thread running the task
+   * @return false if thread runs no admitted task or its slot is already free
+   * @since 1.3
+   */
+
+  public boolean release(@NotNull final Thread thread) {
+    synchronized (lock) {
+      Admission admission = admissions.get(thread);
+      return admission != null && release(admission);
+    }
+  }
+
+  /**
+   * Run admitted task and give its slot to the next one.
+   * @param tenant task owner
+   * @param task admitted task
+   */
+  private void runAndRelease(@NotNull final Tenant tenant, @NotNull final QueuedTask task) {
+    Admission admission = new Admission(tenant, Thread.currentThread());
+
+    synchronized (lock) {
+      admissions.put(admission.thread, admission);
+    }
+
+    try {
+      task.run();
+    } finally {
+      synchronized (lock) {
+        release(admission);
+      }
+    }
+  }
+
+  /**
+   * Give slot of admitted task to the next one, only once.
+   * @param admission admission of the task
+   * @return false if slot is already free
+   */
+  @GuardedBy("lock")
+  private boolean release(@NotNull final Admission admission) {
+    if (admission.released) {
+      return false;
+    }
+
+    admission.released = true;
+    admissions.remove(admission.thread, admission);
+    admission.tenant.running--;
+    inFlight--;
+    evictIfIdle(admission.tenant);
+    dispatch();
+
+    return true;
+  }
+
+  /**
+   * Create tenant state and register its metrics.
+   * @param key tenant api key
+   * @return new tenant
+   */
+  @GuardedBy("lock")
+  private Tenant newTenant(@NotNull final String key) {
+    int weight = Math.max(1, properties.getWeights().getOrDefault(key, properties.getDefaultWeight()));
+    int limit = properties.getConcurrencyLimits().getOrDefault(key, properties.getDefaultConcurrencyLimit());
+
+    Tenant tenant = new Tenant(key, weight, limit);
+    String tag = tenantTag(key);
+
+    tenant.meters.add(Gauge.builder("jswrapper.scheduler.tenant.queued", tenant, t -> t.queued)
+        .description("Executions of tenant waiting for admission")
+        .tag("tenant", tag)
+        .register(meterRegistry));
+
+    tenant.meters.add(Gauge.builder("jswrapper.scheduler.tenant.running", tenant, t -> t.running)
+        .description("Executions of tenant handed to js worker pool")
+        .tag("tenant", tag)
+        .register(meterRegistry));
+
+    log.debug("New tenant {} registered with weight {} and concurrency limit {}", tag, weight, limit);
+
+    return tenant;
+  }
+
+  /**
+   * Forget tenant which has nothing queued or running, together with its metrics.
+   * Tenant coming back starts from the current virtual time, as idle tenant does anyway.
+   * @param tenant tenant
+   */
+  @GuardedBy("lock")
+  private void evictIfIdle(@NotNull final Tenant tenant) {
+    if (isIdle(tenant) && tenants.remove(tenant.key, tenant)) {
+      removeMeters(tenant);
+    }
+  }
+
+  /**
+   * Shows if tenant has nothing queued or running.
+   * @param tenant tenant
+   * @return true if tenant is idle
+   */
+  @GuardedBy("lock")
+  private static boolean isIdle(@NotNull final Tenant tenant) {
+    return tenant.queued == 0 && tenant.running == 0;
+  }
+
+  /**
+   * Remove metrics of evicted tenant.
+   * @param tenant evicted tenant
+   */
+  private void removeMeters(@NotNull final Tenant tenant) {
+    tenant.meters.forEach(meterRegistry::remove);
+    log.debug("Idle tenant {} evicted", tenant.meters.get(0).getId().getTag("tenant"));
+  }
+
+  /**
+   * Shows if tenant has weight or concurrency limit configured.
+   * @param key tenant api key
+   * @return true if tenant is configured
+   */
+  private boolean isConfigured(@NotNull final String key) {
+    return properties.getWeights().containsKey(key) || properties.getConcurrencyLimits().containsKey(key);
+  }
+
+  /**
+   * Metric tag of tenant. Api key is a secret of the client, so tenant is tagged by short hash of it.
+   * @param key tenant api key
+   * @return hex prefix of SHA-256 of the key
+   */
+  @NotNull
+  static String tenantTag(@NotNull final String key) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+      StringBuilder tag = new StringBuilder();
+
+      for (int i = 0; i < 6; i++) {
+        tag.append(String.format("%02x", hash[i]));
+      }
+
+      return tag.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  /**
+   * Getter for property 'inFlight'.
+   *
+   * @return Value for property 'inFlight'.
+   */
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Getter for property 'maxInFlight'.
+   *
+   * @return Value for property 'maxInFlight'.
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * Amount of tenants having queued or running executions.
+   * @return active tenants amount
+   * @since 1.3
+   */
+  public int getTenants() {
+    synchronized (lock) {
+      return tenants.size();
+    }
+  }
+
+  /**
+   * Amount of executions waiting for admission.
+   * @return queued executions amount
+   */
+  public int getQueued() {
+    synchronized (lock) {
+      return tenants.values().stream().mapToInt(tenant -> tenant.queued).sum();
+    }
+  }
+
+  /**
+   * Future of queued task keeping the task itself, so it can be stolen.
+   */
+  private static final class QueuedTask extends FutureTask<Void> {
+
+    /**
+     * Submitted task.
+     */
+    private final Runnable task;
+
+    /**
+     * Basic constructor.
+     * @param task submitted task
+     */
+    private QueuedTask(@NotNull final Runnable task) {
+      super(task, null);
+      this.task = task;
+    }
+
+    /**
+     * Fail admitted task refused by the pool, {@link RejectableTask} is told about it.
+     * @param e rejection of the pool
+     */
+    private void reject(@NotNull final RejectedExecutionException e) {
+      if (task instanceof RejectableTask) {
+        ((RejectableTask) task).rejected(e);
+      }
+      setException(e);
+    }
+  }
+
+  /**
+   * Slot taken by task handed to the pool.
+   */
+  private static final class Admission {
+
+    /**
+     * Task owner.
+     */
+    private final Tenant tenant;
+
+    /**
+     * Thread running the task.
+     */
+    private final Thread thread;
+
+    /**
+     * True once the slot is given back.
+     */
+    private boolean released;
+
+    /**
+     * Basic constructor.
+     * @param tenant task owner
+     * @param thread thread running the task
+     */
+    private Admission(@NotNull final Tenant tenant, @NotNull final Thread thread) {
+      this.tenant = tenant;
+      this.thread = thread;
+    }
+  }
+
+  /**
+   * Scheduling state of one tenant.
+   */
+  private static final class Tenant {
+
+    /**
+     * Tenant api key.
+     */
+    private final String key;
+
+    /**
+     * Tenant weight.
+     */
+    private final int weight;
+
+    /**
+     * Running executions limit, not limited if not positive.
+     */
+    private final int limit;
+
+    /**
+     * Metrics of tenant, removed when tenant is evicted.
+     */
+    private final List<Meter> meters = new ArrayList<>(2);
+
+    /**
+     * Queued tasks by lane.
+     */
+    private final Map<Priority, Deque<QueuedTask>> lanes = new EnumMap<>(Priority.class);
+
+    /**
+     * Virtual time of the tenant's next turn.
+     */
+    private double pass;
+
+    /**
+     * Amount of queued tasks, volatile for metrics.
+     */
+    private volatile int queued;
+
+    /**
+     * Amount of running tasks, volatile for metrics.
+     */
+    private volatile int running;
+
+    /**
+     * Basic constructor.
+     * @param key tenant api key
+     * @param weight tenant weight
+     * @param limit running executions limit
+     */
+    private Tenant(@NotNull final String key, final int weight, final int limit) {
+      this.key = key;
+      this.weight = weight;
+      this.limit = limit;
+
+      for (Priority priority : Priority.values()) {
+        lanes.put(priority, new ArrayDeque<>());
+      }
+    }
+  }
+}
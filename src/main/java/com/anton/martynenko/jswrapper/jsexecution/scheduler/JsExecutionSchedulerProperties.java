@@ -0,0 +1,60 @@
+package com.anton.martynenko.jswrapper.jsexecution.scheduler;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration of {@link JsExecutionScheduler}, bound from <code>jswrapper.scheduler.*</code> properties.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "jswrapper.scheduler")
+public class JsExecutionSchedulerProperties {
+
+  /**
+   * Maximum amount of executions handed to worker pool at once. Twice the pool size if not positive.
+   */
+  private int maxInFlight;
+
+  /**
+   * Weight of tenants without explicit weight.
+   */
+  private int defaultWeight = 1;
+
+  /**
+   * Tenant weights by api key. Tenant with weight 2 gets twice more executions than tenant with weight 1.
+   */
+  private Map<String, Integer> weights = new HashMap<>();
+
+  /**
+   * Running executions limit of tenants without explicit limit. Not limited if not positive.
+   */
+  private int defaultConcurrencyLimit;
+
+  /**
+   * Running executions limits by api key.
+   */
+  private Map<String, Integer> concurrencyLimits = new HashMap<>();
+
+  /**
+   * Maximum amount of tenants having queued or running executions. Executions of other api keys are queued
+   * as the default tenant's ones until some tenant becomes idle. Configured tenants are never limited.
+   */
+  private int maxTenants = 1000;
+
+  /**
+   * Turns of repeated execution kept in storage, the oldest turn is deleted once it is finished and newer turns
+   * exceed this amount. Not limited if not positive.
+   */
+  private int maxKeptTurns = 100;
+}
@@ -0,0 +1,21 @@
+package com.anton.martynenko.jswrapper.jsexecution.scheduler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Task which must learn that it won't run, because {@link JsExecutionScheduler} admitted it, but js worker pool
+ * refused it. Plain tasks are only dropped, their futures fail.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+public interface RejectableTask extends Runnable {
+
+  /**
+   * Called instead of {@link #run()} when task is refused by js worker pool.
+   * @param e rejection of js worker pool
+   */
+  void rejected(@NotNull RejectedExecutionException e);
+}
@@ -0,0 +1,403 @@
+package com.anton.martynenko.jswrapper.jsexecution.scheduler;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed timing wheel holding delayed tasks.
+ * Timer costs one small object in a bucket list, so millions of pending timers are cheap, and adding or cancelling
+ * a timer is constant time. One thread moves over buckets every tick and runs due tasks, so tasks must be short:
+ * they are expected to hand real work to some pool.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+public class TimingWheel implements MeterBinder {
+
+  /**
+   * Maximum amount of new timers moved into buckets during one tick, the rest wait for next tick.
+   */
+  private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+  /**
+   * Tick duration.
+   */
+  private final long tickNanos;
+
+  /**
+   * Wheel buckets.
+   */
+  private final Bucket[] buckets;
+
+  /**
+   * Mask used instead of modulo, buckets amount is power of two.
+   */
+  private final int mask;
+
+  /**
+   * Timers added since the last tick.
+   */
+  private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Pending timers amount.
+   */
+  private final AtomicInteger pending = new AtomicInteger();
+
+  /**
+   * Fired timers amount.
+   */
+  private final AtomicLong fired = new AtomicLong();
+
+  /**
+   * Wheel start time, all deadlines are relative to it.
+   */
+  private final long startTime;
+
+  /**
+   * Thread moving the wheel.
+   */
+  private final Thread worker;
+
+  /**
+   * Stop flag.
+   */
+  private volatile boolean stopped;
+
+  /**
+   * Creates and starts the wheel.
+   * @param tickDuration duration of one tick
+   * @param unit tick duration unit
+   * @param bucketsAmount amount of buckets, rounded up to power of two
+   */
+
+  public TimingWheel(final long tickDuration, @NotNull final TimeUnit unit, final int bucketsAmount) {
+    if (tickDuration <= 0 || bucketsAmount <= 0) {
+      throw new IllegalArgumentException("Tick duration and buckets amount must be positive");
+    }
+
+    int size = Integer.highestOneBit(bucketsAmount - 1 > 0 ? bucketsAmount - 1 : 1) << 1;
+    this.tickNanos = unit.toNanos(tickDuration);
+    this.buckets = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      buckets[i] = new Bucket();
+    }
+    this.mask = size - 1;
+    this.startTime = System.nanoTime();
+
+    this.worker = new Thread(this::work, "timing-wheel");
+    this.worker.setDaemon(true);
+    this.worker.start();
+
+    log.info("Timing wheel started with {} buckets and {} ms tick", size, unit.toMillis(tickDuration));
+  }
+
+  /**
+   * Schedule task.
+   * @param task short task to run when delay elapses
+   * @param delay delay
+   * @param unit delay unit
+   * @return {@link Timeout} handle used for cancellation
+   */
+
+  @NotNull
+  public Timeout schedule(@NotNull final Runnable task, final long delay, @NotNull final TimeUnit unit) {
+    if (stopped) {
+      throw new IllegalStateException("Timing wheel is stopped");
+    }
+
+    long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay));
+    Timeout timeout = new Timeout(this, task, deadline);
+
+    pending.incrementAndGet();
+    added.add(timeout);
+
+    return timeout;
+  }
+
+  /**
+   * Wheel thread loop.
+   */
+  private void work() {
+    long tick = 0;
+
+    while (!stopped) {
+      long deadline = tickNanos * (tick + 1);
+      long sleepNanos = deadline - (System.nanoTime() - startTime);
+
+      if (sleepNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        } catch (InterruptedException e) {
+          if (stopped) {
+            return;
+          }
+        }
+        continue;
+      }
+
+      transferAdded(tick);
+      expire(buckets[(int) (tick & mask)], deadline);
+      tick++;
+    }
+  }
+
+  /**
+   * Move recently added timers into their buckets.
+   * @param tick current tick
+   */
+  private void transferAdded(final long tick) {
+    for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+      Timeout timeout = added.poll();
+
+      if (timeout == null) {
+        return;
+      }
+
+      if (timeout.isCancelled()) {
+        continue;
+      }
+
+      long calculated = timeout.deadline / tickNanos;
+      timeout.remainingRounds = (calculated - tick) / buckets.length;
+
+      //already late timers go to the current bucket
+      long ticks = Math.max(calculated, tick);
+      buckets[(int) (ticks & mask)].add(timeout);
+    }
+  }
+
+  /**
+   * Run bucket's due timers and count down others.
+   * @param bucket current bucket
+   * @param deadline current tick deadline
+   */
+  private void expire(@NotNull final Bucket bucket, final long deadline) {
+    Timeout timeout = bucket.head;
+
+    while (timeout != null) {
+      Timeout next = timeout.next;
+
+      if (timeout.isCancelled()) {
+        bucket.remove(timeout);
+      } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+        bucket.remove(timeout);
+        timeout.expire();
+      } else {
+        timeout.remainingRounds--;
+      }
+
+      timeout = next;
+    }
+  }
+
+  /**
+   * Pending timers amount.
+   * @return amount of scheduled and not fired or cancelled timers
+   */
+  public int getPending() {
+    return pending.get();
+  }
+
+  /**
+   * Stop the wheel. Pending timers never fire.
+   */
+  public void shutdown() {
+    stopped = true;
+    worker.interrupt();
+
+    log.info("Timing wheel is stopped with {} pending timers", pending.get());
+  }
+
+  @Override
+  public void bindTo(@NotNull final MeterRegistry registry) {
+    Gauge.builder("jswrapper.timer.pending", this, TimingWheel::getPending)
+        .description("Timers waiting in timing wheel")
+        .register(registry);
+
+    Gauge.builder("jswrapper.timer.fired", fired, AtomicLong::get)
+        .description("Timers fired by timing wheel")
+        .register(registry);
+  }
+
+  /**
+   * Handle of scheduled task.
+   */
+  public static final class Timeout {
+
+    /**
+     * Timer is waiting.
+     */
+    private static final int WAITING = 0;
+
+    /**
+     * Timer is cancelled.
+     */
+    private static final int CANCELLED = 1;
+
+    /**
+     * Timer is fired.
+     */
+    private static final int EXPIRED = 2;
+
+    /**
+     * Owning wheel.
+     */
+    private final TimingWheel wheel;
+
+    /**
+     * Scheduled task.
+     */
+    private final Runnable task;
+
+    /**
+     * Deadline relative to wheel's start time.
+     */
+    private final long deadline;
+
+    /**
+     * Timer state.
+     */
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+
+    /**
+     * Full wheel rounds left, touched only by wheel thread.
+     */
+    private long remainingRounds;
+
+    /**
+     * Previous timer in bucket, touched only by wheel thread.
+     */
+    private Timeout prev;
+
+    /**
+     * Next timer in bucket, touched only by wheel thread.
+     */
+    private Timeout next;
+
+    /**
+     * Basic constructor.
+     * @param wheel owning wheel
+     * @param task scheduled task
+     * @param deadline deadline relative to wheel's start time
+     */
+    private Timeout(@NotNull final TimingWheel wheel, @NotNull final Runnable task, final long deadline) {
+      this.wheel = wheel;
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancel timer. Cancelled timer is dropped from its bucket when wheel reaches it.
+     * @return false if timer is already fired or cancelled
+     */
+    public boolean cancel() {
+      if (state.compareAndSet(WAITING, CANCELLED)) {
+        wheel.pending.decrementAndGet();
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Getter for property 'cancelled'.
+     *
+     * @return Value for property 'cancelled'.
+     */
+    public boolean isCancelled() {
+      return state.get() == CANCELLED;
+    }
+
+    /**
+     * Getter for property 'expired'.
+     *
+     * @return Value for property 'expired'.
+     */
+    public boolean isExpired() {
+      return state.get() == EXPIRED;
+    }
+
+    /**
+     * Run the task if timer is still waiting.
+     */
+    private void expire() {
+      if (!state.compareAndSet(WAITING, EXPIRED)) {
+        return;
+      }
+
+      wheel.pending.decrementAndGet();
+      wheel.fired.incrementAndGet();
+
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        log.error("Timer task failed with {}", e.getClass().getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Doubly linked list of timers, touched only by wheel thread.
+   */
+  private static final class Bucket {
+
+    /**
+     * First timer.
+     */
+    private Timeout head;
+
+    /**
+     * Last timer.
+     */
+    private Timeout tail;
+
+    /**
+     * Append timer.
+     * @param timeout timer
+     */
+    private void add(@NotNull final Timeout timeout) {
+      if (head == null) {
+        head = timeout;
+        tail = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    /**
+     * Unlink timer.
+     * @param timeout timer
+     */
+    private void remove(@NotNull final Timeout timeout) {
+      if (timeout.prev != null) {
+        timeout.prev.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+
+      if (timeout.next != null) {
+        timeout.next.prev = timeout.prev;
+      } else {
+        tail = timeout.prev;
+      }
+
+      timeout.prev = null;
+      timeout.next = null;
+    }
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains scheduler admitting JS code executions into the worker pool.
+ * @since 1.3
+ * @author Martynenko Anton
+ */
+
+package com.anton.martynenko.jswrapper.jsexecution.scheduler;
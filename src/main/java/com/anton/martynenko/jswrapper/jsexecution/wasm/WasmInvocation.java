@@ -0,0 +1,37 @@
+package com.anton.martynenko.jswrapper.jsexecution.wasm;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Request to call exported function of {@link WasmModule}.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WasmInvocation {
+
+  /**
+   * Name of exported function.
+   */
+  private String function;
+
+  /**
+   * Json array of numeric arguments, null if function takes none.
+   */
+  private JsonNode arguments;
+
+  /**
+   * Scheduling lane, null means NORMAL.
+   */
+  private Priority priority;
+}
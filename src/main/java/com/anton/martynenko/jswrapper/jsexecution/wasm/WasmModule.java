@@ -0,0 +1,81 @@
+package com.anton.martynenko.jswrapper.jsexecution.wasm;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.io.ByteSequence;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.ZonedDateTime;
+
+/**
+ * Uploaded WebAssembly module.
+ * Module keeps one {@link Source}, so every js worker engine parses and validates it once and then
+ * only instantiates it into contexts of invocations.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Immutable
+public final class WasmModule {
+
+  /**
+   * Language id of GraalVM WebAssembly.
+   */
+  public static final String LANGUAGE = "wasm";
+
+  /**
+   * Simple numeric positive id.
+   */
+  private final int id;
+
+  /**
+   * Name given by the client, informational only.
+   */
+  private final String name;
+
+  /**
+   * Module size in bytes.
+   */
+  private final int size;
+
+  /**
+   * Hex SHA-256 of module bytes.
+   */
+  private final String sha256;
+
+  /**
+   * Upload time.
+   */
+  @JsonProperty("Uploaded at")
+  @JsonFormat(shape = JsonFormat.Shape.STRING)
+  private final ZonedDateTime uploadedTime;
+
+  /**
+   * Source shared by all invocations, its name is unique module name in wasm bindings.
+   */
+  @JsonIgnore
+  private final Source source;
+
+  /**
+   * Basic constructor.
+   * @param id module id
+   * @param name name given by the client
+   * @param bytes module bytes
+   * @param sha256 hex SHA-256 of module bytes
+   */
+
+  WasmModule(final int id, @NotNull final String name, @NotNull final byte[] bytes, @NotNull final String sha256) {
+    this.id = id;
+    this.name = name;
+    this.size = bytes.length;
+    this.sha256 = sha256;
+    this.uploadedTime = ZonedDateTime.now();
+    this.source = Source.newBuilder(LANGUAGE, ByteSequence.create(bytes), "module-" + id).buildLiteral();
+  }
+}
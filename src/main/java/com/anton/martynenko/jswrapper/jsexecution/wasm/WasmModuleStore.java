@@ -0,0 +1,220 @@
+package com.anton.martynenko.jswrapper.jsexecution.wasm;
+
+import com.anton.martynenko.jswrapper.jsexecution.problem.BinaryInputTooLargeProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.LanguageNotSupportedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.WasmModuleNotFoundProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.WasmModuleRejectedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.LanguageRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * WebAssembly modules uploaded to this node. Modules are kept in memory until deleted, within size limits.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+@Component
+public class WasmModuleStore {
+
+  /**
+   * Magic number and version 1 every WebAssembly binary starts with.
+   */
+  private static final byte[] WASM_HEADER = {0x00, 0x61, 0x73, 0x6D, 0x01, 0x00, 0x00, 0x00};
+
+  /**
+   * Modules by id.
+   */
+  @GuardedBy("this")
+  private final Map<Integer, WasmModule> modules = new TreeMap<>();
+
+  /**
+   * Languages installed into GraalVM.
+   */
+  private final LanguageRegistry languageRegistry;
+
+  /**
+   * Size limit of one module.
+   */
+  private final int maxModuleBytes;
+
+  /**
+   * Size limit of all modules.
+   */
+  private final long maxTotalBytes;
+
+  /**
+   * Last given id.
+   */
+  @GuardedBy("this")
+  private int lastId;
+
+  /**
+   * Size of all modules.
+   */
+  @GuardedBy("this")
+  private long totalBytes;
+
+  /**
+   * Basic constructor.
+   * @param properties store configuration
+   * @param sandbox sandbox bean knowing installed languages
+   */
+
+  public WasmModuleStore(@NotNull final WasmProperties properties, @NotNull final JsSandbox sandbox) {
+    this.languageRegistry = sandbox.getLanguageRegistry();
+    this.maxModuleBytes = properties.getMaxModuleBytes();
+    this.maxTotalBytes = properties.getMaxTotalBytes();
+  }
+
+  /**
+   * Size limit of one module, for checking uploads before they are read.
+   * @return size limit in bytes
+   */
+
+  public int getMaxModuleBytes() {
+    return maxModuleBytes;
+  }
+
+  /**
+   * Keep new module.
+   * @param bytes module binary
+   * @param name name given by the client
+   * @return kept module
+   */
+
+  @NotNull
+  public WasmModule upload(@NotNull final byte[] bytes, @NotNull final String name) {
+    if (bytes.length > maxModuleBytes) {
+      throw new BinaryInputTooLargeProblem(maxModuleBytes);
+    }
+
+    if (!hasWasmHeader(bytes)) {
+      throw new WasmModuleRejectedProblem("Module is not WebAssembly binary of version 1");
+    }
+
+    //module can be kept without wasm, but can't be run
+    if (!languageRegistry.isInstalled(WasmModule.LANGUAGE)) {
+      throw new LanguageNotSupportedProblem(WasmModule.LANGUAGE, languageRegistry.getLanguages());
+    }
+
+    String sha256 = sha256(bytes);
+    WasmModule module;
+
+    synchronized (this) {
+      if (totalBytes + bytes.length > maxTotalBytes) {
+        throw new WasmModuleRejectedProblem(
+            String.format("Modules are limited to %d bytes in total, delete some first", maxTotalBytes));
+      }
+
+      module = new WasmModule(++lastId, name, bytes, sha256);
+      modules.put(module.getId(), module);
+      totalBytes += module.getSize();
+    }
+
+    log.info("WasmModule id {} '{}' of {} bytes uploaded", module.getId(), name, module.getSize());
+
+    return module;
+  }
+
+  /**
+   * Module by id.
+   * @param moduleId module id
+   * @return module
+   */
+
+  @NotNull
+  public synchronized WasmModule get(final int moduleId) {
+    WasmModule module = modules.get(moduleId);
+
+    if (module == null) {
+      throw new WasmModuleNotFoundProblem(moduleId);
+    }
+
+    return module;
+  }
+
+  /**
+   * All modules in id order.
+   * @return snapshot of modules
+   */
+
+  @NotNull
+  public synchronized Collection<WasmModule> findAll() {
+    return new ArrayList<>(modules.values());
+  }
+
+  /**
+   * Forget module, invocations already created keep running.
+   * @param moduleId module id
+   */
+
+  public void delete(final int moduleId) {
+    synchronized (this) {
+      WasmModule module = modules.remove(moduleId);
+
+      if (module == null) {
+        throw new WasmModuleNotFoundProblem(moduleId);
+      }
+
+      totalBytes -= module.getSize();
+    }
+
+    log.info("WasmModule id {} deleted", moduleId);
+  }
+
+  /**
+   * Check magic number and version of WebAssembly binary, the rest is validated by engine.
+   * @param bytes module binary
+   * @return true if binary starts as WebAssembly module
+   */
+  private static boolean hasWasmHeader(@NotNull final byte[] bytes) {
+    if (bytes.length < WASM_HEADER.length) {
+      return false;
+    }
+
+    for (int i = 0; i < WASM_HEADER.length; i++) {
+      if (bytes[i] != WASM_HEADER[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Hex SHA-256 of module, lets clients check what they have uploaded.
+   * @param bytes module binary
+   * @return hex digest
+   */
+  @NotNull
+  private static String sha256(@NotNull final byte[] bytes) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+
+      StringBuilder hex = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      //every java platform has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.anton.martynenko.jswrapper.jsexecution.wasm;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of {@link WasmModuleStore}, bound from <code>jswrapper.wasm.*</code> properties.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "jswrapper.wasm")
+public class WasmProperties {
+
+  /**
+   * Size limit of one module.
+   */
+  private int maxModuleBytes = 16 * 1024 * 1024;
+
+  /**
+   * Size limit of all modules kept by the node.
+   */
+  private long maxTotalBytes = 256L * 1024 * 1024;
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains WebAssembly modules uploaded once and invoked by executions, with their store.
+ * @since 1.3
+ * @author Martynenko Anton
+ */
+
+package com.anton.martynenko.jswrapper.jsexecution.wasm;
@@ -0,0 +1,320 @@
+package com.anton.martynenko.jswrapper.jsexecution.worker;
+
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.PreparedContext;
+import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.Engine;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Long-living worker thread of {@link JsWorkerPool}.
+ * Each worker owns its task queue and GraalJs {@link Engine}, so all contexts created on this thread
+ * share parsed sources and compiled code instead of warming up a new engine for every execution.
+ * Queue is filled by many producers and drained by the owner from the head, idle workers steal from the tail.
+ * If the pool has prelude, idle worker prepares a context with prelude, so the next execution starts with it loaded.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+public final class JsWorker extends Thread {
+
+  /**
+   * Maximum time idle worker sleeps before next stealing attempt.
+   */
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  /**
+   * Owning pool.
+   */
+  private final JsWorkerPool pool;
+
+  /**
+   * Worker's number inside of pool.
+   */
+  private final int index;
+
+  /**
+   * Own tasks queue.
+   */
+  private final Deque<Runnable> queue = new ConcurrentLinkedDeque<>();
+
+  /**
+   * Queue size, kept separately because {@link ConcurrentLinkedDeque#size()} is not constant time.
+   */
+  private final AtomicInteger queueDepth = new AtomicInteger();
+
+  /**
+   * Engine shared by all contexts created on this worker.
+   */
+  private final Engine engine;
+
+  /**
+   * Context with prelude waiting for the next execution, used by worker thread only.
+   */
+  private PreparedContext spare;
+
+  /**
+   * Set when spare context can't be prepared, so worker doesn't retry until the next task.
+   */
+  private boolean spareFailed;
+
+  /**
+   * True while worker has nothing to do.
+   */
+  private volatile boolean idle = true;
+
+  /**
+   * True when worker is replaced in pool, it leaves after the current task.
+   */
+  private volatile boolean retired;
+
+  /**
+   * Basic constructor.
+   * @param pool owning pool
+   * @param index worker's number
+   */
+
+  JsWorker(@NotNull final JsWorkerPool pool, final int index) {
+    super("js-worker-" + index);
+    this.pool = pool;
+    this.index = index;
+    this.engine = Engine.newBuilder()
+        .option("engine.WarnInterpreterOnly", "false")
+        .build();
+    setDaemon(true);
+  }
+
+  /**
+   * Returns engine of worker which runs current thread.
+   * @return worker's engine or empty if current thread is not a {@link JsWorker}
+   */
+
+  @NotNull
+  public static Optional<Engine> currentEngine() {
+    Thread thread = Thread.currentThread();
+
+    if (thread instanceof JsWorker) {
+      return Optional.of(((JsWorker) thread).engine);
+    }
+
+    return Optional.empty();
+  }
+
+  /**
+   * Take context with prelude prepared by worker which runs current thread.
+   * @param sandbox sandbox execution runs in, context of another sandbox is not taken
+   * @return prepared context or empty if there is none
+   */
+
+  @NotNull
+  public static Optional<PreparedContext> takePreparedContext(@NotNull final JsSandbox sandbox) {
+    Thread thread = Thread.currentThread();
+
+    if (thread instanceof JsWorker) {
+      JsWorker worker = (JsWorker) thread;
+      PreparedContext prepared = worker.spare;
+
+      if (prepared != null && prepared.getSandbox() == sandbox) {
+        worker.spare = null;
+        return Optional.of(prepared);
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  @Override
+  public void run() {
+    log.debug("Worker {} started", index);
+
+    try {
+      while (!pool.isShutdown() && !retired) {
+        Runnable task = pollOwn();
+
+        if (task == null) {
+          task = pool.steal(this);
+        }
+
+        if (task == null) {
+          idle = true;
+
+          //nothing to do, good time to prepare context for the next execution
+          if (!prepareSpare()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+          }
+          continue;
+        }
+
+        idle = false;
+        runTask(task);
+      }
+    } finally {
+      if (retired) {
+        //tasks pushed while worker was being replaced
+        pool.rehome(this);
+      }
+      if (spare != null) {
+        spare.close();
+      }
+      engine.close(true);
+      log.debug("Worker {} stopped", index);
+    }
+  }
+
+  /**
+   * Prepare context with prelude if pool has prelude and there is no spare context yet.
+   * @return true if context is prepared
+   */
+  private boolean prepareSpare() {
+    JsSandbox sandbox = pool.getSandbox();
+
+    if (sandbox == null || spare != null || spareFailed) {
+      return false;
+    }
+
+    try {
+      spare = sandbox.prepareContext(engine);
+      return true;
+    } catch (RuntimeException e) {
+      spareFailed = true;
+      log.error("Worker {} can't prepare context with prelude", index, e);
+      return false;
+    }
+  }
+
+  /**
+   * Run single task and clean thread state after it.
+   * @param task task to run
+   */
+  private void runTask(@NotNull final Runnable task) {
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      log.error("Worker {} task failed with {}", index, e.getClass().getName());
+    } finally {
+      pool.recordCompleted(index);
+      spareFailed = false;
+      // cancellation interrupts worker thread, next task must not see it
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Add task to the tail of own queue.
+   * @param task task to add
+   */
+  void push(@NotNull final Runnable task) {
+    queue.offerLast(task);
+    queueDepth.incrementAndGet();
+  }
+
+  /**
+   * Take task from the head of own queue.
+   * @return task or null if queue is empty
+   */
+  private Runnable pollOwn() {
+    Runnable task = queue.pollFirst();
+
+    if (task != null) {
+      queueDepth.decrementAndGet();
+    }
+
+    return task;
+  }
+
+  /**
+   * Take task from the tail of queue, used by other workers.
+   * @return task or null if queue is empty
+   */
+  Runnable pollForThief() {
+    Runnable task = queue.pollLast();
+
+    if (task != null) {
+      queueDepth.decrementAndGet();
+    }
+
+    return task;
+  }
+
+  /**
+   * Take worker out of service. Worker finishes current task, hands over queued ones and stops.
+   */
+  void retire() {
+    retired = true;
+    LockSupport.unpark(this);
+  }
+
+  /**
+   * Close engine of worker which was never started.
+   */
+  void closeEngine() {
+    engine.close();
+  }
+
+  /**
+   * Move all queued tasks to other worker.
+   * @param target worker taking tasks
+   */
+  void drainTo(@NotNull final JsWorker target) {
+    Runnable task;
+    while ((task = pollOwn()) != null) {
+      target.push(task);
+    }
+  }
+
+  /**
+   * Getter for property 'index'.
+   *
+   * @return Value for property 'index'.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Implementation name of worker's engine, <code>Interpreted</code> if js is not compiled.
+   * @return implementation name
+   */
+  @NotNull
+  String getEngineImplementation() {
+    return engine.getImplementationName();
+  }
+
+  /**
+   * Getter for property 'queueDepth'.
+   *
+   * @return Value for property 'queueDepth'.
+   */
+  public int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  /**
+   * Getter for property 'retired'.
+   *
+   * @return Value for property 'retired'.
+   */
+  public boolean isRetired() {
+    return retired;
+  }
+
+  /**
+   * Getter for property 'idle'.
+   *
+   * @return Value for property 'idle'.
+   */
+  public boolean isIdle() {
+    return idle;
+  }
+}
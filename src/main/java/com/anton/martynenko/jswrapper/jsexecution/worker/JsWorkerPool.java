@@ -0,0 +1,394 @@
+package com.anton.martynenko.jswrapper.jsexecution.worker;
+
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed pool of {@link JsWorker} threads used for running JS code.
+ * Unlike generic thread pool executor it keeps one queue per worker: a task stays on the worker it was given to
+ * (and on its engine), while idle workers steal queued tasks from busy ones to keep balance.
+ * Worker stuck in a task which can't be stopped may be replaced in its slot, so pool keeps its capacity.
+ * Pool health details and <code>jswrapper.worker.compilation</code> gauge tell if js is compiled by Truffle
+ * optimizing runtime or only interpreted.
+ *
+ * @author Martynenko Anton
+ * @since 1.3
+ */
+
+@Slf4j
+@ThreadSafe
+public class JsWorkerPool implements MeterBinder, HealthIndicator {
+
+  /**
+   * Engine implementation name when there is no optimizing compiler and js is only interpreted.
+   */
+  static final String INTERPRETED = "Interpreted";
+
+  /**
+   * Pool workers by slot.
+   */
+  private final AtomicReferenceArray<JsWorker> workers;
+
+  /**
+   * Finished tasks by slot.
+   */
+  private final AtomicLongArray completedTasks;
+
+  /**
+   * Tasks stolen from other workers by slot.
+   */
+  private final AtomicLongArray stolenTasks;
+
+  /**
+   * Amount of replaced workers.
+   */
+  private final AtomicInteger replacedWorkers = new AtomicInteger();
+
+  /**
+   * Round-robin counter used for choosing target worker.
+   */
+  private final AtomicInteger nextWorker = new AtomicInteger();
+
+  /**
+   * Shutdown flag.
+   */
+  private volatile boolean shutdown;
+
+  /**
+   * Sandbox whose contexts with prelude workers prepare while idle, null if they don't.
+   */
+  private final JsSandbox sandbox;
+
+  /**
+   * Implementation name of workers' engines.
+   */
+  private final String engineImplementation;
+
+  /**
+   * Creates and starts pool.
+   * @param size amount of workers
+   */
+
+  public JsWorkerPool(final int size) {
+    this(size, null);
+  }
+
+  /**
+   * Creates and starts pool whose workers keep a context with prelude ready.
+   * @param size amount of workers
+   * @param sandbox sandbox preparing contexts with prelude or null
+   * @since 1.3
+   */
+
+  public JsWorkerPool(final int size, final JsSandbox sandbox) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Worker pool size must be positive");
+    }
+
+    this.sandbox = sandbox != null && sandbox.hasPrelude() ? sandbox : null;
+    this.workers = new AtomicReferenceArray<>(size);
+    this.completedTasks = new AtomicLongArray(size);
+    this.stolenTasks = new AtomicLongArray(size);
+
+    for (int i = 0; i < size; i++) {
+      workers.set(i, new JsWorker(this, i));
+    }
+    for (int i = 0; i < size; i++) {
+      workers.get(i).start();
+    }
+
+    this.engineImplementation = workers.get(0).getEngineImplementation();
+
+    log.info("Js worker pool started with {} workers", size);
+
+    if (isCompilationEnabled()) {
+      log.info("Js is compiled by {} runtime", engineImplementation);
+    } else {
+      log.warn("Js runs in interpreter without optimizing compilation, run on GraalVM or JDK with compiler "
+          + "of jit profile to make it faster");
+    }
+  }
+
+  /**
+   * Put task into the queue of chosen worker.
+   * @param task task to run
+   * @return {@link Future} which can be used to check or cancel task
+   */
+
+  @NotNull
+  public Future<?> submit(@NotNull final Runnable task) {
+    if (shutdown) {
+      throw new RejectedExecutionException("Js worker pool is shut down");
+    }
+
+    FutureTask<?> futureTask = new FutureTask<>(task, null);
+    JsWorker worker = selectWorker();
+
+    worker.push(futureTask);
+    LockSupport.unpark(worker);
+
+    return futureTask;
+  }
+
+  /**
+   * Chooses idle worker with empty queue if any, otherwise worker with the shortest queue.
+   * @return target worker
+   */
+  private JsWorker selectWorker() {
+    int size = workers.length();
+    int start = Math.floorMod(nextWorker.getAndIncrement(), size);
+
+    JsWorker best = null;
+    for (int i = 0; i < size; i++) {
+      JsWorker worker = workers.get((start + i) % size);
+
+      if (worker.isIdle() && worker.getQueueDepth() == 0) {
+        return worker;
+      }
+
+      if (best == null || worker.getQueueDepth() < best.getQueueDepth()) {
+        best = worker;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Try to take a task from other worker's queue.
+   * @param thief worker which has nothing to do
+   * @return stolen task or null if all queues are empty
+   */
+  Runnable steal(@NotNull final JsWorker thief) {
+    int size = workers.length();
+
+    for (int i = 1; i < size; i++) {
+      JsWorker victim = workers.get((thief.getIndex() + i) % size);
+
+      if (victim.getQueueDepth() > 0) {
+        Runnable task = victim.pollForThief();
+
+        if (task != null) {
+          stolenTasks.incrementAndGet(thief.getIndex());
+          return task;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Put new worker into the slot of given one. Old worker is left to finish its current task and stop,
+   * its queued tasks are moved to the new worker.
+   * @param worker worker to replace
+   * @return false if worker is not in the pool anymore
+   */
+  public boolean replace(@NotNull final JsWorker worker) {
+    if (shutdown) {
+      return false;
+    }
+
+    JsWorker replacement = new JsWorker(this, worker.getIndex());
+
+    if (!workers.compareAndSet(worker.getIndex(), worker, replacement)) {
+      replacement.closeEngine();
+      return false;
+    }
+
+    worker.retire();
+    replacement.start();
+    worker.drainTo(replacement);
+    LockSupport.unpark(replacement);
+    replacedWorkers.incrementAndGet();
+
+    log.warn("Js worker {} is replaced, old thread is left to finish its task", worker.getIndex());
+
+    return true;
+  }
+
+  /**
+   * Sandbox whose contexts with prelude workers prepare while idle.
+   * @return sandbox or null if workers don't prepare contexts
+   */
+  JsSandbox getSandbox() {
+    return sandbox;
+  }
+
+  /**
+   * Move tasks left in retired worker's queue to workers in service.
+   * @param retired retired worker
+   */
+  void rehome(@NotNull final JsWorker retired) {
+    if (shutdown) {
+      return;
+    }
+
+    JsWorker target = selectWorker();
+    retired.drainTo(target);
+    LockSupport.unpark(target);
+  }
+
+  /**
+   * Increment finished tasks counter of the slot.
+   * @param slot worker's slot
+   */
+  void recordCompleted(final int slot) {
+    completedTasks.incrementAndGet(slot);
+  }
+
+  /**
+   * Amount of workers.
+   * @return pool size
+   */
+  public int getSize() {
+    return workers.length();
+  }
+
+  /**
+   * Amount of tasks waiting in all queues.
+   * @return queued tasks amount
+   */
+  public int getQueuedTasks() {
+    return getWorkers().stream().mapToInt(JsWorker::getQueueDepth).sum();
+  }
+
+  /**
+   * Snapshot of workers in service, used for monitoring.
+   * @return workers
+   */
+  @NotNull
+  public List<JsWorker> getWorkers() {
+    List<JsWorker> list = new ArrayList<>(workers.length());
+    for (int i = 0; i < workers.length(); i++) {
+      list.add(workers.get(i));
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Amount of tasks finished by workers of the slot.
+   * @param slot worker's slot
+   * @return finished tasks amount
+   */
+  public long getCompletedTasks(final int slot) {
+    return completedTasks.get(slot);
+  }
+
+  /**
+   * Amount of tasks stolen by workers of the slot.
+   * @param slot worker's slot
+   * @return stolen tasks amount
+   */
+  public long getStolenTasks(final int slot) {
+    return stolenTasks.get(slot);
+  }
+
+  /**
+   * Getter for property 'replacedWorkers'.
+   *
+   * @return Value for property 'replacedWorkers'.
+   */
+  public int getReplacedWorkers() {
+    return replacedWorkers.get();
+  }
+
+  /**
+   * Getter for property 'engineImplementation'.
+   *
+   * @return Value for property 'engineImplementation'.
+   */
+  @NotNull
+  public String getEngineImplementation() {
+    return engineImplementation;
+  }
+
+  /**
+   * Tells if js is compiled by Truffle optimizing runtime.
+   * @return false if js is only interpreted
+   */
+  public boolean isCompilationEnabled() {
+    return !INTERPRETED.equals(engineImplementation);
+  }
+
+  /**
+   * Getter for property 'shutdown'.
+   *
+   * @return Value for property 'shutdown'.
+   */
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  /**
+   * Stop all workers. Queued tasks are dropped, running tasks are interrupted.
+   */
+  public void shutdown() {
+    shutdown = true;
+    getWorkers().forEach(Thread::interrupt);
+
+    log.info("Js worker pool is shut down");
+  }
+
+  @Override
+  public void bindTo(@NotNull final MeterRegistry registry) {
+    for (int i = 0; i < workers.length(); i++) {
+      final int slot = i;
+      String index = String.valueOf(slot);
+
+      Gauge.builder("jswrapper.worker.queue.depth", workers, w -> w.get(slot).getQueueDepth())
+          .description("Tasks waiting in js worker queue")
+          .tag("worker", index)
+          .register(registry);
+
+      FunctionCounter.builder("jswrapper.worker.tasks.completed", completedTasks, c -> c.get(slot))
+          .description("Tasks finished by js worker")
+          .tag("worker", index)
+          .register(registry);
+
+      FunctionCounter.builder("jswrapper.worker.tasks.stolen", stolenTasks, c -> c.get(slot))
+          .description("Tasks stolen by js worker from other workers")
+          .tag("worker", index)
+          .register(registry);
+    }
+
+    FunctionCounter.builder("jswrapper.worker.replaced", replacedWorkers, AtomicInteger::get)
+        .description("Js workers replaced because they could not be freed")
+        .register(registry);
+
+    //health details are shown to authorized users only, the flag is public
+    Gauge.builder("jswrapper.worker.compilation", this, pool -> pool.isCompilationEnabled() ? 1 : 0)
+        .description("1 if js is compiled by optimizing runtime, 0 if it's only interpreted")
+        .register(registry);
+  }
+
+  @Override
+  public Health health() {
+    //interpreter is slower, but runs scripts all the same, so pool is up either way
+    return (shutdown ? Health.down() : Health.up())
+        .withDetail("engine", engineImplementation)
+        .withDetail("compilation", isCompilationEnabled())
+        .withDetail("workers", workers.length())
+        .withDetail("queuedTasks", getQueuedTasks())
+        .build();
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains JS worker pool used for running JS code executions.
+ * @since 1.3
+ * @author Martynenko Anton
+ */
+
+package com.anton.martynenko.jswrapper.jsexecution.worker;
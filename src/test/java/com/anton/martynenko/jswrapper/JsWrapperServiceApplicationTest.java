@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorkerPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -19,10 +20,14 @@ class JsWrapperServiceApplicationTest {
 	@Autowired
 	private ThreadPoolTaskExecutor threadPoolTaskExecutor;
 
+	@Autowired
+	private JsWorkerPool jsWorkerPool;
+
 	@Test
 	void contextLoads() {
 		assertThat(objectMapper).isNotNull();
 		assertThat(threadPoolTaskExecutor).isNotNull();
+		assertThat(jsWorkerPool).isNotNull();
 	}
 
 }
@@ -1,20 +1,30 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
+import com.anton.martynenko.jswrapper.jsexecution.constants.ContentType;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
 import com.anton.martynenko.jswrapper.jsexecution.constants.Property;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
 import com.anton.martynenko.jswrapper.jsexecution.enums.SortBy;
 import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.problem.BinaryOutputNotAvailableProblem;
 import com.anton.martynenko.jswrapper.jsexecution.problem.JsExecutionCanNotBeCancelledProblem;
 import com.anton.martynenko.jswrapper.jsexecution.problem.JsExecutionNotFoundProblem;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.time.ZonedDateTime;
@@ -23,7 +33,12 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -52,6 +67,9 @@ class JsExecutionControllerTest {
     @MockBean
     private JsExecutionService jsExecutionService;
 
+    @Autowired
+    private JsExecutionResponseCache jsExecutionResponseCache;
+
     private int id1 = 0;
     private int id2 = 0;
     private int noSuchId = 2;
@@ -93,7 +111,7 @@ class JsExecutionControllerTest {
 
     @Test
     void createNew() throws Exception {
-        when(jsExecutionService.createAndRun(any(JsExecutionDTO.class))).thenReturn(jsExecutionDTO1);
+        when(jsExecutionService.createAndRun(any(JsExecutionDTO.class), anyString())).thenReturn(jsExecutionDTO1);
 
         this.mockMvc.perform(post("/executions")
             .contentType(APPLICATION_JSON_UTF8)
@@ -105,6 +123,117 @@ class JsExecutionControllerTest {
             .andExpect(MockMvcResultMatchers.jsonPath("$.id").isNotEmpty());
     }
 
+    @Test
+    void internalClusterApiIsClosedOnSingleNode() throws Exception {
+        this.mockMvc.perform(post("/internal/cluster/executions/steal")
+            .param("max", "1000")
+            .header(HttpHeader.CLUSTER_NODE, "1"))
+            .andExpect(status().isForbidden());
+
+        this.mockMvc.perform(put("/internal/cluster/executions/0/result")
+            .contentType(APPLICATION_JSON_UTF8)
+            .header(HttpHeader.CLUSTER_NODE, "1")
+            .header(HttpHeader.CLUSTER_SECRET, "")
+            .content("{\"status\": \"SUCCESSFUL\"}"))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void createNewWithSchedulingOptions() throws Exception {
+        when(jsExecutionService.createAndRun(any(JsExecutionDTO.class), anyString())).thenReturn(jsExecutionDTO1);
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .header(HttpHeader.API_KEY, "client")
+            .content(format("{\"scriptBody\": \"%s\", \"priority\": \"HIGH\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isCreated());
+
+        verify(jsExecutionService).createAndRun(argThat(dto -> dto.getPriority() == Priority.HIGH), eq("client"));
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"priority\": \"URGENT\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"cron\": \"every minute\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"runAt\": \"tomorrow\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"callbackUrl\": \"ftp://client/done\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"callbackUrl\": \"http://client/done\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isCreated());
+
+        verify(jsExecutionService).createAndRun(argThat(dto -> "http://client/done".equals(dto.getCallbackUrl())),
+            eq(HttpHeader.DEFAULT_TENANT));
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"cacheable\": \"yes\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"cacheable\": true}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isCreated());
+
+        verify(jsExecutionService).createAndRun(argThat(JsExecutionDTO::isCacheable), eq(HttpHeader.DEFAULT_TENANT));
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"input\": {\"items\": [1, 2]}}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isCreated());
+
+        verify(jsExecutionService).createAndRun(argThat(dto -> dto.getInput() != null
+            && dto.getInput().path("items").size() == 2), eq(HttpHeader.DEFAULT_TENANT));
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"module\": \"yes\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"module\": true, \"language\": \"python\"}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"module\": true}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isCreated());
+
+        verify(jsExecutionService).createAndRun(argThat(JsExecutionDTO::isModule), eq(HttpHeader.DEFAULT_TENANT));
+
+        this.mockMvc.perform(post("/executions")
+            .contentType(APPLICATION_JSON_UTF8)
+            .content(format("{\"scriptBody\": \"%s\", \"cron\": \"0 * * * * *\", \"profile\": true}", SOME_CODE)))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getOne() throws Exception {
         this.mockMvc.perform(get("/executions/" + id1))
@@ -122,6 +251,110 @@ class JsExecutionControllerTest {
             .andExpect(jsonPath("detail").value(String.format("JsExecution id '%d' not found", noSuchId)) );
     }
 
+    @Test
+    void getOneNotModifiedByVersion() throws Exception {
+        when(jsExecutionService.getVersion(id1)).thenReturn(7L);
+
+        String eTag = this.mockMvc.perform(get("/executions/" + id1))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "W/\"0.7\""))
+            .andReturn().getResponse().getHeader("ETag");
+
+        this.mockMvc.perform(get("/executions/" + id1).header("If-None-Match", eTag))
+            .andDo(print())
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        //no DTO is built for not modified execution
+        verify(jsExecutionService, times(1)).getOne(id1);
+
+        when(jsExecutionService.getVersion(id1)).thenReturn(8L);
+
+        this.mockMvc.perform(get("/executions/" + id1).header("If-None-Match", eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "W/\"0.8\""));
+    }
+
+    @Test
+    void waitForChange() throws Exception {
+        when(jsExecutionService.getVersion(id1)).thenReturn(1L);
+        ArgumentCaptor<Runnable> listener = ArgumentCaptor.forClass(Runnable.class);
+        when(jsExecutionService.whenChanged(eq(id1), eq(1L), listener.capture())).thenReturn(() -> { });
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/executions/" + id1)
+                .param("waitForChange", "5000")
+                .header("If-None-Match", "W/\"0.1\""))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        when(jsExecutionService.getVersion(id1)).thenReturn(2L);
+        Thread changer = new Thread(listener.getValue());
+        changer.start();
+        changer.join();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "W/\"0.2\""))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.links[0].href").value("http://localhost/executions/" + id1));
+
+        //outdated ETag is answered at once
+        MvcResult outdated = this.mockMvc.perform(get("/executions/" + id1)
+                .param("waitForChange", "5000")
+                .header("If-None-Match", "W/\"0.1\""))
+            .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(outdated))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "W/\"0.2\""));
+    }
+
+    @Test
+    void getOneFinishedFromCache() throws Exception {
+        int finishedId = 3;
+        JsExecutionDTO finishedDTO = new JsExecutionDTO(finishedId,
+            Status.SUCCESSFUL,
+            "console.log('Some code');",
+            ZonedDateTime.now(),
+            ZonedDateTime.now(),
+            "executionLog",
+            "",
+            false,
+            "");
+        when(jsExecutionService.getOne(finishedId)).thenReturn(finishedDTO);
+
+        MockHttpServletResponse first = this.mockMvc.perform(get("/executions/" + finishedId))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(finishedId))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.links[0].href").value("http://localhost/executions/" + finishedId))
+            .andExpect(header().exists("ETag"))
+            .andReturn().getResponse();
+        String eTag = first.getHeader("ETag");
+
+        this.mockMvc.perform(get("/executions/" + finishedId))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", eTag))
+            .andExpect(content().bytes(first.getContentAsByteArray()));
+
+        this.mockMvc.perform(get("/executions/" + finishedId).header("If-None-Match", eTag))
+            .andDo(print())
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        this.mockMvc.perform(get("/executions/" + id1))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "W/\"0.0\""));
+
+        assertThat(jsExecutionResponseCache.getBytes()).isPositive();
+
+        this.mockMvc.perform(delete("/executions/{executionId}", finishedId))
+            .andExpect(status().isNoContent());
+
+        assertThat(jsExecutionResponseCache.getBytes()).isZero();
+    }
+
     @Test
     void listAll() throws Exception {
         when(jsExecutionService.findAll(Optional.empty(), Optional.empty())).thenReturn(Arrays.asList(jsExecutionDTO1, jsExecutionDTO2));
@@ -154,6 +387,58 @@ class JsExecutionControllerTest {
             .andExpect(MockMvcResultMatchers.jsonPath("$.content").isNotEmpty());
     }
 
+    @Test
+    void binaryFormats() throws Exception {
+        when(jsExecutionService.findAll(Optional.empty(), Optional.empty())).thenReturn(Arrays.asList(jsExecutionDTO1, jsExecutionDTO2));
+
+        byte[] cbor = this.mockMvc.perform(get("/executions").accept(ContentType.APPLICATION_CBOR_VALUE))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(ContentType.APPLICATION_CBOR_VALUE))
+            .andExpect(header().string("Vary", "Accept"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode list = new ObjectMapper(new CBORFactory()).readTree(cbor);
+        assertThat(list.get("content")).hasSize(2);
+        assertThat(list.get("links").get(0).get("href").asText()).startsWith("http://localhost/executions");
+
+        int finishedId = 4;
+        when(jsExecutionService.getOne(finishedId)).thenReturn(new JsExecutionDTO(finishedId,
+            Status.SUCCESSFUL, "console.log('Some code');", ZonedDateTime.now(), ZonedDateTime.now(),
+            "executionLog", "", false, ""));
+
+        MockHttpServletResponse json = this.mockMvc.perform(get("/executions/" + finishedId))
+            .andExpect(status().isOk())
+            .andReturn().getResponse();
+
+        MockHttpServletResponse smile = this.mockMvc.perform(get("/executions/" + finishedId)
+            .accept(MediaType.APPLICATION_JSON_VALUE + ";q=0.5", ContentType.APPLICATION_SMILE_VALUE))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(ContentType.APPLICATION_SMILE_VALUE))
+            .andReturn().getResponse();
+
+        assertThat(smile.getHeader("ETag")).isNotEqualTo(json.getHeader("ETag"));
+        assertThat(new ObjectMapper(new SmileFactory()).readTree(smile.getContentAsByteArray()).get("status").asText())
+            .isEqualTo("SUCCESSFUL");
+    }
+
+    @Test
+    void listAllNotModifiedByVersion() throws Exception {
+        when(jsExecutionService.getStorageVersion()).thenReturn("2.0.10");
+        when(jsExecutionService.findAll(Optional.empty(), Optional.empty())).thenReturn(Arrays.asList(jsExecutionDTO1, jsExecutionDTO2));
+
+        this.mockMvc.perform(get("/executions"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "W/\"2.0.10\""));
+
+        this.mockMvc.perform(get("/executions").header("If-None-Match", "W/\"2.0.10\""))
+            .andDo(print())
+            .andExpect(status().isNotModified());
+
+        verify(jsExecutionService, times(1)).findAll(Optional.empty(), Optional.empty());
+    }
+
     @Test
     void cancelJsExecution() throws Exception {
         this.mockMvc.perform(delete("/executions/{id}/cancel", noSuchId))
@@ -205,6 +490,31 @@ class JsExecutionControllerTest {
             .andExpect(content().string(""));
     }
 
+    @Test
+    void createNewBinaryAndGetOutput() throws Exception {
+        when(jsExecutionService.createAndRunBinary(eq(SOME_CODE), eq(Priority.HIGH), any(), anyString()))
+            .thenReturn(jsExecutionDTO1);
+
+        this.mockMvc.perform(post("/executions")
+            .param("scriptBody", SOME_CODE)
+            .param("priority", Priority.HIGH.name())
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(new byte[] {1, 2, 3}))
+            .andDo(print())
+            .andExpect(status().isCreated())
+            .andExpect(header().exists("Location"));
+
+        verify(jsExecutionService).createAndRunBinary(eq(SOME_CODE), eq(Priority.HIGH),
+            argThat(input -> input.remaining() == 3 && input.get(2) == 3), eq(HttpHeader.DEFAULT_TENANT));
+
+        when(jsExecutionService.getBinaryOutput(id1))
+            .thenThrow(new BinaryOutputNotAvailableProblem("JsExecution id 0 has no binary channel"));
+
+        this.mockMvc.perform(get("/executions/" + id1 + "/" + Property.OUTPUT))
+            .andDo(print())
+            .andExpect(status().isConflict());
+    }
+
     @Test
     void getDetails() throws Exception {
         this.mockMvc.perform(get("/executions/{executionId}/{property}", noSuchId, Property.SCRIPT_BODY))
@@ -1,14 +1,68 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.anton.martynenko.jswrapper.jsexecution.problem.LanguageNotSupportedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ProfilingNotSupportedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class JsExecutionFactoryTest {
 
   @Test
   void createNew() {
-    JsExecutionFactory jsExecutionFactory = new JsExecutionFactory();
-    assertThat(jsExecutionFactory.createNew("Some code")).isNotNull();
+    JsExecutionFactory jsExecutionFactory = new JsExecutionFactory(JsSandbox.DEFAULT);
+    assertThat(jsExecutionFactory.createNew(new JsExecutionDTO("Some code"), "tenant")).isNotNull();
+
+    JsExecution jsExecution = jsExecutionFactory.createNew(
+        JsExecutionDTO.builder("Some code").priority(Priority.HIGH).build(), "tenant");
+    assertThat(jsExecution.getTenant()).isEqualTo("tenant");
+    assertThat(jsExecution.getPriority()).isEqualTo(Priority.HIGH);
+    assertThat(jsExecution.getLanguage()).isEqualTo("js");
+  }
+
+  @Test
+  void createNewRejectsLanguageWhichIsNotInstalled() {
+    JsExecutionFactory jsExecutionFactory = new JsExecutionFactory(JsSandbox.DEFAULT);
+
+    assertThatThrownBy(() -> jsExecutionFactory.createNew(
+        JsExecutionDTO.builder("print(1)").language("cobol").build(), "tenant"))
+        .isInstanceOf(LanguageNotSupportedProblem.class)
+        .hasMessageContaining("cobol");
+  }
+
+  @Test
+  void createNewProfilesOnlyWithInstalledSampler() {
+    JsExecutionFactory jsExecutionFactory = new JsExecutionFactory(JsSandbox.DEFAULT);
+    JsExecutionDTO profiled = JsExecutionDTO.builder("1 + 1").profile(true).build();
+
+    if (JsSandbox.DEFAULT.isProfilingAvailable()) {
+      JsExecution jsExecution = jsExecutionFactory.createNew(profiled, "tenant");
+      assertThat(jsExecution.isProfiled()).isTrue();
+      assertThat(jsExecution.getCpuProfile().getSummary()).isNull();
+    } else {
+      assertThatThrownBy(() -> jsExecutionFactory.createNew(profiled, "tenant"))
+          .isInstanceOf(ProfilingNotSupportedProblem.class);
+    }
+
+    assertThat(jsExecutionFactory.createNew(new JsExecutionDTO("1 + 1"), "tenant").isProfiled()).isFalse();
+  }
+
+  @Test
+  void createNewKeepsModuleFlag() {
+    JsExecutionFactory jsExecutionFactory = new JsExecutionFactory(JsSandbox.DEFAULT);
+    JsExecution module = jsExecutionFactory.createNew(
+        JsExecutionDTO.builder("export const x = 1;").module(true).build(), "tenant");
+
+    assertThat(module.isModule()).isTrue();
+    assertThat(module.isLocalOnly()).isTrue();
+    assertThat(jsExecutionFactory.createTurn(module).isModule()).isTrue();
+
+    //code looking like module is classic script unless flag says otherwise
+    JsExecution classic = jsExecutionFactory.createNew(new JsExecutionDTO("export const x = 1;"), "tenant");
+    assertThat(classic.isModule()).isFalse();
+    assertThat(classic.isLocalOnly()).isFalse();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@DirtiesContext
+class JsExecutionIngestionConsumerTest {
+
+  @TempDir
+  static Path directory;
+
+  @Autowired
+  private JsExecutionService jsExecutionService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @DynamicPropertySource
+  static void ingestionProperties(final DynamicPropertyRegistry registry) {
+    registry.add("jswrapper.ingestion.file-queue-directory", () -> directory.resolve("queue").toString());
+    registry.add("jswrapper.ingestion.completions-file", () -> directory.resolve("completions.jsonl").toString());
+    registry.add("jswrapper.ingestion.credits", () -> "2");
+  }
+
+  @Test
+  void shouldRunQueuedScriptsAndPublishCompletions() throws Exception {
+    Path queue = Files.createDirectories(directory.resolve("queue"));
+
+    for (int i = 0; i < 5; i++) {
+      write(queue, i + ".json", "{\"scriptBody\": \"console.log('message " + i + "')\", \"tenant\": \"producer\"}");
+    }
+    write(queue, "5.json", "{\"tenant\": \"producer\"}");
+
+    List<String> completions = Collections.emptyList();
+    for (int attempt = 0; attempt < 200 && completions.size() < 5; attempt++) {
+      Thread.sleep(50);
+      Path file = directory.resolve("completions.jsonl");
+      completions = Files.exists(file) ? Files.readAllLines(file) : Collections.emptyList();
+    }
+
+    assertThat(completions).hasSize(5);
+
+    List<String> messageIds = new ArrayList<>();
+    for (String line : completions) {
+      JsonNode event = objectMapper.readTree(line);
+      messageIds.add(event.get("messageId").asText());
+
+      assertThat(event.get("source").asText()).isEqualTo("file-queue");
+      assertThat(event.get("status").asText()).isEqualTo("SUCCESSFUL");
+      assertThat(jsExecutionService.getOne(event.get("executionId").asInt()).getExecutionLog())
+          .isEqualTo("message " + event.get("messageId").asText().replace(".json", "") + "\n");
+    }
+
+    assertThat(messageIds).containsExactlyInAnyOrder("0.json", "1.json", "2.json", "3.json", "4.json");
+    //accepted messages are acknowledged, the one without script is rejected
+    try (Stream<Path> left = Files.list(queue)) {
+      assertThat(left).extracting(path -> path.getFileName().toString()).containsExactly("rejected");
+    }
+    assertThat(queue.resolve("rejected").resolve("5.json")).exists();
+  }
+
+  private static void write(final Path queue, final String name, final String content) throws IOException {
+    Path temp = Files.write(queue.resolve(name + ".part"), content.getBytes(StandardCharsets.UTF_8));
+    Files.move(temp, queue.resolve(name));
+  }
+}
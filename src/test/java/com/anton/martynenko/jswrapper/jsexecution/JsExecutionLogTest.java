@@ -0,0 +1,82 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsExecutionLogTest {
+
+  @Test
+  void shouldDecodeOnlyAppendedBytes() {
+    JsExecutionLog log = new JsExecutionLog();
+
+    assertThat(log.asString()).isEmpty();
+
+    byte[] first = "first line\n".getBytes(StandardCharsets.UTF_8);
+    log.write(first, 0, first.length);
+
+    String text = log.asString();
+    assertThat(text).isEqualTo("first line\n");
+    assertThat(log.asString()).isSameAs(text);
+    assertThat(log.size()).isEqualTo(first.length);
+
+    byte[] second = "second line\n".getBytes(StandardCharsets.UTF_8);
+    log.write(second, 0, second.length);
+
+    assertThat(log.asString()).isEqualTo("first line\nsecond line\n");
+  }
+
+  @Test
+  void shouldWaitForSplitCharacter() {
+    JsExecutionLog log = new JsExecutionLog();
+    byte[] bytes = "ok €".getBytes(StandardCharsets.UTF_8);
+
+    //euro sign takes three bytes, write it partially
+    log.write(bytes, 0, bytes.length - 1);
+    assertThat(log.asString()).isEqualTo("ok ");
+
+    log.write(bytes[bytes.length - 1]);
+    assertThat(log.asString()).isEqualTo("ok €");
+  }
+
+  @Test
+  void shouldGrowBuffer() {
+    JsExecutionLog log = new JsExecutionLog();
+    StringBuilder expected = new StringBuilder();
+
+    for (int i = 0; i < 1000; i++) {
+      byte[] line = ("line " + i + "\n").getBytes(StandardCharsets.UTF_8);
+      log.write(line, 0, line.length);
+      expected.append("line ").append(i).append('\n');
+
+      if (i % 100 == 0) {
+        assertThat(log.asString()).isEqualTo(expected.toString());
+      }
+    }
+
+    assertThat(log.asString()).isEqualTo(expected.toString());
+  }
+
+  @Test
+  void shouldKeepSplitCharacterAfterLargeRead() {
+    JsExecutionLog log = new JsExecutionLog();
+    StringBuilder expected = new StringBuilder();
+
+    for (int i = 0; i < 2000; i++) {
+      expected.append("line ").append(i).append('\n');
+    }
+
+    byte[] euro = "€".getBytes(StandardCharsets.UTF_8);
+    byte[] lines = expected.toString().getBytes(StandardCharsets.UTF_8);
+    log.write(lines, 0, lines.length);
+    log.write(euro, 0, 1);
+
+    assertThat(log.asString()).isEqualTo(expected.toString());
+
+    log.write(euro, 1, 2);
+    assertThat(log.asString()).isEqualTo(expected.append('€').toString());
+    assertThat(log.size()).isEqualTo(lines.length + euro.length);
+  }
+}
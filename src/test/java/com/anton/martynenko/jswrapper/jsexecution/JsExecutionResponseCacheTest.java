@@ -0,0 +1,95 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsExecutionResponseCacheTest {
+
+  private static final String BASE_URI = "http://localhost";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void shouldReuseResponseOfSameDto() {
+    JsExecutionResponseCache cache = newCache(1 << 20);
+    JsExecutionDTO dto = finished(1);
+
+    JsExecutionResponseCache.CachedResponse first = cache.get(dto, BASE_URI, MediaType.APPLICATION_JSON);
+
+    assertThat(cache.get(dto, BASE_URI, MediaType.APPLICATION_JSON)).isSameAs(first);
+    assertThat(cache.get(finished(1), BASE_URI, MediaType.APPLICATION_JSON)).isNotSameAs(first);
+    assertThat(cache.get(dto, "http://other", MediaType.APPLICATION_JSON)).isNotSameAs(first);
+    assertThat(first.getETag()).startsWith("\"").endsWith("\"");
+    assertThat(meterRegistry.get("jswrapper.response.cache.hits").functionCounter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldKeepResponsePerMediaType() throws Exception {
+    JsExecutionResponseCache cache = newCache(1 << 20);
+    JsExecutionDTO dto = finished(1);
+
+    JsExecutionResponseCache.CachedResponse json = cache.get(dto, BASE_URI, MediaType.APPLICATION_JSON);
+    JsExecutionResponseCache.CachedResponse cbor = cache.get(dto, BASE_URI, MediaType.APPLICATION_CBOR);
+
+    assertThat(cache.getMediaTypes()).containsExactly(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR);
+    assertThat(cbor.getETag()).isNotEqualTo(json.getETag());
+    assertThat(cache.get(dto, BASE_URI, MediaType.APPLICATION_JSON)).isSameAs(json);
+    assertThat(cache.get(dto, BASE_URI, MediaType.APPLICATION_CBOR)).isSameAs(cbor);
+    assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor.getBody()).get("id").asInt()).isEqualTo(1);
+    assertThrows(IllegalArgumentException.class, () -> cache.get(dto, BASE_URI, MediaType.APPLICATION_XML));
+
+    cache.evict(1);
+    assertThat(cache.getBytes()).isZero();
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedOverLimit() {
+    JsExecutionDTO first = finished(1);
+    JsExecutionDTO second = finished(2);
+    JsExecutionDTO third = finished(3);
+    int size = newCache(1 << 20).get(first, BASE_URI, MediaType.APPLICATION_JSON).getBody().length;
+
+    //room for two responses only
+    JsExecutionResponseCache cache = newCache(size * 2 + 1);
+    JsExecutionResponseCache.CachedResponse firstResponse = cache.get(first, BASE_URI, MediaType.APPLICATION_JSON);
+    JsExecutionResponseCache.CachedResponse secondResponse = cache.get(second, BASE_URI, MediaType.APPLICATION_JSON);
+
+    //touch the first one, so the second is evicted
+    cache.get(first, BASE_URI, MediaType.APPLICATION_JSON);
+    cache.get(third, BASE_URI, MediaType.APPLICATION_JSON);
+
+    assertThat(cache.getBytes()).isLessThanOrEqualTo(size * 2 + 1);
+    assertThat(cache.get(first, BASE_URI, MediaType.APPLICATION_JSON)).isSameAs(firstResponse);
+    assertThat(cache.get(second, BASE_URI, MediaType.APPLICATION_JSON)).isNotSameAs(secondResponse);
+
+    cache.evict(1);
+    cache.evict(2);
+    cache.evict(3);
+    assertThat(cache.getBytes()).isZero();
+  }
+
+  private JsExecutionResponseCache newCache(final long maxBytes) {
+    return new JsExecutionResponseCache(Arrays.asList(
+        new MappingJackson2HttpMessageConverter(new ObjectMapper().registerModule(new JavaTimeModule())),
+        new MappingJackson2CborHttpMessageConverter(new ObjectMapper(new CBORFactory()).registerModule(new JavaTimeModule()))),
+        new JsExecutionDTOModelAssembler(), meterRegistry, maxBytes);
+  }
+
+  private static JsExecutionDTO finished(final int id) {
+    return new JsExecutionDTO(id, Status.SUCCESSFUL, "var i = 1;", ZonedDateTime.now(), ZonedDateTime.now(),
+        "", "", false, "");
+  }
+}
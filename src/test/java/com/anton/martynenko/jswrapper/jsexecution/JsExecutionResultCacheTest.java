@@ -0,0 +1,172 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class JsExecutionResultCacheTest {
+
+    private static final String PURE_CODE = "console.log('pure'); console.error('warning');";
+
+    private static final String SLOW_PURE_CODE = "var s = 0; for (var i = 0; i < 1e6; i++) { s += i; } console.log(s);";
+
+    private static final String FAILING_CODE = "console.log('before'); throw new Error('failed');";
+
+    @Autowired
+    private JsExecutionScheduler jsExecutionScheduler;
+
+    @Autowired
+    private ThreadPoolTaskExecutor taskExecutor;
+
+    @Test
+    void shouldCompleteIdenticalExecutionFromCache() throws InterruptedException {
+        JsExecutionResultCache cache = newCache(60000, 1 << 20);
+
+        JsExecution first = run(cache, PURE_CODE);
+        awaitCached(cache, first);
+
+        JsExecution second = run(cache, PURE_CODE);
+
+        //no worker is involved, execution is finished at once
+        assertThat(second.getStatus()).isEqualTo(Status.SUCCESSFUL);
+        assertThat(second.getDto().isFromCache()).isTrue();
+        assertThat(second.collectExecutionLog()).isEqualTo("pure\n");
+        assertThat(second.collectErrorLog()).isEqualTo("warning\n");
+        assertThat(first.getDto().isFromCache()).isFalse();
+        assertThat(cache.getHitRatio()).isEqualTo(0.5);
+
+        JsExecution other = run(cache, "console.log('other');");
+        await(() -> JsExecutionState.isFinal(other.getStatus()));
+        assertThat(other.getDto().isFromCache()).isFalse();
+    }
+
+    @Test
+    void shouldRunScriptOnceForConcurrentIdenticalExecutions() throws InterruptedException {
+        JsExecutionResultCache cache = newCache(60000, 1 << 20);
+
+        JsExecution leader = run(cache, SLOW_PURE_CODE);
+        JsExecution follower1 = run(cache, SLOW_PURE_CODE);
+        JsExecution follower2 = run(cache, SLOW_PURE_CODE);
+
+        //followers wait without taking a worker
+        assertThat(follower1.getStatus()).isEqualTo(Status.CREATED);
+        assertThat(follower2.getStatus()).isEqualTo(Status.CREATED);
+
+        await(() -> follower1.getStatus() == Status.SUCCESSFUL && follower2.getStatus() == Status.SUCCESSFUL);
+
+        assertThat(leader.getStatus()).isEqualTo(Status.SUCCESSFUL);
+        assertThat(follower1.getDto().isFromCache()).isTrue();
+        assertThat(follower2.collectExecutionLog()).isEqualTo(leader.collectExecutionLog());
+        assertThat(cache.getHitRatio()).isEqualTo(2.0 / 3);
+    }
+
+    @Test
+    void shouldRunWaitingExecutionsIfFirstOneFails() throws InterruptedException {
+        JsExecutionResultCache cache = newCache(60000, 1 << 20);
+
+        JsExecution leader = run(cache, FAILING_CODE);
+        JsExecution follower = run(cache, FAILING_CODE);
+
+        await(() -> JsExecutionState.isFinal(follower.getStatus()) && !follower.isRunning());
+
+        assertThat(leader.getStatus()).isNotEqualTo(Status.SUCCESSFUL);
+        assertThat(follower.getStatus()).isNotEqualTo(Status.SUCCESSFUL);
+        assertThat(follower.getDto().isFromCache()).isFalse();
+        assertThat(cache.getBytes()).isZero();
+
+        //failure isn't kept, the next one runs too
+        JsExecution next = run(cache, FAILING_CODE);
+        await(() -> JsExecutionState.isFinal(next.getStatus()));
+        assertThat(next.getDto().isFromCache()).isFalse();
+    }
+
+    @Test
+    void shouldRunAgainWhenOutputIsExpired() throws InterruptedException {
+        JsExecutionResultCache cache = newCache(100, 1 << 20);
+
+        awaitCached(cache, run(cache, PURE_CODE));
+
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        JsExecution second = run(cache, PURE_CODE);
+        await(() -> JsExecutionState.isFinal(second.getStatus()));
+
+        assertThat(second.getDto().isFromCache()).isFalse();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedOutputOverSizeLimit() throws InterruptedException {
+        //room for one output only: "pure\n" and "warning\n" take 26 bytes
+        JsExecutionResultCache cache = newCache(60000, 30);
+
+        awaitCached(cache, run(cache, PURE_CODE));
+        assertThat(cache.getBytes()).isEqualTo(26);
+
+        //"other\n" takes 12 bytes and pushes the older output out
+        run(cache, "console.log('other');");
+        await(() -> cache.getBytes() == 12);
+
+        JsExecution again = run(cache, PURE_CODE);
+        await(() -> JsExecutionState.isFinal(again.getStatus()));
+
+        assertThat(again.getDto().isFromCache()).isFalse();
+    }
+
+    @Test
+    void shouldTellExecutionsApartByInput() throws Exception {
+        JsExecutionResultCache cache = newCache(60000, 1 << 20);
+        ObjectMapper objectMapper = new ObjectMapper();
+        String script = "console.log(input.name);";
+
+        JsExecution first = run(cache, script, objectMapper.readTree("{\"name\": \"first\"}"));
+        awaitCached(cache, first);
+
+        JsExecution second = run(cache, script, objectMapper.readTree("{\"name\": \"second\"}"));
+        await(() -> JsExecutionState.isFinal(second.getStatus()));
+        assertThat(second.getDto().isFromCache()).isFalse();
+        assertThat(second.collectExecutionLog()).isEqualTo("second\n");
+
+        JsExecution again = run(cache, script, objectMapper.readTree("{\"name\":\"first\"}"));
+        assertThat(again.getDto().isFromCache()).isTrue();
+        assertThat(again.collectExecutionLog()).isEqualTo("first\n");
+    }
+
+    private JsExecutionResultCache newCache(final long ttlMillis, final long maxBytes) {
+        return new JsExecutionResultCache(taskExecutor, new SimpleMeterRegistry(), ttlMillis, maxBytes);
+    }
+
+    private JsExecution run(final JsExecutionResultCache cache, final String scriptBody) {
+        return run(cache, scriptBody, null);
+    }
+
+    private JsExecution run(final JsExecutionResultCache cache, final String scriptBody, final JsonNode input) {
+        JsExecution jsExecution = JsExecution.builder(scriptBody).input(input).build();
+        cache.run(jsExecution, () -> jsExecution.submitExecution(jsExecutionScheduler));
+        return jsExecution;
+    }
+
+    private static void awaitCached(final JsExecutionResultCache cache, final JsExecution jsExecution)
+        throws InterruptedException {
+        await(() -> jsExecution.getStatus() == Status.SUCCESSFUL && cache.getBytes() > 0);
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
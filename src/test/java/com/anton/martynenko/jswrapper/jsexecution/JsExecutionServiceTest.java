@@ -1,11 +1,24 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
+import com.anton.martynenko.jswrapper.jsexecution.callback.CallbackDestinationPolicy;
+import com.anton.martynenko.jswrapper.jsexecution.cluster.JsExecutionCluster;
+import com.anton.martynenko.jswrapper.jsexecution.cluster.JsExecutionClusterProperties;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
 import com.anton.martynenko.jswrapper.jsexecution.enums.SortBy;
 import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.problem.BinaryOutputNotAvailableProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.CallbackUrlNotAllowedProblem;
 import com.anton.martynenko.jswrapper.jsexecution.problem.JsExecutionCanNotBeCancelledProblem;
 import com.anton.martynenko.jswrapper.jsexecution.problem.JsExecutionNotFoundProblem;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.BinaryOutput;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionSchedulerProperties;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -14,13 +27,22 @@ import org.slf4j.Logger;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -30,14 +52,32 @@ class JsExecutionServiceTest {
   private JsExecutionService jsExecutionService;
 
   @Mock
-  private ThreadPoolTaskExecutor taskExecutor;
+  private JsExecutionScheduler jsExecutionScheduler;
+
+  @Mock
+  private TimingWheel timingWheel;
 
   @Mock
   private JsExecutionFactory jsExecutionFactory;
 
+  @Mock
+  private JsExecutionCancellationWatchdog cancellationWatchdog;
+
+  @Mock
+  private ThreadPoolTaskExecutor taskExecutor;
+
   @Mock
   private List<JsExecution> storage;
 
+  @Mock
+  private CallbackDestinationPolicy callbackDestinationPolicy;
+
+  @Spy
+  private JsExecutionSchedulerProperties schedulerProperties = new JsExecutionSchedulerProperties();
+
+  @Spy
+  private JsExecutionCluster cluster = new JsExecutionCluster(new JsExecutionClusterProperties());
+
   @Spy
   private Logger logger; //real logger not mock
 
@@ -69,9 +109,123 @@ class JsExecutionServiceTest {
     JsExecutionDTO inputDto = Mockito.mock(JsExecutionDTO.class);
     when(inputDto.getScriptBody()).thenReturn(VALID_CODE_EXAMPLE);
 
-    when(jsExecutionFactory.createNew(VALID_CODE_EXAMPLE)).thenReturn(jsExecution1);
+    when(jsExecutionFactory.createNew(inputDto, HttpHeader.DEFAULT_TENANT)).thenReturn(jsExecution1);
 
     assertThat(jsExecutionService.createAndRun(inputDto)).isEqualTo(jsExecutionDTO1);
+    verify(jsExecution1).submitExecution(jsExecutionScheduler);
+  }
+
+  @Test
+  void createAndRunRefusesCallbackUrlOfInternalHost() {
+    JsExecutionDTO dto = JsExecutionDTO.builder(VALID_CODE_EXAMPLE)
+        .callbackUrl("http://169.254.169.254/latest").build();
+    Mockito.doThrow(new CallbackUrlNotAllowedProblem("internal")).when(callbackDestinationPolicy)
+        .check(URI.create("http://169.254.169.254/latest"));
+
+    assertThrows(CallbackUrlNotAllowedProblem.class, () -> jsExecutionService.createAndRun(dto));
+    verify(jsExecutionFactory, never()).createNew(any(), any());
+    verify(storage, never()).add(any());
+  }
+
+  @Test
+  void createAndSchedule() {
+    JsExecutionDTO delayedDto = JsExecutionDTO.builder(VALID_CODE_EXAMPLE)
+        .runAt(ZonedDateTime.now().plusMinutes(1)).build();
+    when(jsExecutionFactory.createNew(delayedDto, HttpHeader.DEFAULT_TENANT)).thenReturn(jsExecution1);
+
+    assertThat(jsExecutionService.createAndRun(delayedDto)).isEqualTo(jsExecutionDTO1);
+    verify(jsExecution1).schedule(eq(timingWheel), anyLong(), any(Runnable.class));
+    verify(jsExecution1, never()).submitExecution(jsExecutionScheduler);
+
+    JsExecutionDTO cronDto = JsExecutionDTO.builder(VALID_CODE_EXAMPLE).cron("0 * * * * *").build();
+    when(jsExecutionFactory.createNew(cronDto, HttpHeader.DEFAULT_TENANT)).thenReturn(jsExecution2);
+
+    assertThat(jsExecutionService.createAndRun(cronDto)).isEqualTo(jsExecutionDTO2);
+    verify(jsExecution2).schedule(eq(timingWheel), anyLong(), any(Runnable.class));
+    verify(jsExecution2, never()).submitExecution(jsExecutionScheduler);
+  }
+
+  @Test
+  void cronTurnsRunInTaskExecutorAndOldTurnsAreDeleted() {
+    schedulerProperties.setMaxKeptTurns(1);
+    doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(taskExecutor).execute(any(Runnable.class));
+
+    JsExecutionDTO cronDto = JsExecutionDTO.builder(VALID_CODE_EXAMPLE).cron("0 * * * * *").build();
+    when(jsExecutionFactory.createNew(cronDto, HttpHeader.DEFAULT_TENANT)).thenReturn(jsExecution2);
+    JsExecution turn1 = Mockito.mock(JsExecution.class);
+    JsExecution turn2 = Mockito.mock(JsExecution.class);
+    when(jsExecutionFactory.createTurn(jsExecution2)).thenReturn(turn1, turn2);
+    when(turn1.getId()).thenReturn(id2);
+    when(storage.get(id2)).thenReturn(turn1);
+    doAnswer(invocation -> {
+      invocation.getArgument(1, Runnable.class).run();
+      return null;
+    }).when(turn1).whenFinished(eq(taskExecutor), any(Runnable.class));
+
+    jsExecutionService.createAndRun(cronDto);
+
+    ArgumentCaptor<Runnable> onDue = ArgumentCaptor.forClass(Runnable.class);
+    verify(jsExecution2).schedule(eq(timingWheel), anyLong(), onDue.capture());
+    onDue.getValue().run();
+    verify(taskExecutor).execute(any(Runnable.class));
+    verify(turn1).submitExecution(jsExecutionScheduler);
+    verify(storage, never()).set(id2, null);
+
+    //the second turn pushes the finished first one out of storage
+    Mockito.verify(jsExecution2, Mockito.times(2)).schedule(eq(timingWheel), anyLong(), onDue.capture());
+    onDue.getValue().run();
+    verify(turn2).submitExecution(jsExecutionScheduler);
+    verify(storage).set(id2, null);
+  }
+
+  @Test
+  void createAndRunBinaryExpiresOutput() {
+    BinaryOutput binaryOutput = JsSandbox.DEFAULT.newBinaryOutput();
+    ByteBuffer binaryInput = ByteBuffer.wrap(new byte[] {1});
+    when(jsExecutionFactory.createBinary(VALID_CODE_EXAMPLE, Priority.NORMAL, HttpHeader.DEFAULT_TENANT, binaryInput))
+        .thenReturn(jsExecution1);
+    when(jsExecution1.getStatus()).thenReturn(Status.SUCCESSFUL);
+    when(jsExecution1.isBinary()).thenReturn(true);
+    when(jsExecution1.getBinaryOutput()).thenReturn(binaryOutput);
+    doAnswer(invocation -> {
+      invocation.getArgument(1, Runnable.class).run();
+      return null;
+    }).when(jsExecution1).whenFinished(eq(taskExecutor), any(Runnable.class));
+
+    assertThat(jsExecutionService.createAndRunBinary(VALID_CODE_EXAMPLE, Priority.NORMAL, binaryInput,
+        HttpHeader.DEFAULT_TENANT)).isEqualTo(jsExecutionDTO1);
+    assertThat(jsExecutionService.getBinaryOutput(id1)).isSameAs(binaryOutput);
+
+    //lifetime starts once execution is finished
+    ArgumentCaptor<Runnable> expiry = ArgumentCaptor.forClass(Runnable.class);
+    verify(timingWheel).schedule(expiry.capture(), eq(binaryOutput.getTtlMillis()), eq(TimeUnit.MILLISECONDS));
+    expiry.getValue().run();
+
+    assertThat(binaryOutput.isExpired()).isTrue();
+    assertThrows(BinaryOutputNotAvailableProblem.class, () -> jsExecutionService.getBinaryOutput(id1));
+  }
+
+  @Test
+  void getVersionAndWaitForChange() {
+    when(jsExecution1.getVersion()).thenReturn(5L);
+    when(jsExecution1.whenChanged(eq(5L), any(Runnable.class))).thenAnswer(invocation -> {
+      invocation.getArgument(1, Runnable.class).run();
+      return (Runnable) () -> { };
+    });
+    Runnable listener = Mockito.mock(Runnable.class);
+
+    assertThat(jsExecutionService.getVersion(id1)).isEqualTo(5L);
+
+    jsExecutionService.whenChanged(id1, 5L, listener);
+
+    //listener is moved off the thread which changed execution
+    verify(taskExecutor).execute(listener);
+    verify(listener, never()).run();
+
+    assertThrows(JsExecutionNotFoundProblem.class, () -> jsExecutionService.getVersion(noSuchId));
   }
 
   @Test
@@ -126,6 +280,7 @@ class JsExecutionServiceTest {
     when(jsExecution1.cancel()).thenReturn(true);
 
     assertThat(jsExecutionService.cancelExecution(id1)).isEqualTo(jsExecutionDTO1);
+    verify(cancellationWatchdog).watch(jsExecution1);
 
     when(jsExecution1.getStatus()).thenReturn(Status.CANCELLED);
     when(jsExecution1.cancel()).thenReturn(false);
@@ -0,0 +1,186 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionSchedulerProperties;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorkerPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsExecutionStateTest {
+
+  private static final int ITERATIONS = 500;
+
+  private JsWorkerPool jsWorkerPool;
+  private JsExecutionScheduler jsExecutionScheduler;
+  private ExecutorService racers;
+
+  @BeforeEach
+  void prepare() {
+    jsWorkerPool = new JsWorkerPool(4);
+    jsExecutionScheduler = new JsExecutionScheduler(jsWorkerPool, new JsExecutionSchedulerProperties(),
+        new SimpleMeterRegistry());
+    racers = Executors.newFixedThreadPool(3);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    racers.shutdownNow();
+    jsWorkerPool.shutdown();
+  }
+
+  @Test
+  void shouldAllowOnlyForwardTransitions() {
+    assertThat(JsExecutionState.isAllowed(Status.CREATED, Status.SUBMITTED)).isTrue();
+    assertThat(JsExecutionState.isAllowed(Status.SCHEDULED, Status.SCHEDULED)).isTrue();
+    assertThat(JsExecutionState.isAllowed(Status.SUBMITTED, Status.RUNNING)).isTrue();
+    assertThat(JsExecutionState.isAllowed(Status.RUNNING, Status.SUCCESSFUL)).isTrue();
+    assertThat(JsExecutionState.isAllowed(Status.RUNNING, Status.CANCELLED)).isTrue();
+
+    assertThat(JsExecutionState.isAllowed(Status.CREATED, Status.RUNNING)).isFalse();
+    assertThat(JsExecutionState.isAllowed(Status.RUNNING, Status.SUBMITTED)).isFalse();
+    assertThat(JsExecutionState.isAllowed(Status.CANCELLED, Status.SUCCESSFUL)).isFalse();
+    assertThat(JsExecutionState.isAllowed(Status.SUCCESSFUL, Status.CANCELLED)).isFalse();
+
+    for (Status status : Status.values()) {
+      boolean terminal = status == Status.SUCCESSFUL || status == Status.REJECTED
+          || status == Status.UNSUCCESSFUL || status == Status.CANCELLED;
+      assertThat(JsExecutionState.isFinal(status)).isEqualTo(terminal);
+    }
+  }
+
+  @Test
+  void shouldNotRunWithoutSubmitting() {
+    JsExecution jsExecution = JsExecution.builder("var i = 1;").build();
+
+    jsExecution.run();
+
+    assertThat(jsExecution.getStatus()).isEqualTo(Status.CREATED);
+  }
+
+  @Test
+  void shouldNotSubmitTwice() throws Exception {
+    JsExecution jsExecution = JsExecution.builder("var i = 1;").build();
+
+    jsExecution.submitExecution(jsExecutionScheduler);
+    jsExecution.getExecutionFuture().get(5, TimeUnit.SECONDS);
+
+    assertThrows(IllegalStateException.class, () -> jsExecution.submitExecution(jsExecutionScheduler));
+    assertThat(jsExecution.getStatus()).isEqualTo(Status.SUCCESSFUL);
+  }
+
+  @Test
+  void shouldKeepStateConsistentWhenCancelRacesWithRun() throws Exception {
+    int cancelled = 0;
+    int finished = 0;
+
+    for (int i = 0; i < ITERATIONS; i++) {
+      JsExecution jsExecution = JsExecution.builder("var i = 0; while (i < 1000) { i++; }").build();
+      CyclicBarrier start = new CyclicBarrier(3);
+      CountDownLatch done = new CountDownLatch(1);
+      List<Status> seen = new ArrayList<>();
+
+      Future<?> submitter = racers.submit(() -> {
+        start.await();
+        jsExecution.submitExecution(jsExecutionScheduler);
+        return null;
+      });
+
+      Future<Boolean> canceller = racers.submit(() -> {
+        start.await();
+        return jsExecution.cancel();
+      });
+
+      Future<?> reader = racers.submit(() -> {
+        start.await();
+        while (done.getCount() > 0) {
+          JsExecutionDTO dto = jsExecution.getDto();
+          seen.add(dto.getStatus());
+
+          //snapshot never mixes fields of different states
+          assertThat(dto.getExecutionTimeString() != null).isEqualTo(dto.getStatus() == Status.SUCCESSFUL);
+          if (JsExecutionState.isFinal(dto.getStatus())) {
+            assertThat(dto.isCancellable()).isFalse();
+          }
+        }
+        return null;
+      });
+
+      submitter.get(5, TimeUnit.SECONDS);
+      boolean cancelSucceeded = canceller.get(5, TimeUnit.SECONDS);
+
+      awaitFinalStatus(jsExecution);
+      done.countDown();
+      reader.get(5, TimeUnit.SECONDS);
+
+      Status finalStatus = jsExecution.getStatus();
+
+      //successful cancel always wins, failed cancel means script has already finished
+      if (cancelSucceeded) {
+        assertThat(finalStatus).isEqualTo(Status.CANCELLED);
+        cancelled++;
+      } else {
+        assertThat(finalStatus).isEqualTo(Status.SUCCESSFUL);
+        finished++;
+      }
+
+      //observed statuses go only forward, reader may miss some of them
+      for (int j = 1; j < seen.size(); j++) {
+        Status previous = seen.get(j - 1);
+        Status next = seen.get(j);
+        assertThat(isReachable(previous, next))
+            .as("%s -> %s", previous, next)
+            .isTrue();
+      }
+
+      if (jsExecution.getExecutionFuture() != null) {
+        jsExecution.getExecutionFuture().cancel(false);
+      }
+    }
+
+    assertThat(cancelled + finished).isEqualTo(ITERATIONS);
+  }
+
+  private static boolean isReachable(final Status from, final Status to) {
+    Set<Status> reached = EnumSet.of(from);
+    Deque<Status> queue = new ArrayDeque<>(reached);
+
+    while (!queue.isEmpty()) {
+      Status current = queue.poll();
+      for (Status next : Status.values()) {
+        if (JsExecutionState.isAllowed(current, next) && reached.add(next)) {
+          queue.add(next);
+        }
+      }
+    }
+
+    return reached.contains(to);
+  }
+
+  private static void awaitFinalStatus(final JsExecution jsExecution) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+    while (!JsExecutionState.isFinal(jsExecution.getStatus()) || jsExecution.isRunning()) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+  }
+}
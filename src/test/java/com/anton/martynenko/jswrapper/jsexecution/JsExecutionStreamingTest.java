@@ -0,0 +1,101 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class JsExecutionStreamingTest {
+
+    private static final Pattern LOCATION = Pattern.compile("Location: .*/executions/(\\d+)\r\n");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JsExecutionService jsExecutionService;
+
+    @Test
+    void outputIsStreamedWhileRequestBodyIsStillSent() throws Exception {
+        String script = "for (const line of stream.lines()) { stream.write(line.toUpperCase() + '\\n'); }";
+
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(10_000);
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write(("POST /executions/stream?scriptBody=" + URLEncoder.encode(script, "UTF-8") + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Content-Type: application/x-ndjson\r\n"
+                + "Transfer-Encoding: chunked\r\n"
+                + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            writeChunk(out, "first\nsec");
+
+            String head = readUntil(in, "\r\n\r\n");
+            assertThat(head).startsWith("HTTP/1.1 200");
+            Matcher location = LOCATION.matcher(head);
+            assertThat(location.find()).isTrue();
+            int executionId = Integer.parseInt(location.group(1));
+
+            //the first line comes back before the rest of request is sent
+            assertThat(readUntil(in, "FIRST\n")).endsWith("FIRST\n");
+            assertThat(jsExecutionService.getOne(executionId).getStatus()).isEqualTo(Status.RUNNING);
+
+            writeChunk(out, "ond\n");
+            assertThat(readUntil(in, "SECOND\n")).endsWith("SECOND\n");
+
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertThat(readUntil(in, "\r\n0\r\n\r\n")).endsWith("0\r\n\r\n");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (jsExecutionService.getOne(executionId).getStatus() != Status.SUCCESSFUL) {
+                assertThat(System.nanoTime()).isLessThan(deadline);
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static void writeChunk(final OutputStream out, final String text) throws Exception {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        out.write((Integer.toHexString(bytes.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+
+        //CRLF closing the chunk comes in a separate packet, it broke non-blocking chunked reading of Tomcat 9.0.63
+        Thread.sleep(50);
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static String readUntil(final InputStream in, final String end) throws IOException {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+
+        while (!new String(read.toByteArray(), StandardCharsets.UTF_8).endsWith(end)) {
+            int next = in.read();
+            if (next < 0) {
+                break;
+            }
+            read.write(next);
+        }
+
+        return new String(read.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
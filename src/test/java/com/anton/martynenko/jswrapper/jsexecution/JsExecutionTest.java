@@ -1,18 +1,27 @@
 package com.anton.martynenko.jswrapper.jsexecution;
 
 import com.anton.martynenko.jswrapper.jsexecution.enums.Status;
-import org.apache.commons.lang3.reflect.FieldUtils;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.JsExecutionScheduler;
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.BinaryOutput;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.SandboxProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.StopWatch;
 
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -33,11 +42,14 @@ class JsExecutionTest {
             "console.timeEnd('mySlowFunction')";
 
     @Autowired
-    private ThreadPoolTaskExecutor threadPoolTaskExecutor;
+    private JsExecutionScheduler jsExecutionScheduler;
+
+    @Autowired
+    private TimingWheel timingWheel;
 
     @Test
     void shouldCreateWithFilledProperties()  {
-        JsExecution jsExecution = new JsExecution(VALID_CODE_EXAMPLE);
+        JsExecution jsExecution = JsExecution.builder(VALID_CODE_EXAMPLE).build();
         assertThat(jsExecution.getStatus()).isEqualTo(Status.CREATED);
         assertThat(jsExecution.getScheduledTime()).isNotNull();
         assertThat(jsExecution.getExecutionTime()).isNull();
@@ -45,41 +57,46 @@ class JsExecutionTest {
     }
 
     @Test
-    void shouldExecuteNormallyAndFillProperties() throws ExecutionException, InterruptedException, IllegalAccessException {
+    void shouldExecuteNormallyAndFillProperties() throws ExecutionException, InterruptedException {
 
-        JsExecution jsExecution = new JsExecution(FUNCTION_CODE_EXAMPLE);
+        JsExecution jsExecution = JsExecution.builder(FUNCTION_CODE_EXAMPLE).build();
 
-        jsExecution.submitExecution(threadPoolTaskExecutor);
+        jsExecution.submitExecution(jsExecutionScheduler);
 
-        Future<JsExecution> executionFuture = (Future) FieldUtils.readField(jsExecution, "executionFuture", true);
+        Future<?> executionFuture = jsExecution.getExecutionFuture();
 
         executionFuture.get();
 
         assertThat(jsExecution.getScriptBody()).isEqualTo(FUNCTION_CODE_EXAMPLE);
         assertThat(jsExecution.getStatus()).isEqualTo(Status.SUCCESSFUL);
         assertThat(jsExecution.collectExecutionLog()).isEqualTo(JS_CONSOLE_OUTPUT + "\n");
-        assertThat(jsExecution.collectErrorLog()).startsWith("[To redirect Truffle log output to a file use one of the following options:");
+        assertThat(jsExecution.collectErrorLog()).isEmpty();
+
+        //finished execution builds its DTO only once
+        JsExecutionDTO finalDto = jsExecution.getDto();
+        assertThat(finalDto.getExecutionLog()).isEqualTo(JS_CONSOLE_OUTPUT + "\n");
+        assertThat(jsExecution.getDto()).isSameAs(finalDto);
 
-        jsExecution = new JsExecution(VALID_CODE_EXAMPLE2);
-        jsExecution.submitExecution(threadPoolTaskExecutor);
+        jsExecution = JsExecution.builder(VALID_CODE_EXAMPLE2).build();
+        jsExecution.submitExecution(jsExecutionScheduler);
 
-        executionFuture = (Future) FieldUtils.readField(jsExecution, "executionFuture", true);
+        executionFuture = jsExecution.getExecutionFuture();
 
         executionFuture.get();
 
         assertThat(jsExecution.getScriptBody()).isEqualTo(VALID_CODE_EXAMPLE2);
         assertThat(jsExecution.getStatus()).isEqualTo(Status.SUCCESSFUL);
         assertThat(jsExecution.collectExecutionLog()).isEmpty();
-        assertThat(jsExecution.collectErrorLog()).startsWith("[To redirect Truffle log output to a file use one of the following options:");
+        assertThat(jsExecution.collectErrorLog()).isEmpty();
     }
 
     @Test
-    void shouldSuccessfullyStopAndFillProperties() throws InterruptedException, IllegalAccessException {
-        JsExecution jsExecution = new JsExecution(SLOW_JS_CODE);
+    void shouldSuccessfullyStopAndFillProperties() throws InterruptedException {
+        JsExecution jsExecution = JsExecution.builder(SLOW_JS_CODE).build();
 
-        jsExecution.submitExecution(threadPoolTaskExecutor);
+        jsExecution.submitExecution(jsExecutionScheduler);
 
-        Future executionFuture = (Future) FieldUtils.readField(jsExecution, "executionFuture", true);
+        Future<?> executionFuture = jsExecution.getExecutionFuture();
 
         TimeUnit.MILLISECONDS.sleep(500);
 
@@ -92,12 +109,66 @@ class JsExecutionTest {
         Assertions.assertEquals(jsExecution.getStatus(), Status.CANCELLED);
 
         assertThat(executionFuture.isCancelled()).isTrue();
+
+        //context is closed, so worker is free again
+        assertThat(jsExecution.isRunning()).isFalse();
+        assertThat(jsExecution.getRunner()).isNull();
+    }
+
+    @Test
+    void shouldRunScheduledOrCancelIt() throws InterruptedException {
+        JsExecution jsExecution = JsExecution.builder(VALID_CODE_EXAMPLE2).build();
+
+        jsExecution.schedule(timingWheel, 300, () -> jsExecution.submitExecution(jsExecutionScheduler));
+
+        assertThat(jsExecution.getStatus()).isEqualTo(Status.SCHEDULED);
+        assertThat(jsExecution.getDto().isCancellable()).isTrue();
+
+        TimeUnit.MILLISECONDS.sleep(3000);
+
+        assertThat(jsExecution.getStatus()).isEqualTo(Status.SUCCESSFUL);
+
+        JsExecution cancelledExecution = JsExecution.builder(VALID_CODE_EXAMPLE2).build();
+
+        cancelledExecution.schedule(timingWheel, 300, () -> cancelledExecution.submitExecution(jsExecutionScheduler));
+
+        assertThat(cancelledExecution.cancel()).isTrue();
+
+        TimeUnit.MILLISECONDS.sleep(1000);
+
+        assertThat(cancelledExecution.getStatus()).isEqualTo(Status.CANCELLED);
+        assertThat(cancelledExecution.getDto().isCancellable()).isFalse();
+    }
+
+    @Test
+    void shouldRunActionOnceFinished() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CompletableFuture<Status> statusWhenDone = new CompletableFuture<>();
+        JsExecution jsExecution = JsExecution.builder(FUNCTION_CODE_EXAMPLE).build();
+
+        try {
+            jsExecution.whenFinished(executor, () -> statusWhenDone.complete(jsExecution.getStatus()));
+
+            assertThat(statusWhenDone).isNotDone();
+
+            jsExecution.submitExecution(jsExecutionScheduler);
+
+            assertThat(statusWhenDone.get(10, TimeUnit.SECONDS)).isEqualTo(Status.SUCCESSFUL);
+            assertThat(jsExecution.isRunning()).isFalse();
+
+            //finished execution runs action right away
+            AtomicBoolean ranNow = new AtomicBoolean();
+            jsExecution.whenFinished(executor, () -> ranNow.set(true));
+            assertThat(ranNow).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     @Test
     void equalsAndHashcodeShouldWorkCorrectly(){
-        JsExecution jsExecution1 = new JsExecution(FUNCTION_CODE_EXAMPLE);
-        JsExecution jsExecution2 = new JsExecution(FUNCTION_CODE_EXAMPLE);
+        JsExecution jsExecution1 = JsExecution.builder(FUNCTION_CODE_EXAMPLE).build();
+        JsExecution jsExecution2 = JsExecution.builder(FUNCTION_CODE_EXAMPLE).build();
         assertThat(jsExecution1.hashCode()).isNotEqualTo(jsExecution2.hashCode());
         assertThat(jsExecution1).isNotEqualTo(jsExecution2);
     }
@@ -106,7 +177,10 @@ class JsExecutionTest {
     void shouldSuccesfullyRunAndFinishConcurrently() throws InterruptedException {
         int numberOfThreads = 1000;
         int poolSize = 12;
-        List<JsExecution> jsExecutions = Collections.nCopies(numberOfThreads, new JsExecution(VALID_CODE_EXAMPLE));
+        List<JsExecution> jsExecutions = new ArrayList<>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            jsExecutions.add(JsExecution.builder(VALID_CODE_EXAMPLE).build());
+        }
 
         System.out.println(jsExecutions.size());
 
@@ -117,8 +191,10 @@ class JsExecutionTest {
         watch.start();
         jsExecutions.forEach(jsExecution -> {
             service.submit(() -> {
-                jsExecution.run();
+                jsExecution.submitExecution(jsExecutionScheduler);
+                jsExecution.getExecutionFuture().get();
                 latch.countDown();
+                return null;
             });
         });
 
@@ -129,13 +205,13 @@ class JsExecutionTest {
             numberOfThreads, poolSize, watch.getTotalTimeMillis());
 
         jsExecutions.forEach(jsExecution -> {
-            assertThat(jsExecution.getStatus().equals(Status.SUCCESSFUL));
+            assertThat(jsExecution.getStatus()).isEqualTo(Status.SUCCESSFUL);
         });
     }
 
     @Test
     void shouldCreateValidDto() {
-        JsExecution jsExecution = new JsExecution(VALID_CODE_EXAMPLE);
+        JsExecution jsExecution = JsExecution.builder(VALID_CODE_EXAMPLE).build();
 
         JsExecutionDTO jsExecutionDTO = jsExecution.getDto();
 
@@ -148,4 +224,80 @@ class JsExecutionTest {
         assertThat(jsExecutionDTO.getScheduledTimeString()).isNotEmpty();
         assertThat(jsExecutionDTO.getExecutionTimeString()).isNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldShareBinaryInputAndOutputWithScript() throws Exception {
+        JsSandbox sandbox = JsSandbox.DEFAULT;
+        BinaryOutput binaryOutput = sandbox.newBinaryOutput();
+        JsExecution jsExecution = JsExecution.builder(
+            "const bytes = new Uint8Array(binaryInput);\n"
+                + "const out = new Uint8Array(binaryOutput.allocate(bytes.length));\n"
+                + "for (let i = 0; i < bytes.length; i++) { out[i] = bytes[bytes.length - 1 - i]; }\n"
+                + "new Uint8Array(binaryOutput.allocate(1))[0] = 255;\n"
+                + "try { bytes[0] = 0; } catch (e) { console.log(e.name); }")
+            .sandbox(sandbox)
+            .binary(ByteBuffer.wrap(new byte[] {1, 2, 3}), binaryOutput)
+            .build();
+
+        jsExecution.submitExecution(jsExecutionScheduler);
+        jsExecution.getExecutionFuture().get();
+
+        assertThat(jsExecution.getStatus()).isEqualTo(Status.SUCCESSFUL);
+        assertThat(jsExecution.isBinary()).isTrue();
+        assertThat(jsExecution.getDto().isBinary()).isTrue();
+        //input is read-only for the script
+        assertThat(jsExecution.collectExecutionLog()).isEqualTo("TypeError\n");
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        binaryOutput.writeTo(written);
+
+        assertThat(binaryOutput.getSize()).isEqualTo(4);
+        assertThat(written.toByteArray()).containsExactly(3, 2, 1, 255);
+
+        //input is dropped as soon as script frees its worker, output once it expires
+        assertThat(jsExecution.getBinaryInput()).isNull();
+
+        binaryOutput.expire();
+
+        assertThat(binaryOutput.isExpired()).isTrue();
+        assertThat(binaryOutput.getSize()).isZero();
+        assertThatThrownBy(() -> binaryOutput.writeTo(new ByteArrayOutputStream())).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldDropBinaryInputOfCancelledExecution() {
+        JsSandbox sandbox = JsSandbox.DEFAULT;
+        JsExecution jsExecution = JsExecution.builder("binaryInput")
+            .sandbox(sandbox)
+            .binary(ByteBuffer.wrap(new byte[] {1}), sandbox.newBinaryOutput())
+            .build();
+
+        assertThat(jsExecution.getBinaryInput()).isNotNull();
+        assertThat(jsExecution.cancel()).isTrue();
+        assertThat(jsExecution.getBinaryInput()).isNull();
+    }
+
+    @Test
+    void shouldStartWithPreludeLoadedIntoOwnContext() throws Exception {
+        SandboxProperties properties = new SandboxProperties();
+        properties.setPrelude(Collections.singletonList("classpath:prelude/greeting.js"));
+        JsSandbox sandbox = new JsSandbox(properties, new ObjectMapper());
+
+        JsExecution first = JsExecution.builder("globalThis.leaked = true; console.log(greet('first'))")
+            .sandbox(sandbox)
+            .build();
+        first.submitExecution(jsExecutionScheduler);
+        first.getExecutionFuture().get();
+
+        assertThat(first.getStatus()).isEqualTo(Status.SUCCESSFUL);
+        assertThat(first.collectExecutionLog()).isEqualTo("Hello, first\n");
+        assertThat(first.getDto().getPreludeMillis()).isNotNull().isNotNegative();
+
+        JsExecution second = JsExecution.builder("console.log(typeof leaked)").sandbox(sandbox).build();
+        second.submitExecution(jsExecutionScheduler);
+        second.getExecutionFuture().get();
+
+        assertThat(second.collectExecutionLog()).isEqualTo("undefined\n");
+        assertThat(JsExecution.builder(VALID_CODE_EXAMPLE).build().getDto().getPreludeMillis()).isNull();
+    }
+}
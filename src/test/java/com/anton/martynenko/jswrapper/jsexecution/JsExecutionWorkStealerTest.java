@@ -0,0 +1,195 @@
+package com.anton.martynenko.jswrapper.jsexecution;
+
+import com.anton.martynenko.jswrapper.JsWrapperServiceApplication;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsExecutionWorkStealerTest {
+
+  private static final int EXECUTIONS = 6;
+
+  private static final String SECRET = "stealing-test-secret";
+
+  private static ConfigurableApplicationContext node0;
+  private static ConfigurableApplicationContext node1;
+  private static String node0Uri;
+  private static String node1Uri;
+
+  private final RestTemplate restTemplate = new RestTemplate();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @BeforeAll
+  static void startNodes() throws IOException {
+    int port0 = freePort();
+    int port1 = freePort();
+    node0Uri = "http://localhost:" + port0;
+    node1Uri = "http://localhost:" + port1;
+
+    node0 = startNode(0, port0);
+    node1 = startNode(1, port1);
+  }
+
+  @AfterAll
+  static void stopNodes() {
+    node0.close();
+    node1.close();
+  }
+
+  @Test
+  void shouldRunQueuedExecutionsOfBusyNodeOnIdleOne() throws Exception {
+    List<Integer> ids = new ArrayList<>();
+
+    for (int i = 0; i < EXECUTIONS; i++) {
+      //request forwarded by node 1 stays on node 0, it has one worker only
+      String created = restTemplate.postForObject(node0Uri + "/executions", slowScript(i), String.class);
+      ids.add(objectMapper.readTree(created).get("id").asInt());
+    }
+
+    //executions stay owned by node 0
+    assertThat(ids).allMatch(id -> id % 2 == 0);
+
+    for (int i = 0; i < EXECUTIONS; i++) {
+      int id = ids.get(i);
+      String url = node0Uri + "/executions/" + id;
+
+      String status = "";
+      for (int attempt = 0; attempt < 200 && !status.equals("SUCCESSFUL"); attempt++) {
+        status = objectMapper.readTree(restTemplate.getForObject(url, String.class)).get("status").asText();
+        Thread.sleep(50);
+      }
+
+      assertThat(status).isEqualTo("SUCCESSFUL");
+      assertThat(restTemplate.getForObject(url + "/executionlog", String.class)).isEqualTo("done " + i + "\n");
+    }
+
+    assertThat(node1.getBean(MeterRegistry.class).get("jswrapper.cluster.stolen").counter().count())
+        .isPositive();
+    //execution taken by the test itself is lent, but never stolen by node 1
+    MeterRegistry node0Meters = node0.getBean(MeterRegistry.class);
+    assertThat(node0Meters.get("jswrapper.cluster.lent").counter().count())
+        .isEqualTo(node1.getBean(MeterRegistry.class).get("jswrapper.cluster.stolen").counter().count()
+            + node0Meters.get("jswrapper.cluster.lease.expired").counter().count());
+  }
+
+  @Test
+  void shouldFinishLentExecutionWhenThiefNeverReports() throws Exception {
+    //two slow executions take both slots of node 0, the third one waits in its queue
+    for (int i = 0; i < 2; i++) {
+      restTemplate.postForObject(node0Uri + "/executions", slowScript(i), String.class);
+    }
+    String created = restTemplate.postForObject(node0Uri + "/executions", slowScript(2), String.class);
+    int id = objectMapper.readTree(created).get("id").asInt();
+
+    //test takes it as node 1, real node 1 doesn't know it and never lists it in its advertisements
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeader.CLUSTER_NODE, "1");
+    headers.set(HttpHeader.CLUSTER_SECRET, SECRET);
+    String taken = restTemplate.exchange(node0Uri + "/internal/cluster/executions/steal?max=1", HttpMethod.POST,
+        new HttpEntity<>(headers), String.class).getBody();
+    assertThat(objectMapper.readTree(taken).get(0).get("id").asInt()).isEqualTo(id);
+
+    String url = node0Uri + "/executions/" + id;
+    JsonNode execution = objectMapper.readTree(restTemplate.getForObject(url, String.class));
+    assertThat(execution.get("status").asText()).isEqualTo("RUNNING");
+
+    for (int attempt = 0; attempt < 100 && execution.get("status").asText().equals("RUNNING"); attempt++) {
+      Thread.sleep(50);
+      execution = objectMapper.readTree(restTemplate.getForObject(url, String.class));
+    }
+
+    assertThat(execution.get("status").asText()).isEqualTo("UNSUCCESSFUL");
+    assertThat(restTemplate.getForObject(url + "/exceptioninfo", String.class)).contains("didn't report");
+    assertThat(node0.getBean(MeterRegistry.class).get("jswrapper.cluster.lease.expired").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void shouldRejectInternalCallsOfNonPeers() {
+    restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+      @Override
+      public boolean hasError(final ClientHttpResponse response) {
+        return false;
+      }
+    });
+
+    String steal = node0Uri + "/internal/cluster/executions/steal?max=1000";
+
+    assertThat(internalCall(steal, HttpMethod.POST, "1", null, null)).isEqualTo(HttpStatus.FORBIDDEN);
+    assertThat(internalCall(steal, HttpMethod.POST, "1", "guess", null)).isEqualTo(HttpStatus.FORBIDDEN);
+    assertThat(internalCall(steal, HttpMethod.POST, "0", SECRET, null)).isEqualTo(HttpStatus.FORBIDDEN);
+    assertThat(internalCall(steal, HttpMethod.POST, "7", SECRET, null)).isEqualTo(HttpStatus.FORBIDDEN);
+    assertThat(internalCall(steal, HttpMethod.POST, "1", SECRET, null)).isEqualTo(HttpStatus.OK);
+
+    String result = "{\"status\": \"SUCCESSFUL\", \"executionLog\": \"forged\"}";
+    assertThat(internalCall(node0Uri + "/internal/cluster/executions/0/result", HttpMethod.PUT, "1", null, result))
+        .isEqualTo(HttpStatus.FORBIDDEN);
+
+    //peer advertises only its own load
+    String load = "{\"queued\": 100, \"inFlight\": 0, \"maxInFlight\": 1}";
+    assertThat(internalCall(node0Uri + "/internal/cluster/nodes/1/load", HttpMethod.PUT, "1", null, load))
+        .isEqualTo(HttpStatus.FORBIDDEN);
+    assertThat(internalCall(node1Uri + "/internal/cluster/nodes/1/load", HttpMethod.PUT, "0", SECRET, load))
+        .isEqualTo(HttpStatus.FORBIDDEN);
+  }
+
+  private HttpStatus internalCall(final String url, final HttpMethod method, final String node, final String secret,
+                                  final String body) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set(HttpHeader.CLUSTER_NODE, node);
+    if (secret != null) {
+      headers.set(HttpHeader.CLUSTER_SECRET, secret);
+    }
+    return restTemplate.exchange(url, method, new HttpEntity<>(body, headers), String.class).getStatusCode();
+  }
+
+  private static HttpEntity<String> slowScript(final int i) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set(HttpHeader.CLUSTER_NODE, "1");
+    headers.set(HttpHeader.CLUSTER_SECRET, SECRET);
+    return new HttpEntity<>("{\"scriptBody\": \"const end = Date.now() + 500; while (Date.now() < end) {} "
+        + "console.log('done " + i + "')\"}", headers);
+  }
+
+  private static ConfigurableApplicationContext startNode(final int nodeId, final int port) {
+    return new SpringApplicationBuilder(JsWrapperServiceApplication.class)
+        .properties(
+            "server.port=" + port,
+            "jswrapper.workers.size=1",
+            "jswrapper.cluster.node-id=" + nodeId,
+            "jswrapper.cluster.nodes=" + node0Uri + "," + node1Uri,
+            "jswrapper.cluster.balance-interval-millis=100",
+            "jswrapper.cluster.lease-millis=1000",
+            "jswrapper.cluster.secret=" + SECRET)
+        .run();
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
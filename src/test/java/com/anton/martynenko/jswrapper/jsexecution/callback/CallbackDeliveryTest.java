@@ -0,0 +1,133 @@
+package com.anton.martynenko.jswrapper.jsexecution.callback;
+
+import com.anton.martynenko.jswrapper.jsexecution.scheduler.TimingWheel;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallbackDeliveryTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<JsonNode> bodies = new CopyOnWriteArrayList<>();
+  private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+  private final AtomicInteger failuresLeft = new AtomicInteger();
+
+  private HttpServer server;
+  private TimingWheel timingWheel;
+  private ThreadPoolTaskExecutor taskExecutor;
+  private CallbackDelivery callbackDelivery;
+  private URI destination;
+  private int failureStatus = 503;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/callback", exchange -> {
+      bodies.add(objectMapper.readTree(StreamUtils.copyToByteArray(exchange.getRequestBody())));
+      clientPorts.add(exchange.getRemoteAddress().getPort());
+
+      exchange.sendResponseHeaders(failuresLeft.getAndDecrement() > 0 ? failureStatus : 204, -1);
+      exchange.close();
+    });
+    server.start();
+    destination = URI.create("http://localhost:" + server.getAddress().getPort() + "/callback");
+
+    timingWheel = new TimingWheel(10, TimeUnit.MILLISECONDS, 64);
+    taskExecutor = new ThreadPoolTaskExecutor();
+    taskExecutor.initialize();
+
+    CallbackProperties properties = new CallbackProperties();
+    properties.setLingerMillis(100);
+    properties.setBatchSize(3);
+    properties.setInitialBackoffMillis(50);
+    properties.setAllowedHosts(Collections.singleton("localhost"));
+
+    callbackDelivery = new CallbackDelivery(properties, new CallbackDestinationPolicy(properties), objectMapper,
+        timingWheel, taskExecutor, meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    callbackDelivery.close();
+    taskExecutor.shutdown();
+    timingWheel.shutdown();
+    server.stop(0);
+  }
+
+  @Test
+  void shouldBatchAndRetryOverOneConnection() throws Exception {
+    failuresLeft.set(1);
+
+    for (int i = 0; i < 5; i++) {
+      callbackDelivery.enqueue(destination, Collections.singletonMap("id", i));
+    }
+
+    awaitCount("jswrapper.callback.delivered", 5);
+
+    //first batch failed once, then batches of 3 and 2 came in order
+    assertThat(bodies).hasSize(3);
+    assertThat(bodies.get(0)).isEqualTo(bodies.get(1));
+    assertThat(bodies.get(1).findValuesAsText("id")).containsExactly("0", "1", "2");
+    assertThat(bodies.get(2).findValuesAsText("id")).containsExactly("3", "4");
+    assertThat(meterRegistry.get("jswrapper.callback.retried").counter().count()).isEqualTo(1);
+    //connection is kept alive between requests, retry comes after backoff when it is surely back in pool
+    assertThat(clientPorts.get(1)).isEqualTo(clientPorts.get(0));
+  }
+
+  @Test
+  void shouldDropCallbacksRefusedByDestination() throws Exception {
+    failuresLeft.set(1);
+    failureStatus = 404;
+
+    callbackDelivery.enqueue(destination, Collections.singletonMap("id", 0));
+    awaitCount("jswrapper.callback.dropped", 1);
+
+    callbackDelivery.enqueue(destination, Collections.singletonMap("id", 1));
+    awaitCount("jswrapper.callback.delivered", 1);
+
+    assertThat(bodies).hasSize(2);
+    assertThat(meterRegistry.get("jswrapper.callback.retried").counter().count()).isZero();
+  }
+
+  @Test
+  void shouldNotPostToInternalAddressOfHostWhichIsNotAllowed() throws Exception {
+    //same server, but only localhost is allowed by name
+    URI internal = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/callback");
+
+    callbackDelivery.enqueue(internal, Collections.singletonMap("id", 0));
+    awaitCount("jswrapper.callback.dropped", 1);
+
+    assertThat(bodies).isEmpty();
+    assertThat(meterRegistry.get("jswrapper.callback.delivered").counter().count()).isZero();
+  }
+
+  private void awaitCount(final String counter, final double expected) throws InterruptedException {
+    for (int attempt = 0; attempt < 200; attempt++) {
+      if (meterRegistry.get(counter).counter().count() >= expected) {
+        return;
+      }
+      Thread.sleep(25);
+    }
+
+    assertThat(meterRegistry.get(counter).counter().count()).isEqualTo(expected);
+  }
+}
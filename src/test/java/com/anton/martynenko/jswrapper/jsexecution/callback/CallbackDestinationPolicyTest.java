@@ -0,0 +1,47 @@
+package com.anton.martynenko.jswrapper.jsexecution.callback;
+
+import com.anton.martynenko.jswrapper.jsexecution.problem.CallbackUrlNotAllowedProblem;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CallbackDestinationPolicyTest {
+
+  private final CallbackDestinationPolicy policy = new CallbackDestinationPolicy(new CallbackProperties());
+
+  @Test
+  void shouldRefuseInternalAddresses() {
+    for (String url : new String[] {"http://localhost/done", "http://127.0.0.1:8080/done", "http://0.0.0.0/done",
+        "http://169.254.169.254/latest/meta-data", "http://10.0.0.1/done", "http://172.16.5.4/done",
+        "https://192.168.1.1/done", "http://[::1]/done", "http://[fe80::1]/done", "http://[fd00::1]/done",
+        "http://[::ffff:127.0.0.1]/done"}) {
+      assertThatThrownBy(() -> policy.check(URI.create(url)))
+          .as(url)
+          .isInstanceOf(CallbackUrlNotAllowedProblem.class);
+    }
+  }
+
+  @Test
+  void shouldRefuseHostWhichCantBeResolved() {
+    assertThatThrownBy(() -> policy.check(URI.create("http://client.invalid/done")))
+        .isInstanceOf(CallbackUrlNotAllowedProblem.class);
+  }
+
+  @Test
+  void shouldAcceptPublicAndAllowedHosts() {
+    assertThatCode(() -> policy.check(URI.create("http://93.184.216.34/done"))).doesNotThrowAnyException();
+    assertThatCode(() -> policy.check(URI.create("http://[2606:2800:220:1::1]/done"))).doesNotThrowAnyException();
+
+    CallbackProperties properties = new CallbackProperties();
+    properties.setAllowedHosts(Collections.singleton("LocalHost"));
+    CallbackDestinationPolicy allowing = new CallbackDestinationPolicy(properties);
+
+    assertThatCode(() -> allowing.check(URI.create("http://localhost:8080/done"))).doesNotThrowAnyException();
+    assertThatThrownBy(() -> allowing.check(URI.create("http://127.0.0.1:8080/done")))
+        .isInstanceOf(CallbackUrlNotAllowedProblem.class);
+  }
+}
@@ -0,0 +1,92 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsExecutionClusterTest {
+
+  @Test
+  void shouldKeepStorageIndexesAsIdsOfSingleNode() {
+    JsExecutionCluster cluster = new JsExecutionCluster(new JsExecutionClusterProperties());
+
+    assertThat(cluster.isEnabled()).isFalse();
+    assertThat(cluster.toId(5)).isEqualTo(5);
+    assertThat(cluster.toLocalIndex(5)).isEqualTo(5);
+    assertThat(cluster.isLocal(5)).isTrue();
+    assertThat(cluster.isLocal(-1)).isFalse();
+    assertThat(cluster.nextNode()).isZero();
+  }
+
+  @Test
+  void shouldPartitionIdsBetweenNodes() {
+    JsExecutionCluster cluster = new JsExecutionCluster(properties(1, 0));
+
+    assertThat(cluster.isEnabled()).isTrue();
+    assertThat(cluster.getNodeUri(2)).isEqualTo("http://localhost:8082");
+    assertThat(cluster.toId(0)).isEqualTo(1);
+    assertThat(cluster.toId(2)).isEqualTo(7);
+    assertThat(cluster.toLocalIndex(7)).isEqualTo(2);
+    assertThat(cluster.ownerOf(7)).isEqualTo(1);
+    assertThat(cluster.ownerOf(8)).isEqualTo(2);
+    assertThat(cluster.isLocal(7)).isTrue();
+    assertThat(cluster.isLocal(6)).isFalse();
+  }
+
+  @Test
+  void shouldSpreadByTurnsSkippingUnavailableNodes() {
+    JsExecutionCluster cluster = new JsExecutionCluster(properties(0, 60_000));
+
+    assertThat(Arrays.asList(cluster.nextNode(), cluster.nextNode(), cluster.nextNode(), cluster.nextNode()))
+        .containsExactly(0, 1, 2, 0);
+
+    cluster.markUnavailable(1);
+
+    assertThat(Arrays.asList(cluster.nextNode(), cluster.nextNode(), cluster.nextNode()))
+        .containsExactly(2, 0, 2);
+  }
+
+  @Test
+  void shouldRejectNodeIdOutOfCluster() {
+    assertThrows(IllegalStateException.class, () -> new JsExecutionCluster(properties(3, 0)));
+  }
+
+  @Test
+  void shouldRequireSecretInClusterMode() {
+    JsExecutionClusterProperties properties = properties(0, 0);
+    properties.setSecret("");
+
+    assertThrows(IllegalStateException.class, () -> new JsExecutionCluster(properties));
+  }
+
+  @Test
+  void shouldTrustOnlyPeersKnowingSecret() {
+    JsExecutionCluster cluster = new JsExecutionCluster(properties(0, 0));
+
+    assertThat(cluster.isPeer("1", "secret")).isTrue();
+    assertThat(cluster.isPeer("2", "secret")).isTrue();
+    assertThat(cluster.isPeer("1", "guess")).isFalse();
+    assertThat(cluster.isPeer("1", null)).isFalse();
+    assertThat(cluster.isPeer(null, "secret")).isFalse();
+    assertThat(cluster.isPeer("0", "secret")).isFalse();
+    assertThat(cluster.isPeer("3", "secret")).isFalse();
+    assertThat(cluster.isPeer("one", "secret")).isFalse();
+
+    //single node has no peers
+    JsExecutionCluster single = new JsExecutionCluster(new JsExecutionClusterProperties());
+    assertThat(single.isPeer("1", "")).isFalse();
+    assertThat(single.isPeer(0)).isFalse();
+  }
+
+  private static JsExecutionClusterProperties properties(final int nodeId, final long unavailabilityMillis) {
+    JsExecutionClusterProperties properties = new JsExecutionClusterProperties();
+    properties.setNodeId(nodeId);
+    properties.setNodes(Arrays.asList("http://localhost:8080", "http://localhost:8081/", "http://localhost:8082"));
+    properties.setUnavailabilityMillis(unavailabilityMillis);
+    properties.setSecret("secret");
+    return properties;
+  }
+}
@@ -0,0 +1,205 @@
+package com.anton.martynenko.jswrapper.jsexecution.cluster;
+
+import com.anton.martynenko.jswrapper.JsWrapperServiceApplication;
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsExecutionRoutingInterceptorTest {
+
+  private static final String SECRET = "routing-test-secret";
+
+  private static final String CREATE_REQUEST_BODY = "{\"scriptBody\": \"console.log('hi')\"}";
+
+  private static ConfigurableApplicationContext node0;
+  private static ConfigurableApplicationContext node1;
+  private static String node0Uri;
+  private static String node1Uri;
+
+  private final RestTemplate restTemplate = new RestTemplate();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @BeforeAll
+  static void startNodes() throws IOException {
+    int port0 = freePort();
+    int port1 = freePort();
+    node0Uri = "http://localhost:" + port0;
+    node1Uri = "http://localhost:" + port1;
+
+    node0 = startNode(0, port0);
+    node1 = startNode(1, port1);
+  }
+
+  @AfterAll
+  static void stopNodes() {
+    node0.close();
+    node1.close();
+  }
+
+  @Test
+  void shouldSpreadExecutionsAndRouteToOwner() throws IOException {
+    restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+      @Override
+      public boolean hasError(final ClientHttpResponse response) {
+        return false;
+      }
+    });
+
+    Set<Integer> ids = new HashSet<>();
+    for (int i = 0; i < 2; i++) {
+      ResponseEntity<String> created = restTemplate.postForEntity(node0Uri + "/executions", json(), String.class);
+
+      assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+      //links are built for the node the client talks to
+      assertThat(created.getHeaders().getLocation().toString()).startsWith(node0Uri + "/executions/");
+      ids.add(objectMapper.readTree(created.getBody()).get("id").asInt());
+    }
+
+    //nodes take turns, ids tell the owner
+    assertThat(ids).containsExactlyInAnyOrder(0, 1);
+
+    for (String nodeUri : new String[] {node0Uri, node1Uri}) {
+      for (int id : ids) {
+        ResponseEntity<String> found = restTemplate.getForEntity(nodeUri + "/executions/" + id, String.class);
+
+        assertThat(found.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(objectMapper.readTree(found.getBody()).get("id").asInt()).isEqualTo(id);
+        assertThat(objectMapper.readTree(found.getBody()).get("links").get(0).get("href").asText())
+            .isEqualTo(nodeUri + "/executions/" + id);
+      }
+    }
+
+    assertThat(restTemplate.getForEntity(node0Uri + "/executions/3", String.class).getStatusCode())
+        .isEqualTo(HttpStatus.NOT_FOUND);
+
+    ResponseEntity<String> deleted = restTemplate.exchange(node1Uri + "/executions/0", HttpMethod.DELETE,
+        null, String.class);
+    assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+    assertThat(restTemplate.getForEntity(node0Uri + "/executions/0", String.class).getStatusCode())
+        .isEqualTo(HttpStatus.NOT_FOUND);
+    assertThat(restTemplate.getForEntity(node0Uri + "/executions/1", String.class).getStatusCode())
+        .isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  void shouldTrustNodeAndForwardedHeadersOfPeersOnly() throws IOException {
+    restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+      @Override
+      public boolean hasError(final ClientHttpResponse response) {
+        return false;
+      }
+    });
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set(HttpHeader.CLUSTER_NODE, "1");
+    headers.set("X-Forwarded-Host", "evil.example");
+    headers.set("X-Forwarded-Proto", "https");
+
+    Set<Integer> ids = new HashSet<>();
+    for (int i = 0; i < 2; i++) {
+      ResponseEntity<String> created = restTemplate.postForEntity(node0Uri + "/executions",
+          new HttpEntity<>(CREATE_REQUEST_BODY, headers), String.class);
+
+      assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+      assertThat(created.getHeaders().getLocation().toString()).startsWith(node0Uri + "/executions/");
+      ids.add(objectMapper.readTree(created.getBody()).get("id").asInt());
+    }
+
+    //node header without secret doesn't pin executions to node 0
+    assertThat(ids.stream().map(id -> id % 2)).containsExactlyInAnyOrder(0, 1);
+
+    for (int id : ids) {
+      ResponseEntity<String> found = restTemplate.exchange(node0Uri + "/executions/" + id, HttpMethod.GET,
+          new HttpEntity<>(headers), String.class);
+
+      assertThat(found.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(objectMapper.readTree(found.getBody()).get("links").get(0).get("href").asText())
+          .isEqualTo(node0Uri + "/executions/" + id);
+    }
+  }
+
+  @Test
+  void shouldForwardLongPollOfForeignExecution() throws IOException {
+    restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+      @Override
+      public boolean hasError(final ClientHttpResponse response) {
+        return false;
+      }
+    });
+
+    int foreignId = -1;
+    while (foreignId % 2 != 1) {
+      ResponseEntity<String> created = restTemplate.postForEntity(node0Uri + "/executions", json(), String.class);
+      foreignId = objectMapper.readTree(created.getBody()).get("id").asInt();
+    }
+
+    String uri = node0Uri + "/executions/" + foreignId;
+    HttpHeaders headers = new HttpHeaders();
+    ResponseEntity<String> found = restTemplate.getForEntity(uri, String.class);
+    for (int i = 0; i < 20 && !"SUCCESSFUL".equals(objectMapper.readTree(found.getBody()).get("status").asText()); i++) {
+      headers.setIfNoneMatch(found.getHeaders().getETag());
+      ResponseEntity<String> next = restTemplate.exchange(uri + "?waitForChange=1000", HttpMethod.GET,
+          new HttpEntity<>(headers), String.class);
+      found = next.getStatusCode() == HttpStatus.OK ? next : found;
+    }
+    String eTag = found.getHeaders().getETag();
+
+    //finished execution doesn't change, owner answers when waiting is over
+    headers.setIfNoneMatch(eTag);
+    ResponseEntity<String> notChanged = restTemplate.exchange(uri + "?waitForChange=300", HttpMethod.GET,
+        new HttpEntity<>(headers), String.class);
+
+    assertThat(notChanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    assertThat(notChanged.getHeaders().getETag()).isEqualTo(eTag);
+
+    ResponseEntity<String> changed = restTemplate.getForEntity(uri + "?waitForChange=300", String.class);
+
+    assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(objectMapper.readTree(changed.getBody()).get("id").asInt()).isEqualTo(foreignId);
+  }
+
+  private static HttpEntity<String> json() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    return new HttpEntity<>(CREATE_REQUEST_BODY, headers);
+  }
+
+  private static ConfigurableApplicationContext startNode(final int nodeId, final int port) {
+    return new SpringApplicationBuilder(JsWrapperServiceApplication.class)
+        .properties(
+            "server.port=" + port,
+            "jswrapper.workers.size=1",
+            "jswrapper.cluster.node-id=" + nodeId,
+            "jswrapper.cluster.nodes=" + node0Uri + "," + node1Uri,
+            "jswrapper.cluster.secret=" + SECRET)
+        .run();
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
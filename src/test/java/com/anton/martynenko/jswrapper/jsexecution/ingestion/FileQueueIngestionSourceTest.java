@@ -0,0 +1,121 @@
+package com.anton.martynenko.jswrapper.jsexecution.ingestion;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileQueueIngestionSourceTest {
+
+  @TempDir
+  Path directory;
+
+  private FileQueueIngestionSource source;
+
+  @BeforeEach
+  void setUp() {
+    IngestionProperties properties = new IngestionProperties();
+    properties.setFileQueueDirectory(directory.toString());
+
+    source = new FileQueueIngestionSource(properties, new ObjectMapper());
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    source.close();
+  }
+
+  @Test
+  void shouldHandOutOldestMessagesOnce() throws Exception {
+    write("2.json", "{\"scriptBody\": \"2\"}");
+    write("1.json", "{\"scriptBody\": \"1\", \"priority\": \"high\", \"tenant\": \"producer\"}");
+    write("3.json", "{\"scriptBody\": \"3\"}");
+    write("4.tmp", "{\"scriptBody\": \"not complete yet\"}");
+
+    List<IngestedScript> first = source.poll(2, 0, TimeUnit.MILLISECONDS);
+
+    assertThat(first).extracting(IngestedScript::getMessageId).containsExactly("1.json", "2.json");
+    assertThat(first.get(0).getPriority()).isEqualTo(Priority.HIGH);
+    assertThat(first.get(0).getTenant()).isEqualTo("producer");
+    assertThat(source.poll(5, 0, TimeUnit.MILLISECONDS)).extracting(IngestedScript::getMessageId)
+        .containsExactly("3.json");
+    assertThat(source.poll(5, 0, TimeUnit.MILLISECONDS)).isEmpty();
+
+    source.acknowledge(first.get(0));
+    source.reject(first.get(1), "test");
+
+    assertThat(directory.resolve("1.json")).doesNotExist();
+    assertThat(directory.resolve("2.json")).doesNotExist();
+    assertThat(directory.resolve("rejected").resolve("2.json")).exists();
+  }
+
+  @Test
+  void shouldWaitForNewMessage() throws Exception {
+    assertThat(source.poll(1, 50, TimeUnit.MILLISECONDS)).isEmpty();
+
+    Thread producer = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+        write("new.json", "{\"scriptBody\": \"new\"}");
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    producer.start();
+
+    List<IngestedScript> messages = source.poll(1, 10, TimeUnit.SECONDS);
+    producer.join();
+
+    assertThat(messages).extracting(IngestedScript::getScriptBody).containsExactly("new");
+  }
+
+  @Test
+  void shouldHandOutBrokenMessageWithoutScript() throws Exception {
+    write("broken.json", "{not json");
+
+    List<IngestedScript> messages = source.poll(1, 0, TimeUnit.MILLISECONDS);
+
+    assertThat(messages).hasSize(1);
+    assertThat(messages.get(0).getScriptBody()).isNull();
+  }
+
+  @Test
+  void shouldRecreateDeletedDirectory() throws Exception {
+    assertThat(source.poll(1, 0, TimeUnit.MILLISECONDS)).isEmpty();
+    Files.delete(directory);
+
+    assertThat(source.poll(1, 0, TimeUnit.MILLISECONDS)).isEmpty();
+    assertThat(directory).isDirectory();
+
+    Thread producer = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+        write("new.json", "{\"scriptBody\": \"new\"}");
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    producer.start();
+
+    List<IngestedScript> messages = source.poll(1, 10, TimeUnit.SECONDS);
+    producer.join();
+
+    assertThat(messages).extracting(IngestedScript::getScriptBody).containsExactly("new");
+  }
+
+  private void write(final String name, final String content) throws IOException {
+    Path temp = Files.write(directory.resolve(name + ".part"), content.getBytes(StandardCharsets.UTF_8));
+    Files.move(temp, directory.resolve(name));
+  }
+}
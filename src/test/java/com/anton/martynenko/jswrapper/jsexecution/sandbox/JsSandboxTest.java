@@ -0,0 +1,222 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.anton.martynenko.jswrapper.jsexecution.enums.HostAccessProfile;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ScriptModuleNotFoundProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.ScriptModuleRejectedProblem;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsSandboxTest {
+
+  @Test
+  void explicitProfileExposesOnlyHelpers() {
+    try (Context context = newContext(HostAccessProfile.EXPLICIT)) {
+      assertThat(eval(context, "host.json.stringify(host.json.parse('{\"a\":[1,2.5,\"x\",null,true]}'))"))
+          .isEqualTo("{\"a\":[1,2.5,\"x\",null,true]}");
+      assertThat(eval(context, "host.json.parse('{\"a\":{\"b\":[3]}}').a.b[0] + 1")).isEqualTo("4");
+      assertThat(eval(context, "host.json.stringify({n: 1, s: 'text', f: () => 1, nested: {list: [1, NaN]}})"))
+          .isEqualTo("{\"n\":1,\"s\":\"text\",\"nested\":{\"list\":[1,null]}}");
+      assertThat(eval(context, "host.crypto.sha256('abc')"))
+          .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+      assertThat(eval(context, "host.crypto.hmacSha256('key', 'The quick brown fox jumps over the lazy dog')"))
+          .isEqualTo("f7bc83f430538424b13298e6aa6fb143ef4d59a14946175997479dbc2d1a3cd8");
+      assertThat(eval(context, "host.date.format(0, 'yyyy-MM-dd HH:mm', 'UTC')")).isEqualTo("1970-01-01 00:00");
+      assertThat(eval(context, "host.date.parseIso('1970-01-02T00:00:00+01:00')")).isEqualTo("82800000");
+      assertThat(eval(context, "host.date.toIso(host.date.plusDays(0, 1, 'UTC'), 'UTC')"))
+          .isEqualTo("1970-01-02T00:00:00Z");
+
+      //not exported members and java classes are out of reach
+      assertThat(eval(context, "typeof host.json.getClass")).isEqualTo("undefined");
+      assertThat(eval(context, "typeof Java === 'undefined' || typeof Java.type('java.lang.System') === 'undefined'"))
+          .isEqualTo("true");
+      assertThatThrownBy(() -> eval(context, "Polyglot.eval('js', '1')")).isInstanceOf(PolyglotException.class);
+
+      //helpers report bad input as js errors
+      assertThatThrownBy(() -> eval(context, "host.json.parse('{')")).isInstanceOf(PolyglotException.class)
+          .hasMessageContaining("Not valid json");
+    }
+  }
+
+  @Test
+  void noneProfileBindsNothing() {
+    try (Context context = newContext(HostAccessProfile.NONE)) {
+      assertThat(eval(context, "typeof host")).isEqualTo("undefined");
+      assertThat(eval(context, "JSON.stringify({a: 1})")).isEqualTo("{\"a\":1}");
+    }
+  }
+
+  @Test
+  void helpersAreNotSharedBetweenContexts() {
+    JsSandbox sandbox = new JsSandbox(new SandboxProperties(), new ObjectMapper());
+
+    try (Context first = sandbox.newContextBuilder().build(); Context second = sandbox.newContextBuilder().build()) {
+      sandbox.bind(first, null);
+      sandbox.bind(second, null);
+
+      eval(first, "host.crypto = null");
+
+      assertThat(eval(second, "host.crypto.md5('')")).isEqualTo("d41d8cd98f00b204e9800998ecf8427e");
+    }
+  }
+
+  @Test
+  void inputIsReadOnlyViewOfJsonTree() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    JsonNode input = objectMapper.readTree("{\"order\": {\"id\": 7, \"items\": [{\"sku\": \"a\", \"price\": 2.5}, "
+        + "{\"sku\": \"b\", \"price\": 4}]}, \"paid\": true, \"note\": null}");
+
+    for (HostAccessProfile profile : HostAccessProfile.values()) {
+      SandboxProperties properties = new SandboxProperties();
+      properties.setProfile(profile);
+      JsSandbox sandbox = new JsSandbox(properties, objectMapper);
+
+      try (Context context = sandbox.newContextBuilder().build()) {
+        sandbox.bind(context, input);
+
+        assertThat(eval(context, "input.order.items.reduce((sum, item) => sum + item.price, 0)")).isEqualTo("6.5");
+        assertThat(eval(context, "input.order.items.length + ' ' + input.order.items[1].sku")).isEqualTo("2 b");
+        assertThat(eval(context, "Object.keys(input).join()")).isEqualTo("order,paid,note");
+        assertThat(eval(context, "input.paid === true && input.note === null && input.missing === undefined"))
+            .isEqualTo("true");
+        assertThat(eval(context, "input.order === input.order")).isEqualTo("true");
+        assertThat(eval(context, "JSON.stringify(input.order.items[0])")).isEqualTo("{\"sku\":\"a\",\"price\":2.5}");
+
+        assertThatThrownBy(() -> eval(context, "'use strict'; input.paid = false"))
+            .isInstanceOf(PolyglotException.class);
+        assertThat(eval(context, "input.paid")).isEqualTo("true");
+      }
+    }
+  }
+
+  @Test
+  void binaryOutputIsLimited() {
+    SandboxProperties properties = new SandboxProperties();
+    properties.setMaxBinaryOutputBytes(10);
+
+    for (HostAccessProfile profile : HostAccessProfile.values()) {
+      properties.setProfile(profile);
+      JsSandbox sandbox = new JsSandbox(properties, new ObjectMapper());
+      BinaryOutput binaryOutput = sandbox.newBinaryOutput();
+
+      try (Context context = sandbox.newContextBuilder().build()) {
+        sandbox.bind(context, null, ByteBuffer.wrap(new byte[] {7}), binaryOutput, null);
+
+        assertThat(eval(context, "new Uint8Array(binaryInput)[0] + binaryOutput.allocate(8).byteLength"))
+            .isEqualTo("15");
+        assertThatThrownBy(() -> eval(context, "binaryOutput.allocate(3)")).isInstanceOf(PolyglotException.class)
+            .hasMessageContaining("limited to 10 bytes");
+        assertThat(binaryOutput.getSize()).isEqualTo(8);
+      }
+    }
+  }
+
+  @Test
+  void onlyInstalledLanguagesAreSupported() {
+    SandboxProperties properties = new SandboxProperties();
+    assertThat(new JsSandbox(properties, new ObjectMapper()).getLanguageRegistry().isSupported("js")).isTrue();
+
+    properties.setLanguages(new LinkedHashSet<>(Arrays.asList("js", "no-such-language")));
+    LanguageRegistry registry = new JsSandbox(properties, new ObjectMapper()).getLanguageRegistry();
+
+    assertThat(registry.getLanguages()).containsExactly("js");
+    assertThat(registry.isSupported("no-such-language")).isFalse();
+
+    //binaries are never scripts, even if listed or installed
+    properties.setLanguages(new LinkedHashSet<>(Arrays.asList("js", "wasm")));
+    assertThat(new JsSandbox(properties, new ObjectMapper()).getLanguageRegistry().getLanguages())
+        .containsExactly("js");
+    assertThat(JsSandbox.DEFAULT.getLanguageRegistry().getLanguages()).doesNotContain("wasm", "llvm");
+  }
+
+  @Test
+  void modulesAreImportedByNameAndNothingElseIsReachable() {
+    JsSandbox sandbox = new JsSandbox(new SandboxProperties(), new ObjectMapper());
+    sandbox.getModuleRegistry().register("math", "export const twice = (x) => 2 * x;");
+    String script = "import { twice } from 'math';\nimport * as again from './math.mjs';\n"
+        + "globalThis.result = twice(again.twice(10));";
+
+    try (Engine engine = Engine.newBuilder().option("engine.WarnInterpreterOnly", "false").build()) {
+      assertThat(runModule(sandbox, engine, script)).isEqualTo("40");
+
+      //contexts of the same engine see the new code
+      sandbox.getModuleRegistry().register("math", "export const twice = (x) => 3 * x;");
+      assertThat(runModule(sandbox, engine, script)).isEqualTo("90");
+
+      assertThatThrownBy(() -> runModule(sandbox, engine, "import { x } from '/etc/passwd';"))
+          .isInstanceOf(PolyglotException.class);
+      assertThatThrownBy(() -> runModule(sandbox, engine, "import { x } from '../etc/hosts';"))
+          .isInstanceOf(PolyglotException.class);
+    }
+  }
+
+  @Test
+  void scriptIsModuleOnlyWhenAskedFor() {
+    JsSandbox sandbox = new JsSandbox(new SandboxProperties(), new ObjectMapper());
+    //line looking like import is just text of classic script
+    String classic = "const text = `\nimport is a word here\n`;\nglobalThis.result = text.trim();";
+
+    try (Engine engine = Engine.newBuilder().option("engine.WarnInterpreterOnly", "false").build()) {
+      assertThat(run(sandbox, engine, classic, false)).isEqualTo("import is a word here");
+      //classic script can't import statically
+      assertThatThrownBy(() -> run(sandbox, engine, "import { x } from 'math';", false))
+          .isInstanceOf(PolyglotException.class);
+    }
+  }
+
+  @Test
+  void moduleNamesAndSizesAreLimited() {
+    SandboxProperties properties = new SandboxProperties();
+    properties.setMaxModuleBytes(8);
+    properties.setMaxModules(1);
+    ModuleRegistry registry = new JsSandbox(properties, new ObjectMapper()).getModuleRegistry();
+
+    assertThatThrownBy(() -> registry.register("../x", "")).isInstanceOf(ScriptModuleRejectedProblem.class);
+    assertThatThrownBy(() -> registry.register("big", "export const x = 1;"))
+        .isInstanceOf(ScriptModuleRejectedProblem.class);
+
+    registry.register("a", "");
+    registry.register("a", "//again");
+    assertThatThrownBy(() -> registry.register("b", "")).isInstanceOf(ScriptModuleRejectedProblem.class);
+
+    registry.delete("a");
+    assertThat(registry.findAll()).isEmpty();
+    assertThatThrownBy(() -> registry.get("a")).isInstanceOf(ScriptModuleNotFoundProblem.class);
+  }
+
+  private static String runModule(final JsSandbox sandbox, final Engine engine, final String script) {
+    return run(sandbox, engine, script, true);
+  }
+
+  private static String run(final JsSandbox sandbox, final Engine engine, final String script, final boolean module) {
+    try (Context context = sandbox.newContextBuilder().engine(engine).build()) {
+      context.parse(sandbox.newScriptSource("js", script, module)).execute();
+      return context.getBindings("js").getMember("result").toString();
+    }
+  }
+
+  private static Context newContext(final HostAccessProfile profile) {
+    SandboxProperties properties = new SandboxProperties();
+    properties.setProfile(profile);
+
+    JsSandbox sandbox = new JsSandbox(properties, new ObjectMapper());
+    Context context = sandbox.newContextBuilder().build();
+    sandbox.bind(context, null);
+
+    return context;
+  }
+
+  private static String eval(final Context context, final String script) {
+    return context.eval("js", script).toString();
+  }
+}
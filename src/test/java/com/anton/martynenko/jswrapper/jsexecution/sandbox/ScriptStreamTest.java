@@ -0,0 +1,297 @@
+package com.anton.martynenko.jswrapper.jsexecution.sandbox;
+
+import com.anton.martynenko.jswrapper.jsexecution.problem.StreamingNotAvailableProblem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graalvm.polyglot.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScriptStreamTest {
+
+  /**
+   * Single thread calling listener, like container does.
+   */
+  private final ExecutorService container = Executors.newSingleThreadExecutor();
+
+  @AfterEach
+  void tearDown() {
+    container.shutdownNow();
+  }
+
+  @Test
+  void requestBodyIsReadAsFastAsScriptTakesIt() throws Exception {
+    SandboxProperties properties = new SandboxProperties();
+    properties.setStreamChunkBytes(4);
+    properties.setStreamQueueChunks(2);
+    JsSandbox sandbox = new JsSandbox(properties, new ObjectMapper());
+    ScriptStream stream = sandbox.newScriptStream();
+    RequestBody requestBody = new RequestBody();
+
+    stream.readFrom(requestBody);
+    //"é" is split between chunks
+    requestBody.arrive("ab,é\r\ncd,1\nlast");
+    container.submit(() -> { }).get();
+
+    //two chunks are queued, the rest waits for the script
+    assertThat(requestBody.pending()).isEqualTo(16 - 8);
+
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+      try {
+        stream.writeTo(response);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    CompletableFuture<String> script = CompletableFuture.supplyAsync(() -> run(sandbox, stream,
+        "let n = 0;"
+            + "for (const line of stream.lines()) { stream.write(line.toUpperCase() + ';'); n++; }"
+            + "stream.write('n=' + n); stream.read() === null"));
+
+    requestBody.complete();
+
+    assertThat(script.get(10, TimeUnit.SECONDS)).isEqualTo("true");
+    stream.finish();
+    writer.get(10, TimeUnit.SECONDS);
+
+    assertThat(requestBody.pending()).isZero();
+    assertThat(response.toString(StandardCharsets.UTF_8.name())).isEqualTo("AB,É;CD,1;LAST;n=3");
+  }
+
+  @Test
+  void asyncIterationTakesChunks() throws Exception {
+    ScriptStream stream = JsSandbox.DEFAULT.newScriptStream();
+    RequestBody requestBody = new RequestBody();
+
+    stream.readFrom(requestBody);
+    requestBody.arrive("{\"a\":1}\n");
+    requestBody.complete();
+
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    String result = run(JsSandbox.DEFAULT, stream,
+        "let all = '';"
+            + "(async () => { for await (const chunk of stream) { all += chunk; } stream.write(all.trim()); })();"
+            + "'started'");
+    stream.finish();
+    stream.writeTo(response);
+
+    assertThat(result).isEqualTo("started");
+    assertThat(response.toString(StandardCharsets.UTF_8.name())).isEqualTo("{\"a\":1}");
+  }
+
+  @Test
+  void scriptStopsWritingWhenClientIsGone() throws Exception {
+    SandboxProperties properties = new SandboxProperties();
+    properties.setStreamQueueChunks(1);
+    JsSandbox sandbox = new JsSandbox(properties, new ObjectMapper());
+    ScriptStream stream = sandbox.newScriptStream();
+
+    CompletableFuture<String> script = CompletableFuture.supplyAsync(() -> run(sandbox, stream,
+        "let error;"
+            + "try { while (true) { stream.write('x'); } } catch (e) { error = String(e); }"
+            + "error"));
+
+    OutputStream gone = new OutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+
+    try {
+      stream.writeTo(gone);
+    } catch (IOException e) {
+      assertThat(e).hasMessage("Broken pipe");
+    }
+
+    assertThat(script.get(10, TimeUnit.SECONDS)).contains("Output stream is closed");
+  }
+
+  @Test
+  void busyReadersRefuseChunkedBodyAndStuckReaderIsStopped() throws Exception {
+    SandboxProperties properties = new SandboxProperties();
+    properties.setMaxStreamReaders(1);
+    properties.setStreamIdleTimeoutMillis(200);
+    JsSandbox sandbox = new JsSandbox(properties, new ObjectMapper());
+    ScriptStream stream = sandbox.newScriptStream();
+    //client which never sends anything
+    PipedOutputStream client = new PipedOutputStream();
+
+    stream.readBlockingFrom(new PipedInputStream(client));
+
+    assertThatThrownBy(() -> sandbox.newScriptStream().readBlockingFrom(new ByteArrayInputStream(new byte[0])))
+        .isInstanceOf(StreamingNotAvailableProblem.class);
+
+    stream.finish();
+    CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+      try {
+        stream.writeTo(new ByteArrayOutputStream());
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    writer.get(10, TimeUnit.SECONDS);
+    client.close();
+  }
+
+  private static String run(final JsSandbox sandbox, final ScriptStream stream, final String script) {
+    try (Context context = sandbox.newContextBuilder().build()) {
+      sandbox.bind(context, null, null, null, stream);
+      return context.eval("js", script).toString();
+    }
+  }
+
+  /**
+   * Non-blocking request body getting data from the test.
+   */
+  private final class RequestBody extends ServletInputStream {
+
+    private final Deque<Byte> pending = new ArrayDeque<>();
+
+    private ReadListener listener;
+
+    private boolean waiting;
+
+    private boolean complete;
+
+    private boolean allRead;
+
+    void arrive(final String text) {
+      boolean notify;
+
+      synchronized (this) {
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+          pending.addLast(b);
+        }
+        notify = waiting;
+        waiting = false;
+      }
+
+      if (notify) {
+        dispatch(true);
+      }
+    }
+
+    void complete() {
+      boolean notify;
+
+      synchronized (this) {
+        complete = true;
+        notify = waiting;
+        waiting = false;
+      }
+
+      if (notify) {
+        dispatchAllRead();
+      }
+    }
+
+    synchronized int pending() {
+      return pending.size();
+    }
+
+    @Override
+    public boolean isFinished() {
+      synchronized (this) {
+        return complete && pending.isEmpty();
+      }
+    }
+
+    @Override
+    public boolean isReady() {
+      boolean finished;
+
+      synchronized (this) {
+        if (!pending.isEmpty()) {
+          return true;
+        }
+
+        finished = complete;
+        waiting = !complete;
+      }
+
+      if (finished) {
+        dispatchAllRead();
+      }
+
+      return false;
+    }
+
+    @Override
+    public void setReadListener(final ReadListener readListener) {
+      this.listener = readListener;
+      dispatch(true);
+    }
+
+    @Override
+    public synchronized int read() {
+      if (pending.isEmpty()) {
+        return complete ? -1 : 0;
+      }
+
+      return pending.pollFirst() & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) {
+      synchronized (this) {
+        if (pending.isEmpty()) {
+          return complete ? -1 : 0;
+        }
+
+        int read = 0;
+        while (read < length && !pending.isEmpty()) {
+          buffer[offset + read++] = pending.pollFirst();
+        }
+
+        return read;
+      }
+    }
+
+    private void dispatch(final boolean dataAvailable) {
+      container.execute(() -> {
+        try {
+          if (dataAvailable) {
+            listener.onDataAvailable();
+          } else {
+            listener.onAllDataRead();
+          }
+        } catch (IOException e) {
+          listener.onError(e);
+        }
+      });
+    }
+
+    private void dispatchAllRead() {
+      synchronized (this) {
+        if (allRead) {
+          return;
+        }
+        allRead = true;
+      }
+
+      dispatch(false);
+    }
+  }
+}
@@ -0,0 +1,314 @@
+package com.anton.martynenko.jswrapper.jsexecution.scheduler;
+
+import com.anton.martynenko.jswrapper.jsexecution.constants.HttpHeader;
+import com.anton.martynenko.jswrapper.jsexecution.enums.Priority;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorker;
+import com.anton.martynenko.jswrapper.jsexecution.worker.JsWorkerPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsExecutionSchedulerTest {
+
+  private JsWorkerPool jsWorkerPool;
+  private JsExecutionSchedulerProperties properties;
+  private SimpleMeterRegistry meterRegistry;
+  private final List<String> order = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  void prepare() {
+    jsWorkerPool = new JsWorkerPool(1);
+    properties = new JsExecutionSchedulerProperties();
+    properties.setMaxInFlight(1);
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jsWorkerPool.shutdown();
+  }
+
+  @Test
+  void shouldServeTenantsByWeight() throws InterruptedException {
+    properties.setWeights(Collections.singletonMap("heavy", 3));
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    CountDownLatch blocker = new CountDownLatch(1);
+    scheduler.submit(() -> await(blocker), "blocker", Priority.NORMAL);
+
+    int tasksAmount = 40;
+    CountDownLatch latch = new CountDownLatch(tasksAmount * 2);
+    for (int i = 0; i < tasksAmount; i++) {
+      scheduler.submit(record("flood", latch), "flood", Priority.NORMAL);
+    }
+    for (int i = 0; i < tasksAmount; i++) {
+      scheduler.submit(record("heavy", latch), "heavy", Priority.NORMAL);
+    }
+
+    assertThat(meterRegistry.get("jswrapper.scheduler.tenant.queued").tag("tenant", JsExecutionScheduler.tenantTag("flood")).gauge().value())
+        .isEqualTo(tasksAmount);
+
+    blocker.countDown();
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+
+    //flooding tenant came first but can't starve others: in the first 20 runs heavy tenant gets ~3/4
+    long heavyRuns = order.subList(0, 20).stream().filter("heavy"::equals).count();
+    assertThat(heavyRuns).isBetween(13L, 17L);
+  }
+
+  @Test
+  void shouldServeHigherPriorityFirst() throws InterruptedException {
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    CountDownLatch blocker = new CountDownLatch(1);
+    scheduler.submit(() -> await(blocker), "tenant", Priority.NORMAL);
+
+    CountDownLatch latch = new CountDownLatch(3);
+    scheduler.submit(record(Priority.LOW.name(), latch), "tenant", Priority.LOW);
+    scheduler.submit(record(Priority.NORMAL.name(), latch), "tenant", Priority.NORMAL);
+    scheduler.submit(record(Priority.HIGH.name(), latch), "other", Priority.HIGH);
+
+    blocker.countDown();
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(order).containsExactly(Priority.HIGH.name(), Priority.NORMAL.name(), Priority.LOW.name());
+  }
+
+  @Test
+  void shouldRespectTenantConcurrencyLimit() throws InterruptedException {
+    jsWorkerPool.shutdown();
+    jsWorkerPool = new JsWorkerPool(4);
+    properties.setMaxInFlight(4);
+    properties.setDefaultConcurrencyLimit(1);
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    int tasksAmount = 20;
+    CountDownLatch latch = new CountDownLatch(tasksAmount);
+
+    for (int i = 0; i < tasksAmount; i++) {
+      scheduler.submit(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        sleep();
+        running.decrementAndGet();
+        latch.countDown();
+      }, "limited", Priority.NORMAL);
+    }
+
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(maxRunning.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldCancelQueuedTask() throws Exception {
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    CountDownLatch blocker = new CountDownLatch(1);
+    scheduler.submit(() -> await(blocker), "tenant", Priority.NORMAL);
+
+    AtomicInteger runs = new AtomicInteger();
+    Future<?> cancelled = scheduler.submit(runs::incrementAndGet, "tenant", Priority.NORMAL);
+    Future<?> next = scheduler.submit(() -> { }, "tenant", Priority.NORMAL);
+
+    assertThat(cancelled.cancel(true)).isTrue();
+    blocker.countDown();
+    next.get(10, TimeUnit.SECONDS);
+
+    assertThat(runs.get()).isZero();
+    assertThat(scheduler.getQueued()).isZero();
+  }
+
+  @Test
+  void shouldGiveAwayQueuedTasksFromLowestLaneTail() throws Exception {
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    CountDownLatch blocker = new CountDownLatch(1);
+    scheduler.submit(() -> await(blocker), "tenant", Priority.NORMAL);
+
+    Runnable high = () -> { };
+    Runnable normal = () -> { };
+    Runnable low = () -> { };
+    Future<?> highFuture = scheduler.submit(high, "tenant", Priority.HIGH);
+    scheduler.submit(normal, "tenant", Priority.NORMAL);
+    Future<?> lowFuture = scheduler.submit(low, "tenant", Priority.LOW);
+
+    assertThat(scheduler.steal(2)).containsExactly(low, normal);
+    assertThat(lowFuture.isCancelled()).isTrue();
+    assertThat(scheduler.getQueued()).isEqualTo(1);
+
+    blocker.countDown();
+    highFuture.get(10, TimeUnit.SECONDS);
+
+    assertThat(scheduler.steal(2)).isEmpty();
+  }
+
+  @Test
+  void shouldForgetIdleTenantsAndTheirMetrics() throws Exception {
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    Future<?> last = null;
+    for (int i = 0; i < 50; i++) {
+      last = scheduler.submit(() -> { }, "key-" + i, Priority.NORMAL);
+    }
+    last.get(10, TimeUnit.SECONDS);
+
+    //slot is released right after the task, give the last release a moment
+    long deadline = System.currentTimeMillis() + 5000;
+    while (scheduler.getTenants() > 0 && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(5);
+    }
+
+    assertThat(scheduler.getTenants()).isZero();
+    assertThat(meterRegistry.find("jswrapper.scheduler.tenant.queued").gauges()).isEmpty();
+    assertThat(meterRegistry.find("jswrapper.scheduler.tenant.running").gauges()).isEmpty();
+  }
+
+  @Test
+  void shouldNotTagMetricsWithApiKeys() {
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    CountDownLatch blocker = new CountDownLatch(1);
+    scheduler.submit(() -> await(blocker), "secret-key", Priority.NORMAL);
+
+    assertThat(meterRegistry.find("jswrapper.scheduler.tenant.running").tag("tenant", "secret-key").gauge())
+        .isNull();
+    assertThat(meterRegistry.get("jswrapper.scheduler.tenant.running")
+        .tag("tenant", JsExecutionScheduler.tenantTag("secret-key")).gauge().value()).isEqualTo(1);
+
+    blocker.countDown();
+  }
+
+  @Test
+  void shouldQueueKeysBeyondTenantLimitAsDefaultTenant() {
+    properties.setMaxTenants(1);
+    properties.setWeights(Collections.singletonMap("configured", 2));
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    CountDownLatch blocker = new CountDownLatch(1);
+    scheduler.submit(() -> await(blocker), "first", Priority.NORMAL);
+    scheduler.submit(() -> { }, "second", Priority.NORMAL);
+    scheduler.submit(() -> { }, "third", Priority.NORMAL);
+    scheduler.submit(() -> { }, "configured", Priority.NORMAL);
+
+    assertThat(scheduler.getTenants()).isEqualTo(3);
+    assertThat(meterRegistry.get("jswrapper.scheduler.tenant.queued")
+        .tag("tenant", JsExecutionScheduler.tenantTag(HttpHeader.DEFAULT_TENANT)).gauge().value()).isEqualTo(2);
+
+    blocker.countDown();
+  }
+
+  @Test
+  void shouldReuseSlotOfReplacedWorker() throws Exception {
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+
+    //task which can't be stopped holds the only slot
+    CountDownLatch stuck = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicReference<Thread> runner = new AtomicReference<>();
+    scheduler.submit(() -> {
+      runner.set(Thread.currentThread());
+      started.countDown();
+      awaitUninterruptibly(stuck);
+    }, "tenant", Priority.NORMAL);
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    Future<?> next = scheduler.submit(() -> { }, "tenant", Priority.NORMAL);
+    assertThat(scheduler.getQueued()).isEqualTo(1);
+
+    assertThat(jsWorkerPool.replace((JsWorker) runner.get())).isTrue();
+    assertThat(scheduler.release(runner.get())).isTrue();
+    assertThat(scheduler.release(runner.get())).isFalse();
+
+    next.get(10, TimeUnit.SECONDS);
+
+    //stuck task finishing later doesn't free the slot once more
+    stuck.countDown();
+    runner.get().join(TimeUnit.SECONDS.toMillis(10));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (scheduler.getInFlight() > 0 && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(5);
+    }
+    assertThat(scheduler.getInFlight()).isZero();
+  }
+
+  @Test
+  void shouldFailTasksRefusedByPoolAndKeepDraining() {
+    JsExecutionScheduler scheduler = new JsExecutionScheduler(jsWorkerPool, properties, meterRegistry);
+    jsWorkerPool.shutdown();
+
+    List<RejectedExecutionException> rejections = new CopyOnWriteArrayList<>();
+    RejectableTask rejectable = new RejectableTask() {
+      @Override
+      public void rejected(final RejectedExecutionException e) {
+        rejections.add(e);
+      }
+
+      @Override
+      public void run() {
+        order.add("rejectable");
+      }
+    };
+
+    Future<?> plain = scheduler.submit(() -> order.add("plain"), "tenant", Priority.NORMAL);
+    Future<?> told = scheduler.submit(rejectable, "tenant", Priority.NORMAL);
+
+    assertThatThrownBy(() -> plain.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(RejectedExecutionException.class);
+    assertThatThrownBy(() -> told.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(RejectedExecutionException.class);
+    assertThat(rejections).hasSize(1);
+    assertThat(order).isEmpty();
+    assertThat(scheduler.getInFlight()).isZero();
+  }
+
+  private Runnable record(final String value, final CountDownLatch latch) {
+    return () -> {
+      order.add(value);
+      latch.countDown();
+    };
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void awaitUninterruptibly(final CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep() {
+    try {
+      TimeUnit.MILLISECONDS.sleep(5);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
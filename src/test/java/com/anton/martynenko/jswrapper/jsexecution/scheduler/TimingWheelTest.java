@@ -0,0 +1,75 @@
+package com.anton.martynenko.jswrapper.jsexecution.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+  private TimingWheel timingWheel;
+
+  @BeforeEach
+  void prepare() {
+    timingWheel = new TimingWheel(10, TimeUnit.MILLISECONDS, 8);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    timingWheel.shutdown();
+  }
+
+  @Test
+  void shouldFireInDeadlineOrderAfterDelay() throws InterruptedException {
+    List<Integer> order = new CopyOnWriteArrayList<>();
+    CountDownLatch latch = new CountDownLatch(3);
+    long start = System.nanoTime();
+
+    //longer than one wheel round
+    timingWheel.schedule(() -> { order.add(3); latch.countDown(); }, 250, TimeUnit.MILLISECONDS);
+    timingWheel.schedule(() -> { order.add(1); latch.countDown(); }, 50, TimeUnit.MILLISECONDS);
+    timingWheel.schedule(() -> { order.add(2); latch.countDown(); }, 120, TimeUnit.MILLISECONDS);
+
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(250);
+    assertThat(order).containsExactly(1, 2, 3);
+    assertThat(timingWheel.getPending()).isZero();
+  }
+
+  @Test
+  void shouldNotFireCancelledTimer() throws InterruptedException {
+    AtomicInteger fired = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+
+    TimingWheel.Timeout timeout = timingWheel.schedule(fired::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+    timingWheel.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+
+    assertThat(timeout.cancel()).isTrue();
+    assertThat(timeout.cancel()).isFalse();
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(fired.get()).isZero();
+    assertThat(timeout.isCancelled()).isTrue();
+  }
+
+  @Test
+  void shouldHoldManyTimers() throws InterruptedException {
+    int timersAmount = 200_000;
+    CountDownLatch latch = new CountDownLatch(timersAmount);
+
+    for (int i = 0; i < timersAmount; i++) {
+      timingWheel.schedule(latch::countDown, i % 300, TimeUnit.MILLISECONDS);
+    }
+
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(timingWheel.getPending()).isZero();
+  }
+}
@@ -0,0 +1,67 @@
+package com.anton.martynenko.jswrapper.jsexecution.wasm;
+
+import com.anton.martynenko.jswrapper.jsexecution.problem.BinaryInputTooLargeProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.LanguageNotSupportedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.WasmModuleNotFoundProblem;
+import com.anton.martynenko.jswrapper.jsexecution.problem.WasmModuleRejectedProblem;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class WasmModuleStoreTest {
+
+  //empty module of version 1
+  private static final byte[] EMPTY_MODULE = {0x00, 0x61, 0x73, 0x6D, 0x01, 0x00, 0x00, 0x00};
+
+  @Test
+  void moduleWhichIsNotWebAssemblyIsRejected() {
+    WasmModuleStore store = new WasmModuleStore(new WasmProperties(), JsSandbox.DEFAULT);
+
+    assertThatThrownBy(() -> store.upload("console.log(1)".getBytes(), "js"))
+        .isInstanceOf(WasmModuleRejectedProblem.class);
+    assertThatThrownBy(() -> store.upload(new byte[] {0x00, 0x61, 0x73, 0x6D}, "short"))
+        .isInstanceOf(WasmModuleRejectedProblem.class);
+  }
+
+  @Test
+  void tooLargeModuleIsRejected() {
+    WasmProperties properties = new WasmProperties();
+    properties.setMaxModuleBytes(4);
+    WasmModuleStore store = new WasmModuleStore(properties, JsSandbox.DEFAULT);
+
+    assertThatThrownBy(() -> store.upload(EMPTY_MODULE, "empty"))
+        .isInstanceOf(BinaryInputTooLargeProblem.class);
+  }
+
+  @Test
+  void moduleIsRejectedWhenWasmIsNotInstalled() {
+    assumeFalse(JsSandbox.DEFAULT.getLanguageRegistry().isInstalled(WasmModule.LANGUAGE));
+    WasmModuleStore store = new WasmModuleStore(new WasmProperties(), JsSandbox.DEFAULT);
+
+    assertThatThrownBy(() -> store.upload(EMPTY_MODULE, "empty"))
+        .isInstanceOf(LanguageNotSupportedProblem.class)
+        .hasMessageContaining(WasmModule.LANGUAGE);
+    assertThat(store.findAll()).isEmpty();
+  }
+
+  @Test
+  void unknownModuleIsNotFound() {
+    WasmModuleStore store = new WasmModuleStore(new WasmProperties(), JsSandbox.DEFAULT);
+
+    assertThatThrownBy(() -> store.get(1)).isInstanceOf(WasmModuleNotFoundProblem.class);
+    assertThatThrownBy(() -> store.delete(1)).isInstanceOf(WasmModuleNotFoundProblem.class);
+  }
+
+  @Test
+  void moduleKeepsItsBinaryAsWasmSource() {
+    WasmModule module = new WasmModule(7, "empty", EMPTY_MODULE, "hash");
+
+    assertThat(module.getSize()).isEqualTo(EMPTY_MODULE.length);
+    assertThat(module.getSource().getLanguage()).isEqualTo(WasmModule.LANGUAGE);
+    assertThat(module.getSource().hasBytes()).isTrue();
+    assertThat(module.getSource().getName()).isEqualTo("module-7");
+  }
+}
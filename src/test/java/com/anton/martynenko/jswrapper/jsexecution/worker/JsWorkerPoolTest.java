@@ -0,0 +1,214 @@
+package com.anton.martynenko.jswrapper.jsexecution.worker;
+
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.JsSandbox;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.PreparedContext;
+import com.anton.martynenko.jswrapper.jsexecution.sandbox.SandboxProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsWorkerPoolTest {
+
+  private static final int POOL_SIZE = 4;
+
+  private JsWorkerPool jsWorkerPool;
+
+  @BeforeEach
+  void prepare() {
+    jsWorkerPool = new JsWorkerPool(POOL_SIZE);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    jsWorkerPool.shutdown();
+  }
+
+  @Test
+  void shouldRunTasksOnWorkersWithEngine() throws Exception {
+    AtomicReference<Optional<?>> engine = new AtomicReference<>();
+
+    jsWorkerPool.submit(() -> engine.set(JsWorker.currentEngine())).get(5, TimeUnit.SECONDS);
+
+    assertThat(engine.get()).isPresent();
+    assertThat(JsWorker.currentEngine()).isEmpty();
+  }
+
+  @Test
+  void shouldRunAllTasksWhenOneWorkerIsBlocked() throws InterruptedException {
+    int tasksAmount = 1000;
+    CountDownLatch blocker = new CountDownLatch(1);
+    CountDownLatch latch = new CountDownLatch(tasksAmount);
+
+    jsWorkerPool.submit(() -> {
+      try {
+        blocker.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    for (int i = 0; i < tasksAmount; i++) {
+      jsWorkerPool.submit(latch::countDown);
+    }
+
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(jsWorkerPool.getQueuedTasks()).isZero();
+    blocker.countDown();
+  }
+
+  @Test
+  void shouldInterruptCancelledTask() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+
+    Future<?> future = jsWorkerPool.submit(() -> {
+      started.countDown();
+      try {
+        TimeUnit.SECONDS.sleep(10);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(future.cancel(true)).isTrue();
+    assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+
+    //worker should be reusable after interruption
+    AtomicBoolean interruptedThread = new AtomicBoolean();
+    CountDownLatch done = new CountDownLatch(POOL_SIZE);
+    for (int i = 0; i < POOL_SIZE; i++) {
+      jsWorkerPool.submit(() -> {
+        if (Thread.currentThread().isInterrupted()) {
+          interruptedThread.set(true);
+        }
+        done.countDown();
+      });
+    }
+
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(interruptedThread.get()).isFalse();
+  }
+
+  @Test
+  void shouldReplaceStuckWorker() throws InterruptedException {
+    jsWorkerPool.shutdown();
+    jsWorkerPool = new JsWorkerPool(1);
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch stuck = new CountDownLatch(1);
+    AtomicReference<Thread> stuckThread = new AtomicReference<>();
+
+    jsWorkerPool.submit(() -> {
+      stuckThread.set(Thread.currentThread());
+      started.countDown();
+      //ignores interruption like script which can't be stopped
+      while (stuck.getCount() > 0) {
+        Thread.yield();
+      }
+    });
+
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    CountDownLatch queued = new CountDownLatch(1);
+    jsWorkerPool.submit(queued::countDown);
+
+    JsWorker stuckWorker = (JsWorker) stuckThread.get();
+    assertThat(jsWorkerPool.replace(stuckWorker)).isTrue();
+    assertThat(jsWorkerPool.replace(stuckWorker)).isFalse();
+
+    assertThat(queued.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(stuckWorker.isRetired()).isTrue();
+    assertThat(jsWorkerPool.getWorkers()).doesNotContain(stuckWorker);
+    assertThat(jsWorkerPool.getReplacedWorkers()).isEqualTo(1);
+
+    stuck.countDown();
+    stuckWorker.join(5000);
+    assertThat(stuckWorker.isAlive()).isFalse();
+  }
+
+  @Test
+  void shouldRegisterMetricsPerWorker() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    jsWorkerPool.bindTo(registry);
+
+    assertThat(registry.find("jswrapper.worker.queue.depth").gauges()).hasSize(POOL_SIZE);
+    assertThat(registry.find("jswrapper.worker.tasks.completed").functionCounters()).hasSize(POOL_SIZE);
+    assertThat(registry.find("jswrapper.worker.tasks.stolen").functionCounters()).hasSize(POOL_SIZE);
+    assertThat(registry.get("jswrapper.worker.compilation").gauge().value())
+        .isEqualTo(jsWorkerPool.isCompilationEnabled() ? 1 : 0);
+  }
+
+  @Test
+  void shouldRejectAfterShutdown() {
+    jsWorkerPool.shutdown();
+
+    assertThrows(RejectedExecutionException.class, () -> jsWorkerPool.submit(() -> { }));
+  }
+
+  @Test
+  void shouldPrepareContextWithPreludeWhileIdle() throws Exception {
+    SandboxProperties properties = new SandboxProperties();
+    properties.setPrelude(Collections.singletonList("classpath:prelude/greeting.js"));
+    JsSandbox sandbox = new JsSandbox(properties, new ObjectMapper());
+    jsWorkerPool.shutdown();
+    jsWorkerPool = new JsWorkerPool(1, sandbox);
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    Optional<PreparedContext> prepared = Optional.empty();
+
+    while (!prepared.isPresent()) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      TimeUnit.MILLISECONDS.sleep(20);
+      prepared = takePrepared(sandbox);
+    }
+
+    try (PreparedContext context = prepared.get()) {
+      assertThat(context.getPreludeNanos()).isPositive();
+      assertThat(context.attach(new ByteArrayOutputStream(), new ByteArrayOutputStream())
+          .eval("js", "greet('worker')").asString()).isEqualTo("Hello, worker");
+    }
+
+    //contexts of other sandboxes are not taken
+    assertThat(jsWorkerPool.submit(() -> assertThat(JsWorker.takePreparedContext(JsSandbox.DEFAULT)).isEmpty())
+        .get(5, TimeUnit.SECONDS)).isNull();
+  }
+
+  private Optional<PreparedContext> takePrepared(final JsSandbox sandbox) throws Exception {
+    AtomicReference<Optional<PreparedContext>> taken = new AtomicReference<>();
+    jsWorkerPool.submit(() -> taken.set(JsWorker.takePreparedContext(sandbox))).get(5, TimeUnit.SECONDS);
+    return taken.get();
+  }
+
+  @Test
+  void shouldTellIfJsIsCompiled() {
+    Health health = jsWorkerPool.health();
+
+    assertThat(health.getStatus()).isEqualTo(Status.UP);
+    assertThat(health.getDetails())
+        .containsEntry("engine", jsWorkerPool.getEngineImplementation())
+        .containsEntry("compilation", !JsWorkerPool.INTERPRETED.equals(jsWorkerPool.getEngineImplementation()))
+        .containsEntry("workers", POOL_SIZE);
+
+    jsWorkerPool.shutdown();
+
+    assertThat(jsWorkerPool.health().getStatus()).isEqualTo(Status.DOWN);
+  }
+}
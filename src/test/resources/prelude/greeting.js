@@ -0,0 +1,6 @@
+// prelude of tests: defines helper used by scripts and prints nothing into their logs
+console.log('prelude output is dropped');
+const greetingPrefix = 'Hello, ';
+function greet(name) {
+  return greetingPrefix + name;
+}
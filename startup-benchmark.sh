@@ -0,0 +1,45 @@
+#!/bin/sh
+# Compares startup time and memory of JVM and native images of JsWrapper.
+# Startup is the time from container start till the first answered request,
+# RSS is taken after one script has run, so it includes the first js context.
+# Usage: ./startup-benchmark.sh [runs], images are built as described in README:
+#   docker build . --tag jsw
+#   docker build -f Dockerfile.native . --tag jsw-native
+
+RUNS=${1:-5}
+PORT=18080
+
+millis() {
+  date +%s%3N
+}
+
+measure() {
+  image=$1
+  total=0
+  run=1
+
+  while [ "$run" -le "$RUNS" ]; do
+    start=$(millis)
+    container=$(docker run -d -p "$PORT:8080" "$image")
+
+    until curl -sf -o /dev/null "http://localhost:$PORT/executions"; do
+      sleep 0.05
+    done
+
+    elapsed=$(($(millis) - start))
+    curl -sf -o /dev/null -H "Content-Type: application/json" \
+      -d "{\"scriptBody\": \"console.log('warm')\"}" "http://localhost:$PORT/executions"
+    sleep 1
+    rss=$(docker top "$container" -o rss | awk 'NR > 1 { sum += $1 } END { print sum }')
+    docker rm -f "$container" > /dev/null
+
+    echo "$image run $run: started in ${elapsed} ms, RSS ${rss} KB"
+    total=$((total + elapsed))
+    run=$((run + 1))
+  done
+
+  echo "$image average: $((total / RUNS)) ms"
+}
+
+measure jsw
+measure jsw-native